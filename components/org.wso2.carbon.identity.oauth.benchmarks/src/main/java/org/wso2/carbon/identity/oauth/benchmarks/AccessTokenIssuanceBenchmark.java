@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures {@link AccessTokenIssuer#issue} for the client credentials grant: requests which are answered with the
+ * active token of the application, read from the OAuth cache, and requests for a scope nobody asked for before,
+ * which generate a token and persist it in the H2 identity database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccessTokenIssuanceBenchmark {
+
+    private static final String ACTIVE_TOKEN_SCOPE = "issuance";
+
+    private final AtomicLong scopeSequence = new AtomicLong();
+
+    @Setup
+    public void setUp(OAuthServerEnvironment environment) throws IdentityException, InvalidOAuthClientException {
+
+        OAuthServerEnvironment.startSuperTenantFlow();
+        try {
+            OAuthServerEnvironment.issueToken(ACTIVE_TOKEN_SCOPE);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    @Benchmark
+    public OAuth2AccessTokenRespDTO issueActiveToken(SuperTenantFlow flow)
+            throws IdentityException, InvalidOAuthClientException {
+        return OAuthServerEnvironment.issueToken(ACTIVE_TOKEN_SCOPE);
+    }
+
+    @Benchmark
+    public OAuth2AccessTokenRespDTO issueNewToken(SuperTenantFlow flow)
+            throws IdentityException, InvalidOAuthClientException {
+        return OAuthServerEnvironment.issueToken("issuance_" + scopeSequence.incrementAndGet());
+    }
+}
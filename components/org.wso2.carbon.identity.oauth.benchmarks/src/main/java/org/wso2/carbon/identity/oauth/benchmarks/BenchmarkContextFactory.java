@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.spi.InitialContextFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * JNDI context factory of the benchmark environment. It only supports looking up the objects bound through
+ * {@link #bind(String, Object)}, which is all the identity database lookup needs.
+ */
+public class BenchmarkContextFactory implements InitialContextFactory {
+
+    private static final ConcurrentMap<String, Object> bindings = new ConcurrentHashMap<>();
+
+    static void bind(String name, Object value) {
+        bindings.put(name, value);
+    }
+
+    static void unbind(String name) {
+        bindings.remove(name);
+    }
+
+    @Override
+    public Context getInitialContext(final Hashtable<?, ?> environment) {
+
+        return (Context) Proxy.newProxyInstance(BenchmarkContextFactory.class.getClassLoader(),
+                new Class<?>[]{Context.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+
+                        switch (method.getName()) {
+                            case "lookup":
+                                String name = String.valueOf(args[0]);
+                                Object value = bindings.get(name);
+                                if (value == null) {
+                                    throw new NameNotFoundException(name + " is not bound");
+                                }
+                                return value;
+                            case "getEnvironment":
+                                return environment != null ? new Hashtable<>(environment) : new Hashtable<>();
+                            case "close":
+                                return null;
+                            default:
+                                throw new OperationNotSupportedException(method.getName() + " is not supported");
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.openidconnect.DefaultIDTokenBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link DefaultIDTokenBuilder#buildIDToken(OAuthTokenReqMessageContext, OAuth2AccessTokenRespDTO)} for an
+ * authorization code request: the issuance profile and the signing key of the tenant come from their caches, the
+ * issue time of the access token from the OAuth cache or the database, and the token is signed with RS256.
+ *
+ * The access token is issued with the client credentials grant and without the openid scope, which would need the
+ * application management service; the builder only reads its issue time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IDTokenBuilderBenchmark {
+
+    private static final String[] SCOPE = {"id_token"};
+
+    private DefaultIDTokenBuilder idTokenBuilder;
+    private OAuthTokenReqMessageContext tokReqMsgCtx;
+    private OAuth2AccessTokenRespDTO tokenRespDTO;
+
+    @Setup
+    public void setUp(OAuthServerEnvironment environment) throws IdentityException, InvalidOAuthClientException {
+
+        OAuthServerEnvironment.startSuperTenantFlow();
+        try {
+            tokenRespDTO = OAuthServerEnvironment.issueToken(SCOPE);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+
+        OAuth2AccessTokenReqDTO tokenReqDTO = new OAuth2AccessTokenReqDTO();
+        tokenReqDTO.setClientId(OAuthServerEnvironment.CLIENT_ID);
+        tokenReqDTO.setGrantType("authorization_code");
+        tokenReqDTO.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        tokenReqDTO.setScope(SCOPE);
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName(OAuthServerEnvironment.APP_OWNER);
+        user.setUserStoreDomain(OAuthServerEnvironment.USER_STORE_DOMAIN);
+        user.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        user.setAuthenticatedSubjectIdentifier(OAuthServerEnvironment.APP_OWNER);
+
+        tokReqMsgCtx = new OAuthTokenReqMessageContext(tokenReqDTO);
+        tokReqMsgCtx.setAuthorizedUser(user);
+        tokReqMsgCtx.setScope(SCOPE);
+        tokReqMsgCtx.setTenantID(MultitenantConstants.SUPER_TENANT_ID);
+
+        idTokenBuilder = new DefaultIDTokenBuilder();
+    }
+
+    @Benchmark
+    public String buildIDToken(SuperTenantFlow flow) throws IdentityOAuth2Exception {
+        return idTokenBuilder.buildIDToken(tokReqMsgCtx, tokenRespDTO);
+    }
+}
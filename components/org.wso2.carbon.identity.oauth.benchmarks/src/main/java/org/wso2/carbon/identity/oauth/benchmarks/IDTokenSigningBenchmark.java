@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.util.TenantSigningKey;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the signing step of ID token issuance: signing with the shared signer of a
+ * {@link TenantSigningKey} against creating a signer and computing the certificate thumbprint per token, as
+ * DefaultIDTokenBuilder did before the key was shared, and the at_hash computation. The tenant certificate is read
+ * from benchmark-cert.pem; the thumbprint does not depend on the private key, which is generated at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IDTokenSigningBenchmark {
+
+    private static final int SUPER_TENANT_ID = -1234;
+    private static final String CERTIFICATE_RESOURCE = "/benchmark-cert.pem";
+    private static final String ACCESS_TOKEN = "c9f1a7e6-5b1c-3a8e-9f4e-2d7b0c1a5e33";
+
+    private RSAPrivateKey privateKey;
+    private Certificate certificate;
+    private TenantSigningKey signingKey;
+    private JWTClaimsSet claimsSet;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, IOException {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        privateKey = (RSAPrivateKey) keyPairGenerator.generateKeyPair().getPrivate();
+        try (InputStream in = IDTokenSigningBenchmark.class.getResourceAsStream(CERTIFICATE_RESOURCE)) {
+            certificate = CertificateFactory.getInstance("X.509").generateCertificate(in);
+        }
+        signingKey = new TenantSigningKey(SUPER_TENANT_ID, new RSASSASigner(privateKey), null,
+                getThumbprint(certificate));
+
+        long now = System.currentTimeMillis();
+        claimsSet = new JWTClaimsSet();
+        claimsSet.setIssuer("https://localhost:9443/oauth2/token");
+        claimsSet.setSubject("admin@carbon.super");
+        claimsSet.setAudience(Arrays.asList("bM3mKfYQ2P1bTvUuVoFnr4fxWVMa", "https://localhost:9443/oauth2/token"));
+        claimsSet.setClaim("azp", "bM3mKfYQ2P1bTvUuVoFnr4fxWVMa");
+        claimsSet.setIssueTime(new Date(now));
+        claimsSet.setExpirationTime(new Date(now + 3600 * 1000L));
+        claimsSet.setClaim("nonce", "n-0S6_WzA2Mj");
+    }
+
+    @Benchmark
+    public String signWithTenantSigningKey() throws IdentityOAuth2Exception, JOSEException {
+
+        JWSHeader header = signingKey.createHeader(JWSAlgorithm.RS256);
+        SignedJWT signedJWT = new SignedJWT(header, claimsSet);
+        signedJWT.sign(signingKey.getSigner());
+        return signedJWT.serialize();
+    }
+
+    @Benchmark
+    public String signWithSignerPerToken() throws GeneralSecurityException, JOSEException {
+
+        JWSHeader header = new JWSHeader(JWSAlgorithm.RS256);
+        header.setX509CertThumbprint(new Base64URL(getThumbprint(certificate)));
+        SignedJWT signedJWT = new SignedJWT(header, claimsSet);
+        signedJWT.sign(new RSASSASigner(privateKey));
+        return signedJWT.serialize();
+    }
+
+    @Benchmark
+    public String atHash() throws NoSuchAlgorithmException {
+
+        MessageDigest md = MessageDigest.getInstance("SHA-256");
+        byte[] digest = md.digest(ACCESS_TOKEN.getBytes(StandardCharsets.UTF_8));
+        return new String(Base64.encodeBase64URLSafe(Arrays.copyOf(digest, 16)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Base64url encoded, hex formatted SHA-1 digest of the DER encoded certificate, as placed in the x5t header.
+     */
+    private static String getThumbprint(Certificate certificate) throws GeneralSecurityException {
+
+        MessageDigest digestValue = MessageDigest.getInstance("SHA-1");
+        String publicCertThumbprint = Hex.encodeHexString(digestValue.digest(certificate.getEncoded()));
+        return new String(new Base64(0, null, true).encode(publicCertThumbprint.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8);
+    }
+}
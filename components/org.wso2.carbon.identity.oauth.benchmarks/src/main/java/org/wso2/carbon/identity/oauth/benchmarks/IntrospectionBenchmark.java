@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
+import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building introspection responses of bearer tokens issued to the benchmark application: one token per
+ * call, picked at random from the issued tokens, and all of them in one call, as the batch introspection endpoint does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntrospectionBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int tokenCount;
+
+    private List<OAuth2TokenValidationRequestDTO> requests;
+
+    @Setup
+    public void setUp(OAuthServerEnvironment environment) throws IdentityException, InvalidOAuthClientException {
+
+        requests = new ArrayList<>(tokenCount);
+        OAuthServerEnvironment.startSuperTenantFlow();
+        try {
+            for (int i = 0; i < tokenCount; i++) {
+                String accessToken = OAuthServerEnvironment.issueToken("introspection_" + i).getAccessToken();
+                OAuth2TokenValidationRequestDTO request = new OAuth2TokenValidationRequestDTO();
+                OAuth2TokenValidationRequestDTO.OAuth2AccessToken token = request.new OAuth2AccessToken();
+                token.setTokenType("bearer");
+                token.setIdentifier(accessToken);
+                request.setAccessToken(token);
+                requests.add(request);
+            }
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    @Benchmark
+    public OAuth2IntrospectionResponseDTO introspect(SuperTenantFlow flow) throws IdentityOAuth2Exception {
+
+        OAuth2TokenValidationRequestDTO request = requests.get(ThreadLocalRandom.current().nextInt(tokenCount));
+        return TokenValidationHandler.getInstance().buildIntrospectionResponse(request);
+    }
+
+    @Benchmark
+    public List<OAuth2IntrospectionResponseDTO> introspectBatch(SuperTenantFlow flow) {
+        return TokenValidationHandler.getInstance().buildIntrospectionResponses(requests);
+    }
+}
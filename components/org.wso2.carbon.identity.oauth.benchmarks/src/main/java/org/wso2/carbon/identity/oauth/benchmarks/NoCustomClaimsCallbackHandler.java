@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.openidconnect.CustomClaimsCallbackHandler;
+
+/**
+ * Adds no claims to ID tokens. The default handler reads claims from the user store, which is not available to the
+ * benchmarks.
+ */
+public class NoCustomClaimsCallbackHandler implements CustomClaimsCallbackHandler {
+
+    @Override
+    public void handleCustomClaims(JWTClaimsSet builder, OAuthTokenReqMessageContext request) {
+        // no claims
+    }
+
+    @Override
+    public void handleCustomClaims(JWTClaimsSet builder, OAuthAuthzReqMessageContext request) {
+        // no claims
+    }
+}
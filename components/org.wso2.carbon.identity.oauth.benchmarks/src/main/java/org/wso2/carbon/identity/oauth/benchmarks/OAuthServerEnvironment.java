@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.h2.tools.RunScript;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wso2.carbon.base.CarbonBaseConstants;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenReqDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
+import org.wso2.carbon.identity.oauth2.token.AccessTokenIssuer;
+import org.wso2.carbon.identity.openidconnect.IDTokenIssuanceProfile;
+import org.wso2.carbon.identity.openidconnect.IDTokenIssuanceProfileCache;
+import org.wso2.carbon.registry.core.service.RegistryService;
+import org.wso2.carbon.user.core.service.RealmService;
+
+import javax.naming.Context;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The OAuth component outside of the server: a carbon home holding the identity.xml of the benchmarks, an in-memory
+ * H2 identity database bound to the configured data source name, a generated key store of the super tenant and
+ * stubs of the realm and registry services. One OAuth application, which may use the client credentials grant, is
+ * registered in the database.
+ *
+ * Claims of the user store, the resident identity provider and the application management service are not
+ * available. Benchmarks therefore stay on paths which do not need them, and the ID token issuance profile of the
+ * super tenant is placed in its cache up front.
+ *
+ * The component keeps its configuration and caches in static state, so a JVM only hosts one environment. Every
+ * benchmark runs in its own fork.
+ */
+@State(Scope.Benchmark)
+public class OAuthServerEnvironment {
+
+    static final String CLIENT_ID = "bM3mKfYQ2P1bTvUuVoFnr4fxWVMa";
+    static final String CLIENT_SECRET = "Fb2lGcrzQ8EGl1yfoSyvRGJ3yzka";
+    static final String APP_OWNER = "admin";
+    static final String USER_STORE_DOMAIN = "PRIMARY";
+    static final String ISSUER = "https://localhost:9443/oauth2/token";
+
+    private static final String DATA_SOURCE_NAME = "jdbc/WSO2IdentityDB";
+    private static final String DATABASE_URL = "jdbc:h2:mem:oauth-benchmark;DB_CLOSE_DELAY=-1";
+    private static final int MAX_CONNECTIONS = 50;
+    private static final String IDENTITY_XML = "/carbon-home/repository/conf/identity/identity.xml";
+    private static final String DATABASE_SCRIPT = "/dbscripts/h2.sql";
+    private static final String CERTIFICATE_RESOURCE = "/benchmark-cert.pem";
+    private static final String KEY_ALIAS = "wso2carbon";
+    private static final String KEY_STORE_PASSWORD = "wso2carbon";
+    private static final String ADD_APP = "INSERT INTO IDN_OAUTH_CONSUMER_APPS (CONSUMER_KEY, CONSUMER_SECRET, " +
+            "USERNAME, TENANT_ID, USER_DOMAIN, APP_NAME, OAUTH_VERSION, CALLBACK_URL, GRANT_TYPES) VALUES " +
+            "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private File carbonHome;
+    private JdbcConnectionPool dataSource;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException, IOException, SQLException {
+
+        carbonHome = Files.createTempDirectory("oauth-benchmark").toFile();
+        File identityXml = new File(carbonHome, "repository/conf/identity/identity.xml");
+        if (!identityXml.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + identityXml.getParent());
+        }
+        try (InputStream in = OAuthServerEnvironment.class.getResourceAsStream(IDENTITY_XML)) {
+            Files.copy(in, identityXml.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        System.setProperty(CarbonBaseConstants.CARBON_HOME, carbonHome.getAbsolutePath());
+
+        setUpDatabase();
+        setUpServices(createKeyStore(new File(carbonHome, "repository/resources/security/wso2carbon.jks")));
+
+        startSuperTenantFlow();
+        try {
+            IDTokenIssuanceProfileCache.getInstance().addProfile(new IDTokenIssuanceProfile(
+                    MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, ISSUER, Collections.<String>emptyList(),
+                    3600 * 1000L, JWSAlgorithm.RS256, "SHA-256"));
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+
+        BenchmarkContextFactory.unbind(DATA_SOURCE_NAME);
+        dataSource.dispose();
+        delete(carbonHome);
+    }
+
+    /**
+     * Issues a token to the application with the client credentials grant. The caller has to be in a tenant flow.
+     *
+     * @param scopes requested scopes
+     * @return token response
+     */
+    static OAuth2AccessTokenRespDTO issueToken(String... scopes)
+            throws IdentityException, InvalidOAuthClientException {
+
+        OAuth2AccessTokenReqDTO tokenReqDTO = new OAuth2AccessTokenReqDTO();
+        tokenReqDTO.setClientId(CLIENT_ID);
+        tokenReqDTO.setClientSecret(CLIENT_SECRET);
+        tokenReqDTO.setGrantType("client_credentials");
+        tokenReqDTO.setScope(scopes);
+        OAuth2AccessTokenRespDTO tokenRespDTO = AccessTokenIssuer.getInstance().issue(tokenReqDTO);
+        if (tokenRespDTO.isError()) {
+            throw new IdentityOAuth2Exception("Token issuance failed: " + tokenRespDTO.getErrorMsg());
+        }
+        return tokenRespDTO;
+    }
+
+    static void startSuperTenantFlow() {
+
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+    }
+
+    private void setUpDatabase() throws IOException, SQLException {
+
+        dataSource = JdbcConnectionPool.create(DATABASE_URL, "wso2carbon", "wso2carbon");
+        dataSource.setMaxConnections(MAX_CONNECTIONS);
+        try (Connection connection = dataSource.getConnection();
+             Reader script = new InputStreamReader(
+                     OAuthServerEnvironment.class.getResourceAsStream(DATABASE_SCRIPT), StandardCharsets.UTF_8)) {
+            RunScript.execute(connection, script);
+            try (PreparedStatement prepStmt = connection.prepareStatement(ADD_APP)) {
+                prepStmt.setString(1, CLIENT_ID);
+                prepStmt.setString(2, CLIENT_SECRET);
+                prepStmt.setString(3, APP_OWNER);
+                prepStmt.setInt(4, MultitenantConstants.SUPER_TENANT_ID);
+                prepStmt.setString(5, USER_STORE_DOMAIN);
+                prepStmt.setString(6, "benchmark");
+                prepStmt.setString(7, "OAuth-2.0");
+                prepStmt.setString(8, "https://localhost/callback");
+                prepStmt.setString(9, "client_credentials authorization_code");
+                prepStmt.execute();
+            }
+        }
+
+        BenchmarkContextFactory.bind(DATA_SOURCE_NAME, dataSource);
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, BenchmarkContextFactory.class.getName());
+    }
+
+    private void setUpServices(File keyStore) {
+
+        RealmService realmService = ServiceStubs.createRealmService();
+        IdentityTenantUtil.setRealmService(realmService);
+        OAuthComponentServiceHolder.getInstance().setRealmService(realmService);
+
+        Map<String, String> carbonProperties = new HashMap<>();
+        carbonProperties.put("Security.KeyStore.Location", keyStore.getAbsolutePath());
+        carbonProperties.put("Security.KeyStore.Type", "JKS");
+        carbonProperties.put("Security.KeyStore.Password", KEY_STORE_PASSWORD);
+        carbonProperties.put("Security.KeyStore.KeyAlias", KEY_ALIAS);
+        carbonProperties.put("Security.KeyStore.KeyPassword", KEY_STORE_PASSWORD);
+        KeyStoreManager.getInstance(MultitenantConstants.SUPER_TENANT_ID,
+                ServiceStubs.createServerConfiguration(carbonProperties), ServiceStubs.create(RegistryService.class));
+    }
+
+    /**
+     * Creates the key store of the super tenant. The key pair is generated; its certificate is read from
+     * benchmark-cert.pem and does not match the key, which only matters for verifying signatures.
+     */
+    private static File createKeyStore(File file) throws GeneralSecurityException, IOException {
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        PrivateKey privateKey = keyPairGenerator.generateKeyPair().getPrivate();
+        Certificate certificate;
+        try (InputStream in = OAuthServerEnvironment.class.getResourceAsStream(CERTIFICATE_RESOURCE)) {
+            certificate = CertificateFactory.getInstance("X.509").generateCertificate(in);
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(KEY_ALIAS, privateKey, KEY_STORE_PASSWORD.toCharArray(), new Certificate[]{certificate});
+        if (!file.getParentFile().mkdirs()) {
+            throw new IOException("Could not create " + file.getParent());
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            keyStore.store(out, KEY_STORE_PASSWORD.toCharArray());
+        }
+        return file;
+    }
+
+    private static void delete(File file) throws IOException {
+
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+}
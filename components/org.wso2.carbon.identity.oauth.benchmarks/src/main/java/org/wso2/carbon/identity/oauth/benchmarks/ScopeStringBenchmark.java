@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link OAuth2Util#buildScopeString(String[])}, which sorts the requested scopes to build the scope part
+ * of token cache keys, and {@link OAuth2Util#buildScopeArray(String)}. The scopes are given in reverse order.
+ *
+ * OAuth2Util reads the server configuration when it is loaded, so the benchmark runs in the benchmark environment.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScopeStringBenchmark {
+
+    @Param({"1", "5", "20"})
+    private int scopeCount;
+
+    private String[] scopes;
+    private String scopeString;
+
+    @Setup
+    public void setUp(OAuthServerEnvironment environment) {
+
+        scopes = new String[scopeCount];
+        for (int i = 0; i < scopeCount; i++) {
+            scopes[i] = "scope_" + (char) ('z' - i);
+        }
+        scopeString = OAuth2Util.buildScopeString(scopes.clone());
+    }
+
+    @Benchmark
+    public String buildScopeString() {
+        // buildScopeString sorts the array it is given
+        return OAuth2Util.buildScopeString(scopes.clone());
+    }
+
+    @Benchmark
+    public String[] buildScopeArray() {
+        return OAuth2Util.buildScopeArray(scopeString);
+    }
+}
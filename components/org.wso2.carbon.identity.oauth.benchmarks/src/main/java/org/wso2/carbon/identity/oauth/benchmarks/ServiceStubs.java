@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.base.api.ServerConfigurationService;
+import org.wso2.carbon.user.core.service.RealmService;
+import org.wso2.carbon.user.core.tenant.TenantManager;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stand-ins for the OSGi services the OAuth component looks up, for running it outside of the server. A stub
+ * returns the answer registered for a method name. If the answer is a map, it is looked up with the first argument
+ * of the call. Other methods return an empty value of their return type: another stub for interfaces, an instance
+ * created with the public default constructor for other classes, and zero, false or null for JDK types.
+ */
+final class ServiceStubs {
+
+    private ServiceStubs() {
+    }
+
+    /**
+     * @return realm service which only knows the super tenant and treats usernames as case sensitive
+     */
+    static RealmService createRealmService() {
+
+        Map<String, Object> tenantManagerAnswers = new HashMap<>();
+        tenantManagerAnswers.put("getTenantId", MultitenantConstants.SUPER_TENANT_ID);
+        tenantManagerAnswers.put("getDomain", MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        TenantManager tenantManager = create(TenantManager.class, tenantManagerAnswers);
+        return create(RealmService.class, Collections.<String, Object>singletonMap("getTenantManager", tenantManager));
+    }
+
+    /**
+     * @param properties carbon.xml properties, e.g. <code>Security.KeyStore.Location</code>
+     * @return server configuration holding the given properties
+     */
+    static ServerConfigurationService createServerConfiguration(Map<String, String> properties) {
+        return create(ServerConfigurationService.class,
+                Collections.<String, Object>singletonMap("getFirstProperty", properties));
+    }
+
+    static <T> T create(Class<T> type) {
+        return create(type, Collections.<String, Object>emptyMap());
+    }
+
+    static <T> T create(final Class<T> type, final Map<String, ?> answers) {
+
+        return type.cast(Proxy.newProxyInstance(ServiceStubs.class.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        if (method.getDeclaringClass() == Object.class) {
+                            switch (method.getName()) {
+                                case "equals":
+                                    return proxy == args[0];
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                default:
+                                    return type.getSimpleName() + " stub";
+                            }
+                        }
+                        if (answers.containsKey(method.getName())) {
+                            Object answer = answers.get(method.getName());
+                            if (answer instanceof Map && args != null && args.length > 0) {
+                                return ((Map<?, ?>) answer).get(args[0]);
+                            }
+                            return answer;
+                        }
+                        return getEmptyValue(method.getReturnType());
+                    }
+                }));
+    }
+
+    private static Object getEmptyValue(Class<?> type) {
+
+        if (type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (type.isArray()) {
+            return Array.newInstance(type.getComponentType(), 0);
+        } else if (type.getName().startsWith("java.")) {
+            return null;
+        } else if (type.isInterface()) {
+            return create(type);
+        } else if (Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            return type.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+
+/**
+ * Keeps each benchmark thread in a super tenant flow, as a request to the token or introspection endpoint is.
+ */
+@State(Scope.Thread)
+public class SuperTenantFlow {
+
+    @Setup
+    public void setUp() {
+        OAuthServerEnvironment.startSuperTenantFlow();
+    }
+
+    @TearDown
+    public void tearDown() {
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.token.lock.StripedTokenIssuanceLockManager;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the striped token issuance lock against the interned string monitor it replaced, with concurrent token
+ * requests spread over a configurable number of client, user and scope combinations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TokenIssuanceLockBenchmark {
+
+    private static final String CONSUMER_KEY = "bM3mKfYQ2P1bTvUuVoFnr4fxWVMa";
+    private static final String SCOPE = "openid profile";
+
+    // Simulated work done while holding the lock
+    private static final long CRITICAL_SECTION_TOKENS = 100;
+
+    @Param({"1", "64", "4096"})
+    public int userCount;
+
+    private StripedTokenIssuanceLockManager lockManager;
+    private String[] users;
+
+    @State(Scope.Thread)
+    public static class RequestSequence {
+
+        private int next;
+
+        int nextIndex(int bound) {
+            next = (next + 1) % bound;
+            return next;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+
+        lockManager = new StripedTokenIssuanceLockManager(256);
+        users = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            users[i] = "PRIMARY/user" + i + "@carbon.super";
+        }
+    }
+
+    @Benchmark
+    public void stripedLock(RequestSequence sequence) throws IdentityOAuth2Exception {
+
+        TokenIssuanceLock lock = lockManager.acquire(CONSUMER_KEY, users[sequence.nextIndex(userCount)], SCOPE);
+        try {
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+        } finally {
+            lock.release();
+        }
+    }
+
+    @Benchmark
+    public void internedStringLock(RequestSequence sequence) {
+
+        String key = CONSUMER_KEY + ":" + users[sequence.nextIndex(userCount)] + ":" + SCOPE;
+        synchronized (key.intern()) {
+            Blackhole.consumeCPU(CRITICAL_SECTION_TOKENS);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+-- Identity database of the benchmark environment: the OAuth tables as created by the identity framework H2 script,
+-- with the hash lookup columns of OAuth.TokenPersistence.HashedLookup and the token issuance lock table.
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH_CONSUMER_APPS (
+            ID INTEGER NOT NULL AUTO_INCREMENT,
+            CONSUMER_KEY VARCHAR(255),
+            CONSUMER_SECRET VARCHAR(512),
+            USERNAME VARCHAR(255),
+            TENANT_ID INTEGER DEFAULT 0,
+            USER_DOMAIN VARCHAR(50),
+            APP_NAME VARCHAR(255),
+            OAUTH_VERSION VARCHAR(128),
+            CALLBACK_URL VARCHAR(1024),
+            GRANT_TYPES VARCHAR (1024),
+            PKCE_MANDATORY CHAR(1) DEFAULT '0',
+            PKCE_SUPPORT_PLAIN CHAR(1) DEFAULT '0',
+            APP_STATE VARCHAR (25) DEFAULT 'ACTIVE',
+            CONSTRAINT CONSUMER_KEY_CONSTRAINT UNIQUE (CONSUMER_KEY),
+            PRIMARY KEY (ID)
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ACCESS_TOKEN (
+            TOKEN_ID VARCHAR (255),
+            ACCESS_TOKEN VARCHAR(255),
+            REFRESH_TOKEN VARCHAR(255),
+            ACCESS_TOKEN_HASH VARCHAR(512),
+            REFRESH_TOKEN_HASH VARCHAR(512),
+            CONSUMER_KEY_ID INTEGER,
+            AUTHZ_USER VARCHAR (100),
+            TENANT_ID INTEGER,
+            USER_DOMAIN VARCHAR(50),
+            USER_TYPE VARCHAR (25),
+            GRANT_TYPE VARCHAR (50),
+            TIME_CREATED TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            REFRESH_TOKEN_TIME_CREATED TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+            VALIDITY_PERIOD BIGINT,
+            REFRESH_TOKEN_VALIDITY_PERIOD BIGINT,
+            TOKEN_SCOPE_HASH VARCHAR(32),
+            TOKEN_STATE VARCHAR(25) DEFAULT 'ACTIVE',
+            TOKEN_STATE_ID VARCHAR (128) DEFAULT 'NONE',
+            SUBJECT_IDENTIFIER VARCHAR(255),
+            PRIMARY KEY (TOKEN_ID),
+            FOREIGN KEY (CONSUMER_KEY_ID) REFERENCES IDN_OAUTH_CONSUMER_APPS(ID) ON DELETE CASCADE,
+            CONSTRAINT CON_APP_KEY UNIQUE (CONSUMER_KEY_ID,AUTHZ_USER,TENANT_ID,USER_DOMAIN,USER_TYPE,TOKEN_SCOPE_HASH,
+                                           TOKEN_STATE,TOKEN_STATE_ID)
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_ACCESS_TOKEN_SCOPE (
+            TOKEN_ID VARCHAR (255),
+            TOKEN_SCOPE VARCHAR (60),
+            TENANT_ID INTEGER DEFAULT -1,
+            PRIMARY KEY (TOKEN_ID, TOKEN_SCOPE),
+            FOREIGN KEY (TOKEN_ID) REFERENCES IDN_OAUTH2_ACCESS_TOKEN(TOKEN_ID) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_AUTHORIZATION_CODE (
+            CODE_ID VARCHAR (255),
+            AUTHORIZATION_CODE VARCHAR(512),
+            AUTHORIZATION_CODE_HASH VARCHAR(512),
+            CONSUMER_KEY_ID INTEGER,
+            CALLBACK_URL VARCHAR(1024),
+            SCOPE VARCHAR(2048),
+            AUTHZ_USER VARCHAR (100),
+            TENANT_ID INTEGER,
+            USER_DOMAIN VARCHAR(50),
+            TIME_CREATED TIMESTAMP,
+            VALIDITY_PERIOD BIGINT,
+            STATE VARCHAR (25) DEFAULT 'ACTIVE',
+            TOKEN_ID VARCHAR(255),
+            SUBJECT_IDENTIFIER VARCHAR(255),
+            PKCE_CODE_CHALLENGE VARCHAR(255),
+            PKCE_CODE_CHALLENGE_METHOD VARCHAR(128),
+            PRIMARY KEY (CODE_ID),
+            FOREIGN KEY (CONSUMER_KEY_ID) REFERENCES IDN_OAUTH_CONSUMER_APPS(ID) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_TOKEN_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR(64) NOT NULL,
+            LOCKED_TIME TIMESTAMP NOT NULL,
+            PRIMARY KEY (LOCK_KEY)
+);
@@ -23,33 +23,44 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import javax.ws.rs.core.MultivaluedMap;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+/**
+ * Request wrapper which exposes the servlet request parameters together with the form parameters read by JAX-RS.
+ * Both are copied once into a snapshot when the wrapper is created, so parameter lookups made while parsing the
+ * OAuth request do not go back to the underlying request.
+ */
 public class OAuthRequestWrapper extends HttpServletRequestWrapper {
+
     private MultivaluedMap<String, String> form;
-    private Enumeration<String> parameterNames;
+    private Map<String, String> parameters = new LinkedHashMap<String, String>();
 
     public OAuthRequestWrapper(HttpServletRequest request, MultivaluedMap<String, String> form) {
         super(request);
         this.form = form;
 
-        Set<String> parameterNameSet = new HashSet<String>();
-        // Add post parameters
-        parameterNameSet.addAll(form.keySet());
-        // Add servlet request parameters
-        Enumeration<String> requestParameterNames = request.getParameterNames();
-        while (requestParameterNames.hasMoreElements()) {
-            parameterNameSet.add(requestParameterNames.nextElement());
+        // Servlet request parameters take precedence over post parameters
+        @SuppressWarnings("unchecked")
+        Map<String, String[]> requestParameters = request.getParameterMap();
+        for (Map.Entry<String, String[]> entry : requestParameters.entrySet()) {
+            String[] values = entry.getValue();
+            parameters.put(entry.getKey(), values != null && values.length > 0 ? values[0] : null);
+        }
+        for (Map.Entry<String, List<String>> entry : form.entrySet()) {
+            if (!parameters.containsKey(entry.getKey())) {
+                List<String> values = entry.getValue();
+                parameters.put(entry.getKey(), values != null && !values.isEmpty() ? values.get(0) : null);
+            }
         }
-
-        this.parameterNames = Collections.enumeration(parameterNameSet);
     }
 
     @Override
     public String getParameter(String name) {
-        String value = super.getParameter(name);
+        String value = parameters.get(name);
         if (value == null) {
+            // post parameters may be added after the wrapper is created, e.g. client credentials of basic auth
             value = form.getFirst(name);
         }
         return value;
@@ -57,6 +68,6 @@ public class OAuthRequestWrapper extends HttpServletRequestWrapper {
 
     @Override
     public Enumeration<String> getParameterNames() {
-        return parameterNames;
+        return Collections.enumeration(parameters.keySet());
     }
 }
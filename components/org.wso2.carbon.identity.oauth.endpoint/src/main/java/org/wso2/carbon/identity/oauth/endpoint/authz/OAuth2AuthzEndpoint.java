@@ -41,7 +41,6 @@ import org.wso2.carbon.identity.application.authentication.framework.util.Framew
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
 import org.wso2.carbon.identity.application.common.model.Claim;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
-import org.wso2.carbon.identity.oauth.IdentityOAuthAdminException;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCache;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
@@ -50,7 +49,6 @@ import org.wso2.carbon.identity.oauth.cache.SessionDataCacheEntry;
 import org.wso2.carbon.identity.oauth.cache.SessionDataCacheKey;
 import org.wso2.carbon.identity.oauth.common.OAuth2ErrorCodes;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
-import org.wso2.carbon.identity.oauth.dao.OAuthAppDAO;
 import org.wso2.carbon.identity.oauth.endpoint.OAuthRequestWrapper;
 import org.wso2.carbon.identity.oauth.endpoint.util.EndpointUtil;
 import org.wso2.carbon.identity.oauth.endpoint.util.OpenIDConnectUserRPStore;
@@ -189,9 +187,8 @@ public class OAuth2AuthzEndpoint {
 
         try {
             if(StringUtils.isNotEmpty(clientId)) {
-                OAuthAppDAO oAuthAppDAO = new OAuthAppDAO();
                 try {
-                    String appState = oAuthAppDAO.getConsumerAppState(clientId);
+                    String appState = OAuth2Util.getAppState(clientId);
                     if(!OAuthConstants.OauthAppStates.APP_STATE_ACTIVE.equalsIgnoreCase(appState)) {
                         if (log.isDebugEnabled()) {
                             log.debug("Oauth App is not in active state.");
@@ -201,7 +198,7 @@ public class OAuth2AuthzEndpoint {
                                 .setErrorDescription("Oauth application is not in active state.").buildJSONMessage();
                         return Response.status(oAuthResponse.getResponseStatus()).entity(oAuthResponse.getBody()).build();
                     }
-                } catch (IdentityOAuthAdminException e) {
+                } catch (IdentityOAuth2Exception e) {
                     if (log.isDebugEnabled()) {
                         log.debug("Error in getting oauth app state.", e);
                     }
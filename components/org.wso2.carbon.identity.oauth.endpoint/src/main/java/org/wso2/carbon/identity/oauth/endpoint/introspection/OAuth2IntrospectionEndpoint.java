@@ -20,12 +20,17 @@ package org.wso2.carbon.identity.oauth.endpoint.introspection;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.json.JSONArray;
 import org.json.JSONException;
+import org.json.JSONObject;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.POST;
@@ -43,6 +48,9 @@ public class OAuth2IntrospectionEndpoint {
     private final static String DEFAULT_TOKEN_TYPE_HINT = "bearer";
     private final static String DEFAULT_TOKEN_TYPE = "Bearer";
     private final static String JWT_TOKEN_TYPE = "JWT";
+    private final static String TOKEN = "token";
+    private final static String TOKEN_TYPE_HINT = "token_type_hint";
+    private final static int MAX_BATCH_SIZE = 100;
 
     /**
      * @param token access token or refresh token
@@ -61,7 +69,6 @@ public class OAuth2IntrospectionEndpoint {
     @POST
     public Response introspect(@FormParam("token") String token, @FormParam("token_type_hint") String tokenTypeHint) {
 
-        OAuth2TokenValidationRequestDTO introspectionRequest;
         OAuth2IntrospectionResponseDTO introspectionResponse;
 
         if (tokenTypeHint == null) {
@@ -76,17 +83,11 @@ public class OAuth2IntrospectionEndpoint {
             return Response.status(Response.Status.BAD_REQUEST).entity("{'error': 'Invalid input'}").build();
         }
 
-        // validate the access token against the OAuth2TokenValidationService OSGi service.
-        introspectionRequest = new OAuth2TokenValidationRequestDTO();
-        OAuth2TokenValidationRequestDTO.OAuth2AccessToken accessToken = introspectionRequest.new OAuth2AccessToken();
-        accessToken.setIdentifier(token);
-        accessToken.setTokenType(tokenTypeHint);
-        introspectionRequest.setAccessToken(accessToken);
-
-        OAuth2TokenValidationService tokenService = (OAuth2TokenValidationService) PrivilegedCarbonContext
-                .getThreadLocalCarbonContext().getOSGiService(OAuth2TokenValidationService.class);
+        OAuth2TokenValidationService tokenService = getTokenValidationService();
 
-        introspectionResponse = tokenService.buildIntrospectionResponse(introspectionRequest);
+        // validate the access token against the OAuth2TokenValidationService OSGi service.
+        introspectionResponse = tokenService.buildIntrospectionResponse(buildIntrospectionRequest(token,
+                tokenTypeHint));
 
         if (introspectionResponse.getError() != null) {
             if (log.isDebugEnabled()) {
@@ -95,6 +96,106 @@ public class OAuth2IntrospectionEndpoint {
             return Response.status(Response.Status.OK).entity("{'active':false}").build();
         }
 
+        try {
+            return Response.ok(getResponseBuilder(introspectionResponse, tokenTypeHint).build(),
+                    MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
+        } catch (JSONException e) {
+            log.error("Error occured while building the json response.", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{'error': 'Error occured while building the json response.'}").build();
+        }
+    }
+
+    /**
+     * Introspects several tokens in one call. The request is a JSON array whose elements are either tokens, or
+     * objects with a <code>token</code> and an optional <code>token_type_hint</code>. The response is a JSON array
+     * of the introspection responses, in the order of the request.
+     *
+     * @param payload JSON array of the tokens
+     * @return JSON array of the introspection responses, or a 400 response if the payload is not such an array
+     */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON})
+    public Response introspectBatch(String payload) {
+
+        List<OAuth2TokenValidationRequestDTO> introspectionRequests = new ArrayList<>();
+        List<String> tokenTypeHints = new ArrayList<>();
+        try {
+            JSONArray tokens = new JSONArray(StringUtils.isBlank(payload) ? "[]" : payload);
+            if (tokens.length() == 0 || tokens.length() > MAX_BATCH_SIZE) {
+                return Response.status(Response.Status.BAD_REQUEST).entity("{'error': 'Invalid input'}").build();
+            }
+            for (int i = 0; i < tokens.length(); i++) {
+                String token;
+                String tokenTypeHint = DEFAULT_TOKEN_TYPE_HINT;
+                JSONObject tokenObject = tokens.optJSONObject(i);
+                // optString turns a JSON null into "null", which is not a token
+                if (tokenObject != null) {
+                    token = tokenObject.isNull(TOKEN) ? null : tokenObject.optString(TOKEN, null);
+                    if (!tokenObject.isNull(TOKEN_TYPE_HINT)) {
+                        tokenTypeHint = tokenObject.optString(TOKEN_TYPE_HINT, DEFAULT_TOKEN_TYPE_HINT);
+                    }
+                } else {
+                    token = tokens.isNull(i) ? null : tokens.optString(i, null);
+                }
+                if (StringUtils.isBlank(token)) {
+                    return Response.status(Response.Status.BAD_REQUEST).entity("{'error': 'Invalid input'}").build();
+                }
+                introspectionRequests.add(buildIntrospectionRequest(token, tokenTypeHint));
+                tokenTypeHints.add(tokenTypeHint);
+            }
+        } catch (JSONException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid batch introspection request.", e);
+            }
+            return Response.status(Response.Status.BAD_REQUEST).entity("{'error': 'Invalid input'}").build();
+        }
+
+        OAuth2TokenValidationService tokenService = getTokenValidationService();
+        OAuth2IntrospectionResponseDTO[] introspectionResponses = tokenService.buildIntrospectionResponses(
+                introspectionRequests.toArray(new OAuth2TokenValidationRequestDTO[introspectionRequests.size()]));
+
+        try {
+            JSONArray responses = new JSONArray();
+            for (int i = 0; i < introspectionResponses.length; i++) {
+                OAuth2IntrospectionResponseDTO introspectionResponse = introspectionResponses[i];
+                if (introspectionResponse == null || introspectionResponse.getError() != null) {
+                    if (log.isDebugEnabled() && introspectionResponse != null) {
+                        log.debug("The error why token is made inactive: " + introspectionResponse.getError());
+                    }
+                    responses.put(new JSONObject(new IntrospectionResponseBuilder().setActive(false).build()));
+                } else {
+                    responses.put(new JSONObject(getResponseBuilder(introspectionResponse, tokenTypeHints.get(i))
+                            .build()));
+                }
+            }
+            return Response.ok(responses.toString(), MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
+        } catch (JSONException e) {
+            log.error("Error occured while building the json response.", e);
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("{'error': 'Error occured while building the json response.'}").build();
+        }
+    }
+
+    OAuth2TokenValidationService getTokenValidationService() {
+        return (OAuth2TokenValidationService) PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                .getOSGiService(OAuth2TokenValidationService.class);
+    }
+
+    private OAuth2TokenValidationRequestDTO buildIntrospectionRequest(String token, String tokenTypeHint) {
+
+        OAuth2TokenValidationRequestDTO introspectionRequest = new OAuth2TokenValidationRequestDTO();
+        OAuth2TokenValidationRequestDTO.OAuth2AccessToken accessToken = introspectionRequest.new OAuth2AccessToken();
+        accessToken.setIdentifier(token);
+        accessToken.setTokenType(tokenTypeHint);
+        introspectionRequest.setAccessToken(accessToken);
+        return introspectionRequest;
+    }
+
+    private IntrospectionResponseBuilder getResponseBuilder(OAuth2IntrospectionResponseDTO introspectionResponse,
+                                                            String tokenTypeHint) {
+
         IntrospectionResponseBuilder respBuilder = new IntrospectionResponseBuilder()
                 .setActive(introspectionResponse.isActive())
                 .setNotBefore(introspectionResponse.getNbf())
@@ -111,13 +212,6 @@ public class OAuth2IntrospectionEndpoint {
                     .setSubject(introspectionResponse.getSub())
                     .setIssuer(introspectionResponse.getIss());
         }
-
-        try {
-            return Response.ok(respBuilder.build(), MediaType.APPLICATION_JSON).status(Response.Status.OK).build();
-        } catch (JSONException e) {
-            log.error("Error occured while building the json response.", e);
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                    .entity("{'error': 'Error occured while building the json response.'}").build();
-        }
+        return respBuilder;
     }
 }
@@ -18,14 +18,19 @@
 package org.wso2.carbon.identity.oauth.endpoint.jwks;
 
 
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.IOException;
 import java.math.BigInteger;
 import java.security.KeyStore;
 import java.security.cert.Certificate;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,16 +40,28 @@ import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.core.util.KeyStoreManager;
 import org.wso2.carbon.identity.core.util.IdentityIOStreamUtils;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.utils.CarbonUtils;
 
 
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
 
 
+/**
+ * Publishes the signing key of a tenant as a JSON Web Key Set. The generated document is cached per tenant and only
+ * rebuilt when the underlying key changes, which is checked at most once every
+ * <code>OAuth.JWKS.CacheTimeout</code> seconds (default 60). Responses carry an ETag and a matching Cache-Control
+ * max-age so relying parties can revalidate without downloading the key set again.
+ */
 public class JwksEndpoint {
     private static final Log log = LogFactory.getLog(JwksEndpoint.class);
     private static final char[] ENCODE_MAP = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
@@ -52,66 +69,175 @@ public class JwksEndpoint {
     private static final String use = "sig";
     private static final String kid = "d0ec514a32b6f88c0abd12a2840699bdd3deba9d";
 
+    private static final String JWKS_CACHE_TIMEOUT = "OAuth.JWKS.CacheTimeout";
+    private static final int DEFAULT_JWKS_CACHE_TIMEOUT = 60;
+
+    private static final Map<String, JwksCacheEntry> jwksCache = new ConcurrentHashMap<>();
+    private static final int cacheTimeout = readCacheTimeout();
+
     @GET
     @Path(value = "/jwks/{tenantDomain:([\\w.]+)?}")
     @Produces(MediaType.APPLICATION_JSON)
-    public String jwks(@PathParam("tenantDomain") String tenantDomain) {
-        RSAPublicKey publicKey = null;
-        JSONObject jwksJson = new JSONObject();
-        FileInputStream file = null;
-        try {
-            if (StringUtils.isEmpty(tenantDomain) || tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                file = new FileInputStream(CarbonUtils.getServerConfiguration().getFirstProperty
-                        ("Security.KeyStore.Location"));
-                KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
-                String password = CarbonUtils.getServerConfiguration().getInstance().getFirstProperty
-                        ("Security.KeyStore.Password");
-                keystore.load(file, password.toCharArray());
-                String alias = CarbonUtils.getServerConfiguration().getInstance().getFirstProperty
-                        ("Security.KeyStore.KeyAlias");
-                // Get certificate of public key
-                Certificate cert = keystore.getCertificate(alias);
-                // Get public key
-                publicKey = (RSAPublicKey) cert.getPublicKey();
-            } else {
+    public Response jwks(@PathParam("tenantDomain") String tenantDomain,
+                         @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch) {
 
-                int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
-                if (tenantId < 1 && tenantId != -1234) {
-                    String errorMesage = "The tenant is not existing";
-                    log.error(errorMesage);
-                    return errorMesage;
-                }
-                KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(tenantId);
-                KeyStore keyStore = keyStoreManager.getKeyStore(generateKSNameFromDomainName(tenantDomain));
-                // Get certificate of public key
-                Certificate cert = keyStore.getCertificate(tenantDomain);
-                publicKey = (RSAPublicKey) cert.getPublicKey();
+        if (StringUtils.isEmpty(tenantDomain)) {
+            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        } else {
+            // tenant domains are case insensitive. Normalized so that case variants share a cache entry
+            tenantDomain = tenantDomain.toLowerCase(Locale.ENGLISH);
+        }
 
-            }
-            String modulus = base64EncodeUint(publicKey.getModulus());
-            String exponent = base64EncodeUint(publicKey.getPublicExponent());
-            String kty = publicKey.getAlgorithm();
-            JSONArray jwksKeyArray = new JSONArray();
-            JSONObject jwksKeys = new JSONObject();
-            jwksKeys.put("kty", kty);
-            jwksKeys.put("alg", alg);
-            jwksKeys.put("use", use);
-            jwksKeys.put("kid", kid);
-            jwksKeys.put("n", modulus);
-            jwksKeys.put("e", exponent);
-            jwksKeyArray.put(jwksKeys);
-            jwksJson.put("keys", jwksKeyArray);
+        JwksCacheEntry jwks;
+        try {
+            jwks = getJwks(tenantDomain);
         } catch (Exception e) {
             String errorMesage = "Error while generating the keyset";
+            log.error(errorMesage, e);
+            return Response.ok(errorMesage).build();
+        }
+        if (jwks == null) {
+            String errorMesage = "The tenant is not existing";
             log.error(errorMesage);
-            return errorMesage;
+            return Response.ok(errorMesage).build();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(cacheTimeout);
+        if (isETagMatched(ifNoneMatch, jwks.getETag())) {
+            return Response.notModified(jwks.getETag()).cacheControl(cacheControl).build();
+        }
+        return Response.ok(jwks.getJwks()).tag(jwks.getETag()).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Returns the cached key set of the tenant, rebuilding it if the cache entry is due for revalidation and the
+     * key has changed since it was built.
+     *
+     * @return key set, or null if the tenant does not exist
+     */
+    private JwksCacheEntry getJwks(String tenantDomain) throws Exception {
+
+        JwksCacheEntry cachedJwks = jwksCache.get(tenantDomain);
+        long currentTime = System.currentTimeMillis();
+        if (cachedJwks != null && currentTime < cachedJwks.getRevalidationTime()) {
+            return cachedJwks;
+        }
+
+        RSAPublicKey publicKey;
+        long keyStoreLastModified = 0;
+        if (MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equals(tenantDomain)) {
+            String keyStoreLocation = CarbonUtils.getServerConfiguration().getFirstProperty
+                    ("Security.KeyStore.Location");
+            keyStoreLastModified = new File(keyStoreLocation).lastModified();
+            if (cachedJwks != null && keyStoreLastModified == cachedJwks.getKeyStoreLastModified()) {
+                return revalidated(tenantDomain, cachedJwks, currentTime);
+            }
+            publicKey = getSuperTenantPublicKey(keyStoreLocation);
+        } else {
+            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+            if (tenantId < 1 && tenantId != -1234) {
+                return null;
+            }
+            KeyStoreManager keyStoreManager = KeyStoreManager.getInstance(tenantId);
+            KeyStore keyStore = keyStoreManager.getKeyStore(generateKSNameFromDomainName(tenantDomain));
+            // Get certificate of public key
+            Certificate cert = keyStore.getCertificate(tenantDomain);
+            publicKey = (RSAPublicKey) cert.getPublicKey();
+            if (cachedJwks != null && Arrays.equals(publicKey.getEncoded(), cachedJwks.getEncodedKey())) {
+                return revalidated(tenantDomain, cachedJwks, currentTime);
+            }
+        }
+
+        String jwks = buildJwks(publicKey);
+        JwksCacheEntry jwksCacheEntry = new JwksCacheEntry(jwks, new EntityTag(DigestUtils.sha256Hex(jwks)),
+                publicKey.getEncoded(), keyStoreLastModified, currentTime + cacheTimeout * 1000L);
+        jwksCache.put(tenantDomain, jwksCacheEntry);
+        if (log.isDebugEnabled()) {
+            log.debug("JWKS of tenant " + tenantDomain + " is rebuilt and cached");
+        }
+        return jwksCacheEntry;
+    }
+
+    private JwksCacheEntry revalidated(String tenantDomain, JwksCacheEntry cachedJwks, long currentTime) {
+
+        JwksCacheEntry jwksCacheEntry = new JwksCacheEntry(cachedJwks.getJwks(), cachedJwks.getETag(),
+                cachedJwks.getEncodedKey(), cachedJwks.getKeyStoreLastModified(),
+                currentTime + cacheTimeout * 1000L);
+        jwksCache.put(tenantDomain, jwksCacheEntry);
+        return jwksCacheEntry;
+    }
+
+    private RSAPublicKey getSuperTenantPublicKey(String keyStoreLocation) throws Exception {
+
+        FileInputStream file = null;
+        try {
+            file = new FileInputStream(keyStoreLocation);
+            KeyStore keystore = KeyStore.getInstance(KeyStore.getDefaultType());
+            String password = CarbonUtils.getServerConfiguration().getInstance().getFirstProperty
+                    ("Security.KeyStore.Password");
+            keystore.load(file, password.toCharArray());
+            String alias = CarbonUtils.getServerConfiguration().getInstance().getFirstProperty
+                    ("Security.KeyStore.KeyAlias");
+            // Get certificate of public key
+            Certificate cert = keystore.getCertificate(alias);
+            // Get public key
+            return (RSAPublicKey) cert.getPublicKey();
         } finally {
             IdentityIOStreamUtils.closeInputStream(file);
         }
+    }
 
+    private String buildJwks(RSAPublicKey publicKey) {
+
+        String modulus = base64EncodeUint(publicKey.getModulus());
+        String exponent = base64EncodeUint(publicKey.getPublicExponent());
+        String kty = publicKey.getAlgorithm();
+        JSONObject jwksJson = new JSONObject();
+        JSONArray jwksKeyArray = new JSONArray();
+        JSONObject jwksKeys = new JSONObject();
+        jwksKeys.put("kty", kty);
+        jwksKeys.put("alg", alg);
+        jwksKeys.put("use", use);
+        jwksKeys.put("kid", kid);
+        jwksKeys.put("n", modulus);
+        jwksKeys.put("e", exponent);
+        jwksKeyArray.put(jwksKeys);
+        jwksJson.put("keys", jwksKeyArray);
         return jwksJson.toString();
     }
 
+    private boolean isETagMatched(String ifNoneMatch, EntityTag eTag) {
+
+        if (StringUtils.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String value : ifNoneMatch.split(",")) {
+            value = value.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if ("*".equals(value) || ("\"" + eTag.getValue() + "\"").equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int readCacheTimeout() {
+
+        String cacheTimeout = IdentityUtil.getProperty(JWKS_CACHE_TIMEOUT);
+        if (StringUtils.isNotBlank(cacheTimeout)) {
+            try {
+                return Integer.parseInt(cacheTimeout.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value " + cacheTimeout + " for " + JWKS_CACHE_TIMEOUT + ". Using default " +
+                        DEFAULT_JWKS_CACHE_TIMEOUT + " seconds.");
+            }
+        }
+        return DEFAULT_JWKS_CACHE_TIMEOUT;
+    }
+
     /**
      * This method generates the key store file name from the Domain Name
      *
@@ -191,4 +317,45 @@ public class JwksEndpoint {
 
         return base64urlEncode(v.toByteArray());
     }
+
+    /**
+     * Serialized key set of a tenant along with the data needed to detect key changes.
+     */
+    private static final class JwksCacheEntry {
+
+        private final String jwks;
+        private final EntityTag eTag;
+        private final byte[] encodedKey;
+        private final long keyStoreLastModified;
+        private final long revalidationTime;
+
+        JwksCacheEntry(String jwks, EntityTag eTag, byte[] encodedKey, long keyStoreLastModified,
+                       long revalidationTime) {
+            this.jwks = jwks;
+            this.eTag = eTag;
+            this.encodedKey = encodedKey;
+            this.keyStoreLastModified = keyStoreLastModified;
+            this.revalidationTime = revalidationTime;
+        }
+
+        String getJwks() {
+            return jwks;
+        }
+
+        EntityTag getETag() {
+            return eTag;
+        }
+
+        byte[] getEncodedKey() {
+            return encodedKey;
+        }
+
+        long getKeyStoreLastModified() {
+            return keyStoreLastModified;
+        }
+
+        long getRevalidationTime() {
+            return revalidationTime;
+        }
+    }
 }
@@ -21,20 +21,19 @@ package org.wso2.carbon.identity.oauth.endpoint.util;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.identity.application.common.model.ClaimMapping;
-import org.wso2.carbon.identity.application.common.model.ServiceProvider;
-import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
 import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataHandler;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth.user.UserInfoClaimsCache;
 import org.wso2.carbon.identity.oauth.user.UserInfoEndpointException;
-import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
-import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.openidconnect.ServiceProviderProfile;
+import org.wso2.carbon.identity.openidconnect.ServiceProviderProfileCache;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.core.UserRealm;
 import org.wso2.carbon.user.core.UserStoreManager;
@@ -47,7 +46,6 @@ import java.util.Map;
 
 public class ClaimUtil {
     static final String SP_DIALECT = "http://wso2.org/oidc/claim";
-    private final static String INBOUND_AUTH2_TYPE = "oauth2";
     private static final Log log = LogFactory.getLog(ClaimUtil.class);
 
     private ClaimUtil() {
@@ -56,6 +54,34 @@ public class ClaimUtil {
 
     public static Map<String, Object> getClaimsFromUserStore(OAuth2TokenValidationResponseDTO tokenResponse) throws
             UserInfoEndpointException {
+
+        String accessToken = tokenResponse.getAuthorizationContextToken().getTokenString();
+        UserInfoClaimsCache userInfoClaimsCache = UserInfoClaimsCache.getInstance();
+        Map<String, Object> cachedClaims = userInfoClaimsCache.getClaims(accessToken);
+        if (cachedClaims != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("User claims of " + tokenResponse.getAuthorizedUser() + " found in UserInfo claims cache");
+            }
+            return new HashMap<>(cachedClaims);
+        }
+
+        AccessTokenDO accessTokenDO;
+        try {
+            accessTokenDO = OAuth2Util.getAccessTokenDOfromTokenIdentifier(accessToken);
+        } catch (IdentityOAuth2Exception | IllegalArgumentException e) {
+            log.error("Error while retrieving the access token of " + tokenResponse.getAuthorizedUser(), e);
+            throw new UserInfoEndpointException("Error while retrieving the access token of " +
+                    tokenResponse.getAuthorizedUser());
+        }
+
+        Map<String, Object> claims = getClaimsFromUserStore(tokenResponse, accessTokenDO);
+        userInfoClaimsCache.addClaims(accessTokenDO, claims);
+        return claims;
+    }
+
+    private static Map<String, Object> getClaimsFromUserStore(OAuth2TokenValidationResponseDTO tokenResponse,
+                                                              AccessTokenDO accessTokenDO)
+            throws UserInfoEndpointException {
         String username = tokenResponse.getAuthorizedUser();
         String userTenantDomain = MultitenantUtils.getTenantDomain(tokenResponse.getAuthorizedUser());
         UserRealm realm;
@@ -74,47 +100,24 @@ public class ClaimUtil {
 
             UserStoreManager userstore = realm.getUserStoreManager();
 
-            TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-            AccessTokenDO accessTokenDO = tokenMgtDAO.retrieveAccessToken(tokenResponse.getAuthorizationContextToken()
-                    .getTokenString(), false);
-            ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
-            String clientId = null;
-            if (accessTokenDO != null) {
-                clientId = accessTokenDO.getConsumerKey();
-            }
+            String clientId = accessTokenDO.getConsumerKey();
 
             OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientId);
             String spTenantDomain = OAuth2Util.getTenantDomainOfOauthApp(oAuthAppDO);
 
-            String spName = applicationMgtService.getServiceProviderNameByClientId(clientId, INBOUND_AUTH2_TYPE,
-                    spTenantDomain);
-            ServiceProvider serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(spName,
-                    spTenantDomain);
-            if (serviceProvider == null) {
+            ServiceProviderProfile serviceProviderProfile = ServiceProviderProfileCache.getInstance().getProfile(
+                    clientId, spTenantDomain);
+            if (!serviceProviderProfile.hasServiceProvider()) {
                 return mappedAppClaims;
             }
-            ClaimMapping[] requestedLocalClaimMap = serviceProvider.getClaimConfig().getClaimMappings();
-            String subjectClaimURI = serviceProvider.getLocalAndOutBoundAuthenticationConfig().getSubjectClaimUri();
-            if (serviceProvider.getClaimConfig().getClaimMappings() != null) {
-                for (ClaimMapping claimMapping : serviceProvider.getClaimConfig().getClaimMappings()) {
-                    if (claimMapping.getRemoteClaim().getClaimUri().equals(subjectClaimURI)) {
-                        subjectClaimURI = claimMapping.getLocalClaim().getClaimUri();
-                        break;
-                    }
-                }
-            }
+            List<String> requestedLocalClaims = serviceProviderProfile.getRequestedLocalClaims();
+            String subjectClaimURI = serviceProviderProfile.getLocalSubjectClaimUri();
             claimURIList.add(subjectClaimURI);
 
             boolean isSubjectClaimInRequested = false;
-            if (subjectClaimURI != null || requestedLocalClaimMap != null && requestedLocalClaimMap.length > 0) {
-                for (ClaimMapping claimMapping : requestedLocalClaimMap) {
-                    if (claimMapping.isRequested()) {
-                        claimURIList.add(claimMapping.getLocalClaim().getClaimUri());
-                        if (claimMapping.getLocalClaim().getClaimUri().equals(subjectClaimURI)) {
-                            isSubjectClaimInRequested = true;
-                        }
-                    }
-                }
+            if (subjectClaimURI != null || !requestedLocalClaims.isEmpty()) {
+                claimURIList.addAll(requestedLocalClaims);
+                isSubjectClaimInRequested = requestedLocalClaims.contains(subjectClaimURI);
                 if (log.isDebugEnabled()) {
                     log.debug("Requested number of local claims: " + claimURIList.size());
                 }
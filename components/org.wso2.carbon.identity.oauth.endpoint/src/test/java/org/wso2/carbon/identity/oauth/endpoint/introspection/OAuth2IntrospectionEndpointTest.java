@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.endpoint.introspection;
+
+import org.json.JSONArray;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2IntrospectionResponseDTO;
+import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.ws.rs.core.Response;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class OAuth2IntrospectionEndpointTest {
+
+    private StubTokenValidationService tokenService;
+    private OAuth2IntrospectionEndpoint endpoint;
+
+    @BeforeMethod
+    public void setUp() {
+
+        tokenService = new StubTokenValidationService();
+        endpoint = new OAuth2IntrospectionEndpoint() {
+            @Override
+            OAuth2TokenValidationService getTokenValidationService() {
+                return tokenService;
+            }
+        };
+    }
+
+    @Test
+    public void testIntrospectBatch() throws Exception {
+
+        Response response = endpoint.introspectBatch("[\"token1\", {\"token\": \"revoked\"}, " +
+                "{\"token\": \"token3\", \"token_type_hint\": \"JWT\"}, {\"token\": \"token4\", " +
+                "\"token_type_hint\": null}]");
+
+        assertEquals(response.getStatus(), Response.Status.OK.getStatusCode());
+        JSONArray responses = new JSONArray((String) response.getEntity());
+        assertEquals(responses.length(), 4);
+        assertTrue(responses.getJSONObject(0).getBoolean(IntrospectionResponse.ACTIVE));
+        assertEquals(responses.getJSONObject(0).getString(IntrospectionResponse.CLIENT_ID), "client-token1");
+        assertFalse(responses.getJSONObject(1).getBoolean(IntrospectionResponse.ACTIVE));
+        assertFalse(responses.getJSONObject(1).has(IntrospectionResponse.CLIENT_ID));
+        assertEquals(responses.getJSONObject(2).getString(IntrospectionResponse.CLIENT_ID), "client-token3");
+        assertEquals(responses.getJSONObject(3).getString(IntrospectionResponse.CLIENT_ID), "client-token4");
+
+        assertEquals(tokenService.tokens.size(), 4);
+        assertEquals(tokenService.tokenTypes.get(0), "bearer");
+        assertEquals(tokenService.tokenTypes.get(2), "JWT");
+        assertEquals(tokenService.tokenTypes.get(3), "bearer");
+    }
+
+    @Test
+    public void testIntrospectBatchRejectsInvalidInput() {
+
+        assertBadRequest(null);
+        assertBadRequest("[]");
+        assertBadRequest("{\"token\": \"token1\"}");
+        assertBadRequest("[\"token1\", null]");
+        assertBadRequest("[\"token1\", \"\"]");
+        assertBadRequest("[{\"token\": null}]");
+        assertBadRequest("[{\"token_type_hint\": \"bearer\"}]");
+
+        StringBuilder tooManyTokens = new StringBuilder("[");
+        for (int i = 0; i <= 100; i++) {
+            tooManyTokens.append(i == 0 ? "" : ", ").append("\"token").append(i).append('"');
+        }
+        assertBadRequest(tooManyTokens.append(']').toString());
+
+        assertTrue(tokenService.tokens.isEmpty());
+    }
+
+    private void assertBadRequest(String payload) {
+        assertEquals(endpoint.introspectBatch(payload).getStatus(), Response.Status.BAD_REQUEST.getStatusCode(),
+                payload);
+    }
+
+    /**
+     * Reports every token as active and issued to "client-" followed by the token, except the token "revoked".
+     */
+    private static class StubTokenValidationService extends OAuth2TokenValidationService {
+
+        private List<String> tokens = new ArrayList<>();
+        private List<String> tokenTypes = new ArrayList<>();
+
+        @Override
+        public OAuth2IntrospectionResponseDTO[] buildIntrospectionResponses(
+                OAuth2TokenValidationRequestDTO[] validationReqs) {
+
+            OAuth2IntrospectionResponseDTO[] responses = new OAuth2IntrospectionResponseDTO[validationReqs.length];
+            for (int i = 0; i < validationReqs.length; i++) {
+                String token = validationReqs[i].getAccessToken().getIdentifier();
+                tokens.add(token);
+                tokenTypes.add(validationReqs[i].getAccessToken().getTokenType());
+                responses[i] = new OAuth2IntrospectionResponseDTO();
+                if ("revoked".equals(token)) {
+                    responses[i].setError("Token is revoked");
+                } else {
+                    responses[i].setActive(true);
+                    responses[i].setClientId("client-" + token);
+                }
+            }
+            return responses;
+        }
+    }
+}
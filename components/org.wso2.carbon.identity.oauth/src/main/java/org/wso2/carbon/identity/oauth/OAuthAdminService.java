@@ -275,6 +275,8 @@ public class OAuthAdminService extends AbstractAdmin {
                 }
                 dao.addOAuthApplication(app);
                 if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
+                    // new applications are created in active state
+                    app.setState(OAuthConstants.OauthAppStates.APP_STATE_ACTIVE);
                     appInfoCache.addToCache(app.getOauthConsumerKey(), app);
                 }
             }
@@ -321,7 +323,9 @@ public class OAuthAdminService extends AbstractAdmin {
         }
         dao.updateConsumerApplication(oauthappdo);
         if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
-            appInfoCache.addToCache(oauthappdo.getOauthConsumerKey(), oauthappdo);
+            // the updated object does not carry the full app information such as the app state, hence reload it
+            // on the next lookup
+            appInfoCache.clearCacheEntry(oauthappdo.getOauthConsumerKey());
         }
     }
 
@@ -345,11 +349,10 @@ public class OAuthAdminService extends AbstractAdmin {
         try {
             if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
                 OAuthAppDO oAuthAppDO = appInfoCache.getValueFromCache(consumerKey);
-                if (oAuthAppDO != null) {
-                    oAuthAppDO.setState(newState);
-                } else {
+                if (oAuthAppDO == null) {
                     oAuthAppDO = oAuthAppDAO.getAppInformation(consumerKey);
                 }
+                oAuthAppDO.setState(newState);
                 appInfoCache.addToCache(consumerKey, oAuthAppDO);
 
                 if (log.isDebugEnabled()) {
@@ -18,6 +18,8 @@
 
 package org.wso2.carbon.identity.oauth;
 
+import com.nimbusds.jwt.ReadOnlyJWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -28,11 +30,17 @@ import org.wso2.carbon.identity.application.common.model.User;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.cache.OAuthCache;
 import org.wso2.carbon.identity.oauth.cache.OAuthCacheKey;
+import org.wso2.carbon.identity.oauth.cache.RevokedTokenCache;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.user.UserInfoClaimsCache;
+import org.wso2.carbon.identity.oauth2.authcontext.AuthorizationContextTokenCache;
+import org.wso2.carbon.identity.oauth2.validators.JWTAccessTokenValidator;
 import org.wso2.carbon.registry.core.utils.UUIDGenerator;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
+import java.text.ParseException;
+
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -107,6 +115,28 @@ public final class OAuthUtil {
             OAuthCacheKey cacheKey = new OAuthCacheKey(oauthCacheKey);
             oauthCache.clearCacheEntry(cacheKey);
         }
+        // revoked access tokens are cleared through this method, so drop their UserInfo claims and authorization
+        // context tokens as well
+        UserInfoClaimsCache.getInstance().clearClaims(oauthCacheKey);
+        AuthorizationContextTokenCache.getInstance().clearToken(oauthCacheKey);
+        // self-contained access tokens are validated without reading the token store, so their revocation has to
+        // be recorded separately
+        if (JWTAccessTokenValidator.isJWTAccessToken(oauthCacheKey)) {
+            addRevokedJWTAccessToken(oauthCacheKey);
+        }
+    }
+
+    private static void addRevokedJWTAccessToken(String accessToken) {
+
+        try {
+            ReadOnlyJWTClaimsSet claimsSet = SignedJWT.parse(accessToken).getJWTClaimsSet();
+            long expiryTime = claimsSet.getExpirationTime() != null ? claimsSet.getExpirationTime().getTime() : -1L;
+            RevokedTokenCache.getInstance().addRevokedToken(claimsSet.getJWTID(), expiryTime);
+        } catch (ParseException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Revoked access token is not a JWT", e);
+            }
+        }
     }
 
     public static AuthenticatedUser getAuthenticatedUser(String fullyQualifiedUserName) {
@@ -18,12 +18,9 @@
 
 package org.wso2.carbon.identity.oauth.cache;
 
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.wso2.carbon.identity.application.authentication.framework.store.SessionDataStore;
 import org.wso2.carbon.identity.application.common.cache.BaseCache;
-import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
-import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.utils.CarbonUtils;
 
 /**
@@ -34,7 +31,6 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
     private static final String AUTHORIZATION_GRANT_CACHE_NAME = "AuthorizationGrantCache";
 
     private static volatile AuthorizationGrantCache instance;
-    private static final Log log = LogFactory.getLog(AuthorizationGrantCache.class);
 
     /**
      * Private constructor which will not allow to create objects of this class from outside
@@ -67,13 +63,7 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
      */
     public void addToCacheByToken(AuthorizationGrantCacheKey key, AuthorizationGrantCacheEntry entry) {
         super.addToCache(key, entry);
-        String tokenId = entry.getTokenId();
-        if (tokenId != null) {
-            storeToSessionStore(tokenId, entry);
-        } else {
-            storeToSessionStore(replaceFromTokenId(key.getUserAttributesId()), entry);
-        }
-
+        storeToSessionStore(getSessionStoreKey(key), entry);
     }
 
     /**
@@ -85,7 +75,7 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
     public AuthorizationGrantCacheEntry getValueFromCacheByToken(AuthorizationGrantCacheKey key) {
         AuthorizationGrantCacheEntry cacheEntry = super.getValueFromCache(key);
         if (cacheEntry == null) {
-            cacheEntry = getFromSessionStore(replaceFromTokenId(key.getUserAttributesId()));
+            cacheEntry = getFromSessionStore(getSessionStoreKey(key));
         }
         return cacheEntry;
     }
@@ -97,7 +87,7 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
      */
     public void clearCacheEntryByToken(AuthorizationGrantCacheKey key) {
         super.clearCacheEntry(key);
-        clearFromSessionStore(replaceFromTokenId(key.getUserAttributesId()));
+        clearFromSessionStore(getSessionStoreKey(key));
     }
 
     /**
@@ -108,7 +98,7 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
      */
     public void addToCacheByCode(AuthorizationGrantCacheKey key, AuthorizationGrantCacheEntry entry) {
         super.addToCache(key, entry);
-        storeToSessionStore(entry.getCodeId(), entry);
+        storeToSessionStore(getSessionStoreKey(key), entry);
     }
 
     /**
@@ -120,7 +110,7 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
     public AuthorizationGrantCacheEntry getValueFromCacheByCode(AuthorizationGrantCacheKey key) {
         AuthorizationGrantCacheEntry cacheEntry = super.getValueFromCache(key);
         if (cacheEntry == null) {
-            cacheEntry = getFromSessionStore(replaceFromCodeId(key.getUserAttributesId()));
+            cacheEntry = getFromSessionStore(getSessionStoreKey(key));
         }
         return cacheEntry;
     }
@@ -133,37 +123,18 @@ public class AuthorizationGrantCache extends BaseCache<AuthorizationGrantCacheKe
      */
     public void clearCacheEntryByCode(AuthorizationGrantCacheKey key) {
         super.clearCacheEntry(key);
-        clearFromSessionStore(replaceFromCodeId(key.getUserAttributesId()));
+        clearFromSessionStore(getSessionStoreKey(key));
     }
 
     /**
-     * Retrieve the authorization code id using the authorization code
-     * @param authzCode Authorization code
-     * @return CODE_ID from the database
-     */
-    private String replaceFromCodeId(String authzCode) {
-        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-        try {
-            return tokenMgtDAO.getCodeIdByAuthorizationCode(authzCode);
-        } catch (IdentityOAuth2Exception e) {
-            log.error("Failed to retrieve authorization code id by authorization code from store for - ." + authzCode, e);
-        }
-        return authzCode;
-    }
-
-    /**
-     * Retrieve the access token id using the access token
-     * @param keyValue Access token
-     * @return TOKEN_ID from the database
+     * Derives the SessionDataStore key from the access token or authorization code of the cache key. The key is a
+     * digest so that the token or code is not persisted in plain text, and no lookup is needed to compute it.
+     *
+     * @param key cache key
+     * @return session data key
      */
-    private String replaceFromTokenId(String keyValue) {
-        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-        try {
-            return tokenMgtDAO.getTokenIdByToken(keyValue);
-        } catch (IdentityOAuth2Exception e) {
-            log.error("Failed to retrieve token id by token from store for - ." + keyValue, e);
-        }
-        return keyValue;
+    private static String getSessionStoreKey(AuthorizationGrantCacheKey key) {
+        return DigestUtils.sha256Hex(key.getUserAttributesId());
     }
 
     /**
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Negative cache for access tokens which are unknown, revoked or expired. Entries are keyed by the SHA-256 hash of
+ * the token so raw token values are never kept in memory, and live for
+ * <code>OAuth.TokenValidation.InvalidTokenCacheTimeout</code> seconds (default 60, 0 disables the cache). The number
+ * of entries is bounded by the capacity configured for this cache in identity.xml.
+ * <p/>
+ * An entry must be cleared whenever a token with the same value is issued, since asynchronous persistence allows a
+ * token to be validated before it reaches the database.
+ * <p/>
+ * Hit and miss counts are exposed over JMX through {@link InvalidTokenCacheMBean}.
+ */
+public class InvalidTokenCache extends BaseCache<String, InvalidTokenCacheEntry> implements InvalidTokenCacheMBean {
+
+    private static final Log log = LogFactory.getLog(InvalidTokenCache.class);
+
+    private static final String INVALID_TOKEN_CACHE_NAME = "InvalidTokenCache";
+    private static final String INVALID_TOKEN_CACHE_TIMEOUT = "OAuth.TokenValidation.InvalidTokenCacheTimeout";
+    private static final long DEFAULT_INVALID_TOKEN_CACHE_TIMEOUT = 60;
+    private static final String MBEAN_NAME = "org.wso2.carbon.identity.oauth:type=Cache,name=" +
+            INVALID_TOKEN_CACHE_NAME;
+
+    private static volatile InvalidTokenCache instance;
+
+    private final long timeoutInMillis;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private InvalidTokenCache() {
+        super(INVALID_TOKEN_CACHE_NAME);
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(INVALID_TOKEN_CACHE_TIMEOUT,
+                DEFAULT_INVALID_TOKEN_CACHE_TIMEOUT) * 1000;
+    }
+
+    public static InvalidTokenCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (InvalidTokenCache.class) {
+                if (instance == null) {
+                    instance = new InvalidTokenCache();
+                    registerMBean(instance);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return whether invalid tokens are cached
+     */
+    @Override
+    public boolean isEnabled() {
+        return timeoutInMillis > 0 && OAuthServerConfiguration.getInstance().isCacheEnabled();
+    }
+
+    /**
+     * Returns the error recorded for a token which recently failed validation.
+     *
+     * @param accessTokenIdentifier access token
+     * @return error message, or null if the token is not known to be invalid
+     */
+    public String getInvalidTokenError(String accessTokenIdentifier) {
+
+        if (!isEnabled() || accessTokenIdentifier == null) {
+            return null;
+        }
+        String key = getKey(accessTokenIdentifier);
+        InvalidTokenCacheEntry entry = super.getValueFromCache(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (entry.isExpired()) {
+            super.clearCacheEntry(key);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.getErrorMessage();
+    }
+
+    /**
+     * Records a token which failed validation.
+     *
+     * @param accessTokenIdentifier access token
+     * @param errorMessage error returned to the caller for this token
+     */
+    public void addInvalidToken(String accessTokenIdentifier, String errorMessage) {
+
+        if (!isEnabled() || accessTokenIdentifier == null) {
+            return;
+        }
+        super.addToCache(getKey(accessTokenIdentifier),
+                new InvalidTokenCacheEntry(errorMessage, System.currentTimeMillis() + timeoutInMillis));
+    }
+
+    /**
+     * Removes a token from the negative cache. Called when a token is issued.
+     *
+     * @param accessTokenIdentifier access token
+     */
+    public void clearInvalidToken(String accessTokenIdentifier) {
+
+        if (!isEnabled() || accessTokenIdentifier == null) {
+            return;
+        }
+        super.clearCacheEntry(getKey(accessTokenIdentifier));
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private static String getKey(String accessTokenIdentifier) {
+        return DigestUtils.sha256Hex(accessTokenIdentifier);
+    }
+
+    private static void registerMBean(InvalidTokenCache cache) {
+
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(new StandardMBean(cache, InvalidTokenCacheMBean.class), objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while registering the statistics of " + INVALID_TOKEN_CACHE_NAME + " over JMX", e);
+        }
+    }
+}
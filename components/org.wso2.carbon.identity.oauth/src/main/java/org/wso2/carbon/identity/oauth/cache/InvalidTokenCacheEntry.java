@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+/**
+ * Negative cache entry recording why an access token failed validation and until when that verdict holds.
+ */
+public class InvalidTokenCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -6354827362513924175L;
+
+    private String errorMessage;
+
+    private long expiryTime;
+
+    public InvalidTokenCacheEntry(String errorMessage, long expiryTime) {
+        this.errorMessage = errorMessage;
+        this.expiryTime = expiryTime;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() > expiryTime;
+    }
+}
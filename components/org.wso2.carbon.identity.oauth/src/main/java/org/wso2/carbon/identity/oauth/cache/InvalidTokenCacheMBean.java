@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+/**
+ * JMX view of the {@link InvalidTokenCache} statistics, registered under
+ * <code>org.wso2.carbon.identity.oauth:type=Cache,name=InvalidTokenCache</code>.
+ */
+public interface InvalidTokenCacheMBean {
+
+    boolean isEnabled();
+
+    /**
+     * @return number of validations answered from the cache without a database lookup
+     */
+    long getHitCount();
+
+    long getMissCount();
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+/**
+ * Reads the identity.xml properties which tune the OAuth caches built on
+ * {@link org.wso2.carbon.identity.application.common.cache.BaseCache}. Capacity, idle timeout and enabling of those
+ * caches are configured in the CacheConfig section of identity.xml like for any other identity cache.
+ */
+public class OAuthCacheConfigUtil {
+
+    private static final Log log = LogFactory.getLog(OAuthCacheConfigUtil.class);
+
+    private OAuthCacheConfigUtil() {
+    }
+
+    /**
+     * @param property identity.xml property, e.g. <code>OAuth.UserInfo.ClaimsCacheTimeout</code>
+     * @param defaultValue value used if the property is not set or is not a number
+     * @return value of the property
+     */
+    public static long getLongProperty(String property, long defaultValue) {
+
+        String value = IdentityUtil.getProperty(property);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value " + value + " for " + property + ". Using default " + defaultValue + ".");
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.utils.CarbonUtils;
+
+/**
+ * Cache of the revocation state of self-contained JWT access tokens, keyed by the <code>jti</code> claim of the token.
+ * The state of a token is read from the token store once and kept until the token expires, after which it is rejected
+ * as expired regardless. Revocation through {@link org.wso2.carbon.identity.oauth.OAuthUtil} replaces the entry of the
+ * token with a revoked one across the cluster, so the token store is only read when a token is not in the cache.
+ */
+public class RevokedTokenCache extends BaseCache<String, RevokedTokenCacheEntry> {
+
+    private static final String REVOKED_TOKEN_CACHE_NAME = "RevokedTokenCache";
+
+    private static volatile RevokedTokenCache instance;
+
+    private RevokedTokenCache() {
+        super(REVOKED_TOKEN_CACHE_NAME);
+    }
+
+    public static RevokedTokenCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (RevokedTokenCache.class) {
+                if (instance == null) {
+                    instance = new RevokedTokenCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param jti token identifier of the JWT access token
+     * @return cached revocation state of the token, or null if the token store has to be read
+     */
+    public RevokedTokenCacheEntry getTokenState(String jti) {
+
+        if (jti == null) {
+            return null;
+        }
+        RevokedTokenCacheEntry entry = super.getValueFromCache(jti);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            super.clearCacheEntry(jti);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Records the revocation of a JWT access token.
+     *
+     * @param jti token identifier of the JWT access token
+     * @param expiryTime expiry time of the token in milliseconds, or a non positive value if it never expires
+     */
+    public void addRevokedToken(String jti, long expiryTime) {
+
+        if (jti == null) {
+            return;
+        }
+        super.addToCache(jti, new RevokedTokenCacheEntry(true, expiryTime > 0 ? expiryTime : Long.MAX_VALUE));
+    }
+
+    /**
+     * Records a JWT access token found active in the token store, unless its revocation was recorded meanwhile.
+     *
+     * @param jti token identifier of the JWT access token
+     * @param expiryTime expiry time of the token in milliseconds, or a non positive value if it never expires
+     */
+    public void addActiveToken(String jti, long expiryTime) {
+
+        if (jti == null) {
+            return;
+        }
+        RevokedTokenCacheEntry entry = super.getValueFromCache(jti);
+        if (entry != null && entry.isRevoked()) {
+            return;
+        }
+        super.addToCache(jti, new RevokedTokenCacheEntry(false, expiryTime > 0 ? expiryTime : Long.MAX_VALUE));
+    }
+}
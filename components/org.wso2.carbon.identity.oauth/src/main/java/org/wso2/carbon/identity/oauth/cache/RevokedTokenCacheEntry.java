@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.cache;
+
+/**
+ * Revocation state of a self-contained JWT access token, kept until the token would have expired anyway.
+ */
+public class RevokedTokenCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 2871645092376409128L;
+
+    private boolean revoked;
+    private long expiryTime;
+
+    public RevokedTokenCacheEntry(boolean revoked, long expiryTime) {
+        this.revoked = revoked;
+        this.expiryTime = expiryTime;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    public long getExpiryTime() {
+        return expiryTime;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() > expiryTime;
+    }
+}
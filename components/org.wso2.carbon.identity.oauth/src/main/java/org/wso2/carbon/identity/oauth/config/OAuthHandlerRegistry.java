@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.config;
+
+import org.apache.oltu.oauth2.common.validators.OAuthValidator;
+import org.wso2.carbon.identity.oauth2.authz.handlers.ResponseTypeHandler;
+import org.wso2.carbon.identity.oauth2.token.handlers.clientauth.ClientAuthenticationHandler;
+import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHandler;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the initialized grant handlers, response type handlers, client authentication handlers and
+ * the Oltu validators configured in identity.xml. Lookups are plain reads of unmodifiable collections, so
+ * request threads never synchronize on the configuration. Validators are kept both as classes and as shared
+ * instances which are created once, so requests are validated without reflection.
+ */
+public class OAuthHandlerRegistry {
+
+    private final Map<String, AuthorizationGrantHandler> grantHandlers;
+    private final Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> grantTypeValidators;
+    private final Map<String, ResponseTypeHandler> responseTypeHandlers;
+    private final Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> responseTypeValidators;
+    private final List<ClientAuthenticationHandler> clientAuthHandlers;
+    private final Map<String, OAuthValidator<HttpServletRequest>> grantTypeValidatorInstances;
+    private final Map<String, OAuthValidator<HttpServletRequest>> responseTypeValidatorInstances;
+
+    public OAuthHandlerRegistry(Map<String, AuthorizationGrantHandler> grantHandlers,
+                                Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> grantTypeValidators,
+                                Map<String, ResponseTypeHandler> responseTypeHandlers,
+                                Map<String, Class<? extends OAuthValidator<HttpServletRequest>>>
+                                        responseTypeValidators,
+                                List<ClientAuthenticationHandler> clientAuthHandlers,
+                                Map<String, OAuthValidator<HttpServletRequest>> grantTypeValidatorInstances,
+                                Map<String, OAuthValidator<HttpServletRequest>> responseTypeValidatorInstances) {
+
+        this.grantHandlers = Collections.unmodifiableMap(new HashMap<>(grantHandlers));
+        this.grantTypeValidators = Collections.unmodifiableMap(new HashMap<>(grantTypeValidators));
+        this.responseTypeHandlers = Collections.unmodifiableMap(new HashMap<>(responseTypeHandlers));
+        this.responseTypeValidators = Collections.unmodifiableMap(new HashMap<>(responseTypeValidators));
+        this.clientAuthHandlers = Collections.unmodifiableList(new ArrayList<>(clientAuthHandlers));
+        this.grantTypeValidatorInstances = Collections.unmodifiableMap(new HashMap<>(grantTypeValidatorInstances));
+        this.responseTypeValidatorInstances =
+                Collections.unmodifiableMap(new HashMap<>(responseTypeValidatorInstances));
+    }
+
+    public Map<String, AuthorizationGrantHandler> getGrantHandlers() {
+        return grantHandlers;
+    }
+
+    public Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> getGrantTypeValidators() {
+        return grantTypeValidators;
+    }
+
+    public Map<String, ResponseTypeHandler> getResponseTypeHandlers() {
+        return responseTypeHandlers;
+    }
+
+    public Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> getResponseTypeValidators() {
+        return responseTypeValidators;
+    }
+
+    public List<ClientAuthenticationHandler> getClientAuthHandlers() {
+        return clientAuthHandlers;
+    }
+
+    public Map<String, OAuthValidator<HttpServletRequest>> getGrantTypeValidatorInstances() {
+        return grantTypeValidatorInstances;
+    }
+
+    public Map<String, OAuthValidator<HttpServletRequest>> getResponseTypeValidatorInstances() {
+        return responseTypeValidatorInstances;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.config;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * Lets operators reload the grant type, response type and client authentication handlers of identity.xml over JMX,
+ * without restarting the server.
+ */
+public class OAuthHandlerRegistryReloader implements OAuthHandlerRegistryReloaderMBean {
+
+    private static final String MBEAN_NAME = "org.wso2.carbon.identity.oauth:type=HandlerRegistry";
+    private static final Log log = LogFactory.getLog(OAuthHandlerRegistryReloader.class);
+
+    private final OAuthServerConfiguration serverConfiguration;
+
+    public OAuthHandlerRegistryReloader(OAuthServerConfiguration serverConfiguration) {
+        this.serverConfiguration = serverConfiguration;
+    }
+
+    @Override
+    public String[] getGrantTypes() {
+        return toArray(serverConfiguration.getHandlerRegistry().getGrantHandlers().keySet());
+    }
+
+    @Override
+    public String[] getResponseTypes() {
+        return toArray(serverConfiguration.getHandlerRegistry().getResponseTypeHandlers().keySet());
+    }
+
+    @Override
+    public void reload() {
+
+        try {
+            serverConfiguration.reloadHandlerRegistry();
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error while reloading the OAuth handlers. The current handlers are kept", e);
+            // the cause is not passed on, since a remote JMX client may not have its class
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Registers this reloader over JMX, unless one is registered already.
+     */
+    public void registerMBean() {
+
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(new StandardMBean(this, OAuthHandlerRegistryReloaderMBean.class),
+                        objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while registering the OAuth handler reload operation over JMX", e);
+        }
+    }
+
+    private static String[] toArray(Set<String> values) {
+        return values.toArray(new String[values.size()]);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.config;
+
+/**
+ * JMX operations on the handlers of {@link OAuthServerConfiguration}, registered under
+ * <code>org.wso2.carbon.identity.oauth:type=HandlerRegistry</code>.
+ */
+public interface OAuthHandlerRegistryReloaderMBean {
+
+    /**
+     * @return grant types of the current handler snapshot
+     */
+    String[] getGrantTypes();
+
+    String[] getResponseTypes();
+
+    /**
+     * Reads the handler configuration of identity.xml again and swaps in the handlers built from it.
+     */
+    void reload();
+}
@@ -19,6 +19,7 @@
 package org.wso2.carbon.identity.oauth.config;
 
 import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.impl.builder.StAXOMBuilder;
 import org.apache.axis2.util.JavaUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
@@ -37,6 +38,7 @@ import org.apache.oltu.oauth2.common.message.types.ResponseType;
 import org.apache.oltu.oauth2.common.validators.OAuthValidator;
 import org.wso2.carbon.identity.core.util.IdentityConfigParser;
 import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
+import org.wso2.carbon.identity.core.util.IdentityIOStreamUtils;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.common.IDTokenResponseValidator;
 import org.wso2.carbon.identity.oauth.common.IDTokenTokenResponseValidator;
@@ -51,6 +53,8 @@ import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuerImpl;
 import org.wso2.carbon.identity.oauth2.token.handlers.clientauth.ClientAuthenticationHandler;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.AuthorizationGrantHandler;
 import org.wso2.carbon.identity.oauth2.token.handlers.grant.saml.SAML2TokenCallbackHandler;
+import org.wso2.carbon.identity.oauth2.token.lock.StripedTokenIssuanceLockManager;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLockManager;
 import org.wso2.carbon.identity.oauth2.validators.OAuth2ScopeValidator;
 import org.wso2.carbon.identity.openidconnect.CustomClaimsCallbackHandler;
 import org.wso2.carbon.identity.openidconnect.IDTokenBuilder;
@@ -58,12 +62,16 @@ import org.wso2.carbon.utils.CarbonUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -111,6 +119,8 @@ public class OAuthServerConfiguration {
     private OAuthIssuer oauthTokenGenerator;
     private String oauthIdentityTokenGeneratorClassName;
     private OauthTokenIssuer oauthIdentityTokenGenerator;
+    private String tokenIssuanceLockManagerClassName;
+    private volatile TokenIssuanceLockManager tokenIssuanceLockManager;
     private boolean cacheEnabled = true;
     private boolean isRefreshTokenRenewalEnabled = true;
     private boolean assertionsUserNameEnabled = false;
@@ -119,16 +129,12 @@ public class OAuthServerConfiguration {
     private TokenPersistenceProcessor persistenceProcessor = null;
     private Set<OAuthCallbackHandlerMetaData> callbackHandlerMetaData = new HashSet<>();
     private Map<String, String> supportedGrantTypeClassNames = new HashMap<>();
-    private Map<String, AuthorizationGrantHandler> supportedGrantTypes;
     private Map<String, String> supportedGrantTypeValidatorNames = new HashMap<>();
-    private Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> supportedGrantTypeValidators;
     private Map<String, String> supportedResponseTypeClassNames = new HashMap<>();
-    private Map<String, ResponseTypeHandler> supportedResponseTypes;
     private Map<String, String> supportedResponseTypeValidatorNames = new HashMap<>();
-    private Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> supportedResponseTypeValidators;
     private String[] supportedClaims = null;
     private Map<String, Properties> supportedClientAuthHandlerData = new HashMap<>();
-    private List<ClientAuthenticationHandler> supportedClientAuthHandlers;
+    private volatile OAuthHandlerRegistry handlerRegistry;
     private String saml2TokenCallbackHandlerName = null;
     private SAML2TokenCallbackHandler saml2TokenCallbackHandler = null;
     private Map<String, String> tokenValidatorClassNames = new HashMap();
@@ -253,6 +259,9 @@ public class OAuthServerConfiguration {
 
         // parse identity OAuth 2.0 token generator
         parseOAuthTokenIssuerConfig(oauthElem);
+
+        // parse token issuance lock manager
+        parseTokenIssuanceLockManagerConfig(oauthElem);
     }
 
     public Set<OAuthCallbackHandlerMetaData> getCallbackHandlerMetaData() {
@@ -344,6 +353,47 @@ public class OAuthServerConfiguration {
         return oauthIdentityTokenGenerator;
     }
 
+    /**
+     * @return configured token issuance lock manager, or the striped local lock manager if none is configured
+     * @throws IllegalStateException if the configured lock manager cannot work in this deployment
+     */
+    public TokenIssuanceLockManager getTokenIssuanceLockManager() {
+        if (tokenIssuanceLockManager == null) {
+            synchronized (this) {
+                if (tokenIssuanceLockManager == null) {
+                    try {
+                        if (tokenIssuanceLockManagerClassName != null) {
+                            Class clazz = this.getClass().getClassLoader().loadClass
+                                    (tokenIssuanceLockManagerClassName);
+                            tokenIssuanceLockManager = (TokenIssuanceLockManager) clazz.newInstance();
+                            log.info("An instance of " + tokenIssuanceLockManagerClassName
+                                    + " is created for token issuance locking.");
+                        } else {
+                            tokenIssuanceLockManager = new StripedTokenIssuanceLockManager();
+                            log.info("The default token issuance lock manager will be used. No custom lock manager " +
+                                    "is set.");
+                        }
+                    } catch (IllegalStateException e) {
+                        // prerequisites of the configured lock manager are missing. Falling back to node local locks
+                        // would silently drop the guarantees it was configured for.
+                        log.error("Error when initializing the TokenIssuanceLockManager : " +
+                                tokenIssuanceLockManagerClassName, e);
+                        throw e;
+                    } catch (Exception e) {
+                        String errorMsg = "Error when instantiating the TokenIssuanceLockManager : "
+                                + tokenIssuanceLockManagerClassName + ". Defaulting to StripedTokenIssuanceLockManager";
+                        log.error(errorMsg, e);
+                        tokenIssuanceLockManager = new StripedTokenIssuanceLockManager();
+                    }
+                    if (tokenIssuanceLockManager instanceof StripedTokenIssuanceLockManager) {
+                        ((StripedTokenIssuanceLockManager) tokenIssuanceLockManager).registerMBean();
+                    }
+                }
+            }
+        }
+        return tokenIssuanceLockManager;
+    }
+
     public String getOIDCConsentPageUrl() {
         return oidcConsentPageUrl;
     }
@@ -384,32 +434,75 @@ public class OAuthServerConfiguration {
         return isRefreshTokenRenewalEnabled;
     }
 
-    public Map<String, AuthorizationGrantHandler> getSupportedGrantTypes() {
-        if (supportedGrantTypes == null) {
+    /**
+     * Returns the current snapshot of initialized handlers. The snapshot is built on first use, since handlers may
+     * depend on services which are not available while the configuration is being read, and replaced by
+     * {@link #reloadHandlerRegistry()}.
+     */
+    public OAuthHandlerRegistry getHandlerRegistry() {
+        OAuthHandlerRegistry registry = handlerRegistry;
+        if (registry == null) {
             synchronized (this) {
-                if (supportedGrantTypes == null) {
-                    Map<String, AuthorizationGrantHandler> supportedGrantTypesTemp = new Hashtable<>();
-                    for (Map.Entry<String, String> entry : supportedGrantTypeClassNames.entrySet()) {
-                        AuthorizationGrantHandler authzGrantHandler = null;
-                        try {
-                            authzGrantHandler = (AuthorizationGrantHandler) Class.forName(entry.getValue()).newInstance();
-                            authzGrantHandler.init();
-                        } catch (InstantiationException e) {
-                            log.error("Error instantiating " + entry.getValue(), e);
-                        } catch (IllegalAccessException e) {
-                            log.error("Illegal access to " + entry.getValue(), e);
-                        } catch (ClassNotFoundException e) {
-                            log.error("Cannot find class: " + entry.getValue(), e);
-                        } catch (IdentityOAuth2Exception e) {
-                            log.error("Error while initializing " + entry.getValue(), e);
-                        }
-                        supportedGrantTypesTemp.put(entry.getKey(), authzGrantHandler);
-                        supportedGrantTypes = supportedGrantTypesTemp;
-                    }
+                registry = handlerRegistry;
+                if (registry == null) {
+                    registry = buildHandlerRegistry();
+                    handlerRegistry = registry;
                 }
             }
         }
-        return supportedGrantTypes;
+        return registry;
+    }
+
+    /**
+     * Reads the grant type, response type and client authentication handler configuration of identity.xml again and
+     * swaps in handlers built from it. Requests in flight complete with the handlers they started with. All other
+     * OAuth settings keep the values read at start up, and the handler elements are read as they are in the file,
+     * without resolving secure vault aliases.
+     *
+     * @throws IdentityOAuth2Exception if identity.xml cannot be read, in which case the current handlers are kept
+     */
+    public void reloadHandlerRegistry() throws IdentityOAuth2Exception {
+
+        OMElement oauthElem = readOAuthConfigElement();
+        synchronized (this) {
+            supportedGrantTypeClassNames = new HashMap<>();
+            supportedGrantTypeValidatorNames = new HashMap<>();
+            supportedResponseTypeClassNames = new HashMap<>();
+            supportedResponseTypeValidatorNames = new HashMap<>();
+            supportedClientAuthHandlerData = new HashMap<>();
+            parseSupportedGrantTypesConfig(oauthElem);
+            parseSupportedResponseTypesConfig(oauthElem);
+            parseSupportedClientAuthHandlersConfig(oauthElem.getFirstChildWithName(
+                    getQNameWithIdentityNS(ConfigElements.CLIENT_AUTH_HANDLERS)));
+            handlerRegistry = buildHandlerRegistry();
+        }
+        log.info("OAuth grant type, response type and client authentication handlers reloaded");
+    }
+
+    private OMElement readOAuthConfigElement() throws IdentityOAuth2Exception {
+
+        String configFilePath = IdentityUtil.getIdentityConfigDirPath() + File.separator +
+                IdentityCoreConstants.IDENTITY_CONFIG;
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(configFilePath);
+            OMElement documentElement = new StAXOMBuilder(inputStream).getDocumentElement();
+            // read the whole document before the stream is closed
+            documentElement.build();
+            OMElement oauthElem = documentElement.getFirstChildWithName(getQNameWithIdentityNS(CONFIG_ELEM_OAUTH));
+            if (oauthElem == null) {
+                throw new IdentityOAuth2Exception("OAuth element is not available in " + configFilePath);
+            }
+            return oauthElem;
+        } catch (IOException | XMLStreamException e) {
+            throw new IdentityOAuth2Exception("Error while reading " + configFilePath, e);
+        } finally {
+            IdentityIOStreamUtils.closeInputStream(inputStream);
+        }
+    }
+
+    public Map<String, AuthorizationGrantHandler> getSupportedGrantTypes() {
+        return getHandlerRegistry().getGrantHandlers();
     }
 
     /**
@@ -423,120 +516,36 @@ public class OAuthServerConfiguration {
      * @return a map of <Grant type, Oauth validator class>
      */
     public Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> getSupportedGrantTypeValidators() {
-
-        if (supportedGrantTypeValidators == null) {
-            synchronized (this) {
-                if (supportedGrantTypeValidators == null) {
-                    Map<String,Class<? extends OAuthValidator<HttpServletRequest>>> supportedGrantTypeValidatorsTemp =
-                            new Hashtable<>();
-                    // Load default grant type validators
-                    supportedGrantTypeValidatorsTemp
-                            .put(GrantType.PASSWORD.toString(), PasswordValidator.class);
-                    supportedGrantTypeValidatorsTemp.put(GrantType.CLIENT_CREDENTIALS.toString(),
-                            ClientCredentialValidator.class);
-                    supportedGrantTypeValidatorsTemp.put(GrantType.AUTHORIZATION_CODE.toString(),
-                            AuthorizationCodeValidator.class);
-                    supportedGrantTypeValidatorsTemp.put(GrantType.REFRESH_TOKEN.toString(),
-                            RefreshTokenValidator.class);
-                    supportedGrantTypeValidatorsTemp.put(
-                            org.wso2.carbon.identity.oauth.common.GrantType.SAML20_BEARER
-                                    .toString(), SAML2GrantValidator.class);
-
-                    if (supportedGrantTypeValidatorNames != null) {
-                        // Load configured grant type validators
-                        for (Map.Entry<String, String> entry : supportedGrantTypeValidatorNames.entrySet()) {
-                            try {
-                                @SuppressWarnings("unchecked")
-                                Class<? extends OAuthValidator<HttpServletRequest>>
-                                        oauthValidatorClass =
-                                        (Class<? extends OAuthValidator<HttpServletRequest>>) Class
-                                                .forName(entry.getValue());
-                                supportedGrantTypeValidatorsTemp
-                                        .put(entry.getKey(), oauthValidatorClass);
-                            } catch (ClassNotFoundException e) {
-                                log.error("Cannot find class: " + entry.getValue(), e);
-                            } catch (ClassCastException e) {
-                                log.error("Cannot cast class: " + entry.getValue(), e);
-                            }
-                        }
-                    }
-                    supportedGrantTypeValidators = supportedGrantTypeValidatorsTemp;
-                }
-            }
-        }
-
-        return supportedGrantTypeValidators;
+        return getHandlerRegistry().getGrantTypeValidators();
     }
 
     public Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> getSupportedResponseTypeValidators() {
+        return getHandlerRegistry().getResponseTypeValidators();
+    }
 
-        if (supportedResponseTypeValidators == null) {
-            synchronized (this) {
-                if (supportedResponseTypeValidators == null) {
-                    Map<String, Class<? extends OAuthValidator<HttpServletRequest>>>
-                            supportedResponseTypeValidatorsTemp = new Hashtable<>();
-                    // Load default grant type validators
-                    supportedResponseTypeValidatorsTemp
-                            .put(ResponseType.CODE.toString(), CodeValidator.class);
-                    supportedResponseTypeValidatorsTemp.put(ResponseType.TOKEN.toString(),
-                            TokenValidator.class);
-                    supportedResponseTypeValidatorsTemp.put("id_token", IDTokenResponseValidator.class);
-                    supportedResponseTypeValidatorsTemp.put("id_token token", IDTokenTokenResponseValidator.class);
-
-
-                    if (supportedResponseTypeValidatorNames != null) {
-                        // Load configured grant type validators
-                        for (Map.Entry<String, String> entry : supportedResponseTypeValidatorNames
-                                .entrySet()) {
-                            try {
-                                @SuppressWarnings("unchecked")
-                                Class<? extends OAuthValidator<HttpServletRequest>>
-                                        oauthValidatorClass =
-                                        (Class<? extends OAuthValidator<HttpServletRequest>>) Class
-                                                .forName(entry.getValue());
-                                supportedResponseTypeValidatorsTemp
-                                        .put(entry.getKey(), oauthValidatorClass);
-                            } catch (ClassNotFoundException e) {
-                                log.error("Cannot find class: " + entry.getValue(), e);
-                            } catch (ClassCastException e) {
-                                log.error("Cannot cast class: " + entry.getValue(), e);
-                            }
-                        }
-                        supportedResponseTypeValidators = supportedResponseTypeValidatorsTemp;
-                    }
-                }
-            }
-        }
+    /**
+     * Returns the shared validator instance of a grant type. Validators are instantiated once when the handler
+     * registry is built, so a configured validator class must not keep per request state.
+     *
+     * @param grantType grant type
+     * @return validator instance or null if the grant type is not supported
+     */
+    public OAuthValidator<HttpServletRequest> getGrantTypeValidator(String grantType) {
+        return getHandlerRegistry().getGrantTypeValidatorInstances().get(grantType);
+    }
 
-        return supportedResponseTypeValidators;
+    /**
+     * Returns the shared validator instance of a response type.
+     *
+     * @param responseType response type
+     * @return validator instance or null if the response type is not supported
+     */
+    public OAuthValidator<HttpServletRequest> getResponseTypeValidator(String responseType) {
+        return getHandlerRegistry().getResponseTypeValidatorInstances().get(responseType);
     }
 
     public Map<String, ResponseTypeHandler> getSupportedResponseTypes() {
-        if (supportedResponseTypes == null) {
-            synchronized (this) {
-                if (supportedResponseTypes == null) {
-                    Map<String,ResponseTypeHandler> supportedResponseTypesTemp = new Hashtable<>();
-                    for (Map.Entry<String, String> entry : supportedResponseTypeClassNames.entrySet()) {
-                        ResponseTypeHandler responseTypeHandler = null;
-                        try {
-                            responseTypeHandler = (ResponseTypeHandler) Class.forName(entry.getValue()).newInstance();
-                            responseTypeHandler.init();
-                        } catch (InstantiationException e) {
-                            log.error("Error instantiating " + entry.getValue(), e);
-                        } catch (IllegalAccessException e) {
-                            log.error("Illegal access to " + entry.getValue(), e);
-                        } catch (ClassNotFoundException e) {
-                            log.error("Cannot find class: " + entry.getValue(), e);
-                        } catch (IdentityOAuth2Exception e) {
-                            log.error("Error while initializing " + entry.getValue(), e);
-                        }
-                        supportedResponseTypesTemp.put(entry.getKey(), responseTypeHandler);
-                    }
-                    supportedResponseTypes = supportedResponseTypesTemp;
-                }
-            }
-        }
-        return supportedResponseTypes;
+        return getHandlerRegistry().getResponseTypeHandlers();
     }
 
     public String[] getSupportedClaims() {
@@ -544,36 +553,141 @@ public class OAuthServerConfiguration {
     }
 
     public List<ClientAuthenticationHandler> getSupportedClientAuthHandlers() {
-        if (supportedClientAuthHandlers == null) {
-            synchronized (this) {
-                if (supportedClientAuthHandlers == null) {
-                    List<ClientAuthenticationHandler> supportedClientAuthHandlersTemp = new ArrayList<>();
-
-                    for (Map.Entry<String, Properties> entry : supportedClientAuthHandlerData.entrySet()) {
-                        ClientAuthenticationHandler clientAuthenticationHandler = null;
-                        try {
-                            clientAuthenticationHandler = (ClientAuthenticationHandler)
-                                    Class.forName(entry.getKey()).newInstance();
-                            clientAuthenticationHandler.init(entry.getValue());
-                            supportedClientAuthHandlersTemp.add(clientAuthenticationHandler);
-
-                        //Exceptions necessarily don't have to break the flow since there are cases
-                        //runnable without client auth handlers
-                        } catch (InstantiationException e) {
-                            log.error("Error instantiating " + entry, e);
-                        } catch (IllegalAccessException e) {
-                            log.error("Illegal access to " + entry, e);
-                        } catch (ClassNotFoundException e) {
-                            log.error("Cannot find class: " + entry, e);
-                        } catch (IdentityOAuth2Exception e) {
-                            log.error("Error while initializing " + entry, e);
-                        }
-                        supportedClientAuthHandlers = supportedClientAuthHandlersTemp;
-                    }
-                }
+        return getHandlerRegistry().getClientAuthHandlers();
+    }
+
+    private OAuthHandlerRegistry buildHandlerRegistry() {
+        Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> grantTypeValidators =
+                buildGrantTypeValidators();
+        Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> responseTypeValidators =
+                buildResponseTypeValidators();
+        return new OAuthHandlerRegistry(buildGrantHandlers(), grantTypeValidators, buildResponseTypeHandlers(),
+                responseTypeValidators, buildClientAuthHandlers(), instantiateValidators(grantTypeValidators),
+                instantiateValidators(responseTypeValidators));
+    }
+
+    private Map<String, AuthorizationGrantHandler> buildGrantHandlers() {
+        Map<String, AuthorizationGrantHandler> grantHandlers = new HashMap<>();
+        for (Map.Entry<String, String> entry : supportedGrantTypeClassNames.entrySet()) {
+            try {
+                AuthorizationGrantHandler authzGrantHandler =
+                        (AuthorizationGrantHandler) Class.forName(entry.getValue()).newInstance();
+                authzGrantHandler.init();
+                grantHandlers.put(entry.getKey(), authzGrantHandler);
+            } catch (InstantiationException e) {
+                log.error("Error instantiating " + entry.getValue(), e);
+            } catch (IllegalAccessException e) {
+                log.error("Illegal access to " + entry.getValue(), e);
+            } catch (ClassNotFoundException e) {
+                log.error("Cannot find class: " + entry.getValue(), e);
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error while initializing " + entry.getValue(), e);
+            }
+        }
+        return grantHandlers;
+    }
+
+    private Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> buildGrantTypeValidators() {
+        Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> grantTypeValidators = new HashMap<>();
+        // Load default grant type validators
+        grantTypeValidators.put(GrantType.PASSWORD.toString(), PasswordValidator.class);
+        grantTypeValidators.put(GrantType.CLIENT_CREDENTIALS.toString(), ClientCredentialValidator.class);
+        grantTypeValidators.put(GrantType.AUTHORIZATION_CODE.toString(), AuthorizationCodeValidator.class);
+        grantTypeValidators.put(GrantType.REFRESH_TOKEN.toString(), RefreshTokenValidator.class);
+        grantTypeValidators.put(org.wso2.carbon.identity.oauth.common.GrantType.SAML20_BEARER.toString(),
+                SAML2GrantValidator.class);
+        // Load configured grant type validators
+        loadValidatorClasses(supportedGrantTypeValidatorNames, grantTypeValidators);
+        return grantTypeValidators;
+    }
+
+    private Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> buildResponseTypeValidators() {
+        Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> responseTypeValidators = new HashMap<>();
+        // Load default response type validators
+        responseTypeValidators.put(ResponseType.CODE.toString(), CodeValidator.class);
+        responseTypeValidators.put(ResponseType.TOKEN.toString(), TokenValidator.class);
+        responseTypeValidators.put("id_token", IDTokenResponseValidator.class);
+        responseTypeValidators.put("id_token token", IDTokenTokenResponseValidator.class);
+        // Load configured response type validators
+        loadValidatorClasses(supportedResponseTypeValidatorNames, responseTypeValidators);
+        return responseTypeValidators;
+    }
+
+    private void loadValidatorClasses(Map<String, String> validatorClassNames,
+                                      Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> validators) {
+        for (Map.Entry<String, String> entry : validatorClassNames.entrySet()) {
+            try {
+                @SuppressWarnings("unchecked")
+                Class<? extends OAuthValidator<HttpServletRequest>> oauthValidatorClass =
+                        (Class<? extends OAuthValidator<HttpServletRequest>>) Class.forName(entry.getValue());
+                validators.put(entry.getKey(), oauthValidatorClass);
+            } catch (ClassNotFoundException e) {
+                log.error("Cannot find class: " + entry.getValue(), e);
+            } catch (ClassCastException e) {
+                log.error("Cannot cast class: " + entry.getValue(), e);
+            }
+        }
+    }
+
+    private Map<String, OAuthValidator<HttpServletRequest>> instantiateValidators(
+            Map<String, Class<? extends OAuthValidator<HttpServletRequest>>> validatorClasses) {
+        Map<String, OAuthValidator<HttpServletRequest>> validators = new HashMap<>();
+        for (Map.Entry<String, Class<? extends OAuthValidator<HttpServletRequest>>> entry :
+                validatorClasses.entrySet()) {
+            try {
+                validators.put(entry.getKey(), entry.getValue().newInstance());
+            } catch (InstantiationException e) {
+                log.error("Error instantiating " + entry.getValue().getName(), e);
+            } catch (IllegalAccessException e) {
+                log.error("Illegal access to " + entry.getValue().getName(), e);
+            }
+        }
+        return validators;
+    }
+
+    private Map<String, ResponseTypeHandler> buildResponseTypeHandlers() {
+        Map<String, ResponseTypeHandler> responseTypeHandlers = new HashMap<>();
+        for (Map.Entry<String, String> entry : supportedResponseTypeClassNames.entrySet()) {
+            try {
+                ResponseTypeHandler responseTypeHandler =
+                        (ResponseTypeHandler) Class.forName(entry.getValue()).newInstance();
+                responseTypeHandler.init();
+                responseTypeHandlers.put(entry.getKey(), responseTypeHandler);
+            } catch (InstantiationException e) {
+                log.error("Error instantiating " + entry.getValue(), e);
+            } catch (IllegalAccessException e) {
+                log.error("Illegal access to " + entry.getValue(), e);
+            } catch (ClassNotFoundException e) {
+                log.error("Cannot find class: " + entry.getValue(), e);
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error while initializing " + entry.getValue(), e);
             }
         }
-        return supportedClientAuthHandlers;
+        return responseTypeHandlers;
+    }
+
+    private List<ClientAuthenticationHandler> buildClientAuthHandlers() {
+        List<ClientAuthenticationHandler> clientAuthHandlers = new ArrayList<>();
+        for (Map.Entry<String, Properties> entry : supportedClientAuthHandlerData.entrySet()) {
+            try {
+                ClientAuthenticationHandler clientAuthenticationHandler = (ClientAuthenticationHandler)
+                        Class.forName(entry.getKey()).newInstance();
+                clientAuthenticationHandler.init(entry.getValue());
+                clientAuthHandlers.add(clientAuthenticationHandler);
+
+            //Exceptions necessarily don't have to break the flow since there are cases
+            //runnable without client auth handlers
+            } catch (InstantiationException e) {
+                log.error("Error instantiating " + entry, e);
+            } catch (IllegalAccessException e) {
+                log.error("Illegal access to " + entry, e);
+            } catch (ClassNotFoundException e) {
+                log.error("Cannot find class: " + entry, e);
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error while initializing " + entry, e);
+            }
+        }
+        return clientAuthHandlers;
     }
 
     public SAML2TokenCallbackHandler getSAML2TokenCallbackHandler() {
@@ -1161,6 +1275,22 @@ public class OAuthServerConfiguration {
         }
     }
 
+    private void parseTokenIssuanceLockManagerConfig(OMElement oauthConfigElem) {
+
+        OMElement lockManagerClassConfigElem = oauthConfigElem
+                .getFirstChildWithName(getQNameWithIdentityNS(ConfigElements.TOKEN_ISSUANCE_LOCK_MANAGER));
+        if (lockManagerClassConfigElem != null && !"".equals(lockManagerClassConfigElem.getText().trim())) {
+            tokenIssuanceLockManagerClassName = lockManagerClassConfigElem.getText().trim();
+            if (log.isDebugEnabled()) {
+                log.debug("Token issuance lock manager is set to : " + tokenIssuanceLockManagerClassName);
+            }
+        } else {
+            if (log.isDebugEnabled()) {
+                log.debug("The default token issuance lock manager will be used. No custom lock manager is set.");
+            }
+        }
+    }
+
     private void parseSupportedGrantTypesConfig(OMElement oauthConfigElem) {
 
         OMElement supportedGrantTypesElem =
@@ -1587,6 +1717,8 @@ public class OAuthServerConfiguration {
         // Token issuer generator.
         private static final String OAUTH_TOKEN_GENERATOR = "OAuthTokenGenerator";
         private static final String IDENTITY_OAUTH_TOKEN_GENERATOR = "IdentityOAuthTokenGenerator";
+        // Token issuance lock manager
+        private static final String TOKEN_ISSUANCE_LOCK_MANAGER = "TokenIssuanceLockManager";
 
         // Supported Grant Types
         private static final String SUPPORTED_GRANT_TYPES = "SupportedGrantTypes";
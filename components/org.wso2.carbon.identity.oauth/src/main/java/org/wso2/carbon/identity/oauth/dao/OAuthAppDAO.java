@@ -271,6 +271,7 @@ public class OAuthAppDAO {
                         oauthApp.setPkceMandatory("0".equals(rSet.getString(10)) ? false : true);
                         oauthApp.setPkceSupportPlain("0".equals(rSet.getString(11)) ? false : true);
                     }
+                    oauthApp.setState(rSet.getString("APP_STATE"));
                     oauthApps.add(oauthApp);
                 }
             }
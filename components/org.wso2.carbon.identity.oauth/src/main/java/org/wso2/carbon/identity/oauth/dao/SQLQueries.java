@@ -52,10 +52,10 @@ public class SQLQueries {
                 "USER_DOMAIN, PKCE_MANDATORY, PKCE_SUPPORT_PLAIN FROM IDN_OAUTH_CONSUMER_APPS WHERE (USERNAME=? OR USERNAME=?) AND TENANT_ID=?";
 
         public static final String GET_APP_INFO = "SELECT CONSUMER_SECRET,USERNAME,APP_NAME, OAUTH_VERSION, " +
-                "CALLBACK_URL,TENANT_ID, USER_DOMAIN, GRANT_TYPES, ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=? ";
+                "CALLBACK_URL,TENANT_ID, USER_DOMAIN, GRANT_TYPES, ID, APP_STATE FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=? ";
 
         public static final String GET_APP_INFO_WITH_PKCE = "SELECT CONSUMER_SECRET,USERNAME,APP_NAME, OAUTH_VERSION, " +
-                "CALLBACK_URL,TENANT_ID, USER_DOMAIN, GRANT_TYPES, ID, PKCE_MANDATORY, PKCE_SUPPORT_PLAIN FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=? ";
+                "CALLBACK_URL,TENANT_ID, USER_DOMAIN, GRANT_TYPES, ID, PKCE_MANDATORY, PKCE_SUPPORT_PLAIN, APP_STATE FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=? ";
 
         public static final String GET_APP_INFO_BY_APP_NAME = "SELECT CONSUMER_SECRET,USERNAME,USER_DOMAIN,CONSUMER_KEY, " +
                 "OAUTH_VERSION, CALLBACK_URL,GRANT_TYPES, ID FROM IDN_OAUTH_CONSUMER_APPS WHERE APP_NAME=? AND TENANT_ID=? ";
@@ -30,20 +30,25 @@ import org.wso2.carbon.identity.oauth.OAuthUtil;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCache;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
+import org.wso2.carbon.identity.oauth.user.UserInfoClaimsCache;
 import org.wso2.carbon.identity.oauth.util.ClaimCache;
 import org.wso2.carbon.identity.oauth.util.ClaimCacheKey;
 import org.wso2.carbon.identity.oauth.util.ClaimMetaDataCache;
 import org.wso2.carbon.identity.oauth.util.ClaimMetaDataCacheEntry;
 import org.wso2.carbon.identity.oauth.util.ClaimMetaDataCacheKey;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.authcontext.AuthorizationContextTokenCache;
 import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.validators.UserRolesCache;
 import org.wso2.carbon.user.core.UserCoreConstants;
 import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -55,6 +60,12 @@ import java.util.Set;
 public class IdentityOathEventListener extends AbstractIdentityUserOperationEventListener {
     private static final Log log = LogFactory.getLog(IdentityOathEventListener.class);
 
+    /**
+     * Access tokens read before the claims of a user are updated, keyed by the user, so that the claims cached against
+     * them are cleared after the update without reading the tokens again.
+     */
+    private static final ThreadLocal<Map<String, Set<String>>> accessTokensOfUpdatedUser = new ThreadLocal<>();
+
     /**
      * Bundle execution order id.
      */
@@ -80,6 +91,7 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         }
 
         removeClaimCacheEntry(username, userStoreManager);
+        removeUserRolesFromCache(username, userStoreManager);
 
         return revokeTokens(username, userStoreManager);
 
@@ -147,6 +159,45 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         return revokeTokens(userName, userStoreManager);
     }
 
+    @Override
+    public boolean doPostUpdateRoleListOfUser(String userName, String[] deletedRoles, String[] newRoles,
+                                              UserStoreManager userStoreManager) throws UserStoreException {
+
+        removeUserRolesFromCache(userName, userStoreManager);
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateUserListOfRole(String roleName, String[] deletedUsers, String[] newUsers,
+                                              UserStoreManager userStoreManager) throws UserStoreException {
+
+        UserRolesCache.getInstance().clearAll();
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteRole(String roleName, UserStoreManager userStoreManager) throws UserStoreException {
+
+        UserRolesCache.getInstance().clearAll();
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateRoleName(String roleName, String newRoleName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+
+        UserRolesCache.getInstance().clearAll();
+        return true;
+    }
+
+    private void removeUserRolesFromCache(String userName, UserStoreManager userStoreManager)
+            throws UserStoreException {
+
+        String userStoreDomain = UserCoreUtil.getDomainName(userStoreManager.getRealmConfiguration());
+        UserRolesCache.getInstance().clearUser(userStoreManager.getTenantId(), userStoreDomain,
+                UserCoreUtil.removeDomainFromName(userName));
+    }
+
     private boolean revokeTokensOfLockedUser(String userName, UserStoreManager userStoreManager) throws UserStoreException {
 
         IdentityErrorMsgContext errorContext = IdentityUtil.getIdentityErrorMsg();
@@ -189,57 +240,27 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
             }
         }
 
-        Set<String> clientIds = null;
+        Set<AccessTokenDO> revokedTokens;
         try {
-            // get all the distinct client Ids authorized by this user
-            clientIds = tokenMgtDAO.getAllTimeAuthorizedClientIds(authenticatedUser);
+            // revoke all ACTIVE or EXPIRED access tokens of the user across all clients at once
+            revokedTokens = tokenMgtDAO.revokeAccessTokensOfUser(authenticatedUser, userStoreDomain);
         } catch (IdentityOAuth2Exception e) {
-            log.error("Error occurred while retrieving apps authorized by User ID : " + authenticatedUser, e);
+            log.error("Error occurred while revoking access tokens of User ID : " + authenticatedUser, e);
             return true;
         }
-        for (String clientId : clientIds) {
-            Set<AccessTokenDO> accessTokenDOs = null;
-            try {
-                // retrieve all ACTIVE or EXPIRED access tokens for particular client authorized by this user
-                accessTokenDOs = tokenMgtDAO.retrieveAccessTokens(clientId, authenticatedUser, userStoreDomain, true);
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while retrieving access tokens issued for " +
-                        "Client ID : " + clientId + ", User ID : " + authenticatedUser;
-                log.error(errorMsg, e);
-                return true;
+
+        // several tokens share the client and client, user and scope cache entries, so clear each of those once
+        Set<String> clearedCacheKeys = new HashSet<>();
+        for (AccessTokenDO accessTokenDO : revokedTokens) {
+            String consumerKey = accessTokenDO.getConsumerKey();
+            String scope = OAuth2Util.buildScopeString(accessTokenDO.getScope());
+            if (clearedCacheKeys.add(consumerKey + ":" + scope)) {
+                OAuthUtil.clearOAuthCache(consumerKey, authenticatedUser, scope);
             }
-            for (AccessTokenDO accessTokenDO : accessTokenDOs) {
-                //Clear cache
-                OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser(),
-                        OAuth2Util.buildScopeString(accessTokenDO.getScope()));
-                OAuthUtil.clearOAuthCache(accessTokenDO.getConsumerKey(), accessTokenDO.getAuthzUser());
-                OAuthUtil.clearOAuthCache(accessTokenDO.getAccessToken());
-                AccessTokenDO scopedToken = null;
-                try {
-                    // retrieve latest access token for particular client, user and scope combination if its ACTIVE or EXPIRED
-                    scopedToken = tokenMgtDAO.retrieveLatestAccessToken(
-                            clientId, authenticatedUser, userStoreDomain,
-                            OAuth2Util.buildScopeString(accessTokenDO.getScope()), true);
-                } catch (IdentityOAuth2Exception e) {
-                    String errorMsg = "Error occurred while retrieving latest " +
-                            "access token issued for Client ID : " +
-                            clientId + ", User ID : " + authenticatedUser + " and Scope : " +
-                            OAuth2Util.buildScopeString(accessTokenDO.getScope());
-                    log.error(errorMsg, e);
-                    return true;
-                }
-                if (scopedToken != null) {
-                    try {
-                        //Revoking token from database
-                        tokenMgtDAO.revokeTokens(new String[]{scopedToken.getAccessToken()});
-                    } catch (IdentityOAuth2Exception e) {
-                        String errorMsg = "Error occurred while revoking " +
-                                "Access Token : " + scopedToken.getAccessToken();
-                        log.error(errorMsg, e);
-                        return true;
-                    }
-                }
+            if (clearedCacheKeys.add(consumerKey)) {
+                OAuthUtil.clearOAuthCache(consumerKey, authenticatedUser);
             }
+            OAuthUtil.clearOAuthCache(accessTokenDO.getAccessToken());
         }
         return true;
     }
@@ -257,6 +278,7 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         authenticatedUser.setUserName(userName);
         try {
             accessTokens = tokenMgtDAO.getAccessTokensForUser(authenticatedUser);
+            accessTokensOfUpdatedUser.set(Collections.singletonMap(authenticatedUser.toString(), accessTokens));
             authorizationCodes = tokenMgtDAO.getAuthorizationCodesForUser(authenticatedUser);
             if (accessTokens != null && accessTokens.size() > 0) {
                 for (String accessToken : accessTokens) {
@@ -300,9 +322,41 @@ public class IdentityOathEventListener extends AbstractIdentityUserOperationEven
         if (cacheKey != null) {
             claimCache.clearCacheEntry(cacheKey);
         }
+        clearClaimsOfAccessTokens(authenticatedUser);
         return true;
     }
 
+    /**
+     * Evicts the claims and authorization context tokens cached against the active access tokens of the user. The
+     * tokens are the ones {@link #removeTokensFromCache(String, UserStoreManager)} read before the update, and are
+     * read only if that failed.
+     *
+     * @param authenticatedUser user whose claims were updated
+     */
+    private void clearClaimsOfAccessTokens(AuthenticatedUser authenticatedUser) {
+
+        Map<String, Set<String>> accessTokensReadBeforeUpdate = accessTokensOfUpdatedUser.get();
+        accessTokensOfUpdatedUser.remove();
+        Set<String> accessTokens = null;
+        if (accessTokensReadBeforeUpdate != null) {
+            accessTokens = accessTokensReadBeforeUpdate.get(authenticatedUser.toString());
+        }
+        if (accessTokens == null) {
+            try {
+                accessTokens = new TokenMgtDAO().getAccessTokensForUser(authenticatedUser);
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error occurred while retrieving access tokens issued for user : " + authenticatedUser, e);
+                return;
+            }
+        }
+        UserInfoClaimsCache userInfoClaimsCache = UserInfoClaimsCache.getInstance();
+        AuthorizationContextTokenCache authorizationContextTokenCache = AuthorizationContextTokenCache.getInstance();
+        for (String accessToken : accessTokens) {
+            userInfoClaimsCache.clearClaims(accessToken);
+            authorizationContextTokenCache.clearToken(accessToken);
+        }
+    }
+
     /**
      * Remove ClaimCache Entry if available.
      *
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenprocessor;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * An implementation of <Code>TokenPersistenceProcessor</Code> which produces a one way hash of access tokens,
+ * refresh tokens and authorization codes. A plain digest (SHA-256 by default) is used unless a secret is configured
+ * through <Code>OAuth.TokenPersistence.HashingSecret</Code>, in which case an HMAC of the value is computed.
+ * <p>
+ * Hashes can not be reverted, so this processor is used to populate and probe the indexed hash lookup columns
+ * (ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH and AUTHORIZATION_CODE_HASH) rather than as the configured
+ * <Code>TokenPersistenceProcessor</Code>. Client IDs and secrets are not hashed.
+ */
+public class HashingPersistenceProcessor implements TokenPersistenceProcessor {
+
+    private static final Log log = LogFactory.getLog(HashingPersistenceProcessor.class);
+
+    private static final String HASHING_ALGORITHM = "OAuth.TokenPersistence.HashingAlgorithm";
+    private static final String HASHING_SECRET = "OAuth.TokenPersistence.HashingSecret";
+    private static final String DEFAULT_DIGEST_ALGORITHM = "SHA-256";
+    private static final String DEFAULT_HMAC_ALGORITHM = "HmacSHA256";
+
+    private final String algorithm;
+    private final SecretKeySpec secretKey;
+
+    public HashingPersistenceProcessor() {
+        this(IdentityUtil.getProperty(HASHING_ALGORITHM), IdentityUtil.getProperty(HASHING_SECRET));
+    }
+
+    /**
+     * @param algorithm message digest algorithm, or MAC algorithm if a secret is given. Defaults to SHA-256 or
+     *                  HmacSHA256 when blank
+     * @param secret    HMAC secret. A plain digest is computed when blank
+     */
+    public HashingPersistenceProcessor(String algorithm, String secret) {
+
+        if (StringUtils.isNotBlank(secret)) {
+            this.algorithm = StringUtils.isNotBlank(algorithm) ? algorithm.trim() : DEFAULT_HMAC_ALGORITHM;
+            this.secretKey = new SecretKeySpec(secret.getBytes(Charsets.UTF_8), this.algorithm);
+        } else {
+            this.algorithm = StringUtils.isNotBlank(algorithm) ? algorithm.trim() : DEFAULT_DIGEST_ALGORITHM;
+            this.secretKey = null;
+        }
+
+        // fail early on a misconfigured algorithm rather than on the first token request
+        try {
+            if (secretKey != null) {
+                Mac.getInstance(this.algorithm).init(secretKey);
+            } else {
+                MessageDigest.getInstance(this.algorithm);
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Unsupported token hashing algorithm : " + this.algorithm, e);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Token hashing algorithm : " + this.algorithm + (secretKey != null ? " (keyed)" : ""));
+        }
+    }
+
+    @Override
+    public String getProcessedClientId(String clientId) throws IdentityOAuth2Exception {
+        return clientId;
+    }
+
+    @Override
+    public String getPreprocessedClientId(String processedClientId) throws IdentityOAuth2Exception {
+        return processedClientId;
+    }
+
+    @Override
+    public String getProcessedClientSecret(String clientSecret) throws IdentityOAuth2Exception {
+        return clientSecret;
+    }
+
+    @Override
+    public String getPreprocessedClientSecret(String processedClientSecret) throws IdentityOAuth2Exception {
+        return processedClientSecret;
+    }
+
+    @Override
+    public String getProcessedAuthzCode(String authzCode) throws IdentityOAuth2Exception {
+        return hash(authzCode);
+    }
+
+    @Override
+    public String getPreprocessedAuthzCode(String processedAuthzCode) throws IdentityOAuth2Exception {
+        throw new IdentityOAuth2Exception("Hashed authorization codes can not be reverted");
+    }
+
+    @Override
+    public String getProcessedAccessTokenIdentifier(String accessTokenIdentifier) throws IdentityOAuth2Exception {
+        return hash(accessTokenIdentifier);
+    }
+
+    @Override
+    public String getPreprocessedAccessTokenIdentifier(String processedAccessTokenIdentifier)
+            throws IdentityOAuth2Exception {
+        throw new IdentityOAuth2Exception("Hashed access tokens can not be reverted");
+    }
+
+    @Override
+    public String getProcessedRefreshToken(String refreshToken) throws IdentityOAuth2Exception {
+        return hash(refreshToken);
+    }
+
+    @Override
+    public String getPreprocessedRefreshToken(String processedRefreshToken) throws IdentityOAuth2Exception {
+        throw new IdentityOAuth2Exception("Hashed refresh tokens can not be reverted");
+    }
+
+    private String hash(String value) throws IdentityOAuth2Exception {
+
+        if (value == null) {
+            return null;
+        }
+
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        try {
+            if (secretKey != null) {
+                Mac mac = Mac.getInstance(algorithm);
+                mac.init(secretKey);
+                return Hex.encodeHexString(mac.doFinal(bytes));
+            }
+            return Hex.encodeHexString(MessageDigest.getInstance(algorithm).digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IdentityOAuth2Exception("Unsupported token hashing algorithm : " + algorithm, e);
+        } catch (GeneralSecurityException e) {
+            throw new IdentityOAuth2Exception("Error while hashing the token", e);
+        }
+    }
+}
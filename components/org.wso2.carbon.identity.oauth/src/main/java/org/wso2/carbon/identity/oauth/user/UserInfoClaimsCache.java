@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.user;
+
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of the user store claims returned by the UserInfo endpoint, keyed by access token. An entry expires after
+ * <code>OAuth.UserInfo.ClaimsCacheTimeout</code> seconds (default 60) or when its access token expires, whichever
+ * comes first. Entries are evicted across the cluster when the access token is revoked and when the claims of its
+ * user are updated. The number of entries is bounded by the capacity configured for this cache in identity.xml. A
+ * timeout of 0 disables the cache.
+ */
+public class UserInfoClaimsCache extends BaseCache<String, UserInfoClaimsCacheEntry> {
+
+    private static final String USER_INFO_CLAIMS_CACHE_NAME = "UserInfoClaimsCache";
+    private static final String CLAIMS_CACHE_TIMEOUT = "OAuth.UserInfo.ClaimsCacheTimeout";
+    private static final long DEFAULT_CLAIMS_CACHE_TIMEOUT = 60;
+
+    private static volatile UserInfoClaimsCache instance;
+
+    private final long timeoutInMillis;
+
+    private UserInfoClaimsCache() {
+        super(USER_INFO_CLAIMS_CACHE_NAME);
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(CLAIMS_CACHE_TIMEOUT, DEFAULT_CLAIMS_CACHE_TIMEOUT) *
+                1000;
+    }
+
+    public static UserInfoClaimsCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (UserInfoClaimsCache.class) {
+                if (instance == null) {
+                    instance = new UserInfoClaimsCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param accessToken access token the UserInfo request was made with
+     * @return unmodifiable map of cached claims, or null if there is none or it has expired
+     */
+    public Map<String, Object> getClaims(String accessToken) {
+
+        if (timeoutInMillis <= 0 || accessToken == null) {
+            return null;
+        }
+        UserInfoClaimsCacheEntry entry = super.getValueFromCache(accessToken);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            super.clearCacheEntry(accessToken);
+            return null;
+        }
+        return entry.getClaims();
+    }
+
+    /**
+     * Caches a copy of the claims retrieved for the given access token.
+     *
+     * @param accessTokenDO access token the UserInfo request was made with
+     * @param claims claims retrieved from the user store
+     */
+    public void addClaims(AccessTokenDO accessTokenDO, Map<String, Object> claims) {
+
+        if (timeoutInMillis <= 0 || accessTokenDO == null || accessTokenDO.getAccessToken() == null ||
+                claims == null) {
+            return;
+        }
+
+        long timeout = timeoutInMillis;
+        long tokenValidity = OAuth2Util.getAccessTokenExpireMillis(accessTokenDO);
+        if (tokenValidity == 0) {
+            return;
+        } else if (tokenValidity > 0) {
+            timeout = Math.min(timeout, tokenValidity);
+        }
+        super.addToCache(accessTokenDO.getAccessToken(), new UserInfoClaimsCacheEntry(Collections.unmodifiableMap(
+                new HashMap<>(claims)), System.currentTimeMillis() + timeout));
+    }
+
+    public void clearClaims(String accessToken) {
+
+        if (accessToken != null) {
+            super.clearCacheEntry(accessToken);
+        }
+    }
+}
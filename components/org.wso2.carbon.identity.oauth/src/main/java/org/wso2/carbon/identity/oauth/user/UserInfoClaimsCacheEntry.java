@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.user;
+
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+
+import java.util.Map;
+
+/**
+ * UserInfo claims cached by {@link UserInfoClaimsCache} for an access token.
+ */
+public class UserInfoClaimsCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 6057245932127914086L;
+
+    private final Map<String, Object> claims;
+    private final long expiryTime;
+
+    public UserInfoClaimsCacheEntry(Map<String, Object> claims, long expiryTime) {
+        this.claims = claims;
+        this.expiryTime = expiryTime;
+    }
+
+    public Map<String, Object> getClaims() {
+        return claims;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() > expiryTime;
+    }
+}
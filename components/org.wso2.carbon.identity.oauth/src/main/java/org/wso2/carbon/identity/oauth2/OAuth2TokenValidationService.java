@@ -29,6 +29,9 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationRequestDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.validators.TokenValidationHandler;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * This is the SOAP version of the OAuth validation service which will be used by the resource server.
  */
@@ -112,6 +115,50 @@ public class OAuth2TokenValidationService extends AbstractAdmin {
         return oAuth2IntrospectionResponseDTO;
     }
 
+    /**
+     * Batch variant of {@link #buildIntrospectionResponse(OAuth2TokenValidationRequestDTO)}. The tokens which need to
+     * be read from the token store are read together.
+     *
+     * @param validationReqs validation requests of the tokens
+     * @return introspection responses, in the order of the requests
+     */
+    public OAuth2IntrospectionResponseDTO[] buildIntrospectionResponses(
+            OAuth2TokenValidationRequestDTO[] validationReqs) {
+
+        OAuth2IntrospectionResponseDTO[] responses = new OAuth2IntrospectionResponseDTO[validationReqs.length];
+        List<OAuth2TokenValidationRequestDTO> validatedReqs = new ArrayList<>(validationReqs.length);
+        List<Integer> validatedIndexes = new ArrayList<>(validationReqs.length);
+        for (int i = 0; i < validationReqs.length; i++) {
+            try {
+                triggerPreValidationListeners(validationReqs[i]);
+                validatedReqs.add(validationReqs[i]);
+                validatedIndexes.add(i);
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error occurred while building the introspection response", e);
+                responses[i] = buildIntrospectionErrorResponse(e.getMessage());
+            }
+        }
+
+        List<OAuth2IntrospectionResponseDTO> validatedResponses =
+                TokenValidationHandler.getInstance().buildIntrospectionResponses(validatedReqs);
+        for (int i = 0; i < validatedIndexes.size(); i++) {
+            responses[validatedIndexes.get(i)] = validatedResponses.get(i);
+        }
+
+        for (int i = 0; i < validationReqs.length; i++) {
+            triggerPostIntrospectionValidationListeners(validationReqs[i], responses[i]);
+        }
+        return responses;
+    }
+
+    private OAuth2IntrospectionResponseDTO buildIntrospectionErrorResponse(String errorMessage) {
+
+        OAuth2IntrospectionResponseDTO response = new OAuth2IntrospectionResponseDTO();
+        response.setActive(false);
+        response.setError(errorMessage);
+        return response;
+    }
+
     private void triggerPreValidationListeners(OAuth2TokenValidationRequestDTO requestDTO)
             throws IdentityOAuth2Exception {
         OAuthEventInterceptor oAuthEventInterceptorProxy = OAuthComponentServiceHolder.getInstance()
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.authcontext;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.Arrays;
+
+/**
+ * Cache of the authorization context tokens generated while validating access tokens, keyed by access token and the
+ * claims requested for it. A token is reused until <code>OAuth.AuthorizationContextToken.CacheExpiryMargin</code>
+ * seconds (default 60) before its own expiry, and never after the access token expires. Entries are evicted across
+ * the cluster when the access token is revoked and when the claims of its user are updated. The number of access
+ * tokens kept is bounded by the capacity configured for this cache in identity.xml.
+ * <p/>
+ * The cache is disabled by setting <code>OAuth.AuthorizationContextToken.EnableCache</code> to false, or with the
+ * OAuth cache, e.g. when claims change outside of the user store listeners and every validation must see them.
+ */
+public class AuthorizationContextTokenCache extends BaseCache<String, AuthorizationContextTokenCacheEntry> {
+
+    private static final String AUTHORIZATION_CONTEXT_TOKEN_CACHE_NAME = "AuthorizationContextTokenCache";
+    private static final String CACHE_ENABLE = "OAuth.AuthorizationContextToken.EnableCache";
+    private static final String CACHE_EXPIRY_MARGIN = "OAuth.AuthorizationContextToken.CacheExpiryMargin";
+    private static final long DEFAULT_CACHE_EXPIRY_MARGIN = 60;
+    private static final String ALL_CLAIMS = "*";
+
+    private static volatile AuthorizationContextTokenCache instance;
+
+    private final boolean enabled;
+    private final long expiryMarginInMillis;
+
+    private AuthorizationContextTokenCache() {
+        super(AUTHORIZATION_CONTEXT_TOKEN_CACHE_NAME);
+        String enableCache = IdentityUtil.getProperty(CACHE_ENABLE);
+        enabled = (StringUtils.isBlank(enableCache) || Boolean.parseBoolean(enableCache.trim())) &&
+                OAuthServerConfiguration.getInstance().isCacheEnabled();
+        expiryMarginInMillis = OAuthCacheConfigUtil.getLongProperty(CACHE_EXPIRY_MARGIN,
+                DEFAULT_CACHE_EXPIRY_MARGIN) * 1000;
+    }
+
+    public static AuthorizationContextTokenCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (AuthorizationContextTokenCache.class) {
+                if (instance == null) {
+                    instance = new AuthorizationContextTokenCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @return whether authorization context tokens are cached
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param accessToken access token being validated
+     * @param requestedClaims claims requested with the validation request, null if none were requested
+     * @return serialized authorization context token, or null if there is none or it is about to expire
+     */
+    public String getToken(String accessToken, String[] requestedClaims) {
+
+        if (!enabled || accessToken == null) {
+            return null;
+        }
+        AuthorizationContextTokenCacheEntry entry = super.getValueFromCache(accessToken);
+        return entry == null ? null : entry.getToken(buildClaimsKey(requestedClaims));
+    }
+
+    /**
+     * Caches an authorization context token generated for the given access token.
+     *
+     * @param accessTokenDO access token being validated
+     * @param requestedClaims claims requested with the validation request, null if none were requested
+     * @param token serialized authorization context token
+     * @param tokenExpiryTime expiry time of the authorization context token in milliseconds
+     */
+    public void addToken(AccessTokenDO accessTokenDO, String[] requestedClaims, String token, long tokenExpiryTime) {
+
+        if (!enabled || accessTokenDO == null || accessTokenDO.getAccessToken() == null || token == null) {
+            return;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        long expiryTime = tokenExpiryTime - expiryMarginInMillis;
+        long accessTokenValidity = OAuth2Util.getAccessTokenExpireMillis(accessTokenDO);
+        if (accessTokenValidity == 0) {
+            return;
+        } else if (accessTokenValidity > 0) {
+            expiryTime = Math.min(expiryTime, currentTime + accessTokenValidity);
+        }
+        if (expiryTime <= currentTime) {
+            return;
+        }
+
+        // a concurrent add for another claim set of the same access token may be lost, which only costs a miss
+        AuthorizationContextTokenCacheEntry entry = super.getValueFromCache(accessTokenDO.getAccessToken());
+        if (entry == null) {
+            entry = new AuthorizationContextTokenCacheEntry();
+        }
+        super.addToCache(accessTokenDO.getAccessToken(),
+                entry.withToken(buildClaimsKey(requestedClaims), token, expiryTime));
+    }
+
+    /**
+     * Evicts the authorization context tokens generated for an access token.
+     *
+     * @param accessToken revoked access token, or access token of a user whose claims were updated
+     */
+    public void clearToken(String accessToken) {
+
+        if (enabled && accessToken != null) {
+            super.clearCacheEntry(accessToken);
+        }
+    }
+
+    private static String buildClaimsKey(String[] requestedClaims) {
+
+        if (requestedClaims == null) {
+            return ALL_CLAIMS;
+        }
+        String[] sortedClaims = Arrays.copyOf(requestedClaims, requestedClaims.length);
+        Arrays.sort(sortedClaims);
+        return StringUtils.join(sortedClaims, ' ');
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.authcontext;
+
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Authorization context tokens cached by {@link AuthorizationContextTokenCache} for an access token, keyed by the
+ * claims they were generated for. Instances are immutable, adding a token creates a new entry.
+ */
+public class AuthorizationContextTokenCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 2946405513894617021L;
+
+    private final Map<String, CachedToken> tokens;
+
+    public AuthorizationContextTokenCacheEntry() {
+        this.tokens = Collections.emptyMap();
+    }
+
+    private AuthorizationContextTokenCacheEntry(Map<String, CachedToken> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @param claimsKey key of the requested claims
+     * @return token generated for the claims, or null if there is none or it has expired
+     */
+    public String getToken(String claimsKey) {
+
+        CachedToken cachedToken = tokens.get(claimsKey);
+        if (cachedToken == null || System.currentTimeMillis() > cachedToken.expiryTime) {
+            return null;
+        }
+        return cachedToken.token;
+    }
+
+    /**
+     * @return entry holding the tokens of this entry which have not expired, and the given token
+     */
+    public AuthorizationContextTokenCacheEntry withToken(String claimsKey, String token, long expiryTime) {
+
+        long currentTime = System.currentTimeMillis();
+        Map<String, CachedToken> newTokens = new HashMap<>(tokens);
+        Iterator<CachedToken> iterator = newTokens.values().iterator();
+        while (iterator.hasNext()) {
+            if (currentTime > iterator.next().expiryTime) {
+                iterator.remove();
+            }
+        }
+        newTokens.put(claimsKey, new CachedToken(token, expiryTime));
+        return new AuthorizationContextTokenCacheEntry(Collections.unmodifiableMap(newTokens));
+    }
+
+    private static class CachedToken implements Serializable {
+
+        private static final long serialVersionUID = -4467383806021934566L;
+
+        private final String token;
+        private final long expiryTime;
+
+        private CachedToken(String token, long expiryTime) {
+            this.token = token;
+            this.expiryTime = expiryTime;
+        }
+    }
+}
@@ -21,24 +21,16 @@ package org.wso2.carbon.identity.oauth2.authcontext;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.crypto.RSASSASigner;
-import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWT;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.PlainJWT;
 import com.nimbusds.jwt.SignedJWT;
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.Charsets;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.base.MultitenantConstants;
-import org.wso2.carbon.core.util.KeyStoreManager;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
-import org.wso2.carbon.identity.base.IdentityException;
 import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
-import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
@@ -55,6 +47,8 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2TokenValidationResponseDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.util.TenantSigningKey;
 import org.wso2.carbon.identity.oauth2.validators.OAuth2TokenValidationMessageContext;
 import org.wso2.carbon.user.api.RealmConfiguration;
 import org.wso2.carbon.user.api.UserRealm;
@@ -64,21 +58,14 @@ import org.wso2.carbon.user.core.service.RealmService;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
-import java.security.Key;
-import java.security.KeyStore;
-import java.security.MessageDigest;
-import java.security.cert.Certificate;
-import java.security.interfaces.RSAPrivateKey;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedMap;
 import java.util.StringTokenizer;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class represents the JSON Web Token generator.
@@ -106,9 +93,6 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
 
     private boolean enableSigning = true;
 
-    private static Map<Integer, Key> privateKeys = new ConcurrentHashMap<Integer, Key>();
-    private static Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<Integer, Certificate>();
-
     private ClaimCache claimsLocalCache;
 
     public JWTTokenGenerator() {
@@ -119,7 +103,6 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
 
     private boolean useMultiValueSeparator = true;
 
-
     //constructor for testing purposes
     public JWTTokenGenerator(boolean includeClaims, boolean enableSigning) {
         this.includeClaims = includeClaims;
@@ -169,6 +152,21 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
     @Override
     public void generateToken(OAuth2TokenValidationMessageContext messageContext) throws IdentityOAuth2Exception {
 
+        AccessTokenDO accessTokenDO = (AccessTokenDO) messageContext.getProperty("AccessTokenDO");
+        String[] requiredClaimURIs = messageContext.getRequestDTO().getRequiredClaimURIs();
+
+        // gateways validate the same access token repeatedly, so reuse the token signed for an earlier validation
+        String cachedToken = AuthorizationContextTokenCache.getInstance().getToken(accessTokenDO.getAccessToken(),
+                requiredClaimURIs);
+        if (cachedToken != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT Assertion Value (cached) : " + cachedToken);
+            }
+            messageContext.getResponseDTO().setAuthorizationContextToken(
+                    messageContext.getResponseDTO().new AuthorizationContextToken("JWT", cachedToken));
+            return;
+        }
+
         String clientId = ((AccessTokenDO)messageContext.getProperty("AccessTokenDO")).getConsumerKey();
         long issuedTime = ((AccessTokenDO)messageContext.getProperty("AccessTokenDO")).getIssuedTime().getTime();
         String authzUser = messageContext.getResponseDTO().getAuthorizedUser();
@@ -225,7 +223,7 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
         if(claimsRetriever != null){
 
             //check in local cache
-            String[] requestedClaims = messageContext.getRequestDTO().getRequiredClaimURIs();
+            String[] requestedClaims = requiredClaimURIs;
             if(requestedClaims == null && isExistingUser)  {
                 // if no claims were requested, return all
                 requestedClaims = claimsRetriever.getDefaultClaims(authzUser);
@@ -288,19 +286,22 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
 
         JWT jwt = null;
         if(!JWSAlgorithm.NONE.equals(signatureAlgorithm)){
-            JWSHeader header = new JWSHeader(JWSAlgorithm.RS256);
-            header.setX509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantID)));
+            JWSHeader header = SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantID)
+                    .createHeader(signatureAlgorithm);
             jwt = new SignedJWT(header, claimsSet);
             jwt = signJWT((SignedJWT)jwt, tenantDomain, tenantID);
         } else {
             jwt = new PlainJWT(claimsSet);
         }
 
+        String serializedJWT = jwt.serialize();
         if (log.isDebugEnabled()) {
-            log.debug("JWT Assertion Value : " + jwt.serialize());
+            log.debug("JWT Assertion Value : " + serializedJWT);
         }
+        AuthorizationContextTokenCache.getInstance().addToken(accessTokenDO, requiredClaimURIs, serializedJWT,
+                expireIn);
         OAuth2TokenValidationResponseDTO.AuthorizationContextToken token;
-        token = messageContext.getResponseDTO().new AuthorizationContextToken("JWT", jwt.serialize());
+        token = messageContext.getResponseDTO().new AuthorizationContextToken("JWT", serializedJWT);
         messageContext.getResponseDTO().setAuthorizationContextToken(token);
     }
 
@@ -318,17 +319,28 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
                                        int tenantId)
             throws IdentityOAuth2Exception {
 
+        return signJWTWithTenantKey(signedJWT, tenantDomain, tenantId);
+    }
+
+    /**
+     * Sign with the key of the tenant held by {@link SigningKeyRegistry}
+     *
+     * @param signedJWT
+     * @param tenantDomain
+     * @param tenantId
+     * @return
+     * @throws IdentityOAuth2Exception
+     */
+    private SignedJWT signJWTWithTenantKey(SignedJWT signedJWT, String tenantDomain, int tenantId)
+            throws IdentityOAuth2Exception {
+
+        TenantSigningKey signingKey = SigningKeyRegistry.getInstance().getSigningKey(tenantDomain, tenantId);
         try {
-            Key privateKey = getPrivateKey(tenantDomain, tenantId);
-            JWSSigner signer = new RSASSASigner((RSAPrivateKey) privateKey);
-            signedJWT.sign(signer);
+            signedJWT.sign(signingKey.getSigner());
             return signedJWT;
         } catch (JOSEException e) {
-            log.error("Error in obtaining tenant's keystore", e);
-            throw new IdentityOAuth2Exception("Error in obtaining tenant's keystore", e);
-        } catch (Exception e) {
-            log.error("Error in obtaining tenant's keystore", e);
-            throw new IdentityOAuth2Exception("Error in obtaining tenant's keystore", e);
+            log.error("Error while signing JWT with the key of tenant " + tenantDomain, e);
+            throw new IdentityOAuth2Exception("Error while signing JWT with the key of tenant " + tenantDomain, e);
         }
     }
 
@@ -418,148 +430,6 @@ public class JWTTokenGenerator implements AuthorizationContextTokenGenerator {
         }
     }
 
-    /**
-     * Helper method to add public certificate to JWT_HEADER to signature verification.
-     *
-     * @param tenantDomain
-     * @param tenantId
-     * @throws IdentityOAuth2Exception
-     */
-    private String getThumbPrint(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
-
-        try {
-
-            Certificate certificate = getCertificate(tenantDomain, tenantId);
-
-            // TODO: maintain a hashmap with tenants' pubkey thumbprints after first initialization
-
-            //generate the SHA-1 thumbprint of the certificate
-            MessageDigest digestValue = MessageDigest.getInstance("SHA-1");
-            byte[] der = certificate.getEncoded();
-            digestValue.update(der);
-            byte[] digestInBytes = digestValue.digest();
-
-            String publicCertThumbprint = hexify(digestInBytes);
-            String base64EncodedThumbPrint = new String(new Base64(0, null, true).encode(publicCertThumbprint
-                    .getBytes(Charsets.UTF_8)), Charsets.UTF_8);
-            return base64EncodedThumbPrint;
-
-        } catch (Exception e) {
-            String error = "Error in obtaining certificate for tenant " + tenantDomain;
-            throw new IdentityOAuth2Exception(error, e);
-        }
-    }
-
-    private Key getPrivateKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
-
-        if (tenantDomain == null) {
-            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
-        }
-
-        if (tenantId == 0) {
-            tenantId = OAuth2Util.getTenantId(tenantDomain);
-        }
-
-        Key privateKey = null;
-
-        if (!(privateKeys.containsKey(tenantId))) {
-
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
-            }
-
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
-
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                // obtain private key
-                privateKey = tenantKSM.getPrivateKey(jksName, tenantDomain);
-
-            } else {
-                try {
-                    privateKey = tenantKSM.getDefaultPrivateKey();
-                } catch (Exception e) {
-                    log.error("Error while obtaining private key for super tenant", e);
-                }
-            }
-            if (privateKey != null) {
-                privateKeys.put(tenantId, privateKey);
-            }
-        } else {
-            privateKey = privateKeys.get(tenantId);
-        }
-        return privateKey;
-    }
-
-    private Certificate getCertificate(String tenantDomain, int tenantId) throws Exception {
-
-        if (tenantDomain == null) {
-            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
-        }
-
-        if (tenantId == 0) {
-            tenantId = OAuth2Util.getTenantId(tenantDomain);
-        }
-
-        Certificate publicCert = null;
-
-        if (!(publicCerts.containsKey(tenantId))) {
-
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
-            }
-
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
-
-            KeyStore keyStore = null;
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                keyStore = tenantKSM.getKeyStore(jksName);
-                publicCert = keyStore.getCertificate(tenantDomain);
-            } else {
-                publicCert = tenantKSM.getDefaultPrimaryCertificate();
-            }
-            if (publicCert != null) {
-                publicCerts.put(tenantId, publicCert);
-            }
-        } else {
-            publicCert = publicCerts.get(tenantId);
-        }
-        return publicCert;
-    }
-
-    /**
-     * Helper method to hexify a byte array.
-     * TODO:need to verify the logic
-     *
-     * @param bytes
-     * @return  hexadecimal representation
-     */
-    private String hexify(byte bytes[]) {
-
-        char[] hexDigits = {'0', '1', '2', '3', '4', '5', '6', '7',
-                '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
-
-        StringBuilder buf = new StringBuilder(bytes.length * 2);
-
-        for (int i = 0; i < bytes.length; ++i) {
-            buf.append(hexDigits[(bytes[i] & 0xf0) >> 4]);
-            buf.append(hexDigits[bytes[i] & 0x0f]);
-        }
-
-        return buf.toString();
-    }
-
     private String getMultiAttributeSeparator(String authenticatedUser, int tenantId) {
         String claimSeparator = null;
         String userDomain = IdentityUtil.extractDomainFromName(authenticatedUser);
@@ -35,7 +35,6 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeRespDTO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.utils.CarbonUtils;
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class AuthorizationHandlerManager {
@@ -44,12 +43,12 @@ public class AuthorizationHandlerManager {
 
     private static AuthorizationHandlerManager instance;
 
-    private Map<String, ResponseTypeHandler> responseHandlers = new HashMap<>();
+    private OAuthServerConfiguration serverConfiguration;
 
     private AppInfoCache appInfoCache;
 
     private AuthorizationHandlerManager() throws IdentityOAuth2Exception {
-        responseHandlers = OAuthServerConfiguration.getInstance().getSupportedResponseTypes();
+        serverConfiguration = OAuthServerConfiguration.getInstance();
         appInfoCache = AppInfoCache.getInstance();
         if (appInfoCache != null) {
             if (log.isDebugEnabled()) {
@@ -79,6 +78,7 @@ public class AuthorizationHandlerManager {
         String responseType = authzReqDTO.getResponseType();
         OAuth2AuthorizeRespDTO authorizeRespDTO = new OAuth2AuthorizeRespDTO();
 
+        Map<String, ResponseTypeHandler> responseHandlers = serverConfiguration.getSupportedResponseTypes();
         if (!responseHandlers.containsKey(responseType)) {
             log.warn("Unsupported Response Type : " + responseType +
                     " provided  for user : " + authzReqDTO.getUser());
@@ -38,6 +38,7 @@ import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeReqDTO;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLockManager;
 
 public abstract class AbstractResponseTypeHandler implements ResponseTypeHandler {
 
@@ -49,12 +50,14 @@ public abstract class AbstractResponseTypeHandler implements ResponseTypeHandler
     protected boolean cacheEnabled;
     protected OAuthCache oauthCache;
     private OAuthCallbackManager callbackManager;
+    protected TokenIssuanceLockManager tokenIssuanceLockManager;
 
     @Override
     public void init() throws IdentityOAuth2Exception {
         callbackManager = new OAuthCallbackManager();
         oauthIssuerImpl = OAuthServerConfiguration.getInstance().getIdentityOauthTokenIssuer();
         tokenMgtDAO = new TokenMgtDAO();
+        tokenIssuanceLockManager = OAuthServerConfiguration.getInstance().getTokenIssuanceLockManager();
         if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
             cacheEnabled = true;
             oauthCache = OAuthCache.getInstance();
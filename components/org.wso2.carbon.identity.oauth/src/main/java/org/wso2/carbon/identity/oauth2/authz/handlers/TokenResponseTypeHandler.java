@@ -42,6 +42,7 @@ import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeReqDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeRespDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLock;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.IDTokenBuilder;
 
@@ -108,7 +109,8 @@ public class TokenResponseTypeHandler extends AbstractResponseTypeHandler {
 
         AccessTokenDO tokenDO = null;
 
-        synchronized ((consumerKey + ":" + authorizedUser + ":" + scope).intern()) {
+        TokenIssuanceLock tokenIssuanceLock = tokenIssuanceLockManager.acquire(consumerKey, authorizedUser, scope);
+        try {
 
             // check if valid access token exists in cache
             if (cacheEnabled) {
@@ -390,6 +392,8 @@ public class TokenResponseTypeHandler extends AbstractResponseTypeHandler {
                 respDTO.setScope(newAccessTokenDO.getScope());
                 respDTO.setTokenType(newAccessTokenDO.getTokenType());
             }
+        } finally {
+            tokenIssuanceLock.release();
         }
 
         buildIdToken(oauthAuthzMsgCtx, respDTO);
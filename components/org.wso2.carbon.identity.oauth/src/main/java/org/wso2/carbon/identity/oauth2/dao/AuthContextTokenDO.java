@@ -35,6 +35,8 @@ public class AuthContextTokenDO {
 
     private String tokenId;
 
+    private final long enqueuedTime = System.currentTimeMillis();
+
     public AuthContextTokenDO(String authzCode, String consumerKey, String callbackUrl, AuthzCodeDO authzCodeDO) {
         this.authzCode = authzCode;
         this.consumerKey = consumerKey;
@@ -70,4 +72,8 @@ public class AuthContextTokenDO {
     public AuthzCodeDO getAuthzCodeDO() {
         return authzCodeDO;
     }
+
+    public long getEnqueuedTime() {
+        return enqueuedTime;
+    }
 }
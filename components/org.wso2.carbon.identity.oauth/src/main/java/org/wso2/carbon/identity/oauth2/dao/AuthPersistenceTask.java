@@ -25,20 +25,29 @@ import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.BlockingDeque;
 
 /**
- *
+ * Consumer of the authorization code persistence queue. Drained entries are grouped into code inserts, code
+ * deactivations and code expirations, and each group is written as a single JDBC batch.
  */
 public class AuthPersistenceTask implements Runnable {
 
     private static Log log = LogFactory.getLog(AuthPersistenceTask.class);
     private BlockingDeque<AuthContextTokenDO> authContextTokenQueue;
+    private int batchSize;
+    private PersistenceQueueMetrics metrics;
 
     public AuthPersistenceTask(BlockingDeque<AuthContextTokenDO> authContextTokenQueue) {
+        this(authContextTokenQueue, 1, new PersistenceQueueMetrics(authContextTokenQueue));
+    }
+
+    public AuthPersistenceTask(BlockingDeque<AuthContextTokenDO> authContextTokenQueue, int batchSize,
+                               PersistenceQueueMetrics metrics) {
         this.authContextTokenQueue = authContextTokenQueue;
+        this.batchSize = Math.max(1, batchSize);
+        this.metrics = metrics;
     }
 
     @Override
@@ -48,40 +57,128 @@ public class AuthPersistenceTask implements Runnable {
             log.debug("Auth Token context persist consumer is started");
         }
 
+        List<AuthContextTokenDO> batch = new ArrayList<>(batchSize);
         while (true) {
             try {
-                AuthContextTokenDO authContextTokenDO = authContextTokenQueue.take();
-                if (authContextTokenDO != null) {
+                batch.clear();
+                batch.add(authContextTokenQueue.take());
+                if (batchSize > 1) {
+                    authContextTokenQueue.drainTo(batch, batchSize - 1);
+                }
+
+                List<AuthContextTokenDO> codesToPersist = new ArrayList<>();
+                List<AuthzCodeDO> codesToDeactivate = new ArrayList<>();
+                List<AuthContextTokenDO> codesToExpire = new ArrayList<>();
+                for (AuthContextTokenDO authContextTokenDO : batch) {
                     if (authContextTokenDO.getAuthzCodeDO() == null && authContextTokenDO.getTokenId() == null) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Auth Token Data removing Task is started to run");
-                        }
-                        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-                        tokenMgtDAO.doChangeAuthzCodeState(authContextTokenDO.getAuthzCode(),
-                                OAuthConstants.AuthorizationCodeState.EXPIRED);
-                    } else if (authContextTokenDO.getAuthzCodeDO() == null && authContextTokenDO.getTokenId() != null) {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Auth Code Deactivating Task is started to run");
-                        }
+                        codesToExpire.add(authContextTokenDO);
+                    } else if (authContextTokenDO.getAuthzCodeDO() == null) {
                         AuthzCodeDO authzCodeDO = new AuthzCodeDO();
                         authzCodeDO.setAuthorizationCode(authContextTokenDO.getAuthzCode());
                         authzCodeDO.setOauthTokenId(authContextTokenDO.getTokenId());
-                        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-                        tokenMgtDAO.deactivateAuthorizationCode(authzCodeDO);
-                    } else {
-                        if (log.isDebugEnabled()) {
-                            log.debug("Auth Token Data persisting Task is started to run");
-                        }
-                        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-                        tokenMgtDAO.persistAuthorizationCode(authContextTokenDO.getAuthzCode(),
-                                authContextTokenDO.getConsumerKey(), authContextTokenDO.getCallbackUrl(),
-                                authContextTokenDO.getAuthzCodeDO());
+                        codesToDeactivate.add(authzCodeDO);
+                    } else if (TokenMgtDAO.claimQueuedAuthorizationCode(authContextTokenDO)) {
+                        // a code which cannot be claimed was persisted already by a redemption on this node
+                        codesToPersist.add(authContextTokenDO);
+                    }
+                }
+
+                // Inserts go first so that deactivations and expirations drained in the same batch find their rows.
+                TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
+                int persisted = persistCodes(tokenMgtDAO, codesToPersist);
+                persisted += deactivateCodes(tokenMgtDAO, codesToDeactivate);
+                persisted += expireCodes(tokenMgtDAO, codesToExpire);
+
+                if (persisted > 0) {
+                    long oldestEnqueuedTime = batch.get(0).getEnqueuedTime();
+                    for (AuthContextTokenDO authContextTokenDO : batch) {
+                        oldestEnqueuedTime = Math.min(oldestEnqueuedTime, authContextTokenDO.getEnqueuedTime());
                     }
+                    metrics.recordPersisted(persisted, oldestEnqueuedTime);
                 }
-            } catch (InterruptedException | IdentityOAuth2Exception e) {
+            } catch (InterruptedException e) {
+                log.error("Error when executing AuthPersistenceTask", e);
+            }
+
+        }
+    }
+
+    /**
+     * @return number of codes written
+     */
+    private int persistCodes(TokenMgtDAO tokenMgtDAO, List<AuthContextTokenDO> codesToPersist) {
+
+        if (codesToPersist.isEmpty()) {
+            return 0;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Auth Token Data persisting Task is started to run for " + codesToPersist.size() + " code(s)");
+        }
+        try {
+            tokenMgtDAO.persistAuthorizationCodes(codesToPersist);
+            return codesToPersist.size();
+        } catch (IdentityOAuth2Exception e) {
+            log.warn("Error when persisting a batch of authorization codes. Retrying each code individually.", e);
+        }
+
+        int persisted = 0;
+        for (AuthContextTokenDO authContextTokenDO : codesToPersist) {
+            try {
+                tokenMgtDAO.persistAuthorizationCode(authContextTokenDO.getAuthzCode(),
+                        authContextTokenDO.getConsumerKey(), authContextTokenDO.getCallbackUrl(),
+                        authContextTokenDO.getAuthzCodeDO());
+                persisted++;
+            } catch (IdentityOAuth2Exception e) {
+                metrics.recordFailed(1);
                 log.error("Error when executing AuthPersistenceTask", e);
             }
+        }
+        return persisted;
+    }
+
+    /**
+     * @return number of codes written
+     */
+    private int deactivateCodes(TokenMgtDAO tokenMgtDAO, List<AuthzCodeDO> codesToDeactivate) {
+
+        if (codesToDeactivate.isEmpty()) {
+            return 0;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Auth Code Deactivating Task is started to run for " + codesToDeactivate.size() + " code(s)");
+        }
+        try {
+            tokenMgtDAO.deactivateAuthorizationCode(codesToDeactivate);
+            return codesToDeactivate.size();
+        } catch (IdentityOAuth2Exception e) {
+            metrics.recordFailed(codesToDeactivate.size());
+            log.error("Error when executing AuthPersistenceTask", e);
+            return 0;
+        }
+    }
+
+    /**
+     * @return number of codes written
+     */
+    private int expireCodes(TokenMgtDAO tokenMgtDAO, List<AuthContextTokenDO> codesToExpire) {
 
+        if (codesToExpire.isEmpty()) {
+            return 0;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Auth Token Data removing Task is started to run for " + codesToExpire.size() + " code(s)");
+        }
+        List<String> authzCodes = new ArrayList<>(codesToExpire.size());
+        for (AuthContextTokenDO authContextTokenDO : codesToExpire) {
+            authzCodes.add(authContextTokenDO.getAuthzCode());
+        }
+        try {
+            tokenMgtDAO.doChangeAuthzCodeState(authzCodes, OAuthConstants.AuthorizationCodeState.EXPIRED);
+            return codesToExpire.size();
+        } catch (IdentityOAuth2Exception e) {
+            metrics.recordFailed(codesToExpire.size());
+            log.error("Error when executing AuthPersistenceTask", e);
+            return 0;
         }
     }
 
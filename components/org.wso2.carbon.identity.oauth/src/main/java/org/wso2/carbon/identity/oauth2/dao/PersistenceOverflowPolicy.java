@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Action taken when a token persistence queue is full.
+ */
+public enum PersistenceOverflowPolicy {
+
+    /**
+     * Block the request thread until a consumer frees a slot in the queue.
+     */
+    BLOCK,
+
+    /**
+     * Persist the entry synchronously on the request thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Fail the request.
+     */
+    REJECT;
+
+    /**
+     * Resolves the policy from its configured name. Both <code>CallerRuns</code> and <code>CALLER_RUNS</code>
+     * styles are accepted.
+     *
+     * @param policyName configured policy name
+     * @param defaultPolicy policy returned if the name is blank or unknown
+     * @return resolved policy
+     */
+    public static PersistenceOverflowPolicy fromString(String policyName, PersistenceOverflowPolicy defaultPolicy) {
+
+        if (StringUtils.isBlank(policyName)) {
+            return defaultPolicy;
+        }
+        String normalizedName = policyName.trim().replace("_", "").replace("-", "");
+        for (PersistenceOverflowPolicy policy : values()) {
+            if (policy.name().replace("_", "").equalsIgnoreCase(normalizedName)) {
+                return policy;
+            }
+        }
+        return defaultPolicy;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime statistics of an asynchronous token persistence queue, exposed over JMX through
+ * {@link PersistenceQueueMetricsMBean}.
+ */
+public class PersistenceQueueMetrics implements PersistenceQueueMetricsMBean {
+
+    private final BlockingQueue<?> queue;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong persistedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong callerRunsCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
+
+    public PersistenceQueueMetrics(BlockingQueue<?> queue) {
+        this.queue = queue;
+    }
+
+    void recordEnqueued() {
+        enqueuedCount.incrementAndGet();
+    }
+
+    void recordCallerRuns() {
+        callerRunsCount.incrementAndGet();
+    }
+
+    void recordRejected() {
+        rejectedCount.incrementAndGet();
+    }
+
+    void recordFailed(int count) {
+        failedCount.addAndGet(count);
+    }
+
+    /**
+     * Records a persisted batch.
+     *
+     * @param count number of entries of the batch which were actually written
+     * @param oldestEnqueuedTime enqueue time of the oldest entry in the batch
+     */
+    void recordPersisted(int count, long oldestEnqueuedTime) {
+        persistedCount.addAndGet(count);
+        batchCount.incrementAndGet();
+
+        long lag = System.currentTimeMillis() - oldestEnqueuedTime;
+        lastLagMillis.set(lag);
+        long currentMax = maxLagMillis.get();
+        while (lag > currentMax && !maxLagMillis.compareAndSet(currentMax, lag)) {
+            currentMax = maxLagMillis.get();
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getRemainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    public long getEnqueuedCount() {
+        return enqueuedCount.get();
+    }
+
+    public long getPersistedCount() {
+        return persistedCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getCallerRunsCount() {
+        return callerRunsCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return time the oldest entry of the most recent batch spent in the queue before being persisted
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis.get();
+    }
+
+    public long getMaxLagMillis() {
+        return maxLagMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "depth=" + getQueueDepth() + ", remainingCapacity=" + getRemainingCapacity() + ", enqueued=" +
+                getEnqueuedCount() + ", persisted=" + getPersistedCount() + ", failed=" + getFailedCount() +
+                ", callerRuns=" + getCallerRunsCount() + ", rejected=" + getRejectedCount() + ", batches=" +
+                getBatchCount() + ", lastLagMillis=" + getLastLagMillis() + ", maxLagMillis=" + getMaxLagMillis();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+/**
+ * JMX view of {@link PersistenceQueueMetrics}. An instance is registered for each of the access token and
+ * authorization code persistence queues under the <code>org.wso2.carbon.identity.oauth2</code> domain.
+ */
+public interface PersistenceQueueMetricsMBean {
+
+    int getQueueDepth();
+
+    int getRemainingCapacity();
+
+    long getEnqueuedCount();
+
+    /**
+     * @return number of entries written to the database. Entries which could not be written are not counted
+     */
+    long getPersistedCount();
+
+    /**
+     * @return number of entries which could not be written to the database
+     */
+    long getFailedCount();
+
+    long getCallerRunsCount();
+
+    long getRejectedCount();
+
+    long getBatchCount();
+
+    long getLastLagMillis();
+
+    long getMaxLagMillis();
+}
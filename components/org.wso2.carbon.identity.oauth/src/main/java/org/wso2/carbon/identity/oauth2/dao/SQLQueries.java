@@ -29,16 +29,37 @@ public class SQLQueries {
             "TIME_CREATED, VALIDITY_PERIOD, SUBJECT_IDENTIFIER, PKCE_CODE_CHALLENGE, PKCE_CODE_CHALLENGE_METHOD) SELECT ?,?,ID,?,?,?,?,?,?,?,?,?,? FROM " +
             "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=?";
 
+    public static final String STORE_AUTHORIZATION_CODE_WITH_HASH = "INSERT INTO  IDN_OAUTH2_AUTHORIZATION_CODE " +
+            "(CODE_ID, AUTHORIZATION_CODE, CONSUMER_KEY_ID, CALLBACK_URL, SCOPE, AUTHZ_USER, USER_DOMAIN, TENANT_ID, " +
+            "TIME_CREATED, VALIDITY_PERIOD, SUBJECT_IDENTIFIER, AUTHORIZATION_CODE_HASH) SELECT ?,?,ID,?,?,?,?,?,?,?," +
+            "?,? FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=?";
+    public static final String STORE_AUTHORIZATION_CODE_WITH_PKCE_AND_HASH = "INSERT INTO  " +
+            "IDN_OAUTH2_AUTHORIZATION_CODE (CODE_ID, AUTHORIZATION_CODE, CONSUMER_KEY_ID, CALLBACK_URL, SCOPE, " +
+            "AUTHZ_USER, USER_DOMAIN, TENANT_ID, TIME_CREATED, VALIDITY_PERIOD, SUBJECT_IDENTIFIER, " +
+            "PKCE_CODE_CHALLENGE, PKCE_CODE_CHALLENGE_METHOD, AUTHORIZATION_CODE_HASH) SELECT ?,?,ID,?,?,?,?,?,?,?,?," +
+            "?,?,? FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=?";
+
     public static final String VALIDATE_AUTHZ_CODE = "SELECT AUTHZ_USER, USER_DOMAIN, TENANT_ID, SCOPE, " +
             "CALLBACK_URL, TIME_CREATED,VALIDITY_PERIOD, STATE, TOKEN_ID, AUTHORIZATION_CODE, CODE_ID, SUBJECT_IDENTIFIER, " +
             "FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE " +
             "CONSUMER_KEY_ID = (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND AUTHORIZATION_CODE = ?";
 
+    public static final String VALIDATE_AUTHZ_CODE_WITH_HASH = "SELECT AUTHZ_USER, USER_DOMAIN, TENANT_ID, SCOPE, " +
+            "CALLBACK_URL, TIME_CREATED,VALIDITY_PERIOD, STATE, TOKEN_ID, AUTHORIZATION_CODE, CODE_ID, " +
+            "SUBJECT_IDENTIFIER FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND AUTHORIZATION_CODE_HASH = ?";
+
     public static final String VALIDATE_AUTHZ_CODE_WITH_PKCE = "SELECT AUTHZ_USER, USER_DOMAIN, TENANT_ID, SCOPE, " +
             "CALLBACK_URL, TIME_CREATED,VALIDITY_PERIOD, STATE, TOKEN_ID, AUTHORIZATION_CODE, CODE_ID, SUBJECT_IDENTIFIER, " +
             "PKCE_CODE_CHALLENGE, PKCE_CODE_CHALLENGE_METHOD FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE " +
             "CONSUMER_KEY_ID = (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND AUTHORIZATION_CODE = ?";
 
+    public static final String VALIDATE_AUTHZ_CODE_WITH_PKCE_AND_HASH = "SELECT AUTHZ_USER, USER_DOMAIN, " +
+            "TENANT_ID, SCOPE, CALLBACK_URL, TIME_CREATED,VALIDITY_PERIOD, STATE, TOKEN_ID, AUTHORIZATION_CODE, " +
+            "CODE_ID, SUBJECT_IDENTIFIER, PKCE_CODE_CHALLENGE, PKCE_CODE_CHALLENGE_METHOD FROM " +
+            "IDN_OAUTH2_AUTHORIZATION_CODE WHERE CONSUMER_KEY_ID = (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE " +
+            "CONSUMER_KEY = ?) AND AUTHORIZATION_CODE_HASH = ?";
+
     public static final String RETRIEVE_CODE_ID_BY_AUTHORIZATION_CODE = "SELECT CODE_ID FROM " +
             "IDN_OAUTH2_AUTHORIZATION_CODE WHERE AUTHORIZATION_CODE = ?";
 
@@ -67,6 +88,12 @@ public class SQLQueries {
     public static final String EXPIRE_AUTHZ_CODE = "UPDATE IDN_OAUTH2_AUTHORIZATION_CODE SET " +
             "STATE='EXPIRED' WHERE AUTHORIZATION_CODE= ?";
 
+    public static final String REDEEM_AUTHZ_CODE = "UPDATE IDN_OAUTH2_AUTHORIZATION_CODE SET STATE='INACTIVE', " +
+            "TOKEN_ID=? WHERE AUTHORIZATION_CODE=? AND STATE='ACTIVE'";
+
+    public static final String REDEEM_AUTHZ_CODE_WITH_HASH = "UPDATE IDN_OAUTH2_AUTHORIZATION_CODE SET " +
+            "STATE='INACTIVE', TOKEN_ID=? WHERE AUTHORIZATION_CODE_HASH=? AND STATE='ACTIVE'";
+
     public static final String DEACTIVATE_AUTHZ_CODE_AND_INSERT_CURRENT_TOKEN = "UPDATE IDN_OAUTH2_AUTHORIZATION_CODE SET " +
                                                                            "STATE='INACTIVE', TOKEN_ID=?" +
                                                                             " WHERE AUTHORIZATION_CODE= ?";
@@ -135,6 +162,23 @@ public class SQLQueries {
             "WHERE ACCESS_TOKEN=? AND TOKEN_STATE='ACTIVE') ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE " +
             "ON ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_STATE = "SELECT TOKEN_STATE FROM IDN_OAUTH2_ACCESS_TOKEN " +
+            "WHERE ACCESS_TOKEN = ?";
+
+    public static final String RETRIEVE_ACCESS_TOKEN_STATE_WITH_HASH = "SELECT TOKEN_STATE FROM " +
+            "IDN_OAUTH2_ACCESS_TOKEN WHERE ACCESS_TOKEN_HASH = ?";
+
+    public static final String RETRIEVE_ACTIVE_ACCESS_TOKEN_WITH_HASH = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
+            "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM (SELECT TOKEN_ID, CONSUMER_KEY, " +
+            "AUTHZ_USER, IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID, IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "IDN_OAUTH2_ACCESS_TOKEN.GRANT_TYPE, SUBJECT_IDENTIFIER FROM IDN_OAUTH2_ACCESS_TOKEN JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE ACCESS_TOKEN_HASH=? AND TOKEN_STATE='ACTIVE') " +
+            "ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_TABLE.TOKEN_ID = " +
+            "IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
             "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
             "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
@@ -146,6 +190,48 @@ public class SQLQueries {
             "WHERE ACCESS_TOKEN=? AND (TOKEN_STATE='ACTIVE' OR TOKEN_STATE='EXPIRED')) ACCESS_TOKEN_TABLE LEFT " +
             "JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN_WITH_HASH = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
+            "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM (SELECT TOKEN_ID, CONSUMER_KEY, " +
+            "AUTHZ_USER, IDN_OAUTH2_ACCESS_TOKEN.TENANT_ID, IDN_OAUTH2_ACCESS_TOKEN.USER_DOMAIN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "IDN_OAUTH2_ACCESS_TOKEN.GRANT_TYPE, SUBJECT_IDENTIFIER FROM IDN_OAUTH2_ACCESS_TOKEN JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE ACCESS_TOKEN_HASH=? AND (TOKEN_STATE='ACTIVE' " +
+            "OR TOKEN_STATE='EXPIRED')) ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    /**
+     * Placeholder of the comma separated parameters of a multi token lookup.
+     */
+    public static final String ACCESS_TOKENS_PLACEHOLDER = "$accessTokens";
+
+    /**
+     * Same columns as {@link #RETRIEVE_ACTIVE_ACCESS_TOKEN} followed by the token, so that rows can be matched to
+     * the tokens looked up.
+     */
+    public static final String RETRIEVE_ACTIVE_ACCESS_TOKENS = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
+            "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER, ACCESS_TOKEN FROM (SELECT TOKEN_ID, ACCESS_TOKEN, CONSUMER_KEY, " +
+            "AUTHZ_USER, $accessTokenStoreTable.TENANT_ID, $accessTokenStoreTable.USER_DOMAIN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, " +
+            "$accessTokenStoreTable.GRANT_TYPE, SUBJECT_IDENTIFIER FROM $accessTokenStoreTable JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE ACCESS_TOKEN IN ($accessTokens) AND " +
+            "TOKEN_STATE='ACTIVE') ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_ACTIVE_ACCESS_TOKENS_WITH_HASH = "SELECT CONSUMER_KEY, AUTHZ_USER, " +
+            "ACCESS_TOKEN_TABLE.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, REFRESH_TOKEN, ACCESS_TOKEN_TABLE.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH FROM (SELECT TOKEN_ID, ACCESS_TOKEN_HASH, " +
+            "CONSUMER_KEY, AUTHZ_USER, $accessTokenStoreTable.TENANT_ID, $accessTokenStoreTable.USER_DOMAIN, " +
+            "TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, USER_TYPE, " +
+            "REFRESH_TOKEN, $accessTokenStoreTable.GRANT_TYPE, SUBJECT_IDENTIFIER FROM $accessTokenStoreTable JOIN " +
+            "IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE ACCESS_TOKEN_HASH IN ($accessTokens) AND " +
+            "TOKEN_STATE='ACTIVE') ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String UPDATE_TOKE_STATE = "UPDATE IDN_OAUTH2_ACCESS_TOKEN SET TOKEN_STATE=?, " +
             "TOKEN_STATE_ID=? WHERE TOKEN_ID=?";
 
@@ -158,6 +244,32 @@ public class SQLQueries {
     public static final String REVOKE_REFRESH_TOKEN = "UPDATE IDN_OAUTH2_ACCESS_TOKEN SET TOKEN_STATE=?, " +
             "TOKEN_STATE_ID=? WHERE REFRESH_TOKEN=?";
 
+    public static final String RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER = "SELECT ACCESS_TOKEN, CONSUMER_KEY, " +
+            "TOKEN_SCOPE, ACCESS_TOKEN_TABLE.TOKEN_ID FROM (SELECT TOKEN_ID, ACCESS_TOKEN, CONSUMER_KEY FROM " +
+            "$accessTokenStoreTable JOIN IDN_OAUTH_CONSUMER_APPS ON CONSUMER_KEY_ID = ID WHERE AUTHZ_USER=? AND " +
+            "$accessTokenStoreTable.TENANT_ID=? AND $accessTokenStoreTable.USER_DOMAIN=? AND (TOKEN_STATE='ACTIVE' " +
+            "OR TOKEN_STATE='EXPIRED')) ACCESS_TOKEN_TABLE LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_TABLE.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    /**
+     * Locks the ACTIVE and EXPIRED access tokens of a user until the revoking transaction ends.
+     */
+    public static final String LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER = "SELECT TOKEN_ID FROM " +
+            "$accessTokenStoreTable WHERE AUTHZ_USER=? AND TENANT_ID=? AND USER_DOMAIN=? AND TOKEN_STATE IN " +
+            "('ACTIVE', 'EXPIRED') FOR UPDATE";
+
+    public static final String LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER_MSSQL = "SELECT TOKEN_ID FROM " +
+            "$accessTokenStoreTable WITH (UPDLOCK, ROWLOCK) WHERE AUTHZ_USER=? AND TENANT_ID=? AND USER_DOMAIN=? " +
+            "AND TOKEN_STATE IN ('ACTIVE', 'EXPIRED')";
+
+    /**
+     * TOKEN_STATE_ID is set to the token id so that the CON_APP_KEY constraint holds when several tokens of the same
+     * client, user and scope are revoked at once.
+     */
+    public static final String REVOKE_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER = "UPDATE $accessTokenStoreTable SET " +
+            "TOKEN_STATE=?, TOKEN_STATE_ID=TOKEN_ID WHERE AUTHZ_USER=? AND TENANT_ID=? AND USER_DOMAIN=? AND " +
+            "TOKEN_STATE IN ('ACTIVE', 'EXPIRED')";
+
     public static final String GET_ACCESS_TOKEN_BY_AUTHZUSER = "SELECT DISTINCT ACCESS_TOKEN " +
             "FROM IDN_OAUTH2_ACCESS_TOKEN WHERE AUTHZ_USER=? AND TENANT_ID=? AND TOKEN_STATE=? AND USER_DOMAIN=?";
 
@@ -193,6 +305,16 @@ public class SQLQueries {
             "REFRESH_TOKEN = ? ORDER BY TIME_CREATED DESC LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN " +
             "IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MYSQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, " +
+            "TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, " +
+            "SUBJECT_IDENTIFIER FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_DB2SQL = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
             "REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( " +
@@ -202,6 +324,16 @@ public class SQLQueries {
             "FETCH FIRST 1 ROWS ONLY) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
             "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_DB2SQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( SELECT ACCESS_TOKEN, AUTHZ_USER, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER " +
+            "FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE " +
+            "CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC FETCH FIRST 1 ROWS ONLY) " +
+            "ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID = " +
+            "IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_ORACLE = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
             "REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( " +
@@ -212,6 +344,16 @@ public class SQLQueries {
             "ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID = " +
             "IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_ORACLE_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( SELECT * FROM (SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, " +
+            "USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED " +
+            "DESC) WHERE ROWNUM < 2 ) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MSSQL = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
             "REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM " +
@@ -222,6 +364,16 @@ public class SQLQueries {
             "ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED" +
             ".TOKEN_ID  = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MSSQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM (SELECT TOP 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, " +
+            "TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, " +
+            "SUBJECT_IDENTIFIER FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED " +
+            "DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID " +
+            "= IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_POSTGRESQL = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED," +
             " REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM " +
@@ -231,6 +383,16 @@ public class SQLQueries {
             "REFRESH_TOKEN = ? ORDER BY TIME_CREATED DESC LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN " +
             "IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_POSTGRESQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM (SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, " +
+            "TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, " +
+            "SUBJECT_IDENTIFIER FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_INFORMIX = "SELECT ACCESS_TOKEN, AUTHZ_USER, " +
             "ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
             "REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( " +
@@ -240,6 +402,161 @@ public class SQLQueries {
             "ORDER BY TIME_CREATED DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
             "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
 
+    public static final String RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_INFORMIX_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, USER_DOMAIN, TOKEN_SCOPE, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, ACCESS_TOKEN_SELECTED.TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM ( SELECT FIRST 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, " +
+            "USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, " +
+            "GRANT_TYPE, SUBJECT_IDENTIFIER FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED " +
+            "DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED.TOKEN_ID " +
+            "= IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    /**
+     * Select list entry of the RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA queries. Evaluates to 1 if no newer token
+     * exists for the same client, user and scope as the selected token, i.e. the refresh token is the latest one.
+     */
+    private static final String REFRESH_TOKEN_IS_LATEST = "CASE WHEN EXISTS (SELECT 1 FROM " +
+            "$accessTokenStoreTable NEWER_TOKEN WHERE NEWER_TOKEN.CONSUMER_KEY_ID = ACCESS_TOKEN_SELECTED" +
+            ".CONSUMER_KEY_ID AND LOWER(NEWER_TOKEN.AUTHZ_USER) = LOWER(ACCESS_TOKEN_SELECTED.AUTHZ_USER) AND " +
+            "NEWER_TOKEN.TENANT_ID = ACCESS_TOKEN_SELECTED.TENANT_ID AND NEWER_TOKEN.USER_DOMAIN = " +
+            "ACCESS_TOKEN_SELECTED.USER_DOMAIN AND (NEWER_TOKEN.TOKEN_SCOPE_HASH = ACCESS_TOKEN_SELECTED" +
+            ".TOKEN_SCOPE_HASH OR (NEWER_TOKEN.TOKEN_SCOPE_HASH IS NULL AND ACCESS_TOKEN_SELECTED.TOKEN_SCOPE_HASH " +
+            "IS NULL)) AND NEWER_TOKEN.TIME_CREATED > ACCESS_TOKEN_SELECTED.TIME_CREATED) THEN 0 ELSE 1 END AS " +
+            "IS_LATEST";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MYSQL = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED" +
+            ".TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MYSQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED" +
+            ".TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_DB2SQL = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY TIME_CREATED DESC " +
+            "FETCH FIRST 1 ROWS ONLY) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_DB2SQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC " +
+            "FETCH FIRST 1 ROWS ONLY) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_ORACLE = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT * FROM (SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY " +
+            "TIME_CREATED DESC) WHERE ROWNUM < 2 ) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_ORACLE_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT * FROM (SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY " +
+            "TIME_CREATED DESC) WHERE ROWNUM < 2 ) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MSSQL = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM " +
+            "(SELECT TOP 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY " +
+            "TIME_CREATED DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MSSQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM " +
+            "(SELECT TOP 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY " +
+            "TIME_CREATED DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_POSTGRESQL = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM " +
+            "(SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED" +
+            ".TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_POSTGRESQL_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM " +
+            "(SELECT ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, " +
+            "REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, CONSUMER_KEY_ID, " +
+            "TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = (SELECT ID FROM " +
+            "IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY TIME_CREATED DESC " +
+            "LIMIT 1) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON ACCESS_TOKEN_SELECTED" +
+            ".TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_INFORMIX = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT FIRST 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN = ? ORDER BY " +
+            "TIME_CREATED DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
+    public static final String RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_INFORMIX_WITH_HASH = "SELECT ACCESS_TOKEN, " +
+            "ACCESS_TOKEN_SELECTED.AUTHZ_USER, ACCESS_TOKEN_SELECTED.TENANT_ID, ACCESS_TOKEN_SELECTED.USER_DOMAIN, " +
+            "TOKEN_SCOPE, TOKEN_STATE, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " + REFRESH_TOKEN_IS_LATEST + " FROM ( " +
+            "SELECT FIRST 1 ACCESS_TOKEN, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TOKEN_STATE, " +
+            "REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, " +
+            "CONSUMER_KEY_ID, TOKEN_SCOPE_HASH, TIME_CREATED FROM $accessTokenStoreTable WHERE CONSUMER_KEY_ID = " +
+            "(SELECT ID FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY = ?) AND REFRESH_TOKEN_HASH = ? ORDER BY " +
+            "TIME_CREATED DESC) ACCESS_TOKEN_SELECTED LEFT JOIN IDN_OAUTH2_ACCESS_TOKEN_SCOPE ON " +
+            "ACCESS_TOKEN_SELECTED.TOKEN_ID = IDN_OAUTH2_ACCESS_TOKEN_SCOPE.TOKEN_ID";
+
     public static final String INSERT_OAUTH2_ACCESS_TOKEN = "INSERT INTO $accessTokenStoreTable (ACCESS_TOKEN, " +
             "REFRESH_TOKEN, CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TIME_CREATED, " +
             "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
@@ -249,11 +566,20 @@ public class SQLQueries {
     public static final String INSERT_OAUTH2_TOKEN_SCOPE = "INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE (TOKEN_ID, " +
             "TOKEN_SCOPE, TENANT_ID) VALUES (?,?,?)";
 
+    public static final String INSERT_OAUTH2_ACCESS_TOKEN_WITH_HASH = "INSERT INTO $accessTokenStoreTable " +
+            "(ACCESS_TOKEN, REFRESH_TOKEN, CONSUMER_KEY_ID, AUTHZ_USER, TENANT_ID, USER_DOMAIN, TIME_CREATED, " +
+            "REFRESH_TOKEN_TIME_CREATED, VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, " +
+            "TOKEN_STATE, USER_TYPE, TOKEN_ID, GRANT_TYPE, SUBJECT_IDENTIFIER, ACCESS_TOKEN_HASH, REFRESH_TOKEN_HASH) " +
+            "SELECT ?,?,ID,?,?,?,?,?,?,?,?,?,?,?,?,?,?,? FROM IDN_OAUTH_CONSUMER_APPS WHERE CONSUMER_KEY=?";
+
     public static final String DELETE_ACCESS_TOKEN = "DELETE FROM $accessTokenStoreTable WHERE ACCESS_TOKEN = ? ";
 
     public static final String RETRIEVE_IOS_SCOPE_KEY = "SELECT IOS.SCOPE_KEY FROM IDN_OAUTH2_SCOPE IOS, " +
             "IDN_OAUTH2_RESOURCE_SCOPE IORS WHERE RESOURCE_PATH = ? AND IORS.SCOPE_ID = IOS.SCOPE_ID";
 
+    public static final String RETRIEVE_ALL_RESOURCE_SCOPES = "SELECT IORS.RESOURCE_PATH, IOS.SCOPE_KEY FROM " +
+            "IDN_OAUTH2_SCOPE IOS, IDN_OAUTH2_RESOURCE_SCOPE IORS WHERE IORS.SCOPE_ID = IOS.SCOPE_ID";
+
     public static final String DELETE_USER_RPS = "DELETE FROM IDN_OPENID_USER_RPS WHERE USER_NAME = ? AND " +
             "RP_URL = ?";
 
@@ -315,6 +641,8 @@ public class SQLQueries {
     public static final String RETRIEVE_ROLES_OF_SCOPE = "SELECT IOS.ROLES FROM IDN_OAUTH2_SCOPE IOS WHERE SCOPE_KEY" +
                                                         " = ?";
 
+    public static final String RETRIEVE_ALL_SCOPE_ROLES = "SELECT IOS.SCOPE_KEY, IOS.ROLES FROM IDN_OAUTH2_SCOPE IOS";
+
     public static final String RETRIEVE_PKCE_TABLE_MYSQL = "SELECT PKCE_MANDATORY, PKCE_SUPPORT_PLAIN FROM " +
             "IDN_OAUTH_CONSUMER_APPS LIMIT 1";
 
@@ -418,6 +746,41 @@ public class SQLQueries {
             "CONSUMER_KEY = ?) AND AUTHZ_USER=? AND TENANT_ID=? AND USER_DOMAIN=? AND TOKEN_SCOPE_HASH=? AND " +
             "TOKEN_STATE!='ACTIVE' ORDER BY TIME_CREATED DESC) TOKEN ";
 
+    public static final String CHECK_TOKEN_ISSUANCE_LOCK_TABLE = "SELECT LOCK_KEY, LOCKED_TIME FROM " +
+            "IDN_OAUTH2_TOKEN_ISSUANCE_LOCK WHERE 1=0";
+
+    public static final String UPDATE_TOKEN_ISSUANCE_LOCK = "UPDATE IDN_OAUTH2_TOKEN_ISSUANCE_LOCK SET " +
+            "LOCKED_TIME=? WHERE LOCK_KEY=?";
+
+    public static final String INSERT_TOKEN_ISSUANCE_LOCK = "INSERT INTO IDN_OAUTH2_TOKEN_ISSUANCE_LOCK (LOCK_KEY, " +
+            "LOCKED_TIME) VALUES (?,?)";
+
+    public static final String RETRIEVE_ACCESS_TOKENS_FOR_CLEANUP = "SELECT TOKEN_ID, TOKEN_STATE, TIME_CREATED, " +
+            "VALIDITY_PERIOD, REFRESH_TOKEN_TIME_CREATED, REFRESH_TOKEN_VALIDITY_PERIOD FROM $accessTokenStoreTable " +
+            "WHERE TOKEN_ID > ? AND TIME_CREATED < ? ORDER BY TOKEN_ID";
+
+    public static final String ARCHIVE_ACCESS_TOKEN = "INSERT INTO $archiveTable SELECT * FROM " +
+            "$accessTokenStoreTable WHERE TOKEN_ID = ? AND TOKEN_STATE = ?";
+
+    /**
+     * Deletes the scopes of a token only if the token is still in the state it was found purgeable in, the same
+     * condition DELETE_ACCESS_TOKEN_BY_TOKEN_ID deletes the token on.
+     */
+    public static final String DELETE_PURGEABLE_ACCESS_TOKEN_SCOPE = "DELETE FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE " +
+            "WHERE TOKEN_ID IN (SELECT TOKEN_ID FROM $accessTokenStoreTable WHERE TOKEN_ID = ? AND TOKEN_STATE = ?)";
+
+    public static final String DELETE_ACCESS_TOKEN_BY_TOKEN_ID = "DELETE FROM $accessTokenStoreTable WHERE " +
+            "TOKEN_ID = ? AND TOKEN_STATE = ?";
+
+    public static final String RETRIEVE_AUTHORIZATION_CODES_FOR_CLEANUP = "SELECT CODE_ID, STATE, TIME_CREATED, " +
+            "VALIDITY_PERIOD FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE CODE_ID > ? AND TIME_CREATED < ? ORDER BY CODE_ID";
+
+    public static final String ARCHIVE_AUTHORIZATION_CODE = "INSERT INTO $archiveTable SELECT * FROM " +
+            "IDN_OAUTH2_AUTHORIZATION_CODE WHERE CODE_ID = ? AND STATE = ?";
+
+    public static final String DELETE_AUTHORIZATION_CODE_BY_CODE_ID = "DELETE FROM IDN_OAUTH2_AUTHORIZATION_CODE " +
+            "WHERE CODE_ID = ? AND STATE = ?";
+
     private SQLQueries() {
 
     }
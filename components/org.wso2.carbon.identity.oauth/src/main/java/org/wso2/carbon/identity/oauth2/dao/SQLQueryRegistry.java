@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the SQL statements run against the identity database. The database dialect is read from the connection
+ * metadata once, on the first lookup. Statements rewritten for a partition of the access token table configured
+ * through <code>AccessTokenPartitioningDomains</code> are built once per partition, so DAO calls only do map lookups.
+ * Other partition tables are named after the user store domain carried by a token, so their statements are rewritten
+ * on every call rather than kept.
+ */
+public class SQLQueryRegistry {
+
+    private static final Log log = LogFactory.getLog(SQLQueryRegistry.class);
+
+    private static final String IDN_OAUTH2_ACCESS_TOKEN = "IDN_OAUTH2_ACCESS_TOKEN";
+    private static final String ACCESS_TOKEN_STORE_TABLE = "$accessTokenStoreTable";
+
+    public static final DialectQuery RETRIEVE_LATEST_ACCESS_TOKEN = new DialectQuery(
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL,
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL,
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL,
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL,
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX,
+            SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE);
+
+    public static final DialectQuery RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN = new DialectQuery(
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL,
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL,
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL,
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL,
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX,
+            SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE);
+
+    public static final DialectQuery RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN = new DialectQuery(
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL,
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL,
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL,
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL,
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX,
+            SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE);
+
+    public static final DialectQuery RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA = new DialectQuery(
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MYSQL,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_DB2SQL,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MSSQL,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_POSTGRESQL,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_INFORMIX,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_ORACLE);
+
+    public static final DialectQuery RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_WITH_HASH = new DialectQuery(
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MYSQL_WITH_HASH,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_DB2SQL_WITH_HASH,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MSSQL_WITH_HASH,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_POSTGRESQL_WITH_HASH,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_INFORMIX_WITH_HASH,
+            SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_ORACLE_WITH_HASH);
+
+    public static final DialectQuery RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA = new DialectQuery(
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MYSQL,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_DB2SQL,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MSSQL,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_POSTGRESQL,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_INFORMIX,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_ORACLE);
+
+    public static final DialectQuery RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_WITH_HASH = new DialectQuery(
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MYSQL_WITH_HASH,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_DB2SQL_WITH_HASH,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_MSSQL_WITH_HASH,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_POSTGRESQL_WITH_HASH,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_INFORMIX_WITH_HASH,
+            SQLQueries.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_ORACLE_WITH_HASH);
+
+    public static final DialectQuery RETRIEVE_PKCE_TABLE = new DialectQuery(
+            SQLQueries.RETRIEVE_PKCE_TABLE_MYSQL,
+            SQLQueries.RETRIEVE_PKCE_TABLE_DB2SQL,
+            SQLQueries.RETRIEVE_PKCE_TABLE_MSSQL,
+            SQLQueries.RETRIEVE_PKCE_TABLE_MYSQL,
+            SQLQueries.RETRIEVE_PKCE_TABLE_INFORMIX,
+            SQLQueries.RETRIEVE_PKCE_TABLE_ORACLE);
+
+    public static final DialectQuery LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER = new DialectQuery(
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER,
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER,
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER_MSSQL,
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER,
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER,
+            SQLQueries.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER);
+
+    private static volatile Dialect dialect;
+
+    // access token store table -> statement template -> statement run against that table, for the access token
+    // table and its configured partitions only
+    private static final ConcurrentMap<String, ConcurrentMap<String, String>> tableQueries =
+            new ConcurrentHashMap<>();
+
+    private SQLQueryRegistry() {
+
+    }
+
+    /**
+     * @param connection connection to the identity database, used only if the dialect is not yet resolved
+     * @param query      statement with a variant per database dialect
+     * @return variant of the statement for the identity database
+     * @throws SQLException if the connection metadata could not be read
+     */
+    public static String getQuery(Connection connection, DialectQuery query) throws SQLException {
+        return query.get(getDialect(connection));
+    }
+
+    /**
+     * Rewrites a statement on IDN_OAUTH2_ACCESS_TOKEN for the access token table partition of the user store domain.
+     *
+     * @param sql             statement on IDN_OAUTH2_ACCESS_TOKEN
+     * @param userStoreDomain user store domain of the partition, null or the primary domain if not partitioned
+     * @return statement on the access token table of the user store domain
+     */
+    public static String getPartitionedQuery(String sql, String userStoreDomain) {
+
+        if (StringUtils.isBlank(userStoreDomain) ||
+                IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
+            return sql;
+        }
+        return getQueryForTable(sql, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
+    }
+
+    /**
+     * @param sql                   statement on IDN_OAUTH2_ACCESS_TOKEN
+     * @param accessTokenStoreTable access token table to run the statement against
+     * @return statement on the given access token table
+     */
+    public static String getQueryForTable(String sql, String accessTokenStoreTable) {
+
+        if (IDN_OAUTH2_ACCESS_TOKEN.equals(accessTokenStoreTable)) {
+            return sql;
+        }
+        return getReplacedQuery(sql, IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+    }
+
+    /**
+     * @param template              statement with the $accessTokenStoreTable placeholder
+     * @param accessTokenStoreTable access token table to run the statement against
+     * @return statement on the given access token table
+     */
+    public static String getQueryForStoreTable(String template, String accessTokenStoreTable) {
+        return getReplacedQuery(template, ACCESS_TOKEN_STORE_TABLE, accessTokenStoreTable);
+    }
+
+    /**
+     * @param sql            statement with a placeholder for a list of parameters, as in <code>IN ($tokenIds)</code>
+     * @param placeholder    placeholder of the parameter list
+     * @param parameterCount number of parameters in the list
+     * @return statement with the placeholder replaced by the given number of comma separated parameters
+     */
+    public static String getQueryWithParameterList(String sql, String placeholder, int parameterCount) {
+
+        StringBuilder parameters = new StringBuilder();
+        for (int i = 0; i < parameterCount; i++) {
+            parameters.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.replace(placeholder, parameters.toString());
+    }
+
+    private static String getReplacedQuery(String sql, String target, String accessTokenStoreTable) {
+
+        ConcurrentMap<String, String> queries = tableQueries.get(accessTokenStoreTable);
+        if (queries == null) {
+            if (!isConfiguredTable(accessTokenStoreTable)) {
+                return sql.replace(target, accessTokenStoreTable);
+            }
+            queries = new ConcurrentHashMap<>();
+            ConcurrentMap<String, String> existing = tableQueries.putIfAbsent(accessTokenStoreTable, queries);
+            if (existing != null) {
+                queries = existing;
+            }
+        }
+        String query = queries.get(sql);
+        if (query == null) {
+            query = sql.replace(target, accessTokenStoreTable);
+            queries.put(sql, query);
+        }
+        return query;
+    }
+
+    private static boolean isConfiguredTable(String accessTokenStoreTable) {
+
+        if (IDN_OAUTH2_ACCESS_TOKEN.equals(accessTokenStoreTable)) {
+            return true;
+        }
+        try {
+            return TokenPartitionRouter.getInstance().getPartitionTables().contains(accessTokenStoreTable);
+        } catch (IdentityOAuth2Exception e) {
+            // the DAO fails on the misconfigured partitions, the statement is only not cached here
+            if (log.isDebugEnabled()) {
+                log.debug("Partition tables of the access token table could not be resolved", e);
+            }
+            return false;
+        }
+    }
+
+    private static Dialect getDialect(Connection connection) throws SQLException {
+
+        Dialect resolved = dialect;
+        if (resolved == null) {
+            resolved = resolveDialect(connection.getMetaData());
+            dialect = resolved;
+            if (log.isDebugEnabled()) {
+                log.debug("Resolved SQL dialect of the identity database as " + resolved);
+            }
+        }
+        return resolved;
+    }
+
+    private static Dialect resolveDialect(DatabaseMetaData metaData) throws SQLException {
+
+        String driverName = metaData.getDriverName();
+        if (driverName.contains("MySQL") || driverName.contains("H2")) {
+            return Dialect.MYSQL;
+        } else if (metaData.getDatabaseProductName().contains("DB2")) {
+            return Dialect.DB2;
+        } else if (driverName.contains("MS SQL") || driverName.contains("Microsoft")) {
+            return Dialect.MSSQL;
+        } else if (driverName.contains("PostgreSQL")) {
+            return Dialect.POSTGRESQL;
+        } else if (driverName.contains("Informix")) {
+            // Driver name = "IBM Informix JDBC Driver for IBM Informix Dynamic Server"
+            return Dialect.INFORMIX;
+        }
+        return Dialect.ORACLE;
+    }
+
+    private enum Dialect {
+        MYSQL, DB2, MSSQL, POSTGRESQL, INFORMIX, ORACLE
+    }
+
+    /**
+     * A statement with a variant per supported database dialect.
+     */
+    public static class DialectQuery {
+
+        private final String mySql;
+        private final String db2;
+        private final String msSql;
+        private final String postgreSql;
+        private final String informix;
+        private final String oracle;
+
+        public DialectQuery(String mySql, String db2, String msSql, String postgreSql, String informix,
+                            String oracle) {
+            this.mySql = mySql;
+            this.db2 = db2;
+            this.msSql = msSql;
+            this.postgreSql = postgreSql;
+            this.informix = informix;
+            this.oracle = oracle;
+        }
+
+        private String get(Dialect dialect) {
+
+            switch (dialect) {
+                case MYSQL:
+                    return mySql;
+                case DB2:
+                    return db2;
+                case MSSQL:
+                    return msSql;
+                case POSTGRESQL:
+                    return postgreSql;
+                case INFORMIX:
+                    return informix;
+                default:
+                    return oracle;
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Data Access Layer functionality for purging access tokens and authorization codes which can no longer be used.
+ * <p>
+ * Rows are scanned in primary key order, one bounded batch at a time, so that a purge never holds long running
+ * locks. A row is purgeable once it is older than the given cutoff and
+ * <ul>
+ * <li>it is REVOKED or INACTIVE, or</li>
+ * <li>it is ACTIVE or EXPIRED and both the access token (or code) and the refresh token expired before the
+ * cutoff. Tokens with an infinite validity period are never purged.</li>
+ * </ul>
+ */
+public class TokenCleanupDAO {
+
+    private static final String UTC = "UTC";
+    private static final String ARCHIVE_TABLE = "$archiveTable";
+
+    /**
+     * Finds the next batch of purgeable access tokens of an access token table.
+     *
+     * @param accessTokenStoreTable access token table, which may be a user store partition table
+     * @param afterTokenId          token id the scan continues after. Empty string to start from the beginning
+     * @param cutoffTime            only rows created and expired before this time are purgeable
+     * @param batchSize             maximum number of rows scanned
+     */
+    public CleanupBatch findPurgeableAccessTokens(String accessTokenStoreTable, String afterTokenId,
+                                                  long cutoffTime, int batchSize) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        CleanupBatch batch = new CleanupBatch(afterTokenId);
+        try {
+            String sql = SQLQueryRegistry.getQueryForStoreTable(SQLQueries.RETRIEVE_ACCESS_TOKENS_FOR_CLEANUP,
+                    accessTokenStoreTable);
+            prepStmt = connection.prepareStatement(sql);
+            prepStmt.setMaxRows(batchSize);
+            prepStmt.setString(1, afterTokenId);
+            prepStmt.setTimestamp(2, new Timestamp(cutoffTime), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+            resultSet = prepStmt.executeQuery();
+
+            while (resultSet.next()) {
+                String tokenId = resultSet.getString(1);
+                String tokenState = resultSet.getString(2);
+                batch.scanned(tokenId);
+
+                if (OAuthConstants.TokenStates.TOKEN_STATE_REVOKED.equals(tokenState) ||
+                        OAuthConstants.TokenStates.TOKEN_STATE_INACTIVE.equals(tokenState)) {
+                    batch.addPurgeable(tokenId, tokenState);
+                    continue;
+                }
+
+                Calendar utc = Calendar.getInstance(TimeZone.getTimeZone(UTC));
+                boolean accessTokenExpired = isExpiredBefore(resultSet.getTimestamp(3, utc), resultSet.getLong(4),
+                        cutoffTime);
+                Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(5, utc);
+                boolean refreshTokenExpired = refreshTokenIssuedTime == null ||
+                        isExpiredBefore(refreshTokenIssuedTime, resultSet.getLong(6), cutoffTime);
+                if (accessTokenExpired && refreshTokenExpired) {
+                    batch.addPurgeable(tokenId, tokenState);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while scanning " + accessTokenStoreTable +
+                    " for purgeable access tokens", e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, resultSet, prepStmt);
+        }
+        return batch;
+    }
+
+    /**
+     * Deletes the given access tokens and their scopes, copying them to an archive table first if one is given. A
+     * token is skipped if its state changed after it was found purgeable.
+     *
+     * @param accessTokenStoreTable access token table the tokens were found in
+     * @param tokens                token id to token state of the tokens to be purged
+     * @param archiveTable          table with the same columns as the access token table, or null to delete only
+     * @return number of tokens deleted
+     */
+    public int purgeAccessTokens(String accessTokenStoreTable, Map<String, String> tokens, String archiveTable)
+            throws IdentityOAuth2Exception {
+
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement archiveStmt = null;
+        PreparedStatement deleteScopeStmt = null;
+        PreparedStatement deleteTokenStmt = null;
+        try {
+            connection.setAutoCommit(false);
+            if (StringUtils.isNotBlank(archiveTable)) {
+                archiveStmt = connection.prepareStatement(SQLQueryRegistry.getQueryForStoreTable(
+                        SQLQueries.ARCHIVE_ACCESS_TOKEN, accessTokenStoreTable).replace(ARCHIVE_TABLE, archiveTable));
+                addBatch(archiveStmt, tokens);
+                archiveStmt.executeBatch();
+            }
+
+            deleteScopeStmt = connection.prepareStatement(SQLQueryRegistry.getQueryForStoreTable(
+                    SQLQueries.DELETE_PURGEABLE_ACCESS_TOKEN_SCOPE, accessTokenStoreTable));
+            addBatch(deleteScopeStmt, tokens);
+            deleteScopeStmt.executeBatch();
+
+            deleteTokenStmt = connection.prepareStatement(SQLQueryRegistry.getQueryForStoreTable(
+                    SQLQueries.DELETE_ACCESS_TOKEN_BY_TOKEN_ID, accessTokenStoreTable));
+            addBatch(deleteTokenStmt, tokens);
+            int deleted = countUpdates(deleteTokenStmt.executeBatch());
+            connection.commit();
+            return deleted;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error while purging " + tokens.size() + " access tokens from " +
+                    accessTokenStoreTable, e);
+        } finally {
+            IdentityDatabaseUtil.closeStatement(archiveStmt);
+            IdentityDatabaseUtil.closeStatement(deleteScopeStmt);
+            IdentityDatabaseUtil.closeAllConnections(connection, null, deleteTokenStmt);
+        }
+    }
+
+    /**
+     * Finds the next batch of purgeable authorization codes.
+     *
+     * @param afterCodeId code id the scan continues after. Empty string to start from the beginning
+     * @param cutoffTime  only codes created and expired before this time are purgeable
+     * @param batchSize   maximum number of rows scanned
+     */
+    public CleanupBatch findPurgeableAuthorizationCodes(String afterCodeId, long cutoffTime, int batchSize)
+            throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        CleanupBatch batch = new CleanupBatch(afterCodeId);
+        try {
+            prepStmt = connection.prepareStatement(SQLQueries.RETRIEVE_AUTHORIZATION_CODES_FOR_CLEANUP);
+            prepStmt.setMaxRows(batchSize);
+            prepStmt.setString(1, afterCodeId);
+            prepStmt.setTimestamp(2, new Timestamp(cutoffTime), Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+            resultSet = prepStmt.executeQuery();
+
+            while (resultSet.next()) {
+                String codeId = resultSet.getString(1);
+                String codeState = resultSet.getString(2);
+                batch.scanned(codeId);
+
+                if (!OAuthConstants.AuthorizationCodeState.ACTIVE.equals(codeState) ||
+                        isExpiredBefore(resultSet.getTimestamp(3, Calendar.getInstance(TimeZone.getTimeZone(UTC))),
+                                resultSet.getLong(4), cutoffTime)) {
+                    batch.addPurgeable(codeId, codeState);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error while scanning for purgeable authorization codes", e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, resultSet, prepStmt);
+        }
+        return batch;
+    }
+
+    /**
+     * Deletes the given authorization codes, copying them to an archive table first if one is given. A code is
+     * skipped if its state changed after it was found purgeable.
+     *
+     * @param codes        code id to code state of the codes to be purged
+     * @param archiveTable table with the same columns as the authorization code table, or null to delete only
+     * @return number of codes deleted
+     */
+    public int purgeAuthorizationCodes(Map<String, String> codes, String archiveTable)
+            throws IdentityOAuth2Exception {
+
+        if (codes.isEmpty()) {
+            return 0;
+        }
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement archiveStmt = null;
+        PreparedStatement deleteStmt = null;
+        try {
+            connection.setAutoCommit(false);
+            if (StringUtils.isNotBlank(archiveTable)) {
+                archiveStmt = connection.prepareStatement(SQLQueries.ARCHIVE_AUTHORIZATION_CODE.replace(ARCHIVE_TABLE,
+                        archiveTable));
+                addBatch(archiveStmt, codes);
+                archiveStmt.executeBatch();
+            }
+
+            deleteStmt = connection.prepareStatement(SQLQueries.DELETE_AUTHORIZATION_CODE_BY_CODE_ID);
+            addBatch(deleteStmt, codes);
+            int deleted = countUpdates(deleteStmt.executeBatch());
+            connection.commit();
+            return deleted;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error while purging " + codes.size() + " authorization codes", e);
+        } finally {
+            IdentityDatabaseUtil.closeStatement(archiveStmt);
+            IdentityDatabaseUtil.closeAllConnections(connection, null, deleteStmt);
+        }
+    }
+
+    private static boolean isExpiredBefore(Timestamp issuedTime, long validityPeriodInMillis, long cutoffTime) {
+        // negative validity periods denote tokens which never expire
+        return issuedTime != null && validityPeriodInMillis >= 0 &&
+                issuedTime.getTime() + validityPeriodInMillis < cutoffTime;
+    }
+
+    private static void addBatch(PreparedStatement prepStmt, Map<String, String> idStates) throws SQLException {
+        for (Map.Entry<String, String> idState : idStates.entrySet()) {
+            prepStmt.setString(1, idState.getKey());
+            prepStmt.setString(2, idState.getValue());
+            prepStmt.addBatch();
+        }
+    }
+
+    private static int countUpdates(int[] updateCounts) {
+        int count = 0;
+        for (int updateCount : updateCounts) {
+            if (updateCount > 0) {
+                count += updateCount;
+            } else if (updateCount == PreparedStatement.SUCCESS_NO_INFO) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Result of scanning one batch of a table.
+     */
+    public static class CleanupBatch {
+
+        private final Map<String, String> purgeable = new LinkedHashMap<>();
+        private String lastScannedId;
+        private int scannedCount;
+
+        CleanupBatch(String afterId) {
+            this.lastScannedId = afterId;
+        }
+
+        void scanned(String id) {
+            lastScannedId = id;
+            scannedCount++;
+        }
+
+        void addPurgeable(String id, String state) {
+            purgeable.put(id, state);
+        }
+
+        /**
+         * @return id to state of the purgeable rows of the batch
+         */
+        public Map<String, String> getPurgeable() {
+            return purgeable;
+        }
+
+        /**
+         * @return id the next batch has to be scanned after
+         */
+        public String getLastScannedId() {
+            return lastScannedId;
+        }
+
+        public int getScannedCount() {
+            return scannedCount;
+        }
+    }
+}
@@ -28,8 +28,10 @@ import org.wso2.carbon.identity.base.IdentityException;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.InvalidTokenCache;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.tokenprocessor.HashingPersistenceProcessor;
 import org.wso2.carbon.identity.oauth.tokenprocessor.PlainTextPersistenceProcessor;
 import org.wso2.carbon.identity.oauth.tokenprocessor.TokenPersistenceProcessor;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
@@ -40,6 +42,10 @@ import org.wso2.carbon.identity.oauth2.model.RefreshTokenValidationDataDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.DataTruncation;
 import java.sql.PreparedStatement;
@@ -50,9 +56,11 @@ import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -60,6 +68,8 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
@@ -75,22 +85,58 @@ public class TokenMgtDAO {
     private static final String UTC = "UTC";
     private static TokenPersistenceProcessor persistenceProcessor;
 
+    /**
+     * Hashes tokens and codes for the indexed hash lookup columns. Null unless hashed token lookup is enabled.
+     */
+    private static TokenPersistenceProcessor hashingProcessor;
+
     private static int maxPoolSize = 100;
 
     private static int tokenPersistRetryCount = 5;
 
     private boolean enablePersist = true;
 
-    private static BlockingDeque<AccessContextTokenDO> accessContextTokenQueue = new LinkedBlockingDeque<>();
+    private static int persistQueueCapacity = 10000;
+
+    private static int persistBatchSize = 100;
+
+    private static PersistenceOverflowPolicy persistOverflowPolicy = PersistenceOverflowPolicy.CALLER_RUNS;
+
+    private static BlockingDeque<AccessContextTokenDO> accessContextTokenQueue;
+
+    private static BlockingDeque<AuthContextTokenDO> authContextTokenQueue;
 
-    private static BlockingDeque<AuthContextTokenDO> authContextTokenQueue = new LinkedBlockingDeque<>();
+    private static PersistenceQueueMetrics accessContextTokenQueueMetrics;
+
+    private static PersistenceQueueMetrics authContextTokenQueueMetrics;
+
+    /**
+     * Authorization codes waiting in the persistence queue, by code. Whoever removes a code from this map, the
+     * consumer which drained it or a redemption of the code, persists it.
+     */
+    private static final ConcurrentMap<String, AuthContextTokenDO> queuedAuthorizationCodes =
+            new ConcurrentHashMap<>();
 
     private static final Log log = LogFactory.getLog(TokenMgtDAO.class);
 
     private static final String IDN_OAUTH2_ACCESS_TOKEN = "IDN_OAUTH2_ACCESS_TOKEN";
 
+    /**
+     * Maximum number of access tokens looked up by a single query of {@link #retrieveActiveAccessTokens(Collection)}.
+     */
+    private static final int ACCESS_TOKEN_LOOKUP_BATCH_SIZE = 100;
+
+    /**
+     * Number of times {@link #revokeAccessTokensOfUser(AuthenticatedUser, String)} is tried while tokens are being
+     * issued to the user.
+     */
+    private static final int TOKEN_REVOCATION_ATTEMPTS = 3;
+
     private static final String IDN_OAUTH2_AUTHORIZATION_CODE = "IDN_OAUTH2_AUTHORIZATION_CODE";
 
+    private static final String PERSISTENCE_QUEUE_MBEAN_PREFIX =
+            "org.wso2.carbon.identity.oauth2:type=PersistenceQueue,name=";
+
     static {
 
         final Log log = LogFactory.getLog(TokenMgtDAO.class);
@@ -108,19 +154,65 @@ public class TokenMgtDAO {
             log.warn("Session data persistence pool size is not configured. Using default value.");
         }
 
+        try {
+            String queueCapacityConfigValue = IdentityUtil.getProperty("OAuth.TokenPersistence.QueueCapacity");
+            if (StringUtils.isNotBlank(queueCapacityConfigValue)) {
+                persistQueueCapacity = Integer.parseInt(queueCapacityConfigValue.trim());
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value configured for OAuth.TokenPersistence.QueueCapacity. Using default value : " +
+                    persistQueueCapacity);
+        }
+        if (persistQueueCapacity <= 0) {
+            persistQueueCapacity = Integer.MAX_VALUE;
+        }
+
+        try {
+            String batchSizeConfigValue = IdentityUtil.getProperty("OAuth.TokenPersistence.BatchSize");
+            if (StringUtils.isNotBlank(batchSizeConfigValue)) {
+                persistBatchSize = Math.max(1, Integer.parseInt(batchSizeConfigValue.trim()));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value configured for OAuth.TokenPersistence.BatchSize. Using default value : " +
+                    persistBatchSize);
+        }
+
+        if (Boolean.parseBoolean(IdentityUtil.getProperty("OAuth.TokenPersistence.HashedLookup.Enable"))) {
+            try {
+                hashingProcessor = new HashingPersistenceProcessor();
+                log.info("Hashed token lookup is enabled");
+            } catch (IllegalArgumentException e) {
+                log.error("Error while initializing the token hashing processor. Hashed token lookup is disabled", e);
+            }
+        }
+
+        persistOverflowPolicy = PersistenceOverflowPolicy.fromString(
+                IdentityUtil.getProperty("OAuth.TokenPersistence.OverflowPolicy"), persistOverflowPolicy);
+
+        accessContextTokenQueue = new LinkedBlockingDeque<>(persistQueueCapacity);
+        authContextTokenQueue = new LinkedBlockingDeque<>(persistQueueCapacity);
+        accessContextTokenQueueMetrics = new PersistenceQueueMetrics(accessContextTokenQueue);
+        authContextTokenQueueMetrics = new PersistenceQueueMetrics(authContextTokenQueue);
+        registerMetrics(accessContextTokenQueueMetrics, "AccessToken");
+        registerMetrics(authContextTokenQueueMetrics, "AuthorizationCode");
+
         if (maxPoolSize > 0) {
-            log.info("Thread pool size for session persistent consumer : " + maxPoolSize);
+            log.info("Thread pool size for session persistent consumer : " + maxPoolSize + ", queue capacity : " +
+                    persistQueueCapacity + ", batch size : " + persistBatchSize + ", overflow policy : " +
+                    persistOverflowPolicy);
 
             ExecutorService threadPool = Executors.newFixedThreadPool(maxPoolSize);
 
             for (int i = 0; i < maxPoolSize; i++) {
-                threadPool.execute(new TokenPersistenceTask(accessContextTokenQueue));
+                threadPool.execute(new TokenPersistenceTask(accessContextTokenQueue, persistBatchSize,
+                        accessContextTokenQueueMetrics));
             }
 
             threadPool = Executors.newFixedThreadPool(maxPoolSize);
 
             for (int i = 0; i < maxPoolSize; i++) {
-                threadPool.execute(new AuthPersistenceTask(authContextTokenQueue));
+                threadPool.execute(new AuthPersistenceTask(authContextTokenQueue, persistBatchSize,
+                        authContextTokenQueueMetrics));
             }
         }
     }
@@ -143,6 +235,62 @@ public class TokenMgtDAO {
         }
     }
 
+    /**
+     * Registers the statistics of a persistence queue with the platform MBean server, under
+     * <code>org.wso2.carbon.identity.oauth2:type=PersistenceQueue,name=&lt;name&gt;</code>.
+     */
+    private static void registerMetrics(PersistenceQueueMetrics metrics, String name) {
+
+        try {
+            ObjectName objectName = new ObjectName(PERSISTENCE_QUEUE_MBEAN_PREFIX + name);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while registering the statistics of the " + name + " persistence queue over JMX", e);
+        }
+    }
+
+    /**
+     * Hands an entry over to the persistence consumers, applying the configured overflow policy when the queue is
+     * full.
+     *
+     * @return true if the entry was queued, false if the caller has to persist it synchronously
+     * @throws IdentityOAuth2Exception if the queue is full and the overflow policy is REJECT
+     */
+    private static <T> boolean enqueue(BlockingDeque<T> queue, T entry, PersistenceQueueMetrics metrics)
+            throws IdentityOAuth2Exception {
+
+        if (queue.offerLast(entry)) {
+            metrics.recordEnqueued();
+            return true;
+        }
+
+        switch (persistOverflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.putLast(entry);
+                    metrics.recordEnqueued();
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IdentityOAuth2Exception("Interrupted while waiting for space in the token " +
+                            "persistence queue", e);
+                }
+            case REJECT:
+                metrics.recordRejected();
+                throw new IdentityOAuth2Exception("Token persistence queue is full. Queue capacity : " +
+                        persistQueueCapacity);
+            default:
+                metrics.recordCallerRuns();
+                if (log.isDebugEnabled()) {
+                    log.debug("Token persistence queue is full. Persisting on the caller thread.");
+                }
+                return false;
+        }
+    }
+
     public void storeAuthorizationCode(String authzCode, String consumerKey, String callbackUrl,
                                        AuthzCodeDO authzCodeDO) throws IdentityOAuth2Exception {
 
@@ -151,10 +299,32 @@ public class TokenMgtDAO {
         }
 
         if (maxPoolSize > 0) {
-            authContextTokenQueue.push(new AuthContextTokenDO(authzCode, consumerKey, callbackUrl, authzCodeDO));
-        } else {
-            persistAuthorizationCode(authzCode, consumerKey, callbackUrl, authzCodeDO);
+            AuthContextTokenDO authContextTokenDO = new AuthContextTokenDO(authzCode, consumerKey, callbackUrl,
+                    authzCodeDO);
+            // indexed before it is queued, so that a consumer never drains a code it cannot claim
+            queuedAuthorizationCodes.put(authzCode, authContextTokenDO);
+            boolean queued = false;
+            try {
+                queued = enqueue(authContextTokenQueue, authContextTokenDO, authContextTokenQueueMetrics);
+            } finally {
+                if (!queued) {
+                    queuedAuthorizationCodes.remove(authzCode, authContextTokenDO);
+                }
+            }
+            if (queued) {
+                return;
+            }
         }
+        persistAuthorizationCode(authzCode, consumerKey, callbackUrl, authzCodeDO);
+    }
+
+    /**
+     * Claims a queued authorization code for a persistence consumer.
+     *
+     * @return true if the consumer has to persist the code, false if a redemption of the code persisted it already
+     */
+    static boolean claimQueuedAuthorizationCode(AuthContextTokenDO authContextTokenDO) {
+        return queuedAuthorizationCodes.remove(authContextTokenDO.getAuthzCode(), authContextTokenDO);
     }
 
     public void persistAuthorizationCode(String authzCode, String consumerKey, String callbackUrl,
@@ -167,63 +337,118 @@ public class TokenMgtDAO {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement prepStmt = null;
         try {
+            prepStmt = connection.prepareStatement(getStoreAuthorizationCodeQuery());
+            setAuthorizationCodeParameters(prepStmt, authzCode, consumerKey, callbackUrl, authzCodeDO);
+            prepStmt.execute();
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error when storing the authorization code for consumer key : " +
+                    consumerKey, e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+        }
+    }
 
-            if(OAuth2ServiceComponentHolder.isPkceEnabled()) {
-                prepStmt = connection.prepareStatement(SQLQueries.STORE_AUTHORIZATION_CODE_WITH_PKCE);
-                prepStmt.setString(1, authzCodeDO.getAuthzCodeId());
-                prepStmt.setString(2, persistenceProcessor.getProcessedAuthzCode(authzCode));
-                prepStmt.setString(3, callbackUrl);
-                prepStmt.setString(4, OAuth2Util.buildScopeString(authzCodeDO.getScope()));
-                prepStmt.setString(5, authzCodeDO.getAuthorizedUser().getUserName());
-                prepStmt.setString(6, getSanitizedUserStoreDomain(authzCodeDO.getAuthorizedUser().getUserStoreDomain()));
-                int tenantId = OAuth2Util.getTenantId(authzCodeDO.getAuthorizedUser().getTenantDomain());
-                prepStmt.setInt(7, tenantId);
-                prepStmt.setTimestamp(8, authzCodeDO.getIssuedTime(),
-                        Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                prepStmt.setLong(9, authzCodeDO.getValidityPeriod());
-                prepStmt.setString(10, authzCodeDO.getAuthorizedUser().getAuthenticatedSubjectIdentifier());
-                prepStmt.setString(11, authzCodeDO.getPkceCodeChallenge());
-                prepStmt.setString(12, authzCodeDO.getPkceCodeChallengeMethod());
-                prepStmt.setString(13, persistenceProcessor.getProcessedClientId(consumerKey));
+    /**
+     * Persists a set of authorization codes as a single JDBC batch within one transaction.
+     *
+     * @param authContextTokenDOs authorization codes to be persisted
+     * @throws IdentityOAuth2Exception if the batch could not be written. No code of the batch is persisted then.
+     */
+    public void persistAuthorizationCodes(List<AuthContextTokenDO> authContextTokenDOs)
+            throws IdentityOAuth2Exception {
 
-            } else {
-                prepStmt = connection.prepareStatement(SQLQueries.STORE_AUTHORIZATION_CODE);
-                prepStmt.setString(1, authzCodeDO.getAuthzCodeId());
-                prepStmt.setString(2, persistenceProcessor.getProcessedAuthzCode(authzCode));
-                prepStmt.setString(3, callbackUrl);
-                prepStmt.setString(4, OAuth2Util.buildScopeString(authzCodeDO.getScope()));
-                prepStmt.setString(5, authzCodeDO.getAuthorizedUser().getUserName());
-                prepStmt.setString(6, getSanitizedUserStoreDomain(authzCodeDO.getAuthorizedUser().getUserStoreDomain()));
-                int tenantId = OAuth2Util.getTenantId(authzCodeDO.getAuthorizedUser().getTenantDomain());
-                prepStmt.setInt(7, tenantId);
-                prepStmt.setTimestamp(8, authzCodeDO.getIssuedTime(),
-                        Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                prepStmt.setLong(9, authzCodeDO.getValidityPeriod());
-                prepStmt.setString(10, authzCodeDO.getAuthorizedUser().getAuthenticatedSubjectIdentifier());
-                prepStmt.setString(11, persistenceProcessor.getProcessedClientId(consumerKey));
+        if (!enablePersist || authContextTokenDOs.isEmpty()) {
+            return;
+        }
 
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        try {
+            connection.setAutoCommit(false);
+            prepStmt = connection.prepareStatement(getStoreAuthorizationCodeQuery());
+            for (AuthContextTokenDO authContextTokenDO : authContextTokenDOs) {
+                setAuthorizationCodeParameters(prepStmt, authContextTokenDO.getAuthzCode(),
+                        authContextTokenDO.getConsumerKey(), authContextTokenDO.getCallbackUrl(),
+                        authContextTokenDO.getAuthzCodeDO());
+                prepStmt.addBatch();
             }
-
-
-            prepStmt.execute();
+            prepStmt.executeBatch();
             connection.commit();
         } catch (SQLException e) {
-            throw new IdentityOAuth2Exception("Error when storing the authorization code for consumer key : " +
-                    consumerKey, e);
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error when storing a batch of " + authContextTokenDOs.size() +
+                    " authorization codes", e);
         } finally {
             IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
         }
     }
 
+    private String getStoreAuthorizationCodeQuery() {
+        if (OAuth2ServiceComponentHolder.isPkceEnabled()) {
+            return hashingProcessor != null ? SQLQueries.STORE_AUTHORIZATION_CODE_WITH_PKCE_AND_HASH :
+                    SQLQueries.STORE_AUTHORIZATION_CODE_WITH_PKCE;
+        }
+        return hashingProcessor != null ? SQLQueries.STORE_AUTHORIZATION_CODE_WITH_HASH :
+                SQLQueries.STORE_AUTHORIZATION_CODE;
+    }
+
+    private static String getAccessTokenLookupValue(String accessTokenIdentifier) throws IdentityOAuth2Exception {
+        if (hashingProcessor != null) {
+            return hashingProcessor.getProcessedAccessTokenIdentifier(accessTokenIdentifier);
+        }
+        return persistenceProcessor.getProcessedAccessTokenIdentifier(accessTokenIdentifier);
+    }
+
+    private static String getRefreshTokenLookupValue(String refreshToken) throws IdentityOAuth2Exception {
+        if (hashingProcessor != null) {
+            return hashingProcessor.getProcessedRefreshToken(refreshToken);
+        }
+        return persistenceProcessor.getProcessedRefreshToken(refreshToken);
+    }
+
+    private static String getAuthzCodeLookupValue(String authzCode) throws IdentityOAuth2Exception {
+        if (hashingProcessor != null) {
+            return hashingProcessor.getProcessedAuthzCode(authzCode);
+        }
+        return persistenceProcessor.getProcessedAuthzCode(authzCode);
+    }
+
+    private void setAuthorizationCodeParameters(PreparedStatement prepStmt, String authzCode, String consumerKey,
+                                                String callbackUrl, AuthzCodeDO authzCodeDO)
+            throws SQLException, IdentityOAuth2Exception {
+
+        prepStmt.setString(1, authzCodeDO.getAuthzCodeId());
+        prepStmt.setString(2, persistenceProcessor.getProcessedAuthzCode(authzCode));
+        prepStmt.setString(3, callbackUrl);
+        prepStmt.setString(4, OAuth2Util.buildScopeString(authzCodeDO.getScope()));
+        prepStmt.setString(5, authzCodeDO.getAuthorizedUser().getUserName());
+        prepStmt.setString(6, getSanitizedUserStoreDomain(authzCodeDO.getAuthorizedUser().getUserStoreDomain()));
+        int tenantId = OAuth2Util.getTenantId(authzCodeDO.getAuthorizedUser().getTenantDomain());
+        prepStmt.setInt(7, tenantId);
+        prepStmt.setTimestamp(8, authzCodeDO.getIssuedTime(),
+                Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        prepStmt.setLong(9, authzCodeDO.getValidityPeriod());
+        prepStmt.setString(10, authzCodeDO.getAuthorizedUser().getAuthenticatedSubjectIdentifier());
+        int paramIndex = 11;
+        if (OAuth2ServiceComponentHolder.isPkceEnabled()) {
+            prepStmt.setString(paramIndex++, authzCodeDO.getPkceCodeChallenge());
+            prepStmt.setString(paramIndex++, authzCodeDO.getPkceCodeChallengeMethod());
+        }
+        if (hashingProcessor != null) {
+            prepStmt.setString(paramIndex++, hashingProcessor.getProcessedAuthzCode(authzCode));
+        }
+        prepStmt.setString(paramIndex, persistenceProcessor.getProcessedClientId(consumerKey));
+    }
+
     public void deactivateAuthorizationCode(String authzCode, String tokenId) throws IdentityOAuth2Exception {
 
         if (!enablePersist) {
             return;
         }
 
-        if (maxPoolSize > 0) {
-            authContextTokenQueue.push(new AuthContextTokenDO(authzCode, tokenId));
-        } else {
+        if (maxPoolSize <= 0 || !enqueue(authContextTokenQueue, new AuthContextTokenDO(authzCode, tokenId),
+                authContextTokenQueueMetrics)) {
             AuthzCodeDO authzCodeDO = new AuthzCodeDO();
             authzCodeDO.setAuthorizationCode(authzCode);
             authzCodeDO.setOauthTokenId(tokenId);
@@ -249,13 +474,10 @@ public class TokenMgtDAO {
         userStoreDomain = getSanitizedUserStoreDomain(userStoreDomain);
         PreparedStatement prepStmt = null;
 
-        String accessTokenStoreTable = "IDN_OAUTH2_ACCESS_TOKEN";
-        if (StringUtils.isNotBlank(userStoreDomain) &&
-                !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-            accessTokenStoreTable = accessTokenStoreTable + "_" + userStoreDomain;
-        }
+        String accessTokenStoreTable = TokenPartitionRouter.getAccessTokenStoreTable(userStoreDomain);
 
-        String sql = SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN.replaceAll("\\$accessTokenStoreTable",
+        String sql = SQLQueryRegistry.getQueryForStoreTable(hashingProcessor != null ?
+                SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN_WITH_HASH : SQLQueries.INSERT_OAUTH2_ACCESS_TOKEN,
                 accessTokenStoreTable);
         String sqlAddScopes = SQLQueries.INSERT_OAUTH2_TOKEN_SCOPE;
         try {
@@ -283,19 +505,27 @@ public class TokenMgtDAO {
             prepStmt.setString(13, accessTokenDO.getTokenId());
             prepStmt.setString(14, accessTokenDO.getGrantType());
             prepStmt.setString(15, accessTokenDO.getAuthzUser().getAuthenticatedSubjectIdentifier());
-            prepStmt.setString(16, persistenceProcessor.getProcessedClientId(consumerKey));
+            if (hashingProcessor != null) {
+                prepStmt.setString(16, hashingProcessor.getProcessedAccessTokenIdentifier(accessToken));
+                prepStmt.setString(17, hashingProcessor.getProcessedRefreshToken(accessTokenDO.getRefreshToken()));
+                prepStmt.setString(18, persistenceProcessor.getProcessedClientId(consumerKey));
+            } else {
+                prepStmt.setString(16, persistenceProcessor.getProcessedClientId(consumerKey));
+            }
             prepStmt.execute();
 
-            String accessTokenId = accessTokenDO.getTokenId();
-            prepStmt = connection.prepareStatement(sqlAddScopes);
-
             if (accessTokenDO.getScope() != null && accessTokenDO.getScope().length > 0) {
+                String accessTokenId = accessTokenDO.getTokenId();
+                IdentityDatabaseUtil.closeStatement(prepStmt);
+                prepStmt = connection.prepareStatement(sqlAddScopes);
+                // all scopes of the token are written in a single round trip
                 for (String scope : accessTokenDO.getScope()) {
                     prepStmt.setString(1, accessTokenId);
                     prepStmt.setString(2, scope);
                     prepStmt.setInt(3, tenantId);
-                    prepStmt.execute();
+                    prepStmt.addBatch();
                 }
+                prepStmt.executeBatch();
             }
             if(retryAttempt > 0) {
                 log.info("Successfully recovered 'CON_APP_KEY' constraint violation with the attempt : " +
@@ -353,10 +583,8 @@ public class TokenMgtDAO {
 
         userStoreDomain = getSanitizedUserStoreDomain(userStoreDomain);
 
-        if (maxPoolSize > 0) {
-            accessContextTokenQueue.push(new AccessContextTokenDO(accessToken, consumerKey, newAccessTokenDO
-                    , existingAccessTokenDO, userStoreDomain));
-        } else {
+        if (maxPoolSize <= 0 || !enqueue(accessContextTokenQueue, new AccessContextTokenDO(accessToken, consumerKey,
+                newAccessTokenDO, existingAccessTokenDO, userStoreDomain), accessContextTokenQueueMetrics)) {
             persistAccessToken(accessToken, consumerKey, newAccessTokenDO, existingAccessTokenDO, userStoreDomain);
         }
     }
@@ -368,25 +596,14 @@ public class TokenMgtDAO {
             return false;
         }
 
-        userStoreDomain = getSanitizedUserStoreDomain(userStoreDomain);
-
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         try {
             connection.setAutoCommit(false);
-            if (existingAccessTokenDO != null) {
-                //  Mark the existing access token as expired on database if a token exist for the user
-                setAccessTokenState(connection, existingAccessTokenDO.getTokenId(), OAuthConstants.TokenStates
-                        .TOKEN_STATE_EXPIRED, UUID.randomUUID().toString(), userStoreDomain);
-            }
-            storeAccessToken(accessToken, consumerKey, newAccessTokenDO, connection, userStoreDomain);
-            if (newAccessTokenDO.getAuthorizationCode() != null) {
-                // expire authz code and insert issued access token against authz code
-                AuthzCodeDO authzCodeDO = new AuthzCodeDO();
-                authzCodeDO.setAuthorizationCode(newAccessTokenDO.getAuthorizationCode());
-                authzCodeDO.setOauthTokenId(newAccessTokenDO.getTokenId());
-                deactivateAuthorizationCode(authzCodeDO, connection);
-            }
+            persistAccessToken(connection, accessToken, consumerKey, newAccessTokenDO, existingAccessTokenDO,
+                    userStoreDomain);
             connection.commit();
+            // the token may have been validated before it was persisted
+            InvalidTokenCache.getInstance().clearInvalidToken(accessToken);
             return true;
         } catch (SQLException e) {
             throw new IdentityOAuth2Exception("Error occurred while persisting access token", e);
@@ -395,6 +612,58 @@ public class TokenMgtDAO {
         }
     }
 
+    /**
+     * Persists a set of access tokens queued by {@link #storeAccessToken(String, String, AccessTokenDO,
+     * AccessTokenDO, String)} within one transaction.
+     *
+     * @param accessContextTokenDOs access tokens to be persisted
+     * @throws IdentityOAuth2Exception if any of the tokens could not be written. The whole batch is rolled back then.
+     */
+    public void persistAccessTokens(List<AccessContextTokenDO> accessContextTokenDOs)
+            throws IdentityOAuth2Exception {
+
+        if (!enablePersist || accessContextTokenDOs.isEmpty()) {
+            return;
+        }
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            connection.setAutoCommit(false);
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+                persistAccessToken(connection, accessContextTokenDO.getAccessToken(),
+                        accessContextTokenDO.getConsumerKey(), accessContextTokenDO.getNewAccessTokenDO(),
+                        accessContextTokenDO.getExistingAccessTokenDO(), accessContextTokenDO.getUserStoreDomain());
+            }
+            connection.commit();
+            for (AccessContextTokenDO accessContextTokenDO : accessContextTokenDOs) {
+                InvalidTokenCache.getInstance().clearInvalidToken(accessContextTokenDO.getAccessToken());
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error occurred while persisting a batch of " +
+                    accessContextTokenDOs.size() + " access tokens", e);
+        } catch (IdentityOAuth2Exception e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw e;
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, null);
+        }
+    }
+
+    private void persistAccessToken(Connection connection, String accessToken, String consumerKey,
+                                    AccessTokenDO newAccessTokenDO, AccessTokenDO existingAccessTokenDO,
+                                    String userStoreDomain) throws IdentityOAuth2Exception {
+
+        userStoreDomain = getSanitizedUserStoreDomain(userStoreDomain);
+
+        if (existingAccessTokenDO != null) {
+            //  Mark the existing access token as expired on database if a token exist for the user
+            setAccessTokenState(connection, existingAccessTokenDO.getTokenId(), OAuthConstants.TokenStates
+                    .TOKEN_STATE_EXPIRED, UUID.randomUUID().toString(), userStoreDomain);
+        }
+        storeAccessToken(accessToken, consumerKey, newAccessTokenDO, connection, userStoreDomain);
+    }
+
     public AccessTokenDO retrieveLatestAccessToken(String consumerKey, AuthenticatedUser authzUser,
                                                    String userStoreDomain, String scope,
                                                    boolean includeExpiredTokens)
@@ -413,31 +682,9 @@ public class TokenMgtDAO {
         try {
 
             String sql;
-            if (connection.getMetaData().getDriverName().contains("MySQL")
-                || connection.getMetaData().getDriverName().contains("H2")) {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL;
-            } else if (connection.getMetaData().getDatabaseProductName().contains("DB2")) {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL;
-            }
-            else if (connection.getMetaData().getDriverName().contains("MS SQL")) {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-            } else if (connection.getMetaData().getDriverName().contains("Microsoft")) {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-            } else if (connection.getMetaData().getDriverName().contains("PostgreSQL")) {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL;
-            } else if (connection.getMetaData().getDriverName().contains("Informix")){
-                // Driver name = "IBM Informix JDBC Driver for IBM Informix Dynamic Server"
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX;
-
-            } else {
-                sql = SQLQueries.RETRIEVE_LATEST_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE;
-            }
+            sql = SQLQueryRegistry.getQuery(connection, SQLQueryRegistry.RETRIEVE_LATEST_ACCESS_TOKEN);
 
-            if (StringUtils.isNotEmpty(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-                //logic to store access token into different tables when multiple user stores are configured.
-                sql = sql.replace(IDN_OAUTH2_ACCESS_TOKEN, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
-            }
+            sql = SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain);
             if (!isUsernameCaseSensitive) {
                 sql = sql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
             }
@@ -543,10 +790,7 @@ public class TokenMgtDAO {
             if (includeExpired) {
                 sql = SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN_BY_CLIENT_ID_USER;
             }
-            if (StringUtils.isNotEmpty(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-                sql = sql.replace(IDN_OAUTH2_ACCESS_TOKEN, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
-            }
+            sql = SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain);
             if (!isUsernameCaseSensitive) {
                 sql = sql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
             }
@@ -636,9 +880,10 @@ public class TokenMgtDAO {
             int tenantId;
             if (OAuth2ServiceComponentHolder.isPkceEnabled()) {
 
-                prepStmt = connection.prepareStatement(SQLQueries.VALIDATE_AUTHZ_CODE_WITH_PKCE);
+                prepStmt = connection.prepareStatement(hashingProcessor != null ?
+                        SQLQueries.VALIDATE_AUTHZ_CODE_WITH_PKCE_AND_HASH : SQLQueries.VALIDATE_AUTHZ_CODE_WITH_PKCE);
                 prepStmt.setString(1, persistenceProcessor.getProcessedClientId(consumerKey));
-                prepStmt.setString(2, persistenceProcessor.getProcessedAuthzCode(authorizationKey));
+                prepStmt.setString(2, getAuthzCodeLookupValue(authorizationKey));
                 resultSet = prepStmt.executeQuery();
 
                 if (resultSet.next()) {
@@ -674,9 +919,10 @@ public class TokenMgtDAO {
                 }
 
             } else {
-                prepStmt = connection.prepareStatement(SQLQueries.VALIDATE_AUTHZ_CODE);
+                prepStmt = connection.prepareStatement(hashingProcessor != null ?
+                        SQLQueries.VALIDATE_AUTHZ_CODE_WITH_HASH : SQLQueries.VALIDATE_AUTHZ_CODE);
                 prepStmt.setString(1, persistenceProcessor.getProcessedClientId(consumerKey));
-                prepStmt.setString(2, persistenceProcessor.getProcessedAuthzCode(authorizationKey));
+                prepStmt.setString(2, getAuthzCodeLookupValue(authorizationKey));
                 resultSet = prepStmt.executeQuery();
 
                 if (resultSet.next()) {
@@ -727,13 +973,75 @@ public class TokenMgtDAO {
     }
 
     public void changeAuthzCodeState(String authzCode, String newState) throws IdentityOAuth2Exception {
-        if (maxPoolSize > 0) {
-            authContextTokenQueue.push(new AuthContextTokenDO(authzCode));
-        } else {
+        if (maxPoolSize <= 0 || !enqueue(authContextTokenQueue, new AuthContextTokenDO(authzCode),
+                authContextTokenQueueMetrics)) {
             doChangeAuthzCodeState(authzCode, newState);
         }
     }
 
+    /**
+     * Moves an authorization code from ACTIVE to INACTIVE and records the id of the access token issued for it, with
+     * a single conditional update. Only one caller in the cluster can succeed for a given code, so this is used to
+     * guarantee single use without reading the code again. A code which is still waiting in the persistence queue of
+     * this node is persisted first.
+     *
+     * @param authzCode authorization code to be redeemed
+     * @param tokenId   id of the access token which is issued for the code
+     * @return true if this call redeemed the code. False if the code is not active, e.g. because it was redeemed
+     * already, does not exist, or is still queued for persistence on another node
+     * @throws IdentityOAuth2Exception if the database could not be updated
+     */
+    public boolean redeemAuthorizationCode(String authzCode, String tokenId) throws IdentityOAuth2Exception {
+
+        if (!enablePersist) {
+            return true;
+        }
+
+        if (maxPoolSize > 0) {
+            persistQueuedAuthorizationCode(authzCode);
+        }
+
+        String authCodeStoreTable = OAuthConstants.AUTHORIZATION_CODE_STORE_TABLE;
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        try {
+            String sqlQuery = hashingProcessor != null ? SQLQueries.REDEEM_AUTHZ_CODE_WITH_HASH :
+                    SQLQueries.REDEEM_AUTHZ_CODE;
+            prepStmt = connection.prepareStatement(sqlQuery.replace(IDN_OAUTH2_AUTHORIZATION_CODE,
+                    authCodeStoreTable));
+            prepStmt.setString(1, tokenId);
+            prepStmt.setString(2, getAuthzCodeLookupValue(authzCode));
+            int updatedRows = prepStmt.executeUpdate();
+            connection.commit();
+            return updatedRows > 0;
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error occurred while redeeming authorization code", e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+        }
+    }
+
+    /**
+     * Claims the authorization code if it is still waiting in the persistence queue, and persists it on the calling
+     * thread. The consumer which drains the queue entry skips it then.
+     */
+    private void persistQueuedAuthorizationCode(String authzCode) throws IdentityOAuth2Exception {
+
+        AuthContextTokenDO authContextTokenDO = queuedAuthorizationCodes.remove(authzCode);
+        if (authContextTokenDO == null) {
+            return;
+        }
+        try {
+            persistAuthorizationCode(authContextTokenDO.getAuthzCode(), authContextTokenDO.getConsumerKey(),
+                    authContextTokenDO.getCallbackUrl(), authContextTokenDO.getAuthzCodeDO());
+        } catch (IdentityOAuth2Exception e) {
+            authContextTokenQueueMetrics.recordFailed(1);
+            throw e;
+        }
+        authContextTokenQueueMetrics.recordPersisted(1, authContextTokenDO.getEnqueuedTime());
+    }
+
     public void deactivateAuthorizationCode(List<AuthzCodeDO> authzCodeDOs) throws IdentityOAuth2Exception {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement prepStmt = null;
@@ -775,6 +1083,42 @@ public class TokenMgtDAO {
         }
     }
 
+    /**
+     * Changes the state of a set of authorization codes as a single JDBC batch.
+     *
+     * @param authzCodes authorization codes to be updated
+     * @param newState new state of the authorization codes
+     * @throws IdentityOAuth2Exception if the batch could not be written
+     */
+    public void doChangeAuthzCodeState(List<String> authzCodes, String newState) throws IdentityOAuth2Exception {
+
+        if (authzCodes.isEmpty()) {
+            return;
+        }
+
+        String authCodeStoreTable = OAuthConstants.AUTHORIZATION_CODE_STORE_TABLE;
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        try {
+            String sqlQuery = SQLQueries.UPDATE_AUTHORIZATION_CODE_STATE.replace(IDN_OAUTH2_AUTHORIZATION_CODE,
+                    authCodeStoreTable);
+            prepStmt = connection.prepareStatement(sqlQuery);
+            for (String authzCode : authzCodes) {
+                prepStmt.setString(1, newState);
+                prepStmt.setString(2, persistenceProcessor.getPreprocessedAuthzCode(authzCode));
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error occurred while updating the state of " + authzCodes.size() +
+                    " Authorization Codes", e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+        }
+    }
+
     public void deactivateAuthorizationCode(AuthzCodeDO authzCodeDO) throws IdentityOAuth2Exception {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         try {
@@ -805,6 +1149,22 @@ public class TokenMgtDAO {
 
     public RefreshTokenValidationDataDO validateRefreshToken(String consumerKey, String refreshToken)
             throws IdentityOAuth2Exception {
+        return validateRefreshToken(consumerKey, refreshToken, false);
+    }
+
+    /**
+     * Retrieves the validation data of a refresh token.
+     *
+     * @param consumerKey client id
+     * @param refreshToken refresh token
+     * @param checkLatest if true, the same query also checks whether a newer token exists for the client, user and
+     *                    scope of the refresh token. The result is available through
+     *                    {@link RefreshTokenValidationDataDO#isLatest()}. Users are compared case insensitively.
+     * @return validation data. The access token is null if the refresh token is not found
+     * @throws IdentityOAuth2Exception
+     */
+    public RefreshTokenValidationDataDO validateRefreshToken(String consumerKey, String refreshToken,
+                                                             boolean checkLatest) throws IdentityOAuth2Exception {
 
         RefreshTokenValidationDataDO validationDataDO = new RefreshTokenValidationDataDO();
         Connection connection = IdentityDatabaseUtil.getDBConnection();
@@ -812,55 +1172,29 @@ public class TokenMgtDAO {
         ResultSet resultSet = null;
         String userStoreDomain = null;
         String sql = null;
-        String mySqlQuery;
-        String db2Query;
-        String oracleQuery;
-        String msSqlQuery;
-        String postgreSqlQuery;
-        String informixQuery;
 
         try {
-            if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                    OAuth2Util.checkUserNameAssertionEnabled()) {
-                userStoreDomain = OAuth2Util.getUserStoreDomainFromAccessToken(refreshToken);
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                userStoreDomain = partitionRouter.getUserStoreDomainFromAccessToken(refreshToken);
             }
 
-            String accessTokenStoreTable = "IDN_OAUTH2_ACCESS_TOKEN";
-            if (StringUtils.isNotBlank(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-                accessTokenStoreTable = accessTokenStoreTable + "_" + userStoreDomain;
-            }
+            String accessTokenStoreTable = TokenPartitionRouter.getAccessTokenStoreTable(
+                    userStoreDomain);
 
-            mySqlQuery = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MYSQL.replaceAll("\\$accessTokenStoreTable",
-                    accessTokenStoreTable);
-            db2Query = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_DB2SQL.replaceAll("\\$accessTokenStoreTable",
-                    accessTokenStoreTable);
-            oracleQuery = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_ORACLE.replaceAll("\\$accessTokenStoreTable",
-                    accessTokenStoreTable);
-            msSqlQuery = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_MSSQL.replaceAll("\\$accessTokenStoreTable",
-                    accessTokenStoreTable);
-            informixQuery = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_INFORMIX.replaceAll
-                    ("\\$accessTokenStoreTable", accessTokenStoreTable);
-            postgreSqlQuery = SQLQueries.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_POSTGRESQL.replaceAll
-                    ("\\$accessTokenStoreTable", accessTokenStoreTable);
-
-            if (connection.getMetaData().getDriverName().contains("MySQL")
-                || connection.getMetaData().getDriverName().contains("H2")) {
-                sql = mySqlQuery;
-            } else if(connection.getMetaData().getDatabaseProductName().contains("DB2")){
-                sql = db2Query;
-            } else if (connection.getMetaData().getDriverName().contains("MS SQL")) {
-                sql = msSqlQuery;
-            } else if (connection.getMetaData().getDriverName().contains("Microsoft")) {
-                sql = msSqlQuery;
-            } else if (connection.getMetaData().getDriverName().contains("PostgreSQL")) {
-                sql = postgreSqlQuery;
-            } else if (connection.getMetaData().getDriverName().contains("INFORMIX")) {
-                sql = informixQuery;
+            // a missing refresh token has no hash, so it is looked up through the REFRESH_TOKEN column
+            boolean hashedLookup = hashingProcessor != null && refreshToken != null;
+            if (checkLatest) {
+                sql = SQLQueryRegistry.getQuery(connection, hashedLookup ?
+                        SQLQueryRegistry.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA_WITH_HASH :
+                        SQLQueryRegistry.RETRIEVE_REFRESH_TOKEN_VALIDATION_DATA);
             } else {
-                sql = oracleQuery;
+                sql = SQLQueryRegistry.getQuery(connection, hashedLookup ?
+                        SQLQueryRegistry.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA_WITH_HASH :
+                        SQLQueryRegistry.RETRIEVE_ACCESS_TOKEN_VALIDATION_DATA);
             }
 
+            sql = SQLQueryRegistry.getQueryForStoreTable(sql, accessTokenStoreTable);
             if (refreshToken == null) {
                 sql = sql.replace("REFRESH_TOKEN = ?", "REFRESH_TOKEN IS NULL");
             }
@@ -869,7 +1203,7 @@ public class TokenMgtDAO {
 
             prepStmt.setString(1, persistenceProcessor.getProcessedClientId(consumerKey));
             if (refreshToken != null) {
-                prepStmt.setString(2, persistenceProcessor.getProcessedRefreshToken(refreshToken));
+                prepStmt.setString(2, getRefreshTokenLookupValue(refreshToken));
             }
 
             resultSet = prepStmt.executeQuery();
@@ -900,6 +1234,9 @@ public class TokenMgtDAO {
                     user.setTenantDomain(tenantDomain);
                     user.setAuthenticatedSubjectIdentifier(subjectIdentifier);
                     validationDataDO.setAuthorizedUser(user);
+                    if (checkLatest) {
+                        validationDataDO.setLatest(resultSet.getInt(12) == 1);
+                    }
 
                 } else {
                     scopes.add(resultSet.getString(5));
@@ -924,6 +1261,37 @@ public class TokenMgtDAO {
         return validationDataDO;
     }
 
+    /**
+     * @param accessTokenIdentifier access token
+     * @return state of the access token, or null if the token is not in the token store
+     * @throws IdentityOAuth2Exception if the token store could not be read
+     */
+    public String retrieveAccessTokenState(String accessTokenIdentifier) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        try {
+            String userStoreDomain = null;
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                userStoreDomain = partitionRouter.getUserStoreDomainFromAccessToken(accessTokenIdentifier);
+            }
+            String sql = hashingProcessor != null ? SQLQueries.RETRIEVE_ACCESS_TOKEN_STATE_WITH_HASH :
+                    SQLQueries.RETRIEVE_ACCESS_TOKEN_STATE;
+            prepStmt = connection.prepareStatement(SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain));
+            prepStmt.setString(1, getAccessTokenLookupValue(accessTokenIdentifier));
+            resultSet = prepStmt.executeQuery();
+            String tokenState = resultSet.next() ? resultSet.getString(1) : null;
+            connection.commit();
+            return tokenState;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error when retrieving the state of an access token", e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, resultSet, prepStmt);
+        }
+    }
+
     public AccessTokenDO retrieveAccessToken(String accessTokenIdentifier, boolean includeExpired)
             throws IdentityOAuth2Exception {
 
@@ -936,76 +1304,43 @@ public class TokenMgtDAO {
         try {
 
             //select the user store domain when multiple user stores are configured.
-            if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                OAuth2Util.checkUserNameAssertionEnabled()) {
-                userStoreDomain = OAuth2Util.getUserStoreDomainFromAccessToken(accessTokenIdentifier);
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                userStoreDomain = partitionRouter.getUserStoreDomainFromAccessToken(accessTokenIdentifier);
             }
 
             String sql;
 
             if (includeExpired) {
-                sql = SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN;
+                sql = hashingProcessor != null ? SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN_WITH_HASH :
+                        SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKEN;
             } else {
-                sql = SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKEN;
+                sql = hashingProcessor != null ? SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKEN_WITH_HASH :
+                        SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKEN;
             }
 
-            if (StringUtils.isNotBlank(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-                sql = sql.replace(IDN_OAUTH2_ACCESS_TOKEN, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
-            }
+            sql = SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain);
 
             prepStmt = connection.prepareStatement(sql);
 
-            prepStmt.setString(1, persistenceProcessor.getProcessedAccessTokenIdentifier(accessTokenIdentifier));
+            prepStmt.setString(1, getAccessTokenLookupValue(accessTokenIdentifier));
             resultSet = prepStmt.executeQuery();
 
-            int iterateId = 0;
+            // the token columns repeat on every row of the scope join, so they are read only from the first row
             List<String> scopes = new ArrayList<>();
             while (resultSet.next()) {
 
-                if (iterateId == 0) {
-
-                    String consumerKey = persistenceProcessor.getPreprocessedClientId(resultSet.getString(1));
-                    String authorizedUser = resultSet.getString(2);
-                    int tenantId = resultSet.getInt(3);
-                    String tenantDomain = OAuth2Util.getTenantDomain(tenantId);
-                    String userDomain = resultSet.getString(4);
-                    String[] scope = OAuth2Util.buildScopeArray(resultSet.getString(5));
-                    Timestamp issuedTime = resultSet.getTimestamp(6, Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                    Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(7,
-                            Calendar.getInstance(TimeZone.getTimeZone(UTC)));
-                    long validityPeriodInMillis = resultSet.getLong(8);
-                    long refreshTokenValidityPeriodMillis = resultSet.getLong(9);
-                    String tokenType = resultSet.getString(10);
-                    String refreshToken = resultSet.getString(11);
-                    String tokenId = resultSet.getString(12);
-                    String grantType = resultSet.getString(13);
-                    String subjectIdentifier = resultSet.getString(14);
-
-                    AuthenticatedUser user = new AuthenticatedUser();
-                    user.setUserName(authorizedUser);
-                    user.setUserStoreDomain(userDomain);
-                    user.setTenantDomain(tenantDomain);
-                    user.setAuthenticatedSubjectIdentifier(subjectIdentifier);
-
-                    dataDO = new AccessTokenDO(consumerKey, user, scope, issuedTime, refreshTokenIssuedTime,
-                            validityPeriodInMillis, refreshTokenValidityPeriodMillis, tokenType);
-                    dataDO.setAccessToken(accessTokenIdentifier);
-                    dataDO.setRefreshToken(refreshToken);
-                    dataDO.setTokenId(tokenId);
-                    dataDO.setGrantType(grantType);
-                    dataDO.setTenantID(tenantId);
-
-                } else {
-                    scopes.add(resultSet.getString(5));
+                String tokenScope = resultSet.getString(5);
+                if (tokenScope != null) {
+                    scopes.add(tokenScope);
+                }
+                if (dataDO == null) {
+                    dataDO = buildAccessTokenDO(resultSet, accessTokenIdentifier);
                 }
-
-                iterateId++;
             }
 
-            if (scopes.size() > 0 && dataDO != null) {
-                dataDO.setScope((String[]) ArrayUtils.addAll(dataDO.getScope(),
-                        scopes.toArray(new String[scopes.size()])));
+            if (dataDO != null) {
+                dataDO.setScope(scopes.toArray(new String[scopes.size()]));
             }
 
             connection.commit();
@@ -1019,6 +1354,145 @@ public class TokenMgtDAO {
         return dataDO;
     }
 
+    /**
+     * Retrieves several active access tokens with one query per {@link #ACCESS_TOKEN_LOOKUP_BATCH_SIZE} tokens,
+     * instead of one query per token as done by {@link #retrieveAccessToken(String, boolean)}.
+     *
+     * @param accessTokenIdentifiers access tokens
+     * @return access token to token data, of the tokens which are active. Unknown and inactive tokens are absent.
+     * @throws IdentityOAuth2Exception if the tokens could not be read
+     */
+    public Map<String, AccessTokenDO> retrieveActiveAccessTokens(Collection<String> accessTokenIdentifiers)
+            throws IdentityOAuth2Exception {
+
+        Map<String, AccessTokenDO> accessTokens = new HashMap<>();
+        if (accessTokenIdentifiers == null || accessTokenIdentifiers.isEmpty()) {
+            return accessTokens;
+        }
+
+        // tokens of different user stores are kept in different tables when partitioning is enabled.
+        // lookup value to access token, per access token table
+        Map<String, Map<String, String>> lookupValues = new HashMap<>();
+        TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+        for (String accessTokenIdentifier : accessTokenIdentifiers) {
+            String accessTokenStoreTable = IDN_OAUTH2_ACCESS_TOKEN;
+            if (partitionRouter.isEnabled()) {
+                accessTokenStoreTable = TokenPartitionRouter.getAccessTokenStoreTable(getSanitizedUserStoreDomain(
+                        partitionRouter.getUserStoreDomainFromAccessToken(accessTokenIdentifier)));
+            }
+            Map<String, String> tableLookupValues = lookupValues.get(accessTokenStoreTable);
+            if (tableLookupValues == null) {
+                tableLookupValues = new LinkedHashMap<>();
+                lookupValues.put(accessTokenStoreTable, tableLookupValues);
+            }
+            tableLookupValues.put(getAccessTokenLookupValue(accessTokenIdentifier), accessTokenIdentifier);
+        }
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            for (Map.Entry<String, Map<String, String>> entry : lookupValues.entrySet()) {
+                List<String> tableLookupValues = new ArrayList<>(entry.getValue().keySet());
+                for (int i = 0; i < tableLookupValues.size(); i += ACCESS_TOKEN_LOOKUP_BATCH_SIZE) {
+                    retrieveActiveAccessTokens(connection, entry.getKey(), tableLookupValues.subList(i,
+                            Math.min(i + ACCESS_TOKEN_LOOKUP_BATCH_SIZE, tableLookupValues.size())),
+                            entry.getValue(), accessTokens);
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error when retrieving Access Tokens", e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+        return accessTokens;
+    }
+
+    private void retrieveActiveAccessTokens(Connection connection, String accessTokenStoreTable,
+                                            List<String> lookupValues, Map<String, String> accessTokenIdentifiers,
+                                            Map<String, AccessTokenDO> accessTokens)
+            throws SQLException, IdentityOAuth2Exception {
+
+        String sql = SQLQueryRegistry.getQueryWithParameterList(SQLQueryRegistry.getQueryForStoreTable(
+                hashingProcessor != null ? SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS_WITH_HASH :
+                        SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS, accessTokenStoreTable),
+                SQLQueries.ACCESS_TOKENS_PLACEHOLDER, lookupValues.size());
+
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        try {
+            prepStmt = connection.prepareStatement(sql);
+            for (int i = 0; i < lookupValues.size(); i++) {
+                prepStmt.setString(i + 1, lookupValues.get(i));
+            }
+            resultSet = prepStmt.executeQuery();
+
+            // the scope join yields one row per scope, so scopes are collected before being set on each token
+            Map<String, List<String>> scopes = new HashMap<>();
+            while (resultSet.next()) {
+                String accessTokenIdentifier = accessTokenIdentifiers.get(resultSet.getString(15));
+                if (accessTokenIdentifier == null) {
+                    continue;
+                }
+                List<String> tokenScopes = scopes.get(accessTokenIdentifier);
+                if (tokenScopes == null) {
+                    tokenScopes = new ArrayList<>();
+                    scopes.put(accessTokenIdentifier, tokenScopes);
+                    accessTokens.put(accessTokenIdentifier, buildAccessTokenDO(resultSet, accessTokenIdentifier));
+                }
+                String tokenScope = resultSet.getString(5);
+                if (tokenScope != null) {
+                    tokenScopes.add(tokenScope);
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : scopes.entrySet()) {
+                accessTokens.get(entry.getKey()).setScope(entry.getValue().toArray(new String[entry.getValue()
+                        .size()]));
+            }
+        } finally {
+            IdentityDatabaseUtil.closeResultSet(resultSet);
+            IdentityDatabaseUtil.closeStatement(prepStmt);
+        }
+    }
+
+    /**
+     * Builds the token data, without scopes, from a row of {@link SQLQueries#RETRIEVE_ACTIVE_ACCESS_TOKEN} or a
+     * query selecting the same columns.
+     */
+    private AccessTokenDO buildAccessTokenDO(ResultSet resultSet, String accessTokenIdentifier)
+            throws SQLException, IdentityOAuth2Exception {
+
+        String consumerKey = persistenceProcessor.getPreprocessedClientId(resultSet.getString(1));
+        String authorizedUser = resultSet.getString(2);
+        int tenantId = resultSet.getInt(3);
+        String tenantDomain = OAuth2Util.getTenantDomain(tenantId);
+        String userDomain = resultSet.getString(4);
+        Timestamp issuedTime = resultSet.getTimestamp(6, Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        Timestamp refreshTokenIssuedTime = resultSet.getTimestamp(7,
+                Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+        long validityPeriodInMillis = resultSet.getLong(8);
+        long refreshTokenValidityPeriodMillis = resultSet.getLong(9);
+        String tokenType = resultSet.getString(10);
+        String refreshToken = resultSet.getString(11);
+        String tokenId = resultSet.getString(12);
+        String grantType = resultSet.getString(13);
+        String subjectIdentifier = resultSet.getString(14);
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName(authorizedUser);
+        user.setUserStoreDomain(userDomain);
+        user.setTenantDomain(tenantDomain);
+        user.setAuthenticatedSubjectIdentifier(subjectIdentifier);
+
+        AccessTokenDO dataDO = new AccessTokenDO(consumerKey, user, null, issuedTime, refreshTokenIssuedTime,
+                validityPeriodInMillis, refreshTokenValidityPeriodMillis, tokenType);
+        dataDO.setAccessToken(accessTokenIdentifier);
+        dataDO.setRefreshToken(refreshToken);
+        dataDO.setTokenId(tokenId);
+        dataDO.setGrantType(grantType);
+        dataDO.setTenantID(tenantId);
+        return dataDO;
+    }
+
 	/**
 	 *
 	 * @param connection database connection
@@ -1035,10 +1509,7 @@ public class TokenMgtDAO {
 		try {
 
 			String sql = SQLQueries.UPDATE_TOKE_STATE;
-			if (StringUtils.isNotBlank(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-				sql = sql.replace(IDN_OAUTH2_ACCESS_TOKEN, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
-			}
+			sql = SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain);
 			prepStmt = connection.prepareStatement(sql);
 			prepStmt.setString(1, tokenState);
 			prepStmt.setString(2, tokenStateId);
@@ -1061,7 +1532,7 @@ public class TokenMgtDAO {
      */
     public void revokeTokens(String[] tokens) throws IdentityOAuth2Exception {
 
-        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
+        if (TokenPartitionRouter.getInstance().isEnabled()) {
             revokeTokensIndividual(tokens);
         } else {
             revokeTokensBatch(tokens);
@@ -1074,7 +1545,7 @@ public class TokenMgtDAO {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement ps = null;
         try {
-            String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN.replace(IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+            String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.REVOKE_ACCESS_TOKEN, accessTokenStoreTable);
             ps = connection.prepareStatement(sqlQuery);
             for (String token : tokens) {
                 ps.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
@@ -1098,13 +1569,13 @@ public class TokenMgtDAO {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement ps = null;
         try {
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
             for (String token: tokens){
-                if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                        OAuth2Util.checkUserNameAssertionEnabled()) {
-                    accessTokenStoreTable = OAuth2Util.getAccessTokenStoreTableFromAccessToken(token);
+                if (partitionRouter.isEnabled()) {
+                    accessTokenStoreTable = partitionRouter.getAccessTokenStoreTableFromAccessToken(token);
                 }
-                String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN.replace(
-                        IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+                String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.REVOKE_ACCESS_TOKEN,
+                        accessTokenStoreTable);
                 ps = connection.prepareStatement(sqlQuery);
                 ps.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
                 ps.setString(2, UUID.randomUUID().toString());
@@ -1124,6 +1595,166 @@ public class TokenMgtDAO {
         }
     }
 
+    /**
+     * Revokes all ACTIVE and EXPIRED access tokens of a user, irrespective of the number of clients the user has
+     * authorized, with a single UPDATE. In the same transaction, the tokens are locked and read first, to return
+     * what is needed to clear their cache entries. If a token is issued to the user in between, the UPDATE revokes
+     * more tokens than were read; the transaction is then rolled back and run again, so that no revoked token is
+     * missing from the result.
+     *
+     * @param authzUser user whose tokens are revoked
+     * @param userStoreDomain user store domain used for access token table partitioning. Null if partitioning is not
+     *                        enabled
+     * @return the revoked tokens, carrying the consumer key, scope and token id required to clear caches
+     * @throws IdentityOAuth2Exception if the tokens could not be revoked. No token is revoked then.
+     */
+    public Set<AccessTokenDO> revokeAccessTokensOfUser(AuthenticatedUser authzUser, String userStoreDomain)
+            throws IdentityOAuth2Exception {
+
+        boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(authzUser.toString());
+        String userName = isUsernameCaseSensitive ? authzUser.getUserName() : authzUser.getUserName().toLowerCase();
+        String userDomain = getSanitizedUserStoreDomain(authzUser.getUserStoreDomain());
+        int tenantId = OAuth2Util.getTenantId(authzUser.getTenantDomain());
+
+        userStoreDomain = getSanitizedUserStoreDomain(userStoreDomain);
+        String accessTokenStoreTable = TokenPartitionRouter.getAccessTokenStoreTable(userStoreDomain);
+        String selectSql = SQLQueryRegistry.getQueryForStoreTable(
+                SQLQueries.RETRIEVE_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER, accessTokenStoreTable);
+        String revokeSql = SQLQueryRegistry.getQueryForStoreTable(
+                SQLQueries.REVOKE_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER, accessTokenStoreTable);
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            String lockSql = SQLQueryRegistry.getQueryForStoreTable(SQLQueryRegistry.getQuery(connection,
+                    SQLQueryRegistry.LOCK_ACTIVE_EXPIRED_ACCESS_TOKENS_BY_USER), accessTokenStoreTable);
+            if (!isUsernameCaseSensitive) {
+                lockSql = lockSql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
+                selectSql = selectSql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
+                revokeSql = revokeSql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
+            }
+
+            connection.setAutoCommit(false);
+            for (int attempt = 1; ; attempt++) {
+                Set<String> tokenIds = lockAccessTokensOfUser(connection, lockSql, userName, tenantId, userDomain);
+                Map<String, AccessTokenDO> revokedTokens = new HashMap<>();
+                int revokedCount = 0;
+                if (!tokenIds.isEmpty()) {
+                    retrieveAccessTokensOfUser(connection, selectSql, authzUser, userName, tenantId, userDomain,
+                            tokenIds, revokedTokens);
+                    revokedCount = revokeAccessTokensOfUser(connection, revokeSql, userName, tenantId, userDomain);
+                }
+
+                if (revokedCount == tokenIds.size()) {
+                    connection.commit();
+                    if (log.isDebugEnabled()) {
+                        log.debug("Revoked " + revokedCount + " access tokens of user : " + authzUser);
+                    }
+                    return new HashSet<>(revokedTokens.values());
+                }
+
+                connection.rollback();
+                if (attempt == TOKEN_REVOCATION_ATTEMPTS) {
+                    throw new IdentityOAuth2Exception("Access tokens kept being issued to user : " + authzUser +
+                            " while revoking them");
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Access tokens were issued to user : " + authzUser + " while revoking them. Retrying");
+                }
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw new IdentityOAuth2Exception("Error occurred while revoking access tokens of user : " + authzUser, e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, null);
+        }
+    }
+
+    /**
+     * Locks the ACTIVE and EXPIRED access tokens of a user until the ongoing transaction ends.
+     *
+     * @return ids of the locked tokens
+     */
+    private static Set<String> lockAccessTokensOfUser(Connection connection, String sql, String userName,
+                                                      int tenantId, String userDomain) throws SQLException {
+
+        Set<String> tokenIds = new HashSet<>();
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        try {
+            prepStmt = connection.prepareStatement(sql);
+            prepStmt.setString(1, userName);
+            prepStmt.setInt(2, tenantId);
+            prepStmt.setString(3, userDomain);
+            resultSet = prepStmt.executeQuery();
+            while (resultSet.next()) {
+                tokenIds.add(resultSet.getString(1));
+            }
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(null, resultSet, prepStmt);
+        }
+        return tokenIds;
+    }
+
+    /**
+     * Reads the consumer key, scopes and access token of the given tokens of a user into
+     * <code>accessTokens</code>, keyed by token id.
+     */
+    private void retrieveAccessTokensOfUser(Connection connection, String sql, AuthenticatedUser authzUser,
+                                            String userName, int tenantId, String userDomain, Set<String> tokenIds,
+                                            Map<String, AccessTokenDO> accessTokens)
+            throws SQLException, IdentityOAuth2Exception {
+
+        PreparedStatement prepStmt = null;
+        ResultSet resultSet = null;
+        try {
+            prepStmt = connection.prepareStatement(sql);
+            prepStmt.setString(1, userName);
+            prepStmt.setInt(2, tenantId);
+            prepStmt.setString(3, userDomain);
+            resultSet = prepStmt.executeQuery();
+            while (resultSet.next()) {
+                String tokenId = resultSet.getString(4);
+                if (!tokenIds.contains(tokenId)) {
+                    // issued after the tokens were locked, the revocation is retried
+                    continue;
+                }
+                String scope = resultSet.getString(3);
+                AccessTokenDO accessTokenDO = accessTokens.get(tokenId);
+                if (accessTokenDO == null) {
+                    accessTokenDO = new AccessTokenDO(persistenceProcessor.getPreprocessedClientId(
+                            resultSet.getString(2)), authzUser, OAuth2Util.buildScopeArray(scope), null, null, 0, 0,
+                            null);
+                    accessTokenDO.setAccessToken(persistenceProcessor.getPreprocessedAccessTokenIdentifier(
+                            resultSet.getString(1)));
+                    accessTokenDO.setTokenId(tokenId);
+                    accessTokens.put(tokenId, accessTokenDO);
+                } else if (scope != null) {
+                    accessTokenDO.setScope((String[]) ArrayUtils.add(accessTokenDO.getScope(), scope.trim()));
+                }
+            }
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(null, resultSet, prepStmt);
+        }
+    }
+
+    /**
+     * @return number of access tokens revoked
+     */
+    private static int revokeAccessTokensOfUser(Connection connection, String sql, String userName, int tenantId,
+                                                String userDomain) throws SQLException {
+
+        PreparedStatement prepStmt = null;
+        try {
+            prepStmt = connection.prepareStatement(sql);
+            prepStmt.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
+            prepStmt.setString(2, userName);
+            prepStmt.setInt(3, tenantId);
+            prepStmt.setString(4, userDomain);
+            return prepStmt.executeUpdate();
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(null, null, prepStmt);
+        }
+    }
 
     /**
      * Ths method is to revoke specific tokens
@@ -1137,12 +1768,12 @@ public class TokenMgtDAO {
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement ps = null;
         try {
-            if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                OAuth2Util.checkUserNameAssertionEnabled()) {
-                accessTokenStoreTable = OAuth2Util.getAccessTokenStoreTableFromUserId(userId);
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                accessTokenStoreTable = partitionRouter.getAccessTokenStoreTableFromUserId(userId);
             }
-            String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN_BY_TOKEN_ID.replace(
-                    IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+            String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.REVOKE_ACCESS_TOKEN_BY_TOKEN_ID,
+                    accessTokenStoreTable);
             ps = connection.prepareStatement(sqlQuery);
             ps.setString(1, OAuthConstants.TokenStates.TOKEN_STATE_REVOKED);
             ps.setString(2, UUID.randomUUID().toString());
@@ -1174,12 +1805,13 @@ public class TokenMgtDAO {
         Set<String> accessTokens = new HashSet<>();
         boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(authenticatedUser.toString());
         try {
-            if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                    OAuth2Util.checkUserNameAssertionEnabled()) {
-                accessTokenStoreTable = OAuth2Util.getAccessTokenStoreTableFromUserId(authenticatedUser.toString());
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                accessTokenStoreTable = partitionRouter.getAccessTokenStoreTableFromUserId(
+                        authenticatedUser.toString());
             }
-            String sqlQuery = SQLQueries.GET_ACCESS_TOKEN_BY_AUTHZUSER.replace(
-                    IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+            String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.GET_ACCESS_TOKEN_BY_AUTHZUSER,
+                    accessTokenStoreTable);
             if (!isUsernameCaseSensitive){
                 sqlQuery = sqlQuery.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
             }
@@ -1347,12 +1979,12 @@ public class TokenMgtDAO {
 
         try {
             int tenantId = OAuth2Util.getTenantId(tenantDomain);
-            if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                    OAuth2Util.checkUserNameAssertionEnabled()) {
-                accessTokenStoreTable = OAuth2Util.getAccessTokenStoreTableFromUserId(authzUser.toString());
+            TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+            if (partitionRouter.isEnabled()) {
+                accessTokenStoreTable = partitionRouter.getAccessTokenStoreTableFromUserId(authzUser.toString());
             }
-            String sqlQuery = SQLQueries.GET_DISTINCT_APPS_AUTHORIZED_BY_USER_ALL_TIME.replace(
-                    IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+            String sqlQuery = SQLQueryRegistry.getQueryForTable(
+                    SQLQueries.GET_DISTINCT_APPS_AUTHORIZED_BY_USER_ALL_TIME, accessTokenStoreTable);
             if (!isUsernameCaseSensitive) {
                 sqlQuery = sqlQuery.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
             }
@@ -1441,6 +2073,7 @@ public class TokenMgtDAO {
 
 			// commit both transactions
 			connection.commit();
+            InvalidTokenCache.getInstance().clearInvalidToken(newAccessToken);
 		} catch (SQLException e) {
 			String errorMsg = "Error while regenerating access token";
 			throw new IdentityOAuth2Exception(errorMsg, e);
@@ -2005,6 +2638,63 @@ public class TokenMgtDAO {
         }
     }
 
+    /**
+     * @return resource path to scope key of all resources protected with a scope
+     * @throws IdentityOAuth2Exception
+     */
+    public Map<String, String> getAllResourceScopes() throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, String> resourceScopes = new HashMap<>();
+
+        try {
+            ps = connection.prepareStatement(SQLQueries.RETRIEVE_ALL_RESOURCE_SCOPES);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                resourceScopes.put(rs.getString(1), rs.getString(2));
+            }
+            connection.commit();
+            return resourceScopes;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error getting the scopes of resources : " + e.getMessage(), e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, rs, ps);
+        }
+    }
+
+    /**
+     * @return scope key to roles of all scopes. Scopes without roles are mapped to an empty set
+     * @throws IdentityOAuth2Exception
+     */
+    public Map<String, Set<String>> getAllScopeRoles() throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<String, Set<String>> scopeRoles = new HashMap<>();
+
+        try {
+            ps = connection.prepareStatement(SQLQueries.RETRIEVE_ALL_SCOPE_ROLES);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                String rolesString = rs.getString(2);
+                Set<String> roles = new HashSet<>();
+                if (StringUtils.isNotEmpty(rolesString)) {
+                    roles.addAll(Arrays.asList(rolesString.replaceAll(" ", "").split(",")));
+                }
+                scopeRoles.put(rs.getString(1), roles);
+            }
+            connection.commit();
+            return scopeRoles;
+        } catch (SQLException e) {
+            throw new IdentityOAuth2Exception("Error getting the roles of scopes : " + e.getMessage(), e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, rs, ps);
+        }
+    }
+
     public void updateAppAndRevokeTokensAndAuthzCodes(String consumerKey, Properties properties,
                                                       String[] authorizationCodes, String[] accessTokens)
             throws IdentityOAuth2Exception, IdentityApplicationManagementException {
@@ -2059,14 +2749,12 @@ public class TokenMgtDAO {
             //Revoke all active access tokens
             if (ArrayUtils.isNotEmpty(accessTokens)) {
                 String accessTokenStoreTable = OAuthConstants.ACCESS_TOKEN_STORE_TABLE;
-                if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
+                TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+                if (partitionRouter.isEnabled()) {
                     for (String token : accessTokens) {
-                        if (OAuth2Util.checkAccessTokenPartitioningEnabled() &&
-                                OAuth2Util.checkUserNameAssertionEnabled()) {
-                            accessTokenStoreTable = OAuth2Util.getAccessTokenStoreTableFromAccessToken(token);
-                        }
-                        String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN.replace(
-                                IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+                        accessTokenStoreTable = partitionRouter.getAccessTokenStoreTableFromAccessToken(token);
+                        String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.REVOKE_ACCESS_TOKEN,
+                                accessTokenStoreTable);
 
                         connection.setAutoCommit(false);
                         statement = connection.prepareStatement(sqlQuery);
@@ -2081,7 +2769,8 @@ public class TokenMgtDAO {
                     }
                 } else {
 
-                    String sqlQuery = SQLQueries.REVOKE_ACCESS_TOKEN.replace(IDN_OAUTH2_ACCESS_TOKEN, accessTokenStoreTable);
+                    String sqlQuery = SQLQueryRegistry.getQueryForTable(SQLQueries.REVOKE_ACCESS_TOKEN,
+                            accessTokenStoreTable);
                     connection.setAutoCommit(false);
                     statement = connection.prepareStatement(sqlQuery);
                     for (String token : accessTokens) {
@@ -2098,9 +2787,8 @@ public class TokenMgtDAO {
             //Deactivate all active authorization codes
             if (ArrayUtils.isNotEmpty(authorizationCodes)) {
                 for (String authzCode : authorizationCodes) {
-                    if (maxPoolSize > 0) {
-                        authContextTokenQueue.push(new AuthContextTokenDO(authzCode));
-                    } else {
+                    if (maxPoolSize <= 0 || !enqueue(authContextTokenQueue, new AuthContextTokenDO(authzCode),
+                            authContextTokenQueueMetrics)) {
                         String authCodeStoreTable = OAuthConstants.AUTHORIZATION_CODE_STORE_TABLE;
 
                         String sqlQuery = SQLQueries.UPDATE_AUTHORIZATION_CODE_STATE.replace(IDN_OAUTH2_AUTHORIZATION_CODE,
@@ -2210,50 +2898,12 @@ public class TokenMgtDAO {
 
             String sql;
             if(active) {
-                if (connection.getMetaData().getDriverName().contains("MySQL")
-                        || connection.getMetaData().getDriverName().contains("H2")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL;
-                } else if (connection.getMetaData().getDatabaseProductName().contains("DB2")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL;
-                } else if (connection.getMetaData().getDriverName().contains("MS SQL")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-                } else if (connection.getMetaData().getDriverName().contains("Microsoft")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-                } else if (connection.getMetaData().getDriverName().contains("PostgreSQL")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL;
-                } else if (connection.getMetaData().getDriverName().contains("Informix")) {
-                    // Driver name = "IBM Informix JDBC Driver for IBM Informix Dynamic Server"
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX;
-
-                } else {
-                    sql = SQLQueries.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE;
-                }
+                sql = SQLQueryRegistry.getQuery(connection, SQLQueryRegistry.RETRIEVE_LATEST_ACTIVE_ACCESS_TOKEN);
             } else {
-                if (connection.getMetaData().getDriverName().contains("MySQL")
-                        || connection.getMetaData().getDriverName().contains("H2")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MYSQL;
-                } else if (connection.getMetaData().getDatabaseProductName().contains("DB2")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_DB2SQL;
-                } else if (connection.getMetaData().getDriverName().contains("MS SQL")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-                } else if (connection.getMetaData().getDriverName().contains("Microsoft")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_MSSQL;
-                } else if (connection.getMetaData().getDriverName().contains("PostgreSQL")) {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_POSTGRESQL;
-                } else if (connection.getMetaData().getDriverName().contains("Informix")) {
-                    // Driver name = "IBM Informix JDBC Driver for IBM Informix Dynamic Server"
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_INFORMIX;
-
-                } else {
-                    sql = SQLQueries.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN_BY_CLIENT_ID_USER_SCOPE_ORACLE;
-                }
+                sql = SQLQueryRegistry.getQuery(connection, SQLQueryRegistry.RETRIEVE_LATEST_NON_ACTIVE_ACCESS_TOKEN);
             }
 
-            if (StringUtils.isNotEmpty(userStoreDomain) &&
-                    !IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
-                //logic to store access token into different tables when multiple user stores are configured.
-                sql = sql.replace(IDN_OAUTH2_ACCESS_TOKEN, IDN_OAUTH2_ACCESS_TOKEN + "_" + userStoreDomain);
-            }
+            sql = SQLQueryRegistry.getPartitionedQuery(sql, userStoreDomain);
             if (!isUsernameCaseSensitive){
                 sql = sql.replace(AUTHZ_USER, LOWER_AUTHZ_USER);
             }
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Routes access tokens to the user store partitions of the access token table. The
+ * <code>AccessTokenPartitioningDomains</code> configuration, e.g. <code>A:foo.com, B:bar.com</code>, is parsed once
+ * into a domain to partition map and the table name of each partition is built once, so resolving the table of a
+ * token costs a Base64 decode and map lookups. A domain which is not mapped names the partition table itself, and is
+ * rejected unless it consists of letters, digits and underscores only, since it is read from the token presented.
+ * <p/>
+ * Tokens carry the user they are issued to only if user name assertion is enabled, see {@link #isEnabled()}.
+ */
+public class TokenPartitionRouter {
+
+    private static final char USER_ID_SEPARATOR = ':';
+    private static final char MAPPING_SEPARATOR = ':';
+    private static final char DOMAIN_SEPARATOR = '/';
+
+    // user store domains which are not mapped name the partition table themselves, so they must be valid in it
+    private static final Pattern PARTITION_DOMAIN_PATTERN = Pattern.compile("[A-Za-z0-9_]+");
+
+    private static volatile TokenPartitionRouter instance;
+
+    private final boolean partitioningEnabled;
+    private final boolean enabled;
+    // key=domain & value=mapping. Case insensitive since the case of the user name is ignored at login
+    private final Map<String, String> domainMappings;
+    // key=domain & value=partition table of the mapping
+    private final Map<String, String> domainTables;
+    private final Set<String> partitionTables;
+
+    TokenPartitionRouter(boolean partitioningEnabled, boolean userNameAssertionEnabled, String partitioningDomains)
+            throws IdentityOAuth2Exception {
+
+        this.partitioningEnabled = partitioningEnabled;
+        this.enabled = partitioningEnabled && userNameAssertionEnabled;
+
+        Map<String, String> mappings = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        Map<String, String> tables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (partitioningDomains != null) {
+            for (String domainMapping : StringUtils.split(partitioningDomains, ',')) {
+                int separator = domainMapping.indexOf(MAPPING_SEPARATOR);
+                String domain = separator < 0 ? null : domainMapping.substring(separator + 1).trim();
+                if (StringUtils.isEmpty(domain)) {
+                    throw new IdentityOAuth2Exception("Domain mapping has not defined correctly");
+                }
+                String mapping = domainMapping.substring(0, separator).trim();
+                mappings.put(domain, mapping);
+                tables.put(domain, OAuthConstants.ACCESS_TOKEN_STORE_TABLE + "_" + mapping);
+            }
+        }
+        this.domainMappings = Collections.unmodifiableMap(mappings);
+        this.domainTables = tables;
+        this.partitionTables = Collections.unmodifiableSet(new HashSet<>(tables.values()));
+    }
+
+    /**
+     * @return router built from the OAuth server configuration
+     * @throws IdentityOAuth2Exception if the partitioning domains are not configured correctly
+     */
+    public static TokenPartitionRouter getInstance() throws IdentityOAuth2Exception {
+
+        if (instance == null) {
+            synchronized (TokenPartitionRouter.class) {
+                if (instance == null) {
+                    OAuthServerConfiguration config = OAuthServerConfiguration.getInstance();
+                    instance = new TokenPartitionRouter(config.isAccessTokenPartitioningEnabled(),
+                            config.isUserNameAssertionEnabled(), config.getAccessTokenPartitioningDomains());
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isPartitioningEnabled() {
+        return partitioningEnabled;
+    }
+
+    /**
+     * @return true if tokens are routed to partitions by the user they carry, that is if both access token
+     * partitioning and user name assertion are enabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return domain to partition mappings, keyed case insensitively
+     */
+    public Map<String, String> getDomainMappings() {
+        return domainMappings;
+    }
+
+    /**
+     * @return access token partition tables of the configured domain mappings
+     */
+    public Set<String> getPartitionTables() {
+        return partitionTables;
+    }
+
+    /**
+     * @param accessToken Base64 encoded token carrying the user id, as issued with user name assertion enabled
+     * @return user id carried by the token, i.e. 'foo.com/admin' or 'admin'. Null if the token carries none
+     */
+    public static String getUserIdFromAccessToken(String accessToken) {
+
+        String decodedToken = new String(Base64.decodeBase64(accessToken.getBytes(Charsets.UTF_8)), Charsets.UTF_8);
+        int start = decodedToken.indexOf(USER_ID_SEPARATOR);
+        if (start < 0) {
+            return null;
+        }
+        int end = decodedToken.indexOf(USER_ID_SEPARATOR, start + 1);
+        return decodedToken.substring(start + 1, end < 0 ? decodedToken.length() : end);
+    }
+
+    /**
+     * @param userId user id, i.e. 'foo.com/admin' or 'admin'
+     * @return partition mapped to the domain of the user, the domain itself if it is not mapped, or null if the user
+     * id has no domain
+     * @throws IdentityOAuth2Exception if the domain is not mapped and cannot name a partition table
+     */
+    public String getUserStoreDomainFromUserId(String userId) throws IdentityOAuth2Exception {
+
+        String domain = getDomain(userId);
+        if (domain == null) {
+            return null;
+        }
+        String mapping = domainMappings.get(domain);
+        if (mapping != null) {
+            return mapping;
+        }
+        if (!PARTITION_DOMAIN_PATTERN.matcher(domain).matches()) {
+            throw new IdentityOAuth2Exception("Invalid user store domain : " + domain);
+        }
+        return domain;
+    }
+
+    public String getUserStoreDomainFromAccessToken(String accessToken) throws IdentityOAuth2Exception {
+        return getUserStoreDomainFromUserId(getUserIdFromAccessToken(accessToken));
+    }
+
+    /**
+     * @param userId user id, i.e. 'foo.com/admin' or 'admin'
+     * @return partition table of the domain of the user, or the access token table if the domain is not mapped
+     */
+    public String getAccessTokenStoreTableFromUserId(String userId) {
+
+        String domain = getDomain(userId);
+        String table = domain != null ? domainTables.get(domain) : null;
+        return table != null ? table : OAuthConstants.ACCESS_TOKEN_STORE_TABLE;
+    }
+
+    public String getAccessTokenStoreTableFromAccessToken(String accessToken) {
+        return getAccessTokenStoreTableFromUserId(getUserIdFromAccessToken(accessToken));
+    }
+
+    /**
+     * @param userStoreDomain user store domain, mapped to a partition or not
+     * @return access token table holding the tokens of the users of the domain while partitioning is enabled
+     * @throws IdentityOAuth2Exception if the domain is not mapped and cannot name a partition table
+     */
+    public String getAccessTokenStoreTableOfDomain(String userStoreDomain) throws IdentityOAuth2Exception {
+
+        String mapping = domainMappings.get(userStoreDomain);
+        if (mapping == null && !PARTITION_DOMAIN_PATTERN.matcher(userStoreDomain).matches()) {
+            throw new IdentityOAuth2Exception("Invalid user store domain : " + userStoreDomain);
+        }
+        return getAccessTokenStoreTable((mapping != null ? mapping : userStoreDomain).toUpperCase());
+    }
+
+    /**
+     * @param userStoreDomain user store domain, as sanitized by the DAO
+     * @return partition table of the user store domain, or the access token table for the primary user store
+     */
+    public static String getAccessTokenStoreTable(String userStoreDomain) {
+
+        if (StringUtils.isBlank(userStoreDomain) ||
+                IdentityUtil.getPrimaryDomainName().equalsIgnoreCase(userStoreDomain)) {
+            return OAuthConstants.ACCESS_TOKEN_STORE_TABLE;
+        }
+        return OAuthConstants.ACCESS_TOKEN_STORE_TABLE + "_" + userStoreDomain;
+    }
+
+    private static String getDomain(String userId) {
+
+        if (userId == null) {
+            return null;
+        }
+        int separator = userId.indexOf(DOMAIN_SEPARATOR);
+        if (separator < 0 || separator == userId.length() - 1) {
+            return null;
+        }
+        return userId.substring(0, separator);
+    }
+}
@@ -21,18 +21,30 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.base.IdentityException;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.BlockingDeque;
 
 /**
- *
+ * Consumer of the access token persistence queue. Each run of the loop waits for one entry, drains up to the
+ * configured batch size of further entries and writes them in a single transaction.
  */
 public class TokenPersistenceTask implements Runnable {
 
     private static Log log = LogFactory.getLog(TokenPersistenceTask.class);
     private BlockingDeque<AccessContextTokenDO> accessContextTokenQueue;
+    private int batchSize;
+    private PersistenceQueueMetrics metrics;
 
     public TokenPersistenceTask(BlockingDeque<AccessContextTokenDO> accessContextTokenQueue) {
+        this(accessContextTokenQueue, 1, new PersistenceQueueMetrics(accessContextTokenQueue));
+    }
+
+    public TokenPersistenceTask(BlockingDeque<AccessContextTokenDO> accessContextTokenQueue, int batchSize,
+                                PersistenceQueueMetrics metrics) {
         this.accessContextTokenQueue = accessContextTokenQueue;
+        this.batchSize = Math.max(1, batchSize);
+        this.metrics = metrics;
     }
 
     @Override
@@ -40,25 +52,64 @@ public class TokenPersistenceTask implements Runnable {
 
         log.debug("Access Token context persist consumer is started");
 
+        List<AccessContextTokenDO> batch = new ArrayList<>(batchSize);
         while (true) {
-            AccessContextTokenDO accessContextTokenDO = null;
-            String accessToken = null;
             try {
-                accessContextTokenDO =  accessContextTokenQueue.take();
-                if (accessContextTokenDO != null) {
-                    accessToken = accessContextTokenDO.getAccessToken();
-                    log.debug("Access Token Data persisting Task is started to run");
-                    TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-                    tokenMgtDAO.persistAccessToken(accessToken, accessContextTokenDO.getConsumerKey(),
-                                                   accessContextTokenDO.getNewAccessTokenDO(),
-                                                   accessContextTokenDO.getExistingAccessTokenDO(),
-                                                   accessContextTokenDO.getUserStoreDomain());
+                batch.clear();
+                batch.add(accessContextTokenQueue.take());
+                if (batchSize > 1) {
+                    accessContextTokenQueue.drainTo(batch, batchSize - 1);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Access Token Data persisting Task is started to run for " + batch.size() +
+                            " token(s)");
                 }
+                persist(batch);
             } catch (InterruptedException e) {
                 log.error("Error occurred while getting AccessContextTokenDO instance from accessContextTokenQueue" , e);
-            }catch (IdentityException e){
+            }
+        }
+    }
+
+    private void persist(List<AccessContextTokenDO> batch) {
+
+        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
+        long oldestEnqueuedTime = batch.get(0).getEnqueuedTime();
+        for (AccessContextTokenDO accessContextTokenDO : batch) {
+            oldestEnqueuedTime = Math.min(oldestEnqueuedTime, accessContextTokenDO.getEnqueuedTime());
+        }
+
+        if (batch.size() > 1) {
+            try {
+                tokenMgtDAO.persistAccessTokens(batch);
+                metrics.recordPersisted(batch.size(), oldestEnqueuedTime);
+                return;
+            } catch (IdentityException e) {
+                log.warn("Error occurred while persisting a batch of " + batch.size() + " access tokens. Retrying " +
+                        "each token individually.", e);
+            }
+        }
+
+        // Persist one by one so that a single bad entry does not discard the rest of the batch.
+        int persisted = 0;
+        for (AccessContextTokenDO accessContextTokenDO : batch) {
+            String accessToken = accessContextTokenDO.getAccessToken();
+            try {
+                if (tokenMgtDAO.persistAccessToken(accessToken, accessContextTokenDO.getConsumerKey(),
+                                                   accessContextTokenDO.getNewAccessTokenDO(),
+                                                   accessContextTokenDO.getExistingAccessTokenDO(),
+                                                   accessContextTokenDO.getUserStoreDomain())) {
+                    persisted++;
+                } else {
+                    metrics.recordFailed(1);
+                }
+            } catch (IdentityException e) {
+                metrics.recordFailed(1);
                 log.error("Error occurred while persisting access token :" + accessToken, e);
             }
         }
+        if (persisted > 0) {
+            metrics.recordPersisted(persisted, oldestEnqueuedTime);
+        }
     }
 }
@@ -29,13 +29,16 @@ import org.wso2.carbon.identity.application.mgt.listener.ApplicationMgtListener;
 import org.wso2.carbon.identity.base.IdentityRuntimeException;
 import org.wso2.carbon.identity.core.util.IdentityCoreInitializedEvent;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth.config.OAuthHandlerRegistryReloader;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth2.OAuth2Service;
 import org.wso2.carbon.identity.oauth2.OAuth2TokenValidationService;
-import org.wso2.carbon.identity.oauth2.dao.SQLQueries;
+import org.wso2.carbon.identity.oauth2.dao.SQLQueryRegistry;
 import org.wso2.carbon.identity.oauth2.listener.TenantCreationEventListener;
+import org.wso2.carbon.identity.oauth2.token.cleanup.TokenCleanupScheduler;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.user.store.configuration.listener.UserStoreConfigListener;
+import org.wso2.carbon.idp.mgt.listener.IdentityProviderMgtListener;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.stratos.common.listeners.TenantMgtListener;
 
@@ -82,6 +85,9 @@ public class OAuth2ServiceComponent {
         }
         // exposing server configuration as a service 
         OAuthServerConfiguration oauthServerConfig = OAuthServerConfiguration.getInstance();
+        // initialized eagerly so that a misconfigured lock manager fails the activation, not the first token request
+        oauthServerConfig.getTokenIssuanceLockManager();
+        new OAuthHandlerRegistryReloader(oauthServerConfig).registerMBean();
         bundleContext.registerService(OAuthServerConfiguration.class.getName(), oauthServerConfig, null);
         OAuth2TokenValidationService tokenValidationService = new OAuth2TokenValidationService();
         bundleContext.registerService(OAuth2TokenValidationService.class.getName(), tokenValidationService, null);
@@ -118,6 +124,16 @@ public class OAuth2ServiceComponent {
         } else {
             log.error("OAuth - ApplicationMgtListener could not be registered.");
         }
+
+        ServiceRegistration idpMgtListenerSR = bundleContext.registerService(
+                IdentityProviderMgtListener.class.getName(), new OAuthIdentityProviderMgtListener(), null);
+        if (idpMgtListenerSR != null) {
+            if (log.isDebugEnabled()) {
+                log.debug("OAuth - IdentityProviderMgtListener registered.");
+            }
+        } else {
+            log.error("OAuth - IdentityProviderMgtListener could not be registered.");
+        }
         if(checkPKCESupport()) {
             OAuth2ServiceComponentHolder.setPkceEnabled(true);
             log.info("PKCE Support enabled.");
@@ -125,6 +141,15 @@ public class OAuth2ServiceComponent {
             OAuth2ServiceComponentHolder.setPkceEnabled(false);
             log.info("PKCE Support is disabled.");
         }
+
+        TokenCleanupScheduler.getInstance().start();
+    }
+
+    protected void deactivate(ComponentContext context) {
+        TokenCleanupScheduler.getInstance().stop();
+        if (log.isDebugEnabled()) {
+            log.debug("Identity OAuth bundle is deactivated");
+        }
     }
 
     /**
@@ -172,23 +197,8 @@ public class OAuth2ServiceComponent {
 
         if(connection != null) {
             try {
-                String sql;
-                if (connection.getMetaData().getDriverName().contains("MySQL")
-                        || connection.getMetaData().getDriverName().contains("H2")) {
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_MYSQL;
-                } else if (connection.getMetaData().getDatabaseProductName().contains("DB2")) {
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_DB2SQL;
-                } else if (connection.getMetaData().getDriverName().contains("MS SQL") ||
-                        connection.getMetaData().getDriverName().contains("Microsoft")) {
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_MSSQL;
-                } else if (connection.getMetaData().getDriverName().contains("PostgreSQL")) {
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_MYSQL;
-                } else if (connection.getMetaData().getDriverName().contains("Informix")){
-                    // Driver name = "IBM Informix JDBC Driver for IBM Informix Dynamic Server"
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_INFORMIX;
-                } else {
-                    sql = SQLQueries.RETRIEVE_PKCE_TABLE_ORACLE;
-                }
+                // resolves the dialect of the identity database for the DAOs as well
+                String sql = SQLQueryRegistry.getQuery(connection, SQLQueryRegistry.RETRIEVE_PKCE_TABLE);
                 PreparedStatement preparedStatement = connection.prepareStatement(sql);
                 ResultSet resultSet = preparedStatement.executeQuery();
                 if(resultSet != null) {
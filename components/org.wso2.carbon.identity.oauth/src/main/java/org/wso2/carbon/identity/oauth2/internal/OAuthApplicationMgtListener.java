@@ -39,6 +39,7 @@ import org.wso2.carbon.identity.oauth.dao.OAuthAppDAO;
 import org.wso2.carbon.identity.oauth.dao.OAuthConsumerDAO;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
+import org.wso2.carbon.identity.openidconnect.ServiceProviderProfileCache;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -73,6 +74,7 @@ public class OAuthApplicationMgtListener extends AbstractApplicationMgtListener
 
     public boolean doPostCreateApplication(ServiceProvider serviceProvider, String tenantDomain, String userName) throws IdentityApplicationManagementException {
         addClientSecret(serviceProvider);
+        removeServiceProviderProfiles(serviceProvider, tenantDomain);
         return true;
     }
 
@@ -80,6 +82,7 @@ public class OAuthApplicationMgtListener extends AbstractApplicationMgtListener
 
         addClientSecret(serviceProvider);
         updateAuthApplication(serviceProvider);
+        removeServiceProviderProfiles(serviceProvider, tenantDomain);
         if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
             removeEntriesFromCache(serviceProvider, tenantDomain, userName);
         }
@@ -96,6 +99,7 @@ public class OAuthApplicationMgtListener extends AbstractApplicationMgtListener
     public boolean doPreDeleteApplication(String applicationName, String tenantDomain, String userName) throws IdentityApplicationManagementException {
         ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
         ServiceProvider serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(applicationName, tenantDomain);
+        removeServiceProviderProfiles(serviceProvider, tenantDomain);
         if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
             removeEntriesFromCache(serviceProvider, tenantDomain, userName);
         }
@@ -210,6 +214,28 @@ public class OAuthApplicationMgtListener extends AbstractApplicationMgtListener
                 authenticationRequestConfigConfig.getInboundAuthKey());
     }
 
+    /**
+     * Remove the cached service provider profiles of the OAuth clients of the service provider.
+     *
+     * @param serviceProvider Service provider
+     * @param tenantDomain    Tenant domain of the service provider
+     */
+    private void removeServiceProviderProfiles(ServiceProvider serviceProvider, String tenantDomain) {
+
+        if (serviceProvider == null || serviceProvider.getInboundAuthenticationConfig() == null ||
+                serviceProvider.getInboundAuthenticationConfig().getInboundAuthenticationRequestConfigs() == null) {
+            return;
+        }
+        for (InboundAuthenticationRequestConfig inboundRequestConfig : serviceProvider
+                .getInboundAuthenticationConfig().getInboundAuthenticationRequestConfigs()) {
+            if (StringUtils.equals(OAUTH2, inboundRequestConfig.getInboundAuthType()) || StringUtils
+                    .equals(inboundRequestConfig.getInboundAuthType(), OAUTH)) {
+                ServiceProviderProfileCache.getInstance().clearProfile(inboundRequestConfig.getInboundAuthKey(),
+                        tenantDomain);
+            }
+        }
+    }
+
     private void removeEntriesFromCache(ServiceProvider serviceProvider, String tenantDomain, String userName)
             throws IdentityApplicationManagementException {
         TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
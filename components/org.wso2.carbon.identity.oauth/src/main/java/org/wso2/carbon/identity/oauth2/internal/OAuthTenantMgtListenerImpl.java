@@ -25,6 +25,7 @@ import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.AuthzCodeDO;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry;
 import org.wso2.carbon.stratos.common.exception.StratosException;
 
 import java.util.ArrayList;
@@ -37,6 +38,7 @@ public class OAuthTenantMgtListenerImpl extends AbstractIdentityTenantMgtListene
 
     @Override
     public void onPreDelete(int tenantId) throws StratosException {
+        SigningKeyRegistry.getInstance().invalidate(tenantId);
         TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
         try {
             Set<AccessTokenDO> accessTokenDOs = tokenMgtDAO.getAccessTokensOfTenant(tenantId);
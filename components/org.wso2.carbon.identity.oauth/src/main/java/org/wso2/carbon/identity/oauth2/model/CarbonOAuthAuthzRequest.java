@@ -45,10 +45,10 @@ public class CarbonOAuthAuthzRequest extends OAuthAuthzRequest {
             throw OAuthUtils.handleOAuthProblemException("Missing response_type parameter value");
         }
 
-        Class<? extends OAuthValidator<HttpServletRequest>> clazz = OAuthServerConfiguration
-                .getInstance().getSupportedResponseTypeValidators().get(responseTypeValue);
+        OAuthValidator<HttpServletRequest> validator = OAuthServerConfiguration.getInstance()
+                .getResponseTypeValidator(responseTypeValue);
 
-        if (clazz == null) {
+        if (validator == null) {
             if (log.isDebugEnabled()) {
                 //Do not change this log format as these logs use by external applications
                 log.debug("Unsupported Response Type : " + responseTypeValue +
@@ -57,6 +57,6 @@ public class CarbonOAuthAuthzRequest extends OAuthAuthzRequest {
             throw OAuthUtils.handleOAuthProblemException("Invalid response_type parameter value");
         }
 
-        return OAuthUtils.instantiateClass(clazz);
+        return validator;
     }
 }
\ No newline at end of file
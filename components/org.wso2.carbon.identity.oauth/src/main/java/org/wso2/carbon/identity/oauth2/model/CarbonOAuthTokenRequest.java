@@ -31,6 +31,7 @@ import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
 import javax.servlet.http.HttpServletRequest;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
 
 /**
@@ -61,13 +62,13 @@ public class CarbonOAuthTokenRequest extends OAuthTokenRequest {
         windows_token = request.getParameter(OAuthConstants.WINDOWS_TOKEN);
         pkceCodeVerifier = request.getParameter(OAuthConstants.OAUTH_PKCE_CODE_VERIFIER);
 
-        // Store all request parameters
-        if (request.getParameterNames() != null) {
+        // Store all request parameters in a single pass over the parameter names
+        Enumeration<String> parameterNames = request.getParameterNames();
+        if (parameterNames != null) {
             List<RequestParameter> requestParameterList = new ArrayList<RequestParameter>();
-            while (request.getParameterNames().hasMoreElements()) {
-                String key = request.getParameterNames().nextElement();
-                String value = request.getParameter(key);
-                requestParameterList.add(new RequestParameter(key, value));
+            while (parameterNames.hasMoreElements()) {
+                String key = parameterNames.nextElement();
+                requestParameterList.add(new RequestParameter(key, request.getParameter(key)));
             }
             requestParameters =
                     requestParameterList.toArray(new RequestParameter[requestParameterList.size()]);
@@ -89,10 +90,10 @@ public class CarbonOAuthTokenRequest extends OAuthTokenRequest {
             throw OAuthUtils.handleOAuthProblemException("Missing grant_type parameter value");
         }
 
-        Class<? extends OAuthValidator<HttpServletRequest>> clazz = OAuthServerConfiguration
-                .getInstance().getSupportedGrantTypeValidators().get(requestTypeValue);
+        OAuthValidator<HttpServletRequest> validator = OAuthServerConfiguration.getInstance()
+                .getGrantTypeValidator(requestTypeValue);
 
-        if (clazz == null) {
+        if (validator == null) {
             if (log.isDebugEnabled()) {
                 //Do not change this log format as these logs use by external applications
                 log.debug("Unsupported Grant Type : " + requestTypeValue +
@@ -101,7 +102,7 @@ public class CarbonOAuthTokenRequest extends OAuthTokenRequest {
             throw OAuthUtils.handleOAuthProblemException("Invalid grant_type parameter value");
         }
 
-        return OAuthUtils.instantiateClass(clazz);
+        return validator;
     }
 
     /**
@@ -43,6 +43,8 @@ public class RefreshTokenValidationDataDO {
 
     private long validityPeriodInMillis;
 
+    private boolean latest;
+
     public String getAccessToken() {
         return accessToken;
     }
@@ -106,4 +108,17 @@ public class RefreshTokenValidationDataDO {
     public void setGrantType(String grantType) {
         this.grantType = grantType;
     }
+
+    /**
+     * @return true if no newer token exists for the client, user and scope of the refresh token. Only populated
+     * when requested from {@link org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO#validateRefreshToken(String,
+     * String, boolean)}
+     */
+    public boolean isLatest() {
+        return latest;
+    }
+
+    public void setLatest(boolean latest) {
+        this.latest = latest;
+    }
 }
@@ -29,6 +29,7 @@ import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheEntry;
 import org.wso2.carbon.identity.oauth.cache.AuthorizationGrantCacheKey;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth.config.OAuthHandlerRegistry;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
 import org.wso2.carbon.identity.oauth.event.OAuthEventInterceptor;
@@ -43,10 +44,7 @@ import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import org.wso2.carbon.identity.openidconnect.IDTokenBuilder;
 import org.wso2.carbon.utils.CarbonUtils;
 
-import java.util.ArrayList;
-import java.util.Hashtable;
 import java.util.List;
-import java.util.Map;
 
 /**
  * This class is used to issue access tokens and refresh tokens.
@@ -55,10 +53,7 @@ public class AccessTokenIssuer {
 
     private static AccessTokenIssuer instance;
     private static Log log = LogFactory.getLog(AccessTokenIssuer.class);
-    private Map<String, AuthorizationGrantHandler> authzGrantHandlers =
-            new Hashtable<String, AuthorizationGrantHandler>();
-    private List<ClientAuthenticationHandler> clientAuthenticationHandlers =
-            new ArrayList<ClientAuthenticationHandler>();
+    private OAuthServerConfiguration serverConfiguration;
     private AppInfoCache appInfoCache;
 
     /**
@@ -66,8 +61,7 @@ public class AccessTokenIssuer {
      */
     private AccessTokenIssuer() throws IdentityOAuth2Exception {
 
-        authzGrantHandlers = OAuthServerConfiguration.getInstance().getSupportedGrantTypes();
-        clientAuthenticationHandlers = OAuthServerConfiguration.getInstance().getSupportedClientAuthHandlers();
+        serverConfiguration = OAuthServerConfiguration.getInstance();
         appInfoCache = AppInfoCache.getInstance();
         if (appInfoCache != null) {
             if (log.isDebugEnabled()) {
@@ -112,7 +106,10 @@ public class AccessTokenIssuer {
         String grantType = tokenReqDTO.getGrantType();
         OAuth2AccessTokenRespDTO tokenRespDTO;
 
-        AuthorizationGrantHandler authzGrantHandler = authzGrantHandlers.get(grantType);
+        // use one snapshot of the handlers for the whole request, even if they are reloaded meanwhile
+        OAuthHandlerRegistry handlerRegistry = serverConfiguration.getHandlerRegistry();
+        AuthorizationGrantHandler authzGrantHandler = handlerRegistry.getGrantHandlers().get(grantType);
+        List<ClientAuthenticationHandler> clientAuthenticationHandlers = handlerRegistry.getClientAuthHandlers();
 
         // loading the stored application data
         OAuthAppDO oAuthAppDO = OAuth2Util.getAppInformationByClientId(tokenReqDTO.getClientId());
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.oltu.oauth2.common.exception.OAuthSystemException;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.util.TenantSigningKey;
+import org.wso2.carbon.identity.openidconnect.ServiceProviderProfileCache;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Token issuer which issues self-contained access tokens, signed JWTs carrying the user, client, scope and lifetime
+ * of the token, to service providers having the
+ * {@link org.wso2.carbon.identity.openidconnect.ServiceProviderProfile#JWT_ACCESS_TOKEN_PROPERTY} property set. Such
+ * tokens are validated by {@link org.wso2.carbon.identity.oauth2.validators.JWTAccessTokenValidator} without reading
+ * the token store. Other service providers, refresh tokens and authorization codes are served by
+ * {@link OauthTokenIssuerImpl}.
+ * <p/>
+ * JWT access tokens are stored in the token store like any other access token, so that they can be revoked and
+ * introspected. They do not fit the default ACCESS_TOKEN column of IDN_OAUTH2_ACCESS_TOKEN, which has to be widened
+ * with the dbscripts/identity/oauth/jwt-access-token scripts before enabling this issuer. Otherwise storing the token
+ * fails with a data truncation. Hashed lookup only adds the ACCESS_TOKEN_HASH column, the token itself is still
+ * written to ACCESS_TOKEN.
+ */
+public class JWTTokenIssuer extends OauthTokenIssuerImpl {
+
+    /**
+     * Claim carrying the tenant domain of the client, whose key signs the token.
+     */
+    public static final String TENANT_DOMAIN_CLAIM = "tenant_domain";
+
+    /**
+     * Claim carrying the client id of the token.
+     */
+    public static final String AUTHORIZED_PARTY_CLAIM = "azp";
+
+    private static final Log log = LogFactory.getLog(JWTTokenIssuer.class);
+
+    @Override
+    public String accessToken(OAuthTokenReqMessageContext tokReqMsgCtx) throws OAuthSystemException {
+
+        String clientId = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getClientId();
+        String tenantDomain = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getTenantDomain();
+        if (!isJWTAccessTokenEnabled(clientId, tenantDomain)) {
+            return super.accessToken(tokReqMsgCtx);
+        }
+        return buildJWTAccessToken(clientId, tenantDomain, tokReqMsgCtx.getAuthorizedUser(),
+                tokReqMsgCtx.getScope(), tokReqMsgCtx.getAccessTokenIssuedTime(), tokReqMsgCtx.getValidityPeriod());
+    }
+
+    @Override
+    public String accessToken(OAuthAuthzReqMessageContext oauthAuthzMsgCtx) throws OAuthSystemException {
+
+        String clientId = oauthAuthzMsgCtx.getAuthorizationReqDTO().getConsumerKey();
+        String tenantDomain = oauthAuthzMsgCtx.getAuthorizationReqDTO().getTenantDomain();
+        if (!isJWTAccessTokenEnabled(clientId, tenantDomain)) {
+            return super.accessToken(oauthAuthzMsgCtx);
+        }
+        return buildJWTAccessToken(clientId, tenantDomain, oauthAuthzMsgCtx.getAuthorizationReqDTO().getUser(),
+                oauthAuthzMsgCtx.getApprovedScope(), oauthAuthzMsgCtx.getAccessTokenIssuedTime(),
+                oauthAuthzMsgCtx.getValidityPeriod());
+    }
+
+    private boolean isJWTAccessTokenEnabled(String clientId, String tenantDomain) throws OAuthSystemException {
+
+        try {
+            return ServiceProviderProfileCache.getInstance().getProfile(clientId, tenantDomain).isJwtAccessToken();
+        } catch (IdentityApplicationManagementException e) {
+            throw new OAuthSystemException("Error while reading the service provider of client " + clientId, e);
+        }
+    }
+
+    private String buildJWTAccessToken(String clientId, String tenantDomain, AuthenticatedUser user, String[] scope,
+                                       long issuedTime, long validityPeriodInMillis) throws OAuthSystemException {
+
+        if (issuedTime <= 0) {
+            issuedTime = System.currentTimeMillis();
+        }
+        String subject = UserCoreUtil.addTenantDomainToEntry(
+                UserCoreUtil.addDomainToName(user.getUserName(), user.getUserStoreDomain()), user.getTenantDomain());
+
+        JWTClaimsSet claimsSet = new JWTClaimsSet();
+        claimsSet.setIssuer(OAuth2Util.getIDTokenIssuer());
+        claimsSet.setSubject(subject);
+        claimsSet.setAudience(Collections.singletonList(clientId));
+        claimsSet.setJWTID(UUID.randomUUID().toString());
+        claimsSet.setIssueTime(new Date(issuedTime));
+        claimsSet.setNotBeforeTime(new Date(issuedTime));
+        // a negative or overflowing validity period means the token never expires
+        if (validityPeriodInMillis > 0 && issuedTime + validityPeriodInMillis > issuedTime) {
+            claimsSet.setExpirationTime(new Date(issuedTime + validityPeriodInMillis));
+        }
+        claimsSet.setCustomClaim(AUTHORIZED_PARTY_CLAIM, clientId);
+        claimsSet.setCustomClaim(TENANT_DOMAIN_CLAIM, tenantDomain);
+        if (scope != null && scope.length > 0) {
+            claimsSet.setCustomClaim(OAuth2Util.SCOPE, OAuth2Util.buildScopeString(scope));
+        }
+
+        try {
+            TenantSigningKey signingKey = SigningKeyRegistry.getInstance().getSigningKey(tenantDomain,
+                    SigningKeyRegistry.TENANT_ID_NOT_RESOLVED);
+            SignedJWT signedJWT = new SignedJWT(signingKey.createHeader(JWSAlgorithm.RS256), claimsSet);
+            signedJWT.sign(signingKey.getSigner());
+            if (log.isDebugEnabled()) {
+                log.debug("Issued JWT access token " + claimsSet.getJWTID() + " to client " + clientId);
+            }
+            return signedJWT.serialize();
+        } catch (IdentityOAuth2Exception e) {
+            throw new OAuthSystemException("Error while loading the signing key of tenant " + tenantDomain, e);
+        } catch (JOSEException e) {
+            throw new OAuthSystemException("Error while signing the JWT access token of client " + clientId, e);
+        }
+    }
+}
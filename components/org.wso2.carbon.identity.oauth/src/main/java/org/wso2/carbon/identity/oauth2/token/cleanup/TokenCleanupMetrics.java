@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.cleanup;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runtime statistics of the token cleanup task.
+ */
+public class TokenCleanupMetrics implements TokenCleanupMetricsMBean {
+
+    private final AtomicLong runCount = new AtomicLong();
+    private final AtomicLong failedRunCount = new AtomicLong();
+    private final AtomicLong scannedCount = new AtomicLong();
+    private final AtomicLong purgeableCount = new AtomicLong();
+    private final AtomicLong purgedAccessTokenCount = new AtomicLong();
+    private final AtomicLong purgedAuthorizationCodeCount = new AtomicLong();
+    private final AtomicLong lastRunStartTime = new AtomicLong();
+    private final AtomicLong lastRunDurationMillis = new AtomicLong();
+
+    void recordRunStarted(long startTime) {
+        runCount.incrementAndGet();
+        lastRunStartTime.set(startTime);
+    }
+
+    void recordRunFinished(long startTime) {
+        lastRunDurationMillis.set(System.currentTimeMillis() - startTime);
+    }
+
+    void recordRunFailed() {
+        failedRunCount.incrementAndGet();
+    }
+
+    void recordScanned(int scanned, int purgeable) {
+        scannedCount.addAndGet(scanned);
+        purgeableCount.addAndGet(purgeable);
+    }
+
+    void recordPurgedAccessTokens(int count) {
+        purgedAccessTokenCount.addAndGet(count);
+    }
+
+    void recordPurgedAuthorizationCodes(int count) {
+        purgedAuthorizationCodeCount.addAndGet(count);
+    }
+
+    @Override
+    public long getRunCount() {
+        return runCount.get();
+    }
+
+    @Override
+    public long getFailedRunCount() {
+        return failedRunCount.get();
+    }
+
+    @Override
+    public long getScannedCount() {
+        return scannedCount.get();
+    }
+
+    @Override
+    public long getPurgeableCount() {
+        return purgeableCount.get();
+    }
+
+    @Override
+    public long getPurgedAccessTokenCount() {
+        return purgedAccessTokenCount.get();
+    }
+
+    @Override
+    public long getPurgedAuthorizationCodeCount() {
+        return purgedAuthorizationCodeCount.get();
+    }
+
+    @Override
+    public long getLastRunStartTime() {
+        return lastRunStartTime.get();
+    }
+
+    @Override
+    public long getLastRunDurationMillis() {
+        return lastRunDurationMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "runs=" + getRunCount() + ", failedRuns=" + getFailedRunCount() + ", scanned=" + getScannedCount() +
+                ", purgeable=" + getPurgeableCount() + ", purgedAccessTokens=" + getPurgedAccessTokenCount() +
+                ", purgedAuthorizationCodes=" + getPurgedAuthorizationCodeCount() + ", lastRunDurationMillis=" +
+                getLastRunDurationMillis();
+    }
+}
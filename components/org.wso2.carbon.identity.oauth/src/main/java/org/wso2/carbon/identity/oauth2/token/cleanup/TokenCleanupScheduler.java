@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.cleanup;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.identity.oauth2.dao.TokenCleanupDAO;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules {@link TokenCleanupTask} when <code>OAuth.TokenCleanup.Enable</code> is true. Supported properties
+ * under <code>OAuth.TokenCleanup</code> are
+ * <ul>
+ * <li>Interval - minutes between two runs. Default 60</li>
+ * <li>InitialDelay - minutes before the first run. Default 5</li>
+ * <li>RetentionPeriod - minutes a row is kept. REVOKED and INACTIVE rows are kept for this long after they were
+ * created, expired rows for this long after both their access token (or code) and refresh token expired. Default
+ * 1440</li>
+ * <li>BatchSize - rows scanned per batch. Default 500</li>
+ * <li>BatchDelay - milliseconds to pause between batches. Default 100</li>
+ * <li>DryRun - only count the purgeable rows. Default false</li>
+ * <li>AccessTokenArchiveTable, AuthorizationCodeArchiveTable - tables purged rows are copied to before they are
+ * deleted. Archive tables of user store partitions carry the same suffix as the partition table.</li>
+ * </ul>
+ * The statistics of the cleanup are exposed over JMX, see {@link TokenCleanupMetricsMBean}.
+ */
+public class TokenCleanupScheduler {
+
+    private static final Log log = LogFactory.getLog(TokenCleanupScheduler.class);
+
+    private static final String CONFIG_PREFIX = "OAuth.TokenCleanup.";
+    private static final String MBEAN_NAME = "org.wso2.carbon.identity.oauth2:type=TokenCleanup";
+
+    private static final TokenCleanupScheduler instance = new TokenCleanupScheduler();
+
+    private final TokenCleanupMetrics metrics = new TokenCleanupMetrics();
+    private ScheduledExecutorService executor;
+
+    private TokenCleanupScheduler() {
+    }
+
+    public static TokenCleanupScheduler getInstance() {
+        return instance;
+    }
+
+    /**
+     * Starts the scheduled cleanup if it is enabled and not started yet.
+     */
+    public synchronized void start() {
+
+        if (executor != null || !Boolean.parseBoolean(IdentityUtil.getProperty(CONFIG_PREFIX + "Enable"))) {
+            return;
+        }
+
+        long interval = getLongProperty("Interval", 60);
+        long initialDelay = getLongProperty("InitialDelay", 5);
+        long retentionMillis = TimeUnit.MINUTES.toMillis(getLongProperty("RetentionPeriod", 1440));
+        int batchSize = (int) Math.max(1, getLongProperty("BatchSize", 500));
+        long batchDelayMillis = getLongProperty("BatchDelay", 100);
+        boolean dryRun = Boolean.parseBoolean(IdentityUtil.getProperty(CONFIG_PREFIX + "DryRun"));
+
+        TokenCleanupTask task = new TokenCleanupTask(new TokenCleanupDAO(), metrics,
+                StringUtils.trimToNull(IdentityUtil.getProperty(CONFIG_PREFIX + "AccessTokenArchiveTable")),
+                StringUtils.trimToNull(IdentityUtil.getProperty(CONFIG_PREFIX + "AuthorizationCodeArchiveTable")),
+                retentionMillis, batchSize, batchDelayMillis, dryRun);
+        registerMBean();
+
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "OAuthTokenCleanup");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(task, initialDelay, Math.max(1, interval), TimeUnit.MINUTES);
+
+        log.info("Token cleanup scheduled every " + interval + " minutes, retention period : " +
+                TimeUnit.MILLISECONDS.toMinutes(retentionMillis) + " minutes, batch size : " + batchSize +
+                (dryRun ? ", dry run" : ""));
+    }
+
+    /**
+     * Stops the scheduled cleanup. A running batch is interrupted.
+     */
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    public TokenCleanupMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void registerMBean() {
+
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(new StandardMBean(metrics, TokenCleanupMetricsMBean.class), objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Error while registering the token cleanup statistics over JMX", e);
+        }
+    }
+
+    private static long getLongProperty(String name, long defaultValue) {
+        return OAuthCacheConfigUtil.getLongProperty(CONFIG_PREFIX + name, defaultValue);
+    }
+}
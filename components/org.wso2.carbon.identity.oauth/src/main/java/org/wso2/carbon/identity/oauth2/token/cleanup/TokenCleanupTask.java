@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.cleanup;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.TokenCleanupDAO;
+import org.wso2.carbon.identity.oauth2.dao.TokenPartitionRouter;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.user.api.Tenant;
+import org.wso2.carbon.user.api.UserStoreException;
+import org.wso2.carbon.user.core.UserCoreConstants;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.service.RealmService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One run of the token cleanup. Walks each access token table and the authorization code table in batches and
+ * purges the rows {@link TokenCleanupDAO} finds purgeable, pausing between batches so that the cleanup does not
+ * compete with token issuance for the database.
+ * <p>
+ * If access token partitioning is enabled, the partition tables are resolved on every run: those of the mapped
+ * domains and those of the secondary user store domains of all active tenants, so that user stores added after the
+ * cleanup was scheduled are covered as well.
+ */
+public class TokenCleanupTask implements Runnable {
+
+    private static final Log log = LogFactory.getLog(TokenCleanupTask.class);
+
+    private final TokenCleanupDAO cleanupDAO;
+    private final TokenCleanupMetrics metrics;
+    private final String accessTokenArchiveTable;
+    private final String authorizationCodeArchiveTable;
+    private final long retentionMillis;
+    private final int batchSize;
+    private final long batchDelayMillis;
+    private final boolean dryRun;
+
+    /**
+     * @param accessTokenArchiveTable       archive table of the access token table, or null if purged tokens are
+     *                                      only deleted. Archive tables of partitions carry the suffix of the
+     *                                      partition table
+     * @param authorizationCodeArchiveTable archive table of the authorization code table, or null
+     */
+    public TokenCleanupTask(TokenCleanupDAO cleanupDAO, TokenCleanupMetrics metrics, String accessTokenArchiveTable,
+                            String authorizationCodeArchiveTable, long retentionMillis, int batchSize,
+                            long batchDelayMillis, boolean dryRun) {
+
+        this.cleanupDAO = cleanupDAO;
+        this.metrics = metrics;
+        this.accessTokenArchiveTable = accessTokenArchiveTable;
+        this.authorizationCodeArchiveTable = authorizationCodeArchiveTable;
+        this.retentionMillis = retentionMillis;
+        this.batchSize = batchSize;
+        this.batchDelayMillis = batchDelayMillis;
+        this.dryRun = dryRun;
+    }
+
+    @Override
+    public void run() {
+
+        long startTime = System.currentTimeMillis();
+        long cutoffTime = startTime - retentionMillis;
+        metrics.recordRunStarted(startTime);
+        try {
+            for (Map.Entry<String, String> table : getAccessTokenTables().entrySet()) {
+                cleanupAccessTokens(table.getKey(), table.getValue(), cutoffTime);
+            }
+            cleanupAuthorizationCodes(cutoffTime);
+        } catch (IdentityOAuth2Exception e) {
+            metrics.recordRunFailed();
+            log.error("Error while cleaning up access tokens and authorization codes", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Token cleanup was interrupted");
+        } catch (RuntimeException e) {
+            // never let an exception cancel the scheduled task
+            metrics.recordRunFailed();
+            log.error("Unexpected error while cleaning up access tokens and authorization codes", e);
+        } finally {
+            metrics.recordRunFinished(startTime);
+        }
+
+        if (dryRun) {
+            log.info("Token cleanup dry run finished. " + metrics);
+        } else if (log.isDebugEnabled()) {
+            log.debug("Token cleanup finished. " + metrics);
+        }
+    }
+
+    /**
+     * @return access token table to its archive table, for the access token table and its partitions
+     */
+    private Map<String, String> getAccessTokenTables() throws IdentityOAuth2Exception {
+
+        Map<String, String> tables = new LinkedHashMap<>();
+        tables.put(OAuthConstants.ACCESS_TOKEN_STORE_TABLE, accessTokenArchiveTable);
+        if (!OAuth2Util.checkAccessTokenPartitioningEnabled()) {
+            return tables;
+        }
+
+        TokenPartitionRouter partitionRouter = TokenPartitionRouter.getInstance();
+        Set<String> domains = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        domains.addAll(partitionRouter.getDomainMappings().keySet());
+        domains.addAll(getSecondaryUserStoreDomains());
+        for (String domain : domains) {
+            String table;
+            try {
+                table = partitionRouter.getAccessTokenStoreTableOfDomain(domain);
+            } catch (IdentityOAuth2Exception e) {
+                log.warn("Access tokens of user store domain " + domain + " are not cleaned up. " + e.getMessage());
+                continue;
+            }
+            if (!tables.containsKey(table)) {
+                tables.put(table, accessTokenArchiveTable == null ? null : accessTokenArchiveTable +
+                        table.substring(OAuthConstants.ACCESS_TOKEN_STORE_TABLE.length()));
+            }
+        }
+        return tables;
+    }
+
+    private static Set<String> getSecondaryUserStoreDomains() throws IdentityOAuth2Exception {
+
+        RealmService realmService = OAuthComponentServiceHolder.getInstance().getRealmService();
+        Set<String> domains = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        try {
+            addSecondaryUserStoreDomains(realmService, MultitenantConstants.SUPER_TENANT_ID, domains);
+            for (Tenant tenant : realmService.getTenantManager().getAllTenants()) {
+                if (tenant.isActive()) {
+                    addSecondaryUserStoreDomains(realmService, tenant.getId(), domains);
+                }
+            }
+        } catch (UserStoreException e) {
+            throw new IdentityOAuth2Exception("Error while reading the user store domains of the tenants", e);
+        }
+        return domains;
+    }
+
+    private static void addSecondaryUserStoreDomains(RealmService realmService, int tenantId, Set<String> domains)
+            throws UserStoreException {
+
+        UserStoreManager userStoreManager = (UserStoreManager) realmService.getTenantUserRealm(tenantId)
+                .getUserStoreManager();
+        for (UserStoreManager secondary = userStoreManager.getSecondaryUserStoreManager(); secondary != null;
+             secondary = secondary.getSecondaryUserStoreManager()) {
+            String domain = secondary.getRealmConfiguration().getUserStoreProperty(
+                    UserCoreConstants.RealmConfig.PROPERTY_DOMAIN_NAME);
+            if (StringUtils.isNotBlank(domain)) {
+                domains.add(domain);
+            }
+        }
+    }
+
+    private void cleanupAccessTokens(String table, String archiveTable, long cutoffTime)
+            throws IdentityOAuth2Exception, InterruptedException {
+
+        String lastTokenId = StringUtils.EMPTY;
+        int purged = 0;
+        int purgeable = 0;
+        TokenCleanupDAO.CleanupBatch batch;
+        do {
+            batch = cleanupDAO.findPurgeableAccessTokens(table, lastTokenId, cutoffTime, batchSize);
+            metrics.recordScanned(batch.getScannedCount(), batch.getPurgeable().size());
+            purgeable += batch.getPurgeable().size();
+            if (!dryRun) {
+                int count = cleanupDAO.purgeAccessTokens(table, batch.getPurgeable(), archiveTable);
+                metrics.recordPurgedAccessTokens(count);
+                purged += count;
+            }
+            lastTokenId = batch.getLastScannedId();
+            pause(batch);
+        } while (batch.getScannedCount() >= batchSize);
+
+        logResult(table, purgeable, purged);
+    }
+
+    private void cleanupAuthorizationCodes(long cutoffTime) throws IdentityOAuth2Exception, InterruptedException {
+
+        String lastCodeId = StringUtils.EMPTY;
+        int purged = 0;
+        int purgeable = 0;
+        TokenCleanupDAO.CleanupBatch batch;
+        do {
+            batch = cleanupDAO.findPurgeableAuthorizationCodes(lastCodeId, cutoffTime, batchSize);
+            metrics.recordScanned(batch.getScannedCount(), batch.getPurgeable().size());
+            purgeable += batch.getPurgeable().size();
+            if (!dryRun) {
+                int count = cleanupDAO.purgeAuthorizationCodes(batch.getPurgeable(), authorizationCodeArchiveTable);
+                metrics.recordPurgedAuthorizationCodes(count);
+                purged += count;
+            }
+            lastCodeId = batch.getLastScannedId();
+            pause(batch);
+        } while (batch.getScannedCount() >= batchSize);
+
+        logResult("IDN_OAUTH2_AUTHORIZATION_CODE", purgeable, purged);
+    }
+
+    private void pause(TokenCleanupDAO.CleanupBatch batch) throws InterruptedException {
+        if (batchDelayMillis > 0 && batch.getScannedCount() >= batchSize) {
+            Thread.sleep(batchDelayMillis);
+        }
+    }
+
+    private void logResult(String table, int purgeable, int purged) {
+        if (dryRun) {
+            log.info("Token cleanup dry run : " + purgeable + " rows of " + table + " would be purged");
+        } else if (purged > 0) {
+            log.info("Token cleanup purged " + purged + " rows of " + table);
+        }
+    }
+}
@@ -49,6 +49,8 @@ import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.token.OauthTokenIssuer;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLock;
+import org.wso2.carbon.identity.oauth2.token.lock.TokenIssuanceLockManager;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 
 public abstract class AbstractAuthorizationGrantHandler implements AuthorizationGrantHandler {
@@ -59,12 +61,14 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
     protected OAuthCallbackManager callbackManager;
     protected boolean cacheEnabled;
     protected OAuthCache oauthCache;
+    protected TokenIssuanceLockManager tokenIssuanceLockManager;
     public static final String EXISTING_TOKEN_ISSUED = "existingTokenUsed";
 
     @Override
     public void init() throws IdentityOAuth2Exception {
         tokenMgtDAO = new TokenMgtDAO();
         callbackManager = new OAuthCallbackManager();
+        tokenIssuanceLockManager = OAuthServerConfiguration.getInstance().getTokenIssuanceLockManager();
         // Set the cache instance if caching is enabled.
         if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
             cacheEnabled = true;
@@ -123,7 +127,8 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
         Timestamp refreshTokenIssuedTime = null;
         long refreshTokenValidityPeriodInMillis = 0;
 
-        synchronized ((consumerKey + ":" + authorizedUser + ":" + scope).intern()) {
+        TokenIssuanceLock tokenIssuanceLock = tokenIssuanceLockManager.acquire(consumerKey, authorizedUser, scope);
+        try {
             // check if valid access token exists in cache
             if (cacheEnabled) {
 
@@ -369,7 +374,7 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
             newAccessTokenDO.setTokenState(OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE);
             String tenantDomain = tokReqMsgCtx.getOauth2AccessTokenReqDTO().getTenantDomain();
             newAccessTokenDO.setTenantID(OAuth2Util.getTenantId(tenantDomain));
-            newAccessTokenDO.setTokenId(UUID.randomUUID().toString());
+            newAccessTokenDO.setTokenId(getNewTokenId(tokReqMsgCtx));
             newAccessTokenDO.setGrantType(grantType);
 
             // Persist the access token in database
@@ -417,9 +422,20 @@ public abstract class AbstractAuthorizationGrantHandler implements Authorization
             }
             tokenRespDTO.setAuthorizedScopes(scope);
             return tokenRespDTO;
+        } finally {
+            tokenIssuanceLock.release();
         }
     }
 
+    /**
+     * @param tokReqMsgCtx token request
+     * @return id of the access token about to be issued. Grant handlers which record the id before the token is
+     * issued return the recorded id
+     */
+    protected String getNewTokenId(OAuthTokenReqMessageContext tokReqMsgCtx) {
+        return UUID.randomUUID().toString();
+    }
+
     protected void storeAccessToken(OAuth2AccessTokenReqDTO oAuth2AccessTokenReqDTO, String userStoreDomain,
                                     AccessTokenDO newAccessTokenDO, String newAccessToken, AccessTokenDO
                                             existingAccessTokenDO) throws IdentityOAuth2Exception {
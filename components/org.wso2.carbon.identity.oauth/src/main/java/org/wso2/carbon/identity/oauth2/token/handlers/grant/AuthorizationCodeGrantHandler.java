@@ -40,6 +40,7 @@ import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -53,11 +54,12 @@ public class AuthorizationCodeGrantHandler extends AbstractAuthorizationGrantHan
     // This is used to keep the pre processed authorization code in the OAuthTokenReqMessageContext.
     private static final String AUTHZ_CODE = "AuthorizationCode";
 
+    // Id of the access token recorded against the authorization code when the code is redeemed.
+    private static final String TOKEN_ID = "TokenId";
+
     private static Log log = LogFactory.getLog(AuthorizationCodeGrantHandler.class);
     private static AppInfoCache appInfoCache;
 
-
-
     public AuthorizationCodeGrantHandler() {
         appInfoCache = AppInfoCache.getInstance();
     }
@@ -205,6 +207,19 @@ public class AuthorizationCodeGrantHandler extends AbstractAuthorizationGrantHan
             return false;
         }
 
+        // Consume the code before issuing a token so that it can be used only once across the cluster. The same
+        // update records the id of the token about to be issued against the code.
+        String tokenId = UUID.randomUUID().toString();
+        if (!tokenMgtDAO.redeemAuthorizationCode(authorizationCode, tokenId)) {
+            oauthCache.clearCacheEntry(new OAuthCacheKey(
+                    OAuth2Util.buildCacheKeyStringForAuthzCode(clientId, authorizationCode)));
+            if (log.isDebugEnabled()) {
+                log.debug("Invalid access token request with an already used authorization code for Client Id : " +
+                        clientId);
+            }
+            return false;
+        }
+
         if (log.isDebugEnabled()) {
             log.debug("Found an Authorization Code, " +
                     "Client : " + clientId +
@@ -217,9 +232,20 @@ public class AuthorizationCodeGrantHandler extends AbstractAuthorizationGrantHan
         // keep the pre processed authz code as a OAuthTokenReqMessageContext property to avoid
         // calculating it again when issuing the access token.
         tokReqMsgCtx.addProperty(AUTHZ_CODE, authorizationCode);
+        tokReqMsgCtx.addProperty(TOKEN_ID, tokenId);
         return true;
     }
 
+    @Override
+    protected String getNewTokenId(OAuthTokenReqMessageContext tokReqMsgCtx) {
+
+        String tokenId = (String) tokReqMsgCtx.getProperty(TOKEN_ID);
+        if (tokenId == null) {
+            return super.getNewTokenId(tokReqMsgCtx);
+        }
+        return tokenId;
+    }
+
     @Override
     public OAuth2AccessTokenRespDTO issue(OAuthTokenReqMessageContext tokReqMsgCtx)
             throws IdentityOAuth2Exception {
@@ -274,7 +300,6 @@ public class AuthorizationCodeGrantHandler extends AbstractAuthorizationGrantHan
                                                 existingAccessTokenDO)
             throws IdentityOAuth2Exception {
         try {
-            newAccessTokenDO.setAuthorizationCode(oAuth2AccessTokenReqDTO.getAuthorizationCode());
             tokenMgtDAO.storeAccessToken(newAccessToken, oAuth2AccessTokenReqDTO.getClientId(),
                                          newAccessTokenDO, existingAccessTokenDO, userStoreDomain);
         } catch (IdentityException e) {
@@ -63,8 +63,9 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
 
         String refreshToken = tokenReqDTO.getRefreshToken();
 
+        // Validity of the refresh token and whether it is the latest one are read in a single query
         RefreshTokenValidationDataDO validationDataDO = tokenMgtDAO.validateRefreshToken(
-                tokenReqDTO.getClientId(), refreshToken);
+                tokenReqDTO.getClientId(), refreshToken, true);
 
         if (validationDataDO.getAccessToken() == null) {
             log.debug("Invalid Refresh Token provided for Client with " +
@@ -84,31 +85,7 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
             return false;
         }
 
-        String userStoreDomain = null;
-        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
-            try {
-                userStoreDomain = OAuth2Util.getUserStoreDomainFromUserId(validationDataDO.getAuthorizedUser().toString());
-            } catch (IdentityOAuth2Exception e) {
-                String errorMsg = "Error occurred while getting user store domain for User ID : " + validationDataDO.getAuthorizedUser();
-                log.error(errorMsg, e);
-                throw new IdentityOAuth2Exception(errorMsg, e);
-            }
-        }
-
-        AccessTokenDO accessTokenDO = tokenMgtDAO.retrieveLatestAccessToken(tokenReqDTO.getClientId(),
-                validationDataDO.getAuthorizedUser(),
-                userStoreDomain, OAuth2Util.buildScopeString(validationDataDO.getScope()), true);
-
-        if (accessTokenDO == null) {
-            if (log.isDebugEnabled()) {
-                log.debug("Error while retrieving the latest refresh token");
-            }
-            if (cacheEnabled) {
-                clearCache(tokenReqDTO.getClientId(), validationDataDO.getAuthorizedUser().toString(),
-                        validationDataDO.getScope(), validationDataDO.getAccessToken());
-            }
-            return false;
-        } else if (!refreshToken.equals(accessTokenDO.getRefreshToken())) {
+        if (!isLatestRefreshToken(tokenReqDTO, validationDataDO)) {
             if (log.isDebugEnabled()) {
                 log.debug("Refresh token is not the latest.");
             }
@@ -162,10 +139,10 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
 
         boolean renew = OAuthServerConfiguration.getInstance().isRefreshTokenRenewalEnabled();
 
-        // an active or expired token will be returned. since we do the validation for active or expired token in
-        // validateGrant() no need to do it here again
-        RefreshTokenValidationDataDO refreshTokenValidationDataDO = tokenMgtDAO
-                .validateRefreshToken(oauth2AccessTokenReqDTO.getClientId(), oauth2AccessTokenReqDTO.getRefreshToken());
+        // validation data of the refresh token read in validateGrant(). since we do the validation for active or
+        // expired token there no need to do it here again
+        RefreshTokenValidationDataDO refreshTokenValidationDataDO =
+                (RefreshTokenValidationDataDO) tokReqMsgCtx.getProperty(PREV_ACCESS_TOKEN);
 
         long issuedTime = refreshTokenValidationDataDO.getIssuedTime().getTime();
         long refreshValidity = refreshTokenValidationDataDO.getValidityPeriodInMillis();
@@ -255,8 +232,7 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
         accessTokenDO.setAccessToken(accessToken);
         accessTokenDO.setGrantType(grantType);
 
-        RefreshTokenValidationDataDO oldAccessToken =
-                (RefreshTokenValidationDataDO) tokReqMsgCtx.getProperty(PREV_ACCESS_TOKEN);
+        RefreshTokenValidationDataDO oldAccessToken = refreshTokenValidationDataDO;
 
         String authorizedUser = tokReqMsgCtx.getAuthorizedUser().toString();
 	    // set the previous access token state to "INACTIVE" and store new access token in single db connection
@@ -335,6 +311,39 @@ public class RefreshGrantHandler extends AbstractAuthorizationGrantHandler {
         return tokenRespDTO;
     }
 
+    /**
+     * Checks whether the refresh token is the latest one issued for its client, user and scope.
+     */
+    private boolean isLatestRefreshToken(OAuth2AccessTokenReqDTO tokenReqDTO,
+                                         RefreshTokenValidationDataDO validationDataDO)
+            throws IdentityOAuth2Exception {
+
+        if (validationDataDO.isLatest()) {
+            return true;
+        }
+        // The validation query compares users case insensitively, so a newer token of a user differing only in case
+        // may have been counted. Confirm with the latest token of the exact user for case sensitive user stores.
+        if (!IdentityUtil.isUserStoreInUsernameCaseSensitive(validationDataDO.getAuthorizedUser().toString())) {
+            return false;
+        }
+
+        String userStoreDomain = null;
+        if (OAuth2Util.checkAccessTokenPartitioningEnabled() && OAuth2Util.checkUserNameAssertionEnabled()) {
+            try {
+                userStoreDomain = OAuth2Util.getUserStoreDomainFromUserId(validationDataDO.getAuthorizedUser().toString());
+            } catch (IdentityOAuth2Exception e) {
+                String errorMsg = "Error occurred while getting user store domain for User ID : " + validationDataDO.getAuthorizedUser();
+                log.error(errorMsg, e);
+                throw new IdentityOAuth2Exception(errorMsg, e);
+            }
+        }
+
+        AccessTokenDO accessTokenDO = tokenMgtDAO.retrieveLatestAccessToken(tokenReqDTO.getClientId(),
+                validationDataDO.getAuthorizedUser(),
+                userStoreDomain, OAuth2Util.buildScopeString(validationDataDO.getScope()), true);
+        return accessTokenDO != null && tokenReqDTO.getRefreshToken().equals(accessTokenDO.getRefreshToken());
+    }
+
     private OAuth2AccessTokenRespDTO handleError(String errorCode, String errorMsg) {
         OAuth2AccessTokenRespDTO tokenRespDTO;
         tokenRespDTO = new OAuth2AccessTokenRespDTO();
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.SQLQueries;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Cluster wide {@link TokenIssuanceLockManager}. Requests are first serialized on a local stripe and then take a row
+ * lock in IDN_OAUTH2_TOKEN_ISSUANCE_LOCK which is held until the lock is released, so token requests for the same
+ * client, user and scope are serialized across all nodes sharing the identity database.
+ * <p/>
+ * Holding the local stripe while waiting for the row lock keeps at most one database connection per stripe busy on
+ * each node.
+ * <p/>
+ * The lock table is not part of the identity database scripts and has to be created before this lock manager is
+ * enabled, with the script of the database type in <code>dbscripts/identity/oauth/token-issuance-lock</code>.
+ * The lock manager checks for the table when it is created and refuses to start without it.
+ */
+public class JDBCTokenIssuanceLockManager extends StripedTokenIssuanceLockManager {
+
+    private static final Log log = LogFactory.getLog(JDBCTokenIssuanceLockManager.class);
+    private static final String UTC = "UTC";
+
+    /**
+     * @throws IllegalStateException if the IDN_OAUTH2_TOKEN_ISSUANCE_LOCK table is not available
+     */
+    public JDBCTokenIssuanceLockManager() {
+        checkLockTable();
+    }
+
+    @Override
+    public TokenIssuanceLock acquire(String consumerKey, String authorizedUser, String scope)
+            throws IdentityOAuth2Exception {
+
+        final int stripe = getStripe(consumerKey, authorizedUser, scope);
+        lockStripe(stripe);
+
+        final Connection connection;
+        try {
+            connection = lockRow(DigestUtils.sha256Hex(consumerKey + ":" + authorizedUser + ":" + scope));
+        } catch (IdentityOAuth2Exception | RuntimeException e) {
+            unlockStripe(stripe);
+            throw e;
+        }
+
+        return new TokenIssuanceLock() {
+            @Override
+            public void release() {
+                try {
+                    connection.commit();
+                } catch (SQLException e) {
+                    log.error("Error while releasing the token issuance lock", e);
+                    IdentityDatabaseUtil.rollBack(connection);
+                } finally {
+                    IdentityDatabaseUtil.closeConnection(connection);
+                    unlockStripe(stripe);
+                }
+            }
+        };
+    }
+
+    private Connection lockRow(String lockKey) throws IdentityOAuth2Exception {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            connection.setAutoCommit(false);
+            if (updateLockRow(connection, lockKey) > 0) {
+                return connection;
+            }
+            try {
+                insertLockRow(connection, lockKey);
+                return connection;
+            } catch (SQLException e) {
+                // Another node created the row in the meantime. Wait for its lock instead.
+                if (log.isDebugEnabled()) {
+                    log.debug("Token issuance lock row already exists. Retrying with an update.", e);
+                }
+                connection.rollback();
+                if (updateLockRow(connection, lockKey) > 0) {
+                    return connection;
+                }
+                throw new IdentityOAuth2Exception("Could not acquire the token issuance lock", e);
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            IdentityDatabaseUtil.closeConnection(connection);
+            throw new IdentityOAuth2Exception("Error while acquiring the token issuance lock", e);
+        } catch (IdentityOAuth2Exception e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            IdentityDatabaseUtil.closeConnection(connection);
+            throw e;
+        }
+    }
+
+    private void checkLockTable() {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        try {
+            prepStmt = connection.prepareStatement(SQLQueries.CHECK_TOKEN_ISSUANCE_LOCK_TABLE);
+            prepStmt.executeQuery().close();
+        } catch (SQLException e) {
+            throw new IllegalStateException("IDN_OAUTH2_TOKEN_ISSUANCE_LOCK table is not available in the identity " +
+                    "database. Create it before enabling " + JDBCTokenIssuanceLockManager.class.getName(), e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+        }
+    }
+
+    private int updateLockRow(Connection connection, String lockKey) throws SQLException {
+
+        PreparedStatement prepStmt = null;
+        try {
+            prepStmt = connection.prepareStatement(SQLQueries.UPDATE_TOKEN_ISSUANCE_LOCK);
+            prepStmt.setTimestamp(1, new Timestamp(System.currentTimeMillis()),
+                    Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+            prepStmt.setString(2, lockKey);
+            return prepStmt.executeUpdate();
+        } finally {
+            IdentityDatabaseUtil.closeStatement(prepStmt);
+        }
+    }
+
+    private void insertLockRow(Connection connection, String lockKey) throws SQLException {
+
+        PreparedStatement prepStmt = null;
+        try {
+            prepStmt = connection.prepareStatement(SQLQueries.INSERT_TOKEN_ISSUANCE_LOCK);
+            prepStmt.setString(1, lockKey);
+            prepStmt.setTimestamp(2, new Timestamp(System.currentTimeMillis()),
+                    Calendar.getInstance(TimeZone.getTimeZone(UTC)));
+            prepStmt.execute();
+        } finally {
+            IdentityDatabaseUtil.closeStatement(prepStmt);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory {@link TokenIssuanceLockManager} backed by a fixed number of {@link ReentrantLock} stripes. The stripe
+ * is selected by hashing client id, user and scope, so no key string is allocated or interned per request.
+ * Different keys may share a stripe, which only costs some extra serialization, never correctness.
+ * <p/>
+ * The number of stripes is read from <code>OAuth.TokenIssuanceLock.StripeCount</code> and rounded up to a power of
+ * two. The stripe statistics are exposed over JMX through {@link StripedTokenIssuanceLockManagerMBean} once
+ * {@link #registerMBean()} is called.
+ */
+public class StripedTokenIssuanceLockManager implements TokenIssuanceLockManager,
+        StripedTokenIssuanceLockManagerMBean {
+
+    private static final Log log = LogFactory.getLog(StripedTokenIssuanceLockManager.class);
+
+    private static final String STRIPE_COUNT_PROPERTY = "OAuth.TokenIssuanceLock.StripeCount";
+    private static final int DEFAULT_STRIPE_COUNT = 256;
+    private static final int MAX_STRIPE_COUNT = 1 << 16;
+
+    private static final String MBEAN_NAME = "org.wso2.carbon.identity.oauth2:type=TokenIssuanceLock";
+
+    private final ReentrantLock[] stripes;
+    private final int stripeMask;
+
+    private final AtomicLongArray acquisitionCounts;
+    private final AtomicLongArray contentionCounts;
+    private final AtomicLongArray waitTimeNanos;
+
+    public StripedTokenIssuanceLockManager() {
+        this(readStripeCount());
+    }
+
+    public StripedTokenIssuanceLockManager(int stripeCount) {
+
+        int size = 1;
+        while (size < stripeCount && size < MAX_STRIPE_COUNT) {
+            size <<= 1;
+        }
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        stripeMask = size - 1;
+        acquisitionCounts = new AtomicLongArray(size);
+        contentionCounts = new AtomicLongArray(size);
+        waitTimeNanos = new AtomicLongArray(size);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Token issuance lock manager initialized with " + size + " stripes");
+        }
+    }
+
+    @Override
+    public TokenIssuanceLock acquire(String consumerKey, String authorizedUser, String scope)
+            throws IdentityOAuth2Exception {
+
+        final int stripe = getStripe(consumerKey, authorizedUser, scope);
+        final ReentrantLock lock = stripes[stripe];
+        lockStripe(stripe);
+        return new TokenIssuanceLock() {
+            @Override
+            public void release() {
+                lock.unlock();
+            }
+        };
+    }
+
+    /**
+     * Locks the given stripe, recording contention statistics.
+     *
+     * @param stripe stripe index returned by {@link #getStripe(String, String, String)}
+     */
+    protected void lockStripe(int stripe) {
+
+        ReentrantLock lock = stripes[stripe];
+        acquisitionCounts.incrementAndGet(stripe);
+        if (!lock.tryLock()) {
+            contentionCounts.incrementAndGet(stripe);
+            long waitStart = System.nanoTime();
+            lock.lock();
+            waitTimeNanos.addAndGet(stripe, System.nanoTime() - waitStart);
+        }
+    }
+
+    protected void unlockStripe(int stripe) {
+        stripes[stripe].unlock();
+    }
+
+    /**
+     * Selects the stripe of a client, user and scope combination.
+     */
+    protected int getStripe(String consumerKey, String authorizedUser, String scope) {
+
+        int hash = hash(consumerKey);
+        hash = 31 * hash + hash(authorizedUser);
+        hash = 31 * hash + hash(scope);
+        // Spread the higher bits since only the lower bits select the stripe.
+        hash ^= (hash >>> 16);
+        return hash & stripeMask;
+    }
+
+    private static int hash(String value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * Registers this lock manager over JMX, replacing a previously registered instance.
+     */
+    public void registerMBean() {
+
+        try {
+            ObjectName objectName = new ObjectName(MBEAN_NAME);
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+            mBeanServer.registerMBean(new StandardMBean(this, StripedTokenIssuanceLockManagerMBean.class),
+                    objectName);
+        } catch (JMException e) {
+            log.warn("Error while registering the statistics of the token issuance lock over JMX", e);
+        }
+    }
+
+    @Override
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    @Override
+    public long getAcquisitionCount() {
+        return sum(acquisitionCounts);
+    }
+
+    @Override
+    public long getContentionCount() {
+        return sum(contentionCounts);
+    }
+
+    @Override
+    public long getMaxStripeContentionCount() {
+
+        long max = 0;
+        for (int i = 0; i < contentionCounts.length(); i++) {
+            max = Math.max(max, contentionCounts.get(i));
+        }
+        return max;
+    }
+
+    @Override
+    public long getWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(sum(waitTimeNanos));
+    }
+
+    @Override
+    public int getQueueLength() {
+
+        int queueLength = 0;
+        for (ReentrantLock stripe : stripes) {
+            queueLength += stripe.getQueueLength();
+        }
+        return queueLength;
+    }
+
+    private static long sum(AtomicLongArray counts) {
+
+        long sum = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            sum += counts.get(i);
+        }
+        return sum;
+    }
+
+    /**
+     * @return number of times the stripe was acquired
+     */
+    public long getAcquisitionCount(int stripe) {
+        return acquisitionCounts.get(stripe);
+    }
+
+    /**
+     * @return number of acquisitions of the stripe which had to wait for another thread
+     */
+    public long getContentionCount(int stripe) {
+        return contentionCounts.get(stripe);
+    }
+
+    /**
+     * @return total time threads spent waiting for the stripe, in nanoseconds
+     */
+    public long getWaitTimeNanos(int stripe) {
+        return waitTimeNanos.get(stripe);
+    }
+
+    /**
+     * @return number of threads currently waiting for the stripe
+     */
+    public int getQueueLength(int stripe) {
+        return stripes[stripe].getQueueLength();
+    }
+
+    private static int readStripeCount() {
+
+        String stripeCount = IdentityUtil.getProperty(STRIPE_COUNT_PROPERTY);
+        if (StringUtils.isNotBlank(stripeCount)) {
+            try {
+                int count = Integer.parseInt(stripeCount.trim());
+                if (count > 0) {
+                    return count;
+                }
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value configured for " + STRIPE_COUNT_PROPERTY + ". Using default value : " +
+                        DEFAULT_STRIPE_COUNT);
+            }
+        }
+        return DEFAULT_STRIPE_COUNT;
+    }
+}
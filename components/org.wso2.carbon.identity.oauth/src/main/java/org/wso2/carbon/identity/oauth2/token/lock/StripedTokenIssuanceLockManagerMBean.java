@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+/**
+ * JMX view of the stripe statistics of {@link StripedTokenIssuanceLockManager}, summed over all stripes. The lock
+ * manager is registered under <code>org.wso2.carbon.identity.oauth2:type=TokenIssuanceLock</code>.
+ */
+public interface StripedTokenIssuanceLockManagerMBean {
+
+    int getStripeCount();
+
+    long getAcquisitionCount();
+
+    /**
+     * @return number of acquisitions which had to wait for another thread
+     */
+    long getContentionCount();
+
+    /**
+     * @return highest contention count of a single stripe. A value close to {@link #getContentionCount()} points to
+     * a hot client, user and scope combination rather than too few stripes
+     */
+    long getMaxStripeContentionCount();
+
+    long getWaitTimeMillis();
+
+    /**
+     * @return number of threads currently waiting for a stripe
+     */
+    int getQueueLength();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.token.lock;
+
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * Serializes token issuance for the same client, user and scope so that concurrent token requests do not issue
+ * more than one active token for the same combination.
+ */
+public interface TokenIssuanceLockManager {
+
+    /**
+     * Acquires the lock for the given client, user and scope, blocking until it is available.
+     *
+     * @param consumerKey client id of the token request
+     * @param authorizedUser authorized user of the token request
+     * @param scope space separated scope string of the token request
+     * @return handle that must be released in a finally block
+     * @throws IdentityOAuth2Exception if the lock could not be acquired
+     */
+    TokenIssuanceLock acquire(String consumerKey, String authorizedUser, String scope) throws IdentityOAuth2Exception;
+
+}
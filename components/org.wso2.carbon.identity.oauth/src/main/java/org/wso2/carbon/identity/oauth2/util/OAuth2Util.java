@@ -22,7 +22,6 @@ import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.impl.builder.StAXOMBuilder;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.io.Charsets;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,6 +46,7 @@ import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
 import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
+import org.wso2.carbon.identity.oauth2.dao.TokenPartitionRouter;
 import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.model.ClientCredentialDO;
@@ -461,89 +461,37 @@ public class OAuth2Util {
         return OAuthServerConfiguration.getInstance().getAccessTokenPartitioningDomains();
     }
 
+    /**
+     * @return domain to partition mappings of the access token table, keyed case insensitively
+     * @throws IdentityOAuth2Exception if the partitioning domains are not configured correctly
+     */
     public static Map<String, String> getAvailableUserStoreDomainMappings() throws
             IdentityOAuth2Exception {
-        //TreeMap is used to ignore the case sensitivity of key. Because when user logged in, the case of the user name is ignored.
-        Map<String, String> userStoreDomainMap = new TreeMap<String, String>(String.CASE_INSENSITIVE_ORDER);
-        String domainsStr = getAccessTokenPartitioningDomains();
-        if (domainsStr != null) {
-            String[] userStoreDomainsArr = domainsStr.split(",");
-            for (String userStoreDomains : userStoreDomainsArr) {
-                String[] mapping = userStoreDomains.trim().split(":"); //A:foo.com , B:bar.com
-                if (mapping.length < 2) {
-                    throw new IdentityOAuth2Exception("Domain mapping has not defined correctly");
-                }
-                userStoreDomainMap.put(mapping[1].trim(), mapping[0].trim()); //key=domain & value=mapping
-            }
-        }
-        return userStoreDomainMap;
+        return TokenPartitionRouter.getInstance().getDomainMappings();
     }
 
     public static String getUserStoreDomainFromUserId(String userId)
             throws IdentityOAuth2Exception {
-        String userStore = null;
-        if (userId != null) {
-            String[] strArr = userId.split("/");
-            if (strArr != null && strArr.length > 1) {
-                userStore = strArr[0];
-                Map<String, String> availableDomainMappings = getAvailableUserStoreDomainMappings();
-                if (availableDomainMappings != null &&
-                        availableDomainMappings.containsKey(userStore)) {
-                    userStore = getAvailableUserStoreDomainMappings().get(userStore);
-                }
-            }
-        }
-        return userStore;
+        return TokenPartitionRouter.getInstance().getUserStoreDomainFromUserId(userId);
     }
 
     public static String getUserStoreDomainFromAccessToken(String apiKey)
             throws IdentityOAuth2Exception {
-        String userStoreDomain = null;
-        String userId;
-        String decodedKey = new String(Base64.decodeBase64(apiKey.getBytes(Charsets.UTF_8)), Charsets.UTF_8);
-        String[] tmpArr = decodedKey.split(":");
-        if (tmpArr != null) {
-            userId = tmpArr[1];
-            if (userId != null) {
-                userStoreDomain = getUserStoreDomainFromUserId(userId);
-            }
-        }
-        return userStoreDomain;
+        return TokenPartitionRouter.getInstance().getUserStoreDomainFromAccessToken(apiKey);
     }
 
     public static String getAccessTokenStoreTableFromUserId(String userId)
             throws IdentityOAuth2Exception {
-        String accessTokenStoreTable = OAuthConstants.ACCESS_TOKEN_STORE_TABLE;
-        String userStore;
-        if (userId != null) {
-            String[] strArr = userId.split("/");
-            if (strArr != null && strArr.length > 1) {
-                userStore = strArr[0];
-                Map<String, String> availableDomainMappings = getAvailableUserStoreDomainMappings();
-                if (availableDomainMappings != null &&
-                        availableDomainMappings.containsKey(userStore)) {
-                    accessTokenStoreTable = accessTokenStoreTable + "_" +
-                            availableDomainMappings.get(userStore);
-                }
-            }
-        }
-        return accessTokenStoreTable;
+        return TokenPartitionRouter.getInstance().getAccessTokenStoreTableFromUserId(userId);
     }
 
     public static String getAccessTokenStoreTableFromAccessToken(String apiKey)
             throws IdentityOAuth2Exception {
-        String userId = getUserIdFromAccessToken(apiKey); //i.e: 'foo.com/admin' or 'admin'
-        return getAccessTokenStoreTableFromUserId(userId);
+        return TokenPartitionRouter.getInstance().getAccessTokenStoreTableFromAccessToken(apiKey);
     }
 
     public static String getUserIdFromAccessToken(String apiKey) {
-        String userId = null;
-        String decodedKey = new String(Base64.decodeBase64(apiKey.getBytes(Charsets.UTF_8)), Charsets.UTF_8);
-        String[] tmpArr = decodedKey.split(":");
-        if (tmpArr != null) {
-            userId = tmpArr[1];
-        }
-        return userId;
+        return TokenPartitionRouter.getUserIdFromAccessToken(apiKey);
     }
 
     public static long getTokenExpireTimeMillis(AccessTokenDO accessTokenDO) {
@@ -948,6 +896,45 @@ public class OAuth2Util {
     }
 
 
+    /**
+     * Multi token variant of {@link #getAccessTokenDOfromTokenIdentifier(String)}. Tokens missing in the cache are
+     * read from the database together.
+     *
+     * @param accessTokenIdentifiers access tokens
+     * @return access token to token data. Tokens which are not active are absent.
+     * @throws IdentityOAuth2Exception if the tokens could not be read
+     */
+    public static Map<String, AccessTokenDO> getAccessTokenDOsfromTokenIdentifiers(
+            Collection<String> accessTokenIdentifiers) throws IdentityOAuth2Exception {
+
+        Map<String, AccessTokenDO> accessTokenDOs = new HashMap<>();
+        boolean cacheEnabled = OAuthServerConfiguration.getInstance().isCacheEnabled();
+        Set<String> cacheMisses = new HashSet<>();
+        for (String accessTokenIdentifier : accessTokenIdentifiers) {
+            if (cacheEnabled) {
+                CacheEntry result = OAuthCache.getInstance().getValueFromCache(
+                        new OAuthCacheKey(accessTokenIdentifier));
+                if (result instanceof AccessTokenDO) {
+                    accessTokenDOs.put(accessTokenIdentifier, (AccessTokenDO) result);
+                    continue;
+                }
+            }
+            cacheMisses.add(accessTokenIdentifier);
+        }
+        if (cacheMisses.isEmpty()) {
+            return accessTokenDOs;
+        }
+
+        Map<String, AccessTokenDO> retrieved = new TokenMgtDAO().retrieveActiveAccessTokens(cacheMisses);
+        if (cacheEnabled) {
+            for (Map.Entry<String, AccessTokenDO> entry : retrieved.entrySet()) {
+                OAuthCache.getInstance().addToCache(new OAuthCacheKey(entry.getKey()), entry.getValue());
+            }
+        }
+        accessTokenDOs.putAll(retrieved);
+        return accessTokenDOs;
+    }
+
     public static String getClientIdForAccessToken(String accessTokenIdentifier) throws IdentityOAuth2Exception {
         AccessTokenDO accessTokenDO = getAccessTokenDOfromTokenIdentifier(accessTokenIdentifier);
         return accessTokenDO.getConsumerKey();
@@ -1032,6 +1019,25 @@ public class OAuth2Util {
         }
     }
 
+    /**
+     * Get the state of an Oauth application from the application information cache.
+     *
+     * @param clientId
+     * @return app state, or null if no application is registered for the client id
+     * @throws IdentityOAuth2Exception
+     */
+    public static String getAppState(String clientId) throws IdentityOAuth2Exception {
+
+        try {
+            return getAppInformationByClientId(clientId).getState();
+        } catch (InvalidOAuthClientException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("No Oauth application found for client id : " + clientId, e);
+            }
+            return null;
+        }
+    }
+
     /**
      * Get the tenant domain of an oauth application
      *
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.util;
+
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSASigner;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.Charsets;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.identity.base.IdentityException;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import javax.crypto.SecretKey;
+import java.security.Key;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Registry of tenant signing keys shared by the JWT producers of the OAuth component. The private key and
+ * certificate of a tenant are read from its key store once and kept as a {@link TenantSigningKey} holding a ready to
+ * use signer. Concurrent requests for a tenant which is not loaded yet wait on a single key store lookup.
+ * <p>
+ * A loaded key is kept until {@link #invalidate(int)} is called. If
+ * <code>OAuth.SigningKeys.RefreshInterval</code> is set, keys are also reloaded after that many seconds so that a
+ * rotated key store is picked up without a restart.
+ */
+public class SigningKeyRegistry {
+
+    /**
+     * Tenant id to pass to {@link #getSigningKey(String, int)} to have it resolved from the tenant domain.
+     */
+    public static final int TENANT_ID_NOT_RESOLVED = 0;
+
+    private static final Log log = LogFactory.getLog(SigningKeyRegistry.class);
+
+    private static final String REFRESH_INTERVAL = "OAuth.SigningKeys.RefreshInterval";
+
+    private static final SigningKeyRegistry instance = new SigningKeyRegistry();
+
+    private final ConcurrentMap<Integer, FutureTask<TenantSigningKey>> signingKeys = new ConcurrentHashMap<>();
+    private volatile long refreshIntervalInMillis = -1L;
+
+    private SigningKeyRegistry() {
+    }
+
+    public static SigningKeyRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the signing key of the given tenant, loading it from the tenant key store if required.
+     *
+     * @param tenantDomain tenant domain. Super tenant is assumed if null
+     * @param tenantId tenant id. Resolved from the tenant domain if {@link #TENANT_ID_NOT_RESOLVED}
+     * @return signing key of the tenant
+     * @throws IdentityOAuth2Exception if the key could not be loaded
+     */
+    public TenantSigningKey getSigningKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        if (tenantDomain == null) {
+            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        }
+        if (tenantId == TENANT_ID_NOT_RESOLVED) {
+            tenantId = OAuth2Util.getTenantId(tenantDomain);
+        }
+
+        while (true) {
+            FutureTask<TenantSigningKey> loader = signingKeys.get(tenantId);
+            if (loader == null) {
+                FutureTask<TenantSigningKey> newLoader = createLoader(tenantDomain, tenantId);
+                loader = signingKeys.putIfAbsent(tenantId, newLoader);
+                if (loader == null) {
+                    loader = newLoader;
+                    newLoader.run();
+                }
+            }
+
+            TenantSigningKey signingKey;
+            try {
+                signingKey = loader.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IdentityOAuth2Exception("Interrupted while loading signing key of tenant " + tenantDomain, e);
+            } catch (ExecutionException e) {
+                // Do not keep failures, the next request retries the lookup.
+                signingKeys.remove(tenantId, loader);
+                if (e.getCause() instanceof IdentityOAuth2Exception) {
+                    throw (IdentityOAuth2Exception) e.getCause();
+                }
+                throw new IdentityOAuth2Exception("Error while loading signing key of tenant " + tenantDomain,
+                        e.getCause());
+            }
+
+            if (isExpired(signingKey)) {
+                signingKeys.remove(tenantId, loader);
+                continue;
+            }
+            return signingKey;
+        }
+    }
+
+    /**
+     * Discards the signing key of a tenant. The key is loaded again from the key store on next use.
+     *
+     * @param tenantId tenant id
+     */
+    public void invalidate(int tenantId) {
+
+        if (signingKeys.remove(tenantId) != null && log.isDebugEnabled()) {
+            log.debug("Signing key of tenant " + tenantId + " is invalidated");
+        }
+    }
+
+    private FutureTask<TenantSigningKey> createLoader(final String tenantDomain, final int tenantId) {
+
+        return new FutureTask<>(new Callable<TenantSigningKey>() {
+            @Override
+            public TenantSigningKey call() throws IdentityOAuth2Exception {
+                return loadSigningKey(tenantDomain, tenantId);
+            }
+        });
+    }
+
+    private TenantSigningKey loadSigningKey(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
+
+        try {
+            IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
+        } catch (IdentityException e) {
+            throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
+        }
+
+        // get tenant's key store manager
+        KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+
+        Key privateKey;
+        Certificate certificate;
+        try {
+            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
+                // derive key store name
+                String ksName = tenantDomain.trim().replace(".", "-");
+                String jksName = ksName + ".jks";
+                privateKey = tenantKSM.getPrivateKey(jksName, tenantDomain);
+                certificate = tenantKSM.getKeyStore(jksName).getCertificate(tenantDomain);
+            } else {
+                privateKey = tenantKSM.getDefaultPrivateKey();
+                certificate = tenantKSM.getDefaultPrimaryCertificate();
+            }
+        } catch (Exception e) {
+            throw new IdentityOAuth2Exception("Error while obtaining signing key of tenant " + tenantDomain, e);
+        }
+        if (privateKey == null) {
+            throw new IdentityOAuth2Exception("No signing key is available for tenant " + tenantDomain);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + privateKey.getAlgorithm() + " signing key of tenant " + tenantDomain);
+        }
+        return new TenantSigningKey(tenantId, createSigner(privateKey, tenantDomain),
+                createVerifier(privateKey, certificate), getThumbprint(certificate, tenantDomain));
+    }
+
+    private JWSSigner createSigner(Key privateKey, String tenantDomain) throws IdentityOAuth2Exception {
+
+        if (privateKey instanceof RSAPrivateKey) {
+            return new RSASSASigner((RSAPrivateKey) privateKey);
+        } else if (privateKey instanceof ECPrivateKey) {
+            return new ECDSASigner(((ECPrivateKey) privateKey).getS());
+        } else if (privateKey instanceof SecretKey) {
+            return new MACSigner(privateKey.getEncoded());
+        }
+        throw new IdentityOAuth2Exception("Unsupported " + privateKey.getAlgorithm() + " signing key in tenant " +
+                tenantDomain);
+    }
+
+    private JWSVerifier createVerifier(Key privateKey, Certificate certificate) {
+
+        if (privateKey instanceof SecretKey) {
+            return new MACVerifier(privateKey.getEncoded());
+        } else if (certificate == null) {
+            return null;
+        } else if (certificate.getPublicKey() instanceof RSAPublicKey) {
+            return new RSASSAVerifier((RSAPublicKey) certificate.getPublicKey());
+        } else if (certificate.getPublicKey() instanceof ECPublicKey) {
+            ECPublicKey publicKey = (ECPublicKey) certificate.getPublicKey();
+            return new ECDSAVerifier(publicKey.getW().getAffineX(), publicKey.getW().getAffineY());
+        }
+        return null;
+    }
+
+    /**
+     * Computes the certificate thumbprint added to JWT headers: the base64url encoded, hex formatted SHA-1 digest of
+     * the DER encoded certificate.
+     */
+    private String getThumbprint(Certificate certificate, String tenantDomain) throws IdentityOAuth2Exception {
+
+        if (certificate == null) {
+            return null;
+        }
+        try {
+            String publicCertThumbprint = Hex.encodeHexString(DigestUtils.sha1(certificate.getEncoded()));
+            return new String(new Base64(0, null, true).encode(publicCertThumbprint.getBytes(Charsets.UTF_8)),
+                    Charsets.UTF_8);
+        } catch (CertificateEncodingException e) {
+            throw new IdentityOAuth2Exception("Error in obtaining certificate for tenant " + tenantDomain, e);
+        }
+    }
+
+    private boolean isExpired(TenantSigningKey signingKey) {
+
+        long refreshInterval = getRefreshInterval();
+        return refreshInterval > 0 && System.currentTimeMillis() - signingKey.getLoadedTime() > refreshInterval;
+    }
+
+    private long getRefreshInterval() {
+
+        if (refreshIntervalInMillis != -1L) {
+            return refreshIntervalInMillis;
+        }
+        long refreshInterval = 0;
+        String refreshIntervalValue = IdentityUtil.getProperty(REFRESH_INTERVAL);
+        if (StringUtils.isNotBlank(refreshIntervalValue)) {
+            try {
+                refreshInterval = Long.parseLong(refreshIntervalValue.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value " + refreshIntervalValue + " for " + REFRESH_INTERVAL +
+                        ". Signing keys will not be refreshed.");
+            }
+        }
+        refreshIntervalInMillis = refreshInterval;
+        return refreshInterval;
+    }
+}
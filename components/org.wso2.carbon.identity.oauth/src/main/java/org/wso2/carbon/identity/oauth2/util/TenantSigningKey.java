@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.util;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.util.Base64URL;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+/**
+ * Ready to use signing material of a tenant, resolved by {@link SigningKeyRegistry}. The signer and verifier are
+ * thread safe and shared by all tokens signed or verified for the tenant.
+ */
+public class TenantSigningKey {
+
+    private final int tenantId;
+    private final JWSSigner signer;
+    private final JWSVerifier verifier;
+    private final String certThumbprint;
+    private final long loadedTime;
+
+    public TenantSigningKey(int tenantId, JWSSigner signer, JWSVerifier verifier, String certThumbprint) {
+        this.tenantId = tenantId;
+        this.signer = signer;
+        this.verifier = verifier;
+        this.certThumbprint = certThumbprint;
+        this.loadedTime = System.currentTimeMillis();
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public JWSSigner getSigner() {
+        return signer;
+    }
+
+    /**
+     * @return verifier of the signatures produced by {@link #getSigner()}, or null if the tenant has no certificate
+     * to verify them with
+     */
+    public JWSVerifier getVerifier() {
+        return verifier;
+    }
+
+    /**
+     * @return base64url encoded thumbprint of the tenant certificate, or null if the tenant has no certificate
+     */
+    public String getCertThumbprint() {
+        return certThumbprint;
+    }
+
+    public long getLoadedTime() {
+        return loadedTime;
+    }
+
+    /**
+     * @param algorithm JWS algorithm
+     * @return true if the key of the tenant can produce signatures of the given algorithm
+     */
+    public boolean supports(JWSAlgorithm algorithm) {
+        return signer.supportedAlgorithms().contains(algorithm);
+    }
+
+    /**
+     * Creates a JWS header for the given algorithm carrying the certificate thumbprint of the tenant. A new header
+     * is returned on every call since headers are mutable.
+     *
+     * @param algorithm JWS algorithm
+     * @return JWS header
+     * @throws IdentityOAuth2Exception if the key of the tenant cannot be used with the algorithm
+     */
+    public JWSHeader createHeader(JWSAlgorithm algorithm) throws IdentityOAuth2Exception {
+
+        if (!supports(algorithm)) {
+            throw new IdentityOAuth2Exception("Signing key of tenant " + tenantId + " cannot be used with " +
+                    algorithm.getName());
+        }
+        JWSHeader header = new JWSHeader(algorithm);
+        if (certThumbprint != null) {
+            header.setX509CertThumbprint(new Base64URL(certThumbprint));
+        }
+        return header;
+    }
+}
@@ -24,15 +24,9 @@ import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.application.common.model.User;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
-import org.wso2.carbon.identity.oauth.cache.CacheEntry;
-import org.wso2.carbon.identity.oauth.cache.OAuthCache;
-import org.wso2.carbon.identity.oauth.cache.OAuthCacheKey;
-import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
-import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
-import org.wso2.carbon.identity.oauth2.model.ResourceScopeCacheEntry;
 import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.api.UserStoreManager;
 import org.wso2.carbon.user.core.service.RealmService;
@@ -63,35 +57,8 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
             return true;
         }
 
-        String resourceScope = null;
-        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
-
-        boolean cacheHit = false;
-        // Check the cache, if caching is enabled.
-        if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
-            OAuthCache oauthCache = OAuthCache.getInstance();
-            OAuthCacheKey cacheKey = new OAuthCacheKey(resource);
-            CacheEntry result = oauthCache.getValueFromCache(cacheKey);
-
-            //Cache hit
-            if (result instanceof ResourceScopeCacheEntry) {
-                resourceScope = ((ResourceScopeCacheEntry) result).getScope();
-                cacheHit = true;
-            }
-        }
-
-        if (!cacheHit) {
-            resourceScope = tokenMgtDAO.findScopeOfResource(resource);
-
-            if (OAuthServerConfiguration.getInstance().isCacheEnabled()) {
-                OAuthCache oauthCache = OAuthCache.getInstance();
-                OAuthCacheKey cacheKey = new OAuthCacheKey(resource);
-                ResourceScopeCacheEntry cacheEntry = new ResourceScopeCacheEntry(resourceScope);
-                //Store resourceScope in cache even if it is null (to avoid database calls when accessing resources for
-                //which scopes haven't been defined).
-                oauthCache.addToCache(cacheKey, cacheEntry);
-            }
-        }
+        ResourceScopeIndex resourceScopeIndex = ResourceScopeIndex.getInstance();
+        String resourceScope = resourceScopeIndex.getScopeOfResource(resource);
 
         //Return TRUE if - There does not exist a scope definition for the resource
         if (resourceScope == null) {
@@ -114,10 +81,10 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
 
         try {
             //Get the roles associated with the scope, if any
-            Set<String> rolesOfScope = tokenMgtDAO.getRolesOfScopeByScopeKey(resourceScope);
+            Set<String> rolesOfScope = resourceScopeIndex.getRolesOfScope(resourceScope);
 
             //If the scope doesn't have any roles associated with it.
-            if(rolesOfScope == null || rolesOfScope.isEmpty()){
+            if(rolesOfScope.isEmpty()){
                 if(log.isDebugEnabled()){
                     log.debug("Did not find any roles associated to the scope " + resourceScope);
                 }
@@ -143,29 +110,35 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
                 tenantId = IdentityTenantUtil.getTenantIdOfUser(authzUser.getUserName());
             }
 
-            UserStoreManager userStoreManager;
-            String[] userRoles;
-            boolean tenantFlowStarted = false;
-
-            try{
-                //If this is a tenant user
-                if(tenantId != MultitenantConstants.SUPER_TENANT_ID){
-                    PrivilegedCarbonContext.startTenantFlow();
-                    PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
-                                                            realmService.getTenantManager().getDomain(tenantId),true);
-                    tenantFlowStarted = true;
-                }
+            String tenantAwareUsername = MultitenantUtils.getTenantAwareUsername(authzUser.getUserName());
+            UserRolesCache userRolesCache = UserRolesCache.getInstance();
+            Set<String> userRoles = userRolesCache.getRoles(tenantId, authzUser.getUserStoreDomain(),
+                    tenantAwareUsername);
+
+            if (userRoles == null) {
+                UserStoreManager userStoreManager;
+                boolean tenantFlowStarted = false;
+
+                try{
+                    //If this is a tenant user
+                    if(tenantId != MultitenantConstants.SUPER_TENANT_ID){
+                        PrivilegedCarbonContext.startTenantFlow();
+                        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain(
+                                realmService.getTenantManager().getDomain(tenantId),true);
+                        tenantFlowStarted = true;
+                    }
 
-                userStoreManager = realmService.getTenantUserRealm(tenantId).getUserStoreManager();
-                userRoles = userStoreManager.getRoleListOfUser(
-                        MultitenantUtils.getTenantAwareUsername(authzUser.getUserName()));
-            } finally {
-                if (tenantFlowStarted) {
-                    PrivilegedCarbonContext.endTenantFlow();
+                    userStoreManager = realmService.getTenantUserRealm(tenantId).getUserStoreManager();
+                    userRoles = userRolesCache.addRoles(tenantId, authzUser.getUserStoreDomain(), tenantAwareUsername,
+                            userStoreManager.getRoleListOfUser(tenantAwareUsername));
+                } finally {
+                    if (tenantFlowStarted) {
+                        PrivilegedCarbonContext.endTenantFlow();
+                    }
                 }
             }
 
-            if(userRoles != null && userRoles.length > 0){
+            if(!userRoles.isEmpty()){
                 if(log.isDebugEnabled()){
                     StringBuilder logMessage = new StringBuilder("Found roles of user ");
                     logMessage.append(authzUser.getUserName());
@@ -176,9 +149,14 @@ public class JDBCScopeValidator extends OAuth2ScopeValidator {
                     }
                     log.debug(logMessage.toString());
                 }
-                //Check if the user still has a valid role for this scope.
-                rolesOfScope.retainAll(Arrays.asList(userRoles));
-                return !rolesOfScope.isEmpty();
+                //Check if the user still has a valid role for this scope. Both sets are shared, so neither is
+                //modified.
+                for (String role : rolesOfScope) {
+                    if (userRoles.contains(role)) {
+                        return true;
+                    }
+                }
+                return false;
             }
             else{
                 if(log.isDebugEnabled()){
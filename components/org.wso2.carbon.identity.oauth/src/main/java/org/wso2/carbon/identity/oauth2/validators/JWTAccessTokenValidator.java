@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jwt.ReadOnlyJWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.oauth.cache.RevokedTokenCache;
+import org.wso2.carbon.identity.oauth.cache.RevokedTokenCacheEntry;
+import org.wso2.carbon.identity.oauth.common.OAuthConstants;
+import org.wso2.carbon.identity.oauth.common.exception.InvalidOAuthClientException;
+import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
+import org.wso2.carbon.identity.oauth.dao.OAuthAppDO;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+import org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer;
+import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry;
+import org.wso2.carbon.identity.openidconnect.ServiceProviderProfileCache;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Validator of the self-contained access tokens issued by {@link JWTTokenIssuer}. The signature, issuer and lifetime
+ * of the token are checked locally, and the token details are taken from its claims. The client named by the
+ * <code>azp</code> claim has to be active, belong to the tenant whose key signed the token and still have JWT access
+ * tokens enabled. Scope and access delegation are validated as done by {@link DefaultOAuth2TokenValidator}, against
+ * an {@link AccessTokenDO} built from the claims.
+ * <p/>
+ * Revocation is checked against {@link RevokedTokenCache}, which holds the state of the token until it expires and is
+ * updated when the token is revoked. The token store is only read when the token is not in the cache.
+ */
+public class JWTAccessTokenValidator extends DefaultOAuth2TokenValidator {
+
+    public static final String TOKEN_TYPE = "jwt";
+
+    private static final Log log = LogFactory.getLog(JWTAccessTokenValidator.class);
+
+    // tokens are persisted asynchronously, so a token issued this recently may not have reached the token store yet
+    private static final long PERSISTENCE_GRACE_PERIOD = 60 * 1000;
+
+    private TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
+
+    /**
+     * @param accessToken access token
+     * @return true if the token is in JWS compact serialization, as issued by {@link JWTTokenIssuer}
+     */
+    public static boolean isJWTAccessToken(String accessToken) {
+        return accessToken != null && accessToken.indexOf(':') < 0 && StringUtils.countMatches(accessToken, ".") == 2;
+    }
+
+    @Override
+    public boolean validateAccessToken(OAuth2TokenValidationMessageContext messageContext)
+            throws IdentityOAuth2Exception {
+
+        String accessToken = messageContext.getRequestDTO().getAccessToken().getIdentifier();
+        if (!isJWTAccessToken(accessToken)) {
+            return false;
+        }
+
+        SignedJWT signedJWT;
+        ReadOnlyJWTClaimsSet claimsSet;
+        try {
+            signedJWT = SignedJWT.parse(accessToken);
+            claimsSet = signedJWT.getJWTClaimsSet();
+        } catch (ParseException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("Access token is not a valid JWT", e);
+            }
+            return false;
+        }
+
+        if (claimsSet.getSubject() == null || !OAuth2Util.getIDTokenIssuer().equals(claimsSet.getIssuer())) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " is not issued by this server");
+            }
+            return false;
+        }
+        String clientId = getStringClaim(claimsSet, JWTTokenIssuer.AUTHORIZED_PARTY_CLAIM);
+        String tenantDomain = getClientTenantDomain(clientId, claimsSet);
+        if (tenantDomain == null || !verifySignature(signedJWT, claimsSet, tenantDomain) ||
+                !isJWTAccessTokenEnabled(clientId, tenantDomain, claimsSet)) {
+            return false;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        long skew = OAuthServerConfiguration.getInstance().getTimeStampSkewInSeconds() * 1000;
+        Date expirationTime = claimsSet.getExpirationTime();
+        if (expirationTime != null && currentTime - skew > expirationTime.getTime()) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " has expired");
+            }
+            return false;
+        }
+        Date notBeforeTime = claimsSet.getNotBeforeTime();
+        if (notBeforeTime != null && currentTime + skew < notBeforeTime.getTime()) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " is not valid yet");
+            }
+            return false;
+        }
+        if (isRevoked(accessToken, claimsSet)) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " has been revoked");
+            }
+            return false;
+        }
+
+        addTokenProperties(messageContext, accessToken, claimsSet, clientId, tenantDomain);
+        return true;
+    }
+
+    /**
+     * @return tenant domain of the active client the token is issued to, or null if there is no such client or the
+     * token claims another tenant
+     */
+    private String getClientTenantDomain(String clientId, ReadOnlyJWTClaimsSet claimsSet)
+            throws IdentityOAuth2Exception {
+
+        if (clientId == null) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " does not name its client");
+            }
+            return null;
+        }
+        OAuthAppDO oAuthAppDO;
+        try {
+            oAuthAppDO = OAuth2Util.getAppInformationByClientId(clientId);
+        } catch (InvalidOAuthClientException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("No OAuth application found for client id " + clientId + " of JWT access token " +
+                        claimsSet.getJWTID(), e);
+            }
+            return null;
+        }
+        if (!OAuthConstants.OauthAppStates.APP_STATE_ACTIVE.equalsIgnoreCase(oAuthAppDO.getState())) {
+            if (log.isDebugEnabled()) {
+                log.debug("OAuth application of client id " + clientId + " of JWT access token " +
+                        claimsSet.getJWTID() + " is not active");
+            }
+            return null;
+        }
+        String tenantDomain = OAuth2Util.getTenantDomainOfOauthApp(oAuthAppDO);
+        if (!tenantDomain.equals(getStringClaim(claimsSet, JWTTokenIssuer.TENANT_DOMAIN_CLAIM))) {
+            if (log.isDebugEnabled()) {
+                log.debug("JWT access token " + claimsSet.getJWTID() + " does not carry the tenant of client id " +
+                        clientId);
+            }
+            return null;
+        }
+        return tenantDomain;
+    }
+
+    private boolean isJWTAccessTokenEnabled(String clientId, String tenantDomain, ReadOnlyJWTClaimsSet claimsSet)
+            throws IdentityOAuth2Exception {
+
+        try {
+            if (ServiceProviderProfileCache.getInstance().getProfile(clientId, tenantDomain).isJwtAccessToken()) {
+                return true;
+            }
+        } catch (IdentityApplicationManagementException e) {
+            throw new IdentityOAuth2Exception("Error while reading the service provider of client " + clientId, e);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("JWT access tokens are not enabled anymore for client id " + clientId + " of JWT access " +
+                    "token " + claimsSet.getJWTID());
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the cached state of the token is revoked or, when it is not cached, the token store has the
+     * token in a state other than active or expired, or does not have a token which should have been persisted by now
+     */
+    private boolean isRevoked(String accessToken, ReadOnlyJWTClaimsSet claimsSet) throws IdentityOAuth2Exception {
+
+        String jti = claimsSet.getJWTID();
+        RevokedTokenCacheEntry cachedState = RevokedTokenCache.getInstance().getTokenState(jti);
+        if (cachedState != null) {
+            return cachedState.isRevoked();
+        }
+
+        String tokenState = tokenMgtDAO.retrieveAccessTokenState(accessToken);
+        if (tokenState == null) {
+            Date issueTime = claimsSet.getIssueTime();
+            return issueTime == null || System.currentTimeMillis() - issueTime.getTime() > PERSISTENCE_GRACE_PERIOD;
+        }
+        long expiryTime = claimsSet.getExpirationTime() != null ? claimsSet.getExpirationTime().getTime() : -1L;
+        if (OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE.equals(tokenState) ||
+                OAuthConstants.TokenStates.TOKEN_STATE_EXPIRED.equals(tokenState)) {
+            RevokedTokenCache.getInstance().addActiveToken(jti, expiryTime);
+            return false;
+        }
+        RevokedTokenCache.getInstance().addRevokedToken(jti, expiryTime);
+        return true;
+    }
+
+    private boolean verifySignature(SignedJWT signedJWT, ReadOnlyJWTClaimsSet claimsSet, String tenantDomain)
+            throws IdentityOAuth2Exception {
+
+        JWSVerifier verifier = SigningKeyRegistry.getInstance().getSigningKey(tenantDomain,
+                SigningKeyRegistry.TENANT_ID_NOT_RESOLVED).getVerifier();
+        if (verifier == null || !verifier.supportedAlgorithms().contains(signedJWT.getHeader().getAlgorithm())) {
+            if (log.isDebugEnabled()) {
+                log.debug("Signature of JWT access token " + claimsSet.getJWTID() + " cannot be verified with the " +
+                        "key of tenant " + tenantDomain);
+            }
+            return false;
+        }
+        try {
+            if (!signedJWT.verify(verifier)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Invalid signature of JWT access token " + claimsSet.getJWTID());
+                }
+                return false;
+            }
+            return true;
+        } catch (JOSEException e) {
+            throw new IdentityOAuth2Exception("Error while verifying the signature of JWT access token " +
+                    claimsSet.getJWTID(), e);
+        }
+    }
+
+    /**
+     * Exposes the token details to {@link TokenValidationHandler} the same way remote and JWT access tokens are
+     * described to it, and adds an {@link AccessTokenDO} for scope validation and authorization context tokens.
+     */
+    private void addTokenProperties(OAuth2TokenValidationMessageContext messageContext, String accessToken,
+                                    ReadOnlyJWTClaimsSet claimsSet, String clientId, String tenantDomain)
+            throws IdentityOAuth2Exception {
+
+        String scope = getStringClaim(claimsSet, OAuth2Util.SCOPE);
+        Date issueTime = claimsSet.getIssueTime() != null ? claimsSet.getIssueTime() : new Date();
+        long validityPeriodInMillis = claimsSet.getExpirationTime() != null ?
+                claimsSet.getExpirationTime().getTime() - issueTime.getTime() : -1L;
+
+        AccessTokenDO accessTokenDO = new AccessTokenDO(clientId, OAuth2Util.getUserFromUserName(claimsSet
+                .getSubject()), OAuth2Util.buildScopeArray(scope), new Timestamp(issueTime.getTime()), null,
+                validityPeriodInMillis, 0, OAuthConstants.UserType.APPLICATION_USER);
+        accessTokenDO.setAccessToken(accessToken);
+        accessTokenDO.setTokenId(claimsSet.getJWTID());
+        accessTokenDO.setTokenState(OAuthConstants.TokenStates.TOKEN_STATE_ACTIVE);
+        accessTokenDO.setTenantID(OAuth2Util.getTenantId(tenantDomain));
+        messageContext.addProperty("AccessTokenDO", accessTokenDO);
+
+        messageContext.addProperty(OAuth2Util.REMOTE_ACCESS_TOKEN, "true");
+        messageContext.addProperty(OAuth2Util.JWT_ACCESS_TOKEN, "true");
+        messageContext.addProperty(OAuth2Util.IAT, String.valueOf(issueTime.getTime() / 1000));
+        if (claimsSet.getExpirationTime() != null) {
+            messageContext.addProperty(OAuth2Util.EXP, String.valueOf(claimsSet.getExpirationTime().getTime() / 1000));
+        }
+        if (claimsSet.getNotBeforeTime() != null) {
+            messageContext.addProperty(OAuth2Util.NBF, String.valueOf(claimsSet.getNotBeforeTime().getTime() / 1000));
+        }
+        if (scope != null) {
+            messageContext.addProperty(OAuth2Util.SCOPE, scope);
+        }
+        messageContext.addProperty(OAuth2Util.CLIENT_ID, clientId);
+        List<String> audience = claimsSet.getAudience();
+        if (audience != null && !audience.isEmpty()) {
+            messageContext.addProperty(OAuth2Util.AUD, audience.get(0));
+        }
+        messageContext.addProperty(OAuth2Util.USERNAME, claimsSet.getSubject());
+        messageContext.addProperty(OAuth2Util.SUB, claimsSet.getSubject());
+        messageContext.addProperty(OAuth2Util.ISS, claimsSet.getIssuer());
+        if (claimsSet.getJWTID() != null) {
+            messageContext.addProperty(OAuth2Util.JTI, claimsSet.getJWTID());
+        }
+    }
+
+    private static String getStringClaim(ReadOnlyJWTClaimsSet claimsSet, String claimName) {
+
+        Object value = claimsSet.getCustomClaim(claimName);
+        return value != null ? value.toString() : null;
+    }
+}
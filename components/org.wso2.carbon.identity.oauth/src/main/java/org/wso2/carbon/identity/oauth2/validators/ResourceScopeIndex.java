@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Node local, in memory index of the resources protected with scopes (IDN_OAUTH2_RESOURCE_SCOPE) and of the roles of
+ * each scope (IDN_OAUTH2_SCOPE). Both tables are loaded with one query each and the index is reloaded every
+ * <code>OAuth.ScopeValidation.IndexTimeout</code> seconds (default 300). Lookups of unprotected resources therefore
+ * never reach the database, however many distinct resource URIs are validated.
+ * <p>
+ * With <code>OAuth.ScopeValidation.ResourcePrefixMatch</code> enabled, a resource without a scope of its own is
+ * protected by the scope of its longest protected parent path, e.g. /orders/123 by the scope of /orders.
+ */
+public class ResourceScopeIndex {
+
+    private static final Log log = LogFactory.getLog(ResourceScopeIndex.class);
+
+    /**
+     * Scopes and resources are written to the database by other products, e.g. when an API is published, and no
+     * event reaches this node. A scope, resource or role change therefore takes effect on a node up to this many
+     * seconds later, and a token keeps passing or failing the old check until then.
+     */
+    private static final String INDEX_TIMEOUT = "OAuth.ScopeValidation.IndexTimeout";
+    private static final String RESOURCE_PREFIX_MATCH = "OAuth.ScopeValidation.ResourcePrefixMatch";
+    private static final long DEFAULT_INDEX_TIMEOUT = 300;
+
+    private static volatile ResourceScopeIndex instance;
+
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final long timeoutInMillis;
+    private final boolean prefixMatch;
+    private volatile Snapshot snapshot;
+
+    private ResourceScopeIndex() {
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(INDEX_TIMEOUT, DEFAULT_INDEX_TIMEOUT) * 1000;
+        prefixMatch = Boolean.parseBoolean(IdentityUtil.getProperty(RESOURCE_PREFIX_MATCH));
+    }
+
+    public static ResourceScopeIndex getInstance() {
+        if (instance == null) {
+            synchronized (ResourceScopeIndex.class) {
+                if (instance == null) {
+                    instance = new ResourceScopeIndex();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param resource resource URI
+     * @return key of the scope protecting the resource, or null if it is not protected
+     * @throws IdentityOAuth2Exception if the index could not be loaded
+     */
+    public String getScopeOfResource(String resource) throws IdentityOAuth2Exception {
+
+        if (resource == null) {
+            return null;
+        }
+        Map<String, String> resourceScopes = getSnapshot().resourceScopes;
+        String scope = resourceScopes.get(resource);
+        if (scope != null || !prefixMatch) {
+            return scope;
+        }
+
+        String path = StringUtils.substringBefore(resource, "?");
+        int separator = path.lastIndexOf('/');
+        while (separator > 0) {
+            path = path.substring(0, separator);
+            scope = resourceScopes.get(path);
+            if (scope == null) {
+                scope = resourceScopes.get(path + "/");
+            }
+            if (scope != null) {
+                return scope;
+            }
+            separator = path.lastIndexOf('/');
+        }
+        return null;
+    }
+
+    /**
+     * @param scopeKey scope key
+     * @return unmodifiable set of roles of the scope. Empty if the scope has no roles or does not exist
+     * @throws IdentityOAuth2Exception if the index could not be loaded
+     */
+    public Set<String> getRolesOfScope(String scopeKey) throws IdentityOAuth2Exception {
+
+        Set<String> roles = getSnapshot().scopeRoles.get(scopeKey);
+        if (roles == null) {
+            return Collections.emptySet();
+        }
+        return roles;
+    }
+
+    private Snapshot getSnapshot() throws IdentityOAuth2Exception {
+
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() - current.loadedTime <= timeoutInMillis) {
+            return current;
+        }
+
+        // while one thread reloads an expired index, the others keep using it
+        if (current != null && !loadLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            loadLock.lock();
+        }
+        try {
+            Snapshot latest = snapshot;
+            if (latest != null && latest != current) {
+                return latest;
+            }
+            latest = load();
+            snapshot = latest;
+            return latest;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private static Snapshot load() throws IdentityOAuth2Exception {
+
+        TokenMgtDAO tokenMgtDAO = new TokenMgtDAO();
+        Map<String, String> resourceScopes = tokenMgtDAO.getAllResourceScopes();
+        Map<String, Set<String>> scopeRoles = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : tokenMgtDAO.getAllScopeRoles().entrySet()) {
+            scopeRoles.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + resourceScopes.size() + " protected resources and " + scopeRoles.size() +
+                    " scopes into the resource scope index");
+        }
+        return new Snapshot(resourceScopes, scopeRoles);
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, String> resourceScopes;
+        private final Map<String, Set<String>> scopeRoles;
+        private final long loadedTime = System.currentTimeMillis();
+
+        private Snapshot(Map<String, String> resourceScopes, Map<String, Set<String>> scopeRoles) {
+            this.resourceScopes = resourceScopes;
+            this.scopeRoles = scopeRoles;
+        }
+    }
+}
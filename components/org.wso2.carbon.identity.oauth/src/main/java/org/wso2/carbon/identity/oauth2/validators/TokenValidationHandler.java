@@ -18,12 +18,17 @@
 
 package org.wso2.carbon.identity.oauth2.validators;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.common.model.User;
+import org.wso2.carbon.identity.oauth.cache.InvalidTokenCache;
 import org.wso2.carbon.identity.oauth.common.OAuthConstants;
 import org.wso2.carbon.identity.oauth.config.OAuthServerConfiguration;
 import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
@@ -43,6 +48,8 @@ import org.wso2.carbon.user.core.util.UserCoreUtil;
  */
 public class TokenValidationHandler {
 
+    private static final String ACCESS_TOKEN_EXPIRED = "Access token expired";
+
     private static TokenValidationHandler instance = null;
     AuthorizationContextTokenGenerator tokenGenerator = null;
     private Log log = LogFactory.getLog(TokenValidationHandler.class);
@@ -51,6 +58,7 @@ public class TokenValidationHandler {
 
     private TokenValidationHandler() {
         tokenValidators.put(DefaultOAuth2TokenValidator.TOKEN_TYPE, new DefaultOAuth2TokenValidator());
+        tokenValidators.put(JWTAccessTokenValidator.TOKEN_TYPE, new JWTAccessTokenValidator());
         for (Map.Entry<String, String> entry : OAuthServerConfiguration.getInstance().getTokenValidatorClassNames().entrySet()) {
             String className = null;
             try {
@@ -151,21 +159,43 @@ public class TokenValidationHandler {
 	    return buildClientAppErrorResponse(e.getMessage());
 	}
 	
-	try {
-	    accessTokenDO = findAccessToken(requestDTO.getAccessToken().getIdentifier());
-	} catch (IllegalArgumentException e) {
-	    // Access token not found in the system.
-	    return buildClientAppErrorResponse(e.getMessage());
-	}
-	
-	if ( hasAcessTokenExpired(accessTokenDO)) {
-	    return buildClientAppErrorResponse("Access token expired");
-	}
-	// Set the token expiration time
-	responseDTO.setExpiryTime(getAccessTokenExpirationTime(accessTokenDO));
+	boolean selfContained = tokenValidator instanceof JWTAccessTokenValidator;
+	if (selfContained) {
+	    // self-contained tokens carry everything needed for validation, so the token store is not read.
+	    if (!tokenValidator.validateAccessToken(messageContext)) {
+		return buildClientAppErrorResponse("OAuth2 access token validation failed");
+	    }
+	    accessTokenDO = (AccessTokenDO) messageContext.getProperty("AccessTokenDO");
+	    // seconds remaining, as for tokens read from the token store
+	    String exp = (String) messageContext.getProperty(OAuth2Util.EXP);
+	    responseDTO.setExpiryTime(exp != null ?
+		    Math.max(0, Long.parseLong(exp) - System.currentTimeMillis() / 1000) : Long.MAX_VALUE);
+	} else {
+	    String accessTokenIdentifier = requestDTO.getAccessToken().getIdentifier();
+	    String invalidTokenError = InvalidTokenCache.getInstance().getInvalidTokenError(accessTokenIdentifier);
+	    if (invalidTokenError != null) {
+		// Token recently failed validation.
+		return buildClientAppErrorResponse(invalidTokenError);
+	    }
 
-	// Adding the AccessTokenDO as a context property for further use
-	messageContext.addProperty("AccessTokenDO", accessTokenDO);
+	    try {
+		accessTokenDO = findAccessToken(accessTokenIdentifier);
+	    } catch (IllegalArgumentException e) {
+		// Access token not found in the system.
+		InvalidTokenCache.getInstance().addInvalidToken(accessTokenIdentifier, e.getMessage());
+		return buildClientAppErrorResponse(e.getMessage());
+	    }
+
+	    if ( hasAcessTokenExpired(accessTokenDO)) {
+		InvalidTokenCache.getInstance().addInvalidToken(accessTokenIdentifier, ACCESS_TOKEN_EXPIRED);
+		return buildClientAppErrorResponse(ACCESS_TOKEN_EXPIRED);
+	    }
+	    // Set the token expiration time
+	    responseDTO.setExpiryTime(getAccessTokenExpirationTime(accessTokenDO));
+
+	    // Adding the AccessTokenDO as a context property for further use
+	    messageContext.addProperty("AccessTokenDO", accessTokenDO);
+	}
 
         if (!tokenValidator.validateAccessDelegation(messageContext)) {
 	    return buildClientAppErrorResponse("Invalid access delegation");
@@ -175,7 +205,7 @@ public class TokenValidationHandler {
 	    return buildClientAppErrorResponse("Scope validation failed");
 	}
 
-        if (!tokenValidator.validateAccessToken(messageContext)) {
+        if (!selfContained && !tokenValidator.validateAccessToken(messageContext)) {
             return buildClientAppErrorResponse("OAuth2 access token validation failed");
         }
         
@@ -206,6 +236,72 @@ public class TokenValidationHandler {
     public OAuth2IntrospectionResponseDTO buildIntrospectionResponse(OAuth2TokenValidationRequestDTO validationRequest)
             throws IdentityOAuth2Exception {
 
+        return buildIntrospectionResponse(validationRequest, null);
+    }
+
+    /**
+     * Builds the introspection responses of several tokens. Tokens which are looked up in the token store are read
+     * together, through the cache, before the responses are built one by one.
+     *
+     * If reading them together fails, each token is looked up on its own, so that a failure only affects the
+     * response of the token it occurs for.
+     *
+     * @param validationRequests validation requests of the tokens
+     * @return introspection responses, in the order of the requests
+     */
+    public List<OAuth2IntrospectionResponseDTO> buildIntrospectionResponses(
+            List<OAuth2TokenValidationRequestDTO> validationRequests) {
+
+        Set<String> storedTokens = new HashSet<>();
+        for (OAuth2TokenValidationRequestDTO validationRequest : validationRequests) {
+            OAuth2TokenValidationRequestDTO.OAuth2AccessToken accessToken = validationRequest.getAccessToken();
+            if (accessToken == null || accessToken.getIdentifier() == null || accessToken.getTokenType() == null) {
+                continue;
+            }
+            OAuth2TokenValidator tokenValidator = tokenValidators.get(accessToken.getTokenType());
+            if (tokenValidator != null && !(tokenValidator instanceof JWTAccessTokenValidator) &&
+                    !JWTAccessTokenValidator.isJWTAccessToken(accessToken.getIdentifier()) &&
+                    InvalidTokenCache.getInstance().getInvalidTokenError(accessToken.getIdentifier()) == null) {
+                storedTokens.add(accessToken.getIdentifier());
+            }
+        }
+        Map<String, AccessTokenDO> accessTokenDOs = null;
+        try {
+            accessTokenDOs = OAuth2Util.getAccessTokenDOsfromTokenIdentifiers(storedTokens);
+            for (String storedToken : storedTokens) {
+                if (!accessTokenDOs.containsKey(storedToken)) {
+                    // looked up but not active
+                    accessTokenDOs.put(storedToken, null);
+                }
+            }
+        } catch (IdentityOAuth2Exception e) {
+            log.error("Error occurred while reading " + storedTokens.size() + " access tokens together. Looking " +
+                    "them up one by one", e);
+        }
+
+        List<OAuth2IntrospectionResponseDTO> responses = new ArrayList<>(validationRequests.size());
+        for (OAuth2TokenValidationRequestDTO validationRequest : validationRequests) {
+            try {
+                responses.add(buildIntrospectionResponse(validationRequest, accessTokenDOs));
+            } catch (IdentityOAuth2Exception e) {
+                log.error("Error occurred while building the introspection response", e);
+                responses.add(buildIntrospectionErrorResponse(e.getMessage()));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * @param validationRequest validation request of the token
+     * @param accessTokenDOs tokens read in advance, mapped to null if they are not active. Null to look up the token
+     *                       on demand
+     * @return introspection response of the token, compatible with RFC 7662
+     * @throws IdentityOAuth2Exception if the token could not be validated
+     */
+    private OAuth2IntrospectionResponseDTO buildIntrospectionResponse(OAuth2TokenValidationRequestDTO validationRequest,
+                                                                      Map<String, AccessTokenDO> accessTokenDOs)
+            throws IdentityOAuth2Exception {
+
         OAuth2TokenValidationResponseDTO responseDTO = new OAuth2TokenValidationResponseDTO();
         OAuth2IntrospectionResponseDTO introResp = new OAuth2IntrospectionResponseDTO();
         
@@ -255,15 +351,26 @@ public class TokenValidationHandler {
 	    
 	} else {
 	    
+	    String accessTokenIdentifier = validationRequest.getAccessToken().getIdentifier();
+	    String invalidTokenError = InvalidTokenCache.getInstance().getInvalidTokenError(accessTokenIdentifier);
+	    if (ACCESS_TOKEN_EXPIRED.equals(invalidTokenError)) {
+		introResp.setActive(false);
+		return introResp;
+	    } else if (invalidTokenError != null) {
+		return buildIntrospectionErrorResponse(invalidTokenError);
+	    }
+
 	    try {
-		accessTokenDO = findAccessToken(validationRequest.getAccessToken().getIdentifier());
+		accessTokenDO = findAccessToken(accessTokenIdentifier, accessTokenDOs);
 	    } catch (IllegalArgumentException e) {
 		// access token not found in the system.
+		InvalidTokenCache.getInstance().addInvalidToken(accessTokenIdentifier, e.getMessage());
 		return buildIntrospectionErrorResponse(e.getMessage());
 	    }
 	
 	    if (hasAcessTokenExpired(accessTokenDO)) {
 		// token is not active. we do not need to worry about other details.
+		InvalidTokenCache.getInstance().addInvalidToken(accessTokenIdentifier, ACCESS_TOKEN_EXPIRED);
 		introResp.setActive(false);
 		return introResp;
 	    }
@@ -399,6 +506,14 @@ public class TokenValidationHandler {
 	    throw new IdentityOAuth2Exception("Unsupported access token type: " + accessToken.getTokenType());
 	}
 
+	// self-contained tokens are presented as bearer tokens as well. route them to their own validator as long as
+	// the default bearer token validator is not replaced.
+	if (tokenValidator.getClass() == DefaultOAuth2TokenValidator.class
+		&& JWTAccessTokenValidator.isJWTAccessToken(accessTokenIdentifier)
+		&& tokenValidators.containsKey(JWTAccessTokenValidator.TOKEN_TYPE)) {
+	    tokenValidator = tokenValidators.get(JWTAccessTokenValidator.TOKEN_TYPE);
+	}
+
 	return tokenValidator;
     }
     
@@ -456,5 +571,25 @@ public class TokenValidationHandler {
     private AccessTokenDO findAccessToken(String tokenIdentifier) throws IdentityOAuth2Exception {
 		return OAuth2Util.getAccessTokenDOfromTokenIdentifier(tokenIdentifier);
     }
+
+    /**
+     * @param tokenIdentifier access token
+     * @param accessTokenDOs tokens read in advance, mapped to null if they are not active. May be null
+     * @return token read in advance, or looked up now if it was not read in advance
+     * @throws IdentityOAuth2Exception if the token could not be looked up
+     */
+    private AccessTokenDO findAccessToken(String tokenIdentifier, Map<String, AccessTokenDO> accessTokenDOs)
+            throws IdentityOAuth2Exception {
+
+        if (accessTokenDOs == null || !accessTokenDOs.containsKey(tokenIdentifier)) {
+            // not looked up in advance.
+            return findAccessToken(tokenIdentifier);
+        }
+        AccessTokenDO accessTokenDO = accessTokenDOs.get(tokenIdentifier);
+        if (accessTokenDO == null) {
+            throw new IllegalArgumentException("Invalid access token");
+        }
+        return accessTokenDO;
+    }
     
 }
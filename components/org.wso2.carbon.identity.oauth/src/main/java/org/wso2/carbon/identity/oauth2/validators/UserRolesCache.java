@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.user.core.UserCoreConstants;
+import org.wso2.carbon.utils.CarbonUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Cache of the role lists of users, used by {@link JDBCScopeValidator} so that the user store is not queried on every
+ * validation of a role protected scope. Entries are keyed by tenant id, user store domain and tenant aware username,
+ * are evicted across the cluster when the roles of a user change and expire after
+ * <code>OAuth.ScopeValidation.UserRolesCacheTimeout</code> seconds (default 30, 0 disables the cache). The number of
+ * entries is bounded by the capacity configured for this cache in identity.xml.
+ */
+public class UserRolesCache extends BaseCache<String, UserRolesCacheEntry> {
+
+    private static final Log log = LogFactory.getLog(UserRolesCache.class);
+
+    private static final String USER_ROLES_CACHE_NAME = "UserRolesCache";
+    private static final String USER_ROLES_TIMEOUT = "OAuth.ScopeValidation.UserRolesCacheTimeout";
+    private static final long DEFAULT_USER_ROLES_TIMEOUT = 30;
+
+    private static volatile UserRolesCache instance;
+
+    private final long timeoutInMillis;
+
+    private UserRolesCache() {
+        super(USER_ROLES_CACHE_NAME);
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(USER_ROLES_TIMEOUT, DEFAULT_USER_ROLES_TIMEOUT) * 1000;
+    }
+
+    public static UserRolesCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (UserRolesCache.class) {
+                if (instance == null) {
+                    instance = new UserRolesCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param tenantId tenant id of the user
+     * @param userStoreDomain user store domain of the user. Primary user store if null
+     * @param tenantAwareUsername tenant aware username, without the user store domain
+     * @return unmodifiable set of cached roles of the user, or null if there is none or it has expired
+     */
+    public Set<String> getRoles(int tenantId, String userStoreDomain, String tenantAwareUsername) {
+
+        if (timeoutInMillis <= 0) {
+            return null;
+        }
+        String key = getKey(tenantId, userStoreDomain, tenantAwareUsername);
+        UserRolesCacheEntry entry = super.getValueFromCache(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            super.clearCacheEntry(key);
+            return null;
+        }
+        return entry.getRoles();
+    }
+
+    /**
+     * @return unmodifiable set of the given roles, as cached
+     */
+    public Set<String> addRoles(int tenantId, String userStoreDomain, String tenantAwareUsername, String[] roles) {
+
+        Set<String> roleSet;
+        if (roles == null || roles.length == 0) {
+            roleSet = Collections.emptySet();
+        } else {
+            roleSet = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(roles)));
+        }
+        if (timeoutInMillis > 0) {
+            super.addToCache(getKey(tenantId, userStoreDomain, tenantAwareUsername),
+                    new UserRolesCacheEntry(roleSet, System.currentTimeMillis() + timeoutInMillis));
+        }
+        return roleSet;
+    }
+
+    public void clearUser(int tenantId, String userStoreDomain, String tenantAwareUsername) {
+
+        super.clearCacheEntry(getKey(tenantId, userStoreDomain, tenantAwareUsername));
+        if (log.isDebugEnabled()) {
+            log.debug("Cached roles of user " + tenantAwareUsername + " of tenant " + tenantId + " are cleared");
+        }
+    }
+
+    public void clearAll() {
+        super.clear();
+    }
+
+    private static String getKey(int tenantId, String userStoreDomain, String tenantAwareUsername) {
+
+        if (StringUtils.isBlank(userStoreDomain)) {
+            userStoreDomain = UserCoreConstants.PRIMARY_DEFAULT_DOMAIN_NAME;
+        }
+        return tenantId + ":" + userStoreDomain.toUpperCase() + UserCoreConstants.DOMAIN_SEPARATOR +
+                tenantAwareUsername;
+    }
+}
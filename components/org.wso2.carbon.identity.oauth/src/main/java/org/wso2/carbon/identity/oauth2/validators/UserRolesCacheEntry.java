@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.validators;
+
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+
+import java.util.Set;
+
+/**
+ * Roles of a user cached by {@link UserRolesCache}.
+ */
+public class UserRolesCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -2381460129736562741L;
+
+    private final Set<String> roles;
+    private final long expiryTime;
+
+    public UserRolesCacheEntry(Set<String> roles, long expiryTime) {
+        this.roles = roles;
+        this.expiryTime = expiryTime;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+
+    public boolean isExpired() {
+        return System.currentTimeMillis() > expiryTime;
+    }
+}
@@ -21,29 +21,22 @@ import com.nimbusds.jose.Algorithm;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
-import com.nimbusds.jose.JWSSigner;
-import com.nimbusds.jose.crypto.RSASSASigner;
-import com.nimbusds.jose.util.Base64URL;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.PlainJWT;
 import com.nimbusds.jwt.SignedJWT;
 import org.apache.axiom.om.OMElement;
 import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.oltu.oauth2.common.message.types.GrantType;
 import org.wso2.carbon.base.MultitenantConstants;
-import org.wso2.carbon.core.util.KeyStoreManager;
 import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
 import org.wso2.carbon.identity.application.common.model.FederatedAuthenticatorConfig;
 import org.wso2.carbon.identity.application.common.model.IdentityProvider;
-import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationConstants;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
-import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
 import org.wso2.carbon.identity.base.IdentityException;
 import org.wso2.carbon.identity.core.util.IdentityConfigParser;
 import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
@@ -62,30 +55,25 @@ import org.wso2.carbon.identity.oauth2.authz.OAuthAuthzReqMessageContext;
 import org.wso2.carbon.identity.oauth2.dao.TokenMgtDAO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AccessTokenRespDTO;
 import org.wso2.carbon.identity.oauth2.dto.OAuth2AuthorizeRespDTO;
-import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
 import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
 import org.wso2.carbon.identity.oauth2.token.OAuthTokenReqMessageContext;
 import org.wso2.carbon.identity.oauth2.util.OAuth2Util;
+import org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry;
+import org.wso2.carbon.identity.oauth2.util.TenantSigningKey;
 import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
 import org.wso2.carbon.idp.mgt.IdentityProviderManager;
 import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
 
 import javax.xml.namespace.QName;
-import java.security.Key;
-import java.security.KeyStore;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.security.cert.Certificate;
-import java.security.interfaces.RSAPrivateKey;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.LinkedHashSet;
 
 /**
@@ -108,7 +96,6 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
     private static final String SHA384 = "SHA-384";
     private static final String SHA512 = "SHA-512";
     private static final String AUTHORIZATION_CODE = "AuthorizationCode";
-    private static final String INBOUND_AUTH2_TYPE = "oauth2";
     private static final String CONFIG_ELEM_OAUTH = "OAuth";
     private static final String OPENID_CONNECT = "OpenIDConnect";
     private static final String OPENID_CONNECT_AUDIENCES = "Audiences";
@@ -117,8 +104,6 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
     private static final String kid = "d0ec514a32b6f88c0abd12a2840699bdd3deba9d";
 
     private static final Log log = LogFactory.getLog(DefaultIDTokenBuilder.class);
-    private static Map<Integer, Key> privateKeys = new ConcurrentHashMap<>();
-    private static Map<Integer, Certificate> publicCerts = new ConcurrentHashMap<>();
     private OAuthServerConfiguration config = null;
     private Algorithm signatureAlgorithm = null;
 
@@ -132,27 +117,9 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
     @Override
     public String buildIDToken(OAuthTokenReqMessageContext request, OAuth2AccessTokenRespDTO tokenRespDTO)
             throws IdentityOAuth2Exception {
-        IdentityProvider identityProvider = null;
-        try {
-            String tenantDomain = request.getOauth2AccessTokenReqDTO().getTenantDomain();
-            identityProvider = IdentityProviderManager.getInstance().getResidentIdP(tenantDomain);
-        } catch (IdentityProviderManagementException e) {
-            if (log.isDebugEnabled()) {
-                log.debug("Error while getting Federated Identity Provider ", e);
-            }
-        }
-        FederatedAuthenticatorConfig[] fedAuthnConfigs =
-                identityProvider.getFederatedAuthenticatorConfigs();
-
-        // Get OIDC authenticator
-        FederatedAuthenticatorConfig samlAuthenticatorConfig =
-                IdentityApplicationManagementUtil.getFederatedAuthenticator(fedAuthnConfigs,
-                        IdentityApplicationConstants.Authenticator.OIDC.NAME);
-        String issuer =
-                IdentityApplicationManagementUtil.getProperty(samlAuthenticatorConfig.getProperties(),
-                        OPENID_IDP_ENTITY_ID).getValue();
-
-        long lifetimeInMillis = Integer.parseInt(config.getOpenIDConnectIDTokenExpiration()) * 1000;
+        IDTokenIssuanceProfile profile = getIssuanceProfile(request.getOauth2AccessTokenReqDTO().getTenantDomain());
+        String issuer = profile.getIssuer();
+        long lifetimeInMillis = profile.getLifetimeInMillis();
         long curTimeInMillis = Calendar.getInstance().getTimeInMillis();
         // setting subject
         String subject = request.getAuthorizedUser().getAuthenticatedSubjectIdentifier();
@@ -161,21 +128,17 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
                 !org.wso2.carbon.identity.oauth.common.GrantType.SAML20_BEARER.toString().equals(
                         request.getOauth2AccessTokenReqDTO().getGrantType())) {
 
-            ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder
-                    .getApplicationMgtService();
-            ServiceProvider serviceProvider = null;
-
+            ServiceProviderProfile serviceProviderProfile;
             try {
-                String tenantDomain = request.getOauth2AccessTokenReqDTO().getTenantDomain();
-                String spName = applicationMgtService.getServiceProviderNameByClientId(
-                        request.getOauth2AccessTokenReqDTO().getClientId(), INBOUND_AUTH2_TYPE, tenantDomain);
-                serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(spName, tenantDomain);
+                serviceProviderProfile = ServiceProviderProfileCache.getInstance().getProfile(
+                        request.getOauth2AccessTokenReqDTO().getClientId(),
+                        request.getOauth2AccessTokenReqDTO().getTenantDomain());
             } catch (IdentityApplicationManagementException e) {
                 throw new IdentityOAuth2Exception("Error while getting service provider information.", e);
             }
 
-            if (serviceProvider != null) {
-                String claim = serviceProvider.getLocalAndOutBoundAuthenticationConfig().getSubjectClaimUri();
+            if (serviceProviderProfile.hasServiceProvider()) {
+                String claim = serviceProviderProfile.getSubjectClaimUri();
 
                 if (claim != null) {
                     String username = request.getAuthorizedUser().getUserName();
@@ -229,7 +192,7 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
 
         String atHash = null;
         if (!JWSAlgorithm.NONE.getName().equals(signatureAlgorithm.getName())) {
-            String digAlg = mapDigestAlgorithm(signatureAlgorithm);
+            String digAlg = profile.getDigestAlgorithm();
             MessageDigest md;
             try {
                 md = MessageDigest.getInstance(digAlg);
@@ -265,9 +228,7 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
 
         ArrayList<String> audience = new ArrayList<String>();
         audience.add(request.getOauth2AccessTokenReqDTO().getClientId());
-        if (CollectionUtils.isNotEmpty(getOIDCEndpointUrl())) {
-            audience.addAll(getOIDCEndpointUrl());
-        }
+        audience.addAll(profile.getAudiences());
 
         JWTClaimsSet jwtClaimsSet = new JWTClaimsSet();
         jwtClaimsSet.setIssuer(issuer);
@@ -303,27 +264,9 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
     @Override
     public String buildIDToken(OAuthAuthzReqMessageContext request, OAuth2AuthorizeRespDTO tokenRespDTO)
             throws IdentityOAuth2Exception {
-        IdentityProvider identityProvider = null;
-        try {
-            String tenantDomain = request.getAuthorizationReqDTO().getTenantDomain();
-            identityProvider = IdentityProviderManager.getInstance().getResidentIdP(tenantDomain);
-        } catch (IdentityProviderManagementException e) {
-            if (log.isDebugEnabled()) {
-                log.debug("Error while getting Federated Identity Provider ", e);
-            }
-        }
-        FederatedAuthenticatorConfig[] fedAuthnConfigs =
-                identityProvider.getFederatedAuthenticatorConfigs();
-
-        // Get OIDC authenticator
-        FederatedAuthenticatorConfig samlAuthenticatorConfig =
-                IdentityApplicationManagementUtil.getFederatedAuthenticator(fedAuthnConfigs,
-                        IdentityApplicationConstants.Authenticator.OIDC.NAME);
-        String issuer =
-                IdentityApplicationManagementUtil.getProperty(samlAuthenticatorConfig.getProperties(),
-                        OPENID_IDP_ENTITY_ID).getValue();
-
-        long lifetimeInMillis = Integer.parseInt(config.getOpenIDConnectIDTokenExpiration()) * 1000;
+        IDTokenIssuanceProfile profile = getIssuanceProfile(request.getAuthorizationReqDTO().getTenantDomain());
+        String issuer = profile.getIssuer();
+        long lifetimeInMillis = profile.getLifetimeInMillis();
         long curTimeInMillis = Calendar.getInstance().getTimeInMillis();
         // setting subject
         String subject = request.getAuthorizationReqDTO().getUser().getAuthenticatedSubjectIdentifier();
@@ -340,7 +283,7 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
         if (!JWSAlgorithm.NONE.getName().equals(signatureAlgorithm.getName()) &&
                 !OAuthConstants.ID_TOKEN.equalsIgnoreCase(responseType) &&
                 !OAuthConstants.NONE.equalsIgnoreCase(responseType)) {
-            String digAlg = mapDigestAlgorithm(signatureAlgorithm);
+            String digAlg = profile.getDigestAlgorithm();
             MessageDigest md;
             try {
                 md = MessageDigest.getInstance(digAlg);
@@ -378,9 +321,7 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
 
         ArrayList<String> audience = new ArrayList<String>();
         audience.add(request.getAuthorizationReqDTO().getConsumerKey());
-        if (CollectionUtils.isNotEmpty(getOIDCEndpointUrl())) {
-            audience.addAll(getOIDCEndpointUrl());
-        }
+        audience.addAll(profile.getAudiences());
 
         JWTClaimsSet jwtClaimsSet = new JWTClaimsSet();
         jwtClaimsSet.setIssuer(issuer);
@@ -423,115 +364,106 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
      */
     protected String signJWTWithRSA(JWTClaimsSet jwtClaimsSet, OAuthTokenReqMessageContext request)
             throws IdentityOAuth2Exception {
-        try {
 
-            boolean isJWTSignedWithSPKey = OAuthServerConfiguration.getInstance().isJWTSignedWithSPKey();
-            String tenantDomain = null;
-            if(isJWTSignedWithSPKey) {
-                tenantDomain = (String) request.getProperty(MultitenantConstants.TENANT_DOMAIN);
-            } else {
-                tenantDomain = request.getAuthorizedUser().getTenantDomain();
-            }
-
-            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+        return signJWTWithTenantKey(jwtClaimsSet, getSigningTenantDomain(request));
+    }
 
-            Key privateKey;
+    protected String signJWTWithRSA(JWTClaimsSet jwtClaimsSet, OAuthAuthzReqMessageContext request)
+            throws IdentityOAuth2Exception {
 
-            if (!(privateKeys.containsKey(tenantId))) {
-                // get tenant's key store manager
-                KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+        return signJWTWithTenantKey(jwtClaimsSet, getSigningTenantDomain(request));
+    }
 
-                if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                    // derive key store name
-                    String ksName = tenantDomain.trim().replace(".", "-");
-                    String jksName = ksName + ".jks";
-                    // obtain private key
-                    privateKey = tenantKSM.getPrivateKey(jksName, tenantDomain);
+    /**
+     * Signs the JWT with the key of the given tenant, held by {@link SigningKeyRegistry}.
+     *
+     * @param jwtClaimsSet contains JWT body
+     * @param tenantDomain tenant whose key signs the token
+     * @return signed JWT token
+     * @throws IdentityOAuth2Exception
+     */
+    private String signJWTWithTenantKey(JWTClaimsSet jwtClaimsSet, String tenantDomain)
+            throws IdentityOAuth2Exception {
 
-                } else {
-                    try {
-                        privateKey = tenantKSM.getDefaultPrivateKey();
-                    } catch (Exception e) {
-                        throw new IdentityOAuth2Exception("Error while obtaining private key for super tenant", e);
-                    }
-                }
-                //privateKey will not be null always
-                privateKeys.put(tenantId, privateKey);
-            } else {
-                //privateKey will not be null because containsKey() true says given key is exist and ConcurrentHashMap
-                // does not allow to store null values
-                privateKey = privateKeys.get(tenantId);
-            }
-            JWSSigner signer = new RSASSASigner((RSAPrivateKey) privateKey);
-            JWSHeader header = new JWSHeader((JWSAlgorithm) signatureAlgorithm);
-            header.setKeyID(kid);
-            header.setX509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
-            SignedJWT signedJWT = new SignedJWT(header, jwtClaimsSet);
-            signedJWT.sign(signer);
-            return signedJWT.serialize();
+        TenantSigningKey signingKey = SigningKeyRegistry.getInstance().getSigningKey(tenantDomain,
+                IdentityTenantUtil.getTenantId(tenantDomain));
+        JWSHeader header = signingKey.createHeader((JWSAlgorithm) signatureAlgorithm);
+        header.setKeyID(kid);
+        SignedJWT signedJWT = new SignedJWT(header, jwtClaimsSet);
+        try {
+            signedJWT.sign(signingKey.getSigner());
         } catch (JOSEException e) {
             throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
         }
+        return signedJWT.serialize();
     }
 
-    protected String signJWTWithRSA(JWTClaimsSet jwtClaimsSet, OAuthAuthzReqMessageContext request)
-            throws IdentityOAuth2Exception {
-        try {
+    private String getSigningTenantDomain(OAuthTokenReqMessageContext request) {
 
-            boolean isJWTSignedWithSPKey = OAuthServerConfiguration.getInstance().isJWTSignedWithSPKey();
-            String tenantDomain = null;
-            if(isJWTSignedWithSPKey) {
-                tenantDomain = (String) request.getProperty(MultitenantConstants.TENANT_DOMAIN);
-            } else {
-                tenantDomain = request.getAuthorizationReqDTO().getUser().getTenantDomain();
-            }
+        if (OAuthServerConfiguration.getInstance().isJWTSignedWithSPKey()) {
+            return (String) request.getProperty(MultitenantConstants.TENANT_DOMAIN);
+        }
+        return request.getAuthorizedUser().getTenantDomain();
+    }
 
-            int tenantId = IdentityTenantUtil.getTenantId(tenantDomain);
+    private String getSigningTenantDomain(OAuthAuthzReqMessageContext request) {
 
-            Key privateKey;
+        if (OAuthServerConfiguration.getInstance().isJWTSignedWithSPKey()) {
+            return (String) request.getProperty(MultitenantConstants.TENANT_DOMAIN);
+        }
+        return request.getAuthorizationReqDTO().getUser().getTenantDomain();
+    }
 
-            if (!(privateKeys.containsKey(tenantId))) {
+    /**
+     * Returns the ID token issuance profile of the given tenant. The profile is built on first use and cached in
+     * {@link IDTokenIssuanceProfileCache} until the resident identity provider of the tenant changes.
+     *
+     * @param tenantDomain tenant domain
+     * @return issuance profile of the tenant
+     * @throws IdentityOAuth2Exception
+     */
+    protected IDTokenIssuanceProfile getIssuanceProfile(String tenantDomain) throws IdentityOAuth2Exception {
 
-                try {
-                    IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-                } catch (IdentityException e) {
-                    throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
-                }
+        IDTokenIssuanceProfileCache profileCache = IDTokenIssuanceProfileCache.getInstance();
+        IDTokenIssuanceProfile profile = profileCache.getProfile(tenantDomain);
+        if (profile == null) {
+            profile = buildIssuanceProfile(tenantDomain);
+            profileCache.addProfile(profile);
+        }
+        return profile;
+    }
 
-                // get tenant's key store manager
-                KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
+    private IDTokenIssuanceProfile buildIssuanceProfile(String tenantDomain) throws IdentityOAuth2Exception {
 
-                if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                    // derive key store name
-                    String ksName = tenantDomain.trim().replace(".", "-");
-                    String jksName = ksName + ".jks";
-                    // obtain private key
-                    privateKey = tenantKSM.getPrivateKey(jksName, tenantDomain);
+        IdentityProvider identityProvider;
+        try {
+            identityProvider = IdentityProviderManager.getInstance().getResidentIdP(tenantDomain);
+        } catch (IdentityProviderManagementException e) {
+            throw new IdentityOAuth2Exception("Error while getting resident Identity Provider of tenant " +
+                    tenantDomain, e);
+        }
 
-                } else {
-                    try {
-                        privateKey = tenantKSM.getDefaultPrivateKey();
-                    } catch (Exception e) {
-                        throw new IdentityOAuth2Exception("Error while obtaining private key for super tenant", e);
-                    }
-                }
-                //privateKey will not be null always
-                privateKeys.put(tenantId, privateKey);
-            } else {
-                //privateKey will not be null because containsKey() true says given key is exist and ConcurrentHashMap
-                // does not allow to store null values
-                privateKey = privateKeys.get(tenantId);
-            }
-            JWSSigner signer = new RSASSASigner((RSAPrivateKey) privateKey);
-            JWSHeader header = new JWSHeader((JWSAlgorithm) signatureAlgorithm);
-            header.setX509CertThumbprint(new Base64URL(getThumbPrint(tenantDomain, tenantId)));
-            header.setKeyID(kid);
-            SignedJWT signedJWT = new SignedJWT(header, jwtClaimsSet);
-            signedJWT.sign(signer);
-            return signedJWT.serialize();
-        } catch (JOSEException e) {
-            throw new IdentityOAuth2Exception("Error occurred while signing JWT", e);
+        // Get OIDC authenticator
+        FederatedAuthenticatorConfig oidcAuthenticatorConfig =
+                IdentityApplicationManagementUtil.getFederatedAuthenticator(
+                        identityProvider.getFederatedAuthenticatorConfigs(),
+                        IdentityApplicationConstants.Authenticator.OIDC.NAME);
+        String issuer =
+                IdentityApplicationManagementUtil.getProperty(oidcAuthenticatorConfig.getProperties(),
+                        OPENID_IDP_ENTITY_ID).getValue();
+
+        long lifetimeInMillis = Long.parseLong(config.getOpenIDConnectIDTokenExpiration()) * 1000;
+
+        String digestAlgorithm = null;
+        if (!JWSAlgorithm.NONE.getName().equals(signatureAlgorithm.getName())) {
+            digestAlgorithm = mapDigestAlgorithm(signatureAlgorithm);
         }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Built ID token issuance profile for tenant " + tenantDomain + " with issuer " + issuer);
+        }
+        return new IDTokenIssuanceProfile(tenantDomain, issuer, getOIDCAudiences(), lifetimeInMillis,
+                (JWSAlgorithm) signatureAlgorithm, digestAlgorithm);
     }
 
     /**
@@ -719,107 +651,6 @@ public class DefaultIDTokenBuilder implements org.wso2.carbon.identity.openidcon
         throw new RuntimeException("Cannot map Signature Algorithm in identity.xml to hashing algorithm");
     }
 
-    /**
-     * Helper method to add public certificate to JWT_HEADER to signature verification.
-     *
-     * @param tenantDomain
-     * @param tenantId
-     * @throws IdentityOAuth2Exception
-     */
-    private String getThumbPrint(String tenantDomain, int tenantId) throws IdentityOAuth2Exception {
-
-        try {
-
-            Certificate certificate = getCertificate(tenantDomain, tenantId);
-
-            // TODO: maintain a hashmap with tenants' pubkey thumbprints after first initialization
-
-            //generate the SHA-1 thumbprint of the certificate
-            MessageDigest digestValue = MessageDigest.getInstance("SHA-1");
-            byte[] der = certificate.getEncoded();
-            digestValue.update(der);
-            byte[] digestInBytes = digestValue.digest();
-
-            String publicCertThumbprint = hexify(digestInBytes);
-            String base64EncodedThumbPrint = new String(new Base64(0, null, true).encode(
-                    publicCertThumbprint.getBytes(Charsets.UTF_8)), Charsets.UTF_8);
-            return base64EncodedThumbPrint;
-
-        } catch (Exception e) {
-            String error = "Error in obtaining certificate for tenant " + tenantDomain;
-            throw new IdentityOAuth2Exception(error, e);
-        }
-    }
-
-    private Certificate getCertificate(String tenantDomain, int tenantId) throws Exception {
-
-        if (tenantDomain == null) {
-            tenantDomain = MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
-        }
-
-        if (tenantId == 0) {
-            tenantId = OAuth2Util.getTenantId(tenantDomain);
-        }
-
-        Certificate publicCert = null;
-
-        if (!(publicCerts.containsKey(tenantId))) {
-
-            try {
-                IdentityTenantUtil.initializeRegistry(tenantId, tenantDomain);
-            } catch (IdentityException e) {
-                throw new IdentityOAuth2Exception("Error occurred while loading registry for tenant " + tenantDomain, e);
-            }
-
-            // get tenant's key store manager
-            KeyStoreManager tenantKSM = KeyStoreManager.getInstance(tenantId);
-
-            KeyStore keyStore = null;
-            if (!tenantDomain.equals(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME)) {
-                // derive key store name
-                String ksName = tenantDomain.trim().replace(".", "-");
-                String jksName = ksName + ".jks";
-                keyStore = tenantKSM.getKeyStore(jksName);
-                publicCert = keyStore.getCertificate(tenantDomain);
-            } else {
-                publicCert = tenantKSM.getDefaultPrimaryCertificate();
-            }
-            if (publicCert != null) {
-                publicCerts.put(tenantId, publicCert);
-            }
-        } else {
-            publicCert = publicCerts.get(tenantId);
-        }
-        return publicCert;
-    }
-
-    /**
-     * Helper method to hexify a byte array.
-     * TODO:need to verify the logic
-     *
-     * @param bytes
-     * @return  hexadecimal representation
-     */
-    private String hexify(byte bytes[]) {
-
-        char[] hexDigits = {'0', '1', '2', '3', '4', '5', '6', '7',
-                    +                            '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
-
-        StringBuilder buf = new StringBuilder(bytes.length * 2);
-
-        for (int i = 0; i < bytes.length; ++i) {
-            buf.append(hexDigits[(bytes[i] & 0xf0) >> 4]);
-            buf.append(hexDigits[bytes[i] & 0x0f]);
-        }
-
-        return buf.toString();
-    }
-
-    private List<String> getOIDCEndpointUrl() {
-        List<String> OIDCEntityId = getOIDCAudiences();
-        return OIDCEntityId;
-    }
-
     private List<String> getOIDCAudiences() {
         List<String> audiences = new ArrayList<String>();
         IdentityConfigParser configParser = IdentityConfigParser.getInstance();
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tenant specific settings used to mint ID tokens. Resolved once per tenant from the resident identity provider and
+ * identity.xml so that issuing an ID token only needs claim assembly and signing. Signing keys are held by
+ * {@link org.wso2.carbon.identity.oauth2.util.SigningKeyRegistry}.
+ * Instances are immutable.
+ */
+public class IDTokenIssuanceProfile extends CacheEntry {
+
+    private static final long serialVersionUID = 4718233630951126473L;
+
+    private final String tenantDomain;
+    private final String issuer;
+    private final List<String> audiences;
+    private final long lifetimeInMillis;
+    private final JWSAlgorithm signatureAlgorithm;
+    private final String digestAlgorithm;
+    private final long createdTime;
+
+    public IDTokenIssuanceProfile(String tenantDomain, String issuer, List<String> audiences, long lifetimeInMillis,
+                                  JWSAlgorithm signatureAlgorithm, String digestAlgorithm) {
+        this.tenantDomain = tenantDomain;
+        this.issuer = issuer;
+        this.audiences = Collections.unmodifiableList(new ArrayList<>(audiences));
+        this.lifetimeInMillis = lifetimeInMillis;
+        this.signatureAlgorithm = signatureAlgorithm;
+        this.digestAlgorithm = digestAlgorithm;
+        this.createdTime = System.currentTimeMillis();
+    }
+
+    public String getTenantDomain() {
+        return tenantDomain;
+    }
+
+    public String getIssuer() {
+        return issuer;
+    }
+
+    /**
+     * @return audiences configured in identity.xml, in addition to the client id of the requesting application
+     */
+    public List<String> getAudiences() {
+        return audiences;
+    }
+
+    public long getLifetimeInMillis() {
+        return lifetimeInMillis;
+    }
+
+    public JWSAlgorithm getSignatureAlgorithm() {
+        return signatureAlgorithm;
+    }
+
+    /**
+     * @return digest algorithm used to compute at_hash, or null if ID tokens are not signed
+     */
+    public String getDigestAlgorithm() {
+        return digestAlgorithm;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+}
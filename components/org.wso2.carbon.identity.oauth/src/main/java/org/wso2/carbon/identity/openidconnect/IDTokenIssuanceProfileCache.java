@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.utils.CarbonUtils;
+
+/**
+ * Cache of {@link IDTokenIssuanceProfile}s keyed by tenant domain. Entries are evicted across the cluster when the
+ * resident identity provider of the tenant is updated, and expire after
+ * <code>OAuth.OpenIDConnect.IDTokenIssuanceProfileTimeout</code> seconds (default 300). Capacity and enabling are
+ * configured for this cache in identity.xml.
+ */
+public class IDTokenIssuanceProfileCache extends BaseCache<String, IDTokenIssuanceProfile> {
+
+    private static final Log log = LogFactory.getLog(IDTokenIssuanceProfileCache.class);
+
+    private static final String ID_TOKEN_ISSUANCE_PROFILE_CACHE_NAME = "IDTokenIssuanceProfileCache";
+    private static final String PROFILE_TIMEOUT = "OAuth.OpenIDConnect.IDTokenIssuanceProfileTimeout";
+    private static final long DEFAULT_PROFILE_TIMEOUT = 300;
+
+    private static volatile IDTokenIssuanceProfileCache instance;
+
+    private final long timeoutInMillis;
+
+    private IDTokenIssuanceProfileCache() {
+        super(ID_TOKEN_ISSUANCE_PROFILE_CACHE_NAME);
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(PROFILE_TIMEOUT, DEFAULT_PROFILE_TIMEOUT) * 1000;
+    }
+
+    public static IDTokenIssuanceProfileCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (IDTokenIssuanceProfileCache.class) {
+                if (instance == null) {
+                    instance = new IDTokenIssuanceProfileCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * @param tenantDomain tenant domain
+     * @return cached profile of the tenant, or null if there is none or it has expired
+     */
+    public IDTokenIssuanceProfile getProfile(String tenantDomain) {
+
+        if (tenantDomain == null) {
+            return null;
+        }
+        IDTokenIssuanceProfile profile = super.getValueFromCache(tenantDomain);
+        if (profile != null && System.currentTimeMillis() - profile.getCreatedTime() > timeoutInMillis) {
+            super.clearCacheEntry(tenantDomain);
+            return null;
+        }
+        return profile;
+    }
+
+    public void addProfile(IDTokenIssuanceProfile profile) {
+
+        if (timeoutInMillis > 0) {
+            super.addToCache(profile.getTenantDomain(), profile);
+        }
+    }
+
+    public void clearProfile(String tenantDomain) {
+
+        if (tenantDomain == null) {
+            return;
+        }
+        super.clearCacheEntry(tenantDomain);
+        if (log.isDebugEnabled()) {
+            log.debug("ID token issuance profile of tenant " + tenantDomain + " is cleared");
+        }
+    }
+}
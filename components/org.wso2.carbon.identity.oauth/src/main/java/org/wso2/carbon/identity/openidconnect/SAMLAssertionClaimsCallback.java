@@ -36,8 +36,6 @@ import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
 import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
-import org.wso2.carbon.identity.application.common.model.ServiceProvider;
-import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
 import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.base.IdentityException;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataHandler;
@@ -62,7 +60,6 @@ import org.wso2.carbon.user.api.UserStoreManager;
 import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -78,7 +75,6 @@ import java.util.Arrays;
 public class SAMLAssertionClaimsCallback implements CustomClaimsCallbackHandler {
 
     private final static Log log = LogFactory.getLog(SAMLAssertionClaimsCallback.class);
-    private final static String INBOUND_AUTH2_TYPE = "oauth2";
     private final static String SP_DIALECT = "http://wso2.org/oidc/claim";
     private static final String UPDATED_AT = "updated_at";
     private static final String PHONE_NUMBER_VERIFIED = "phone_number_verified";
@@ -261,17 +257,12 @@ public class SAMLAssertionClaimsCallback implements CustomClaimsCallbackHandler
         Map<String, Object> mappedAppClaims = new HashMap<>();
 
         String spTenantDomain = (String) requestMsgCtx.getProperty(MultitenantConstants.TENANT_DOMAIN);
-        ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
-        String spName = applicationMgtService
-                .getServiceProviderNameByClientId(requestMsgCtx.getOauth2AccessTokenReqDTO().getClientId(),
-                                                  INBOUND_AUTH2_TYPE, spTenantDomain);
-        ServiceProvider serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(spName,
-                                                                                                    spTenantDomain);
-        if (serviceProvider == null) {
+        ServiceProviderProfile serviceProviderProfile = ServiceProviderProfileCache.getInstance().getProfile(
+                requestMsgCtx.getOauth2AccessTokenReqDTO().getClientId(), spTenantDomain);
+        if (!serviceProviderProfile.hasServiceProvider()) {
             return mappedAppClaims;
         }
-        ClaimMapping[] requestedLocalClaimMap = serviceProvider.getClaimConfig().getClaimMappings();
-        if(requestedLocalClaimMap == null || !(requestedLocalClaimMap.length > 0)) {
+        if (serviceProviderProfile.getClaimMappings().isEmpty()) {
             return new HashMap<>();
         }
 
@@ -285,12 +276,7 @@ public class SAMLAssertionClaimsCallback implements CustomClaimsCallbackHandler
             return new HashMap<>();
         }
 
-        List<String> claimURIList = new ArrayList<>();
-        for (ClaimMapping mapping : requestedLocalClaimMap) {
-            if (mapping.isRequested()) {
-                claimURIList.add(mapping.getLocalClaim().getClaimUri());
-            }
-        }
+        List<String> claimURIList = serviceProviderProfile.getRequestedLocalClaims();
         if (log.isDebugEnabled()) {
             log.debug("Requested number of local claims: " + claimURIList.size());
         }
@@ -350,17 +336,12 @@ public class SAMLAssertionClaimsCallback implements CustomClaimsCallbackHandler
         Map<String, Object> mappedAppClaims = new HashMap<>();
 
         String spTenantDomain = (String) requestMsgCtx.getProperty(MultitenantConstants.TENANT_DOMAIN);
-        ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
-        String spName = applicationMgtService
-                .getServiceProviderNameByClientId(requestMsgCtx.getAuthorizationReqDTO().getConsumerKey(),
-                        INBOUND_AUTH2_TYPE, spTenantDomain);
-        ServiceProvider serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(spName,
-                spTenantDomain);
-        if (serviceProvider == null) {
+        ServiceProviderProfile serviceProviderProfile = ServiceProviderProfileCache.getInstance().getProfile(
+                requestMsgCtx.getAuthorizationReqDTO().getConsumerKey(), spTenantDomain);
+        if (!serviceProviderProfile.hasServiceProvider()) {
             return mappedAppClaims;
         }
-        ClaimMapping[] requestedLocalClaimMap = serviceProvider.getClaimConfig().getClaimMappings();
-        if(requestedLocalClaimMap == null || !(requestedLocalClaimMap.length > 0)) {
+        if (serviceProviderProfile.getClaimMappings().isEmpty()) {
             return new HashMap<>();
         }
 
@@ -374,12 +355,7 @@ public class SAMLAssertionClaimsCallback implements CustomClaimsCallbackHandler
             return new HashMap<>();
         }
 
-        List<String> claimURIList = new ArrayList<>();
-        for (ClaimMapping mapping : requestedLocalClaimMap) {
-            if (mapping.isRequested()) {
-                claimURIList.add(mapping.getLocalClaim().getClaimUri());
-            }
-        }
+        List<String> claimURIList = serviceProviderProfile.getRequestedLocalClaims();
         if (log.isDebugEnabled()) {
             log.debug("Requested number of local claims: " + claimURIList.size());
         }
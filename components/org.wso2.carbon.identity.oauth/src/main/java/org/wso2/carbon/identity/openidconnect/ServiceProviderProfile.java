@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import org.wso2.carbon.identity.application.common.model.ClaimConfig;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.application.common.model.LocalAndOutboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.common.model.ServiceProviderProperty;
+import org.wso2.carbon.identity.oauth.cache.CacheEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claim and token related settings of the service provider of an OAuth client, digested once from the
+ * {@link ServiceProvider} so that issuing ID tokens and serving UserInfo requests do not need to read and walk the
+ * full service provider. Instances are immutable.
+ */
+public class ServiceProviderProfile extends CacheEntry {
+
+    private static final long serialVersionUID = -8150734972865531029L;
+
+    /**
+     * Service provider property which makes the client receive self-contained JWT access tokens when
+     * {@link org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer} is the configured token issuer.
+     */
+    public static final String JWT_ACCESS_TOKEN_PROPERTY = "JWTAccessToken";
+
+    private final String clientId;
+    private final String tenantDomain;
+    private final String serviceProviderName;
+    private final String subjectClaimUri;
+    private final String localSubjectClaimUri;
+    private final Map<String, String> claimMappings;
+    private final List<String> requestedLocalClaims;
+    private final boolean jwtAccessToken;
+    private final long createdTime;
+
+    /**
+     * @param clientId client id of the OAuth application
+     * @param tenantDomain tenant domain of the OAuth application
+     * @param serviceProvider service provider of the client, or null if there is none
+     */
+    public ServiceProviderProfile(String clientId, String tenantDomain, ServiceProvider serviceProvider) {
+
+        this.clientId = clientId;
+        this.tenantDomain = tenantDomain;
+        this.createdTime = System.currentTimeMillis();
+
+        String subjectClaim = null;
+        boolean jwtAccessTokenEnabled = false;
+        Map<String, String> mappings = new LinkedHashMap<>();
+        List<String> requestedClaims = new ArrayList<>();
+        if (serviceProvider != null) {
+            LocalAndOutboundAuthenticationConfig authenticationConfig =
+                    serviceProvider.getLocalAndOutBoundAuthenticationConfig();
+            if (authenticationConfig != null) {
+                subjectClaim = authenticationConfig.getSubjectClaimUri();
+            }
+            ClaimConfig claimConfig = serviceProvider.getClaimConfig();
+            if (claimConfig != null && claimConfig.getClaimMappings() != null) {
+                for (ClaimMapping claimMapping : claimConfig.getClaimMappings()) {
+                    String localClaim = claimMapping.getLocalClaim().getClaimUri();
+                    String remoteClaim = claimMapping.getRemoteClaim().getClaimUri();
+                    if (!mappings.containsKey(remoteClaim)) {
+                        mappings.put(remoteClaim, localClaim);
+                    }
+                    if (claimMapping.isRequested()) {
+                        requestedClaims.add(localClaim);
+                    }
+                }
+            }
+            if (serviceProvider.getSpProperties() != null) {
+                for (ServiceProviderProperty property : serviceProvider.getSpProperties()) {
+                    if (property != null && JWT_ACCESS_TOKEN_PROPERTY.equals(property.getName())) {
+                        jwtAccessTokenEnabled = Boolean.parseBoolean(property.getValue());
+                    }
+                }
+            }
+        }
+
+        this.serviceProviderName = serviceProvider == null ? null : serviceProvider.getApplicationName();
+        this.subjectClaimUri = subjectClaim;
+        this.localSubjectClaimUri = mappings.containsKey(subjectClaim) ? mappings.get(subjectClaim) : subjectClaim;
+        this.claimMappings = Collections.unmodifiableMap(mappings);
+        this.requestedLocalClaims = Collections.unmodifiableList(requestedClaims);
+        this.jwtAccessToken = jwtAccessTokenEnabled;
+    }
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public String getTenantDomain() {
+        return tenantDomain;
+    }
+
+    /**
+     * @return true if the client has a service provider, other than a file based one
+     */
+    public boolean hasServiceProvider() {
+        return serviceProviderName != null;
+    }
+
+    public String getServiceProviderName() {
+        return serviceProviderName;
+    }
+
+    /**
+     * @return subject claim URI as configured in the service provider
+     */
+    public String getSubjectClaimUri() {
+        return subjectClaimUri;
+    }
+
+    /**
+     * @return subject claim URI translated to the local dialect through the claim mappings of the service provider
+     */
+    public String getLocalSubjectClaimUri() {
+        return localSubjectClaimUri;
+    }
+
+    /**
+     * @return service provider claim URI to local claim URI, of all claim mappings of the service provider
+     */
+    public Map<String, String> getClaimMappings() {
+        return claimMappings;
+    }
+
+    /**
+     * @return local claim URIs of the claim mappings marked as requested
+     */
+    public List<String> getRequestedLocalClaims() {
+        return requestedLocalClaims;
+    }
+
+    /**
+     * @return true if the service provider opted in to self-contained JWT access tokens
+     */
+    public boolean isJwtAccessToken() {
+        return jwtAccessToken;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.openidconnect;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationManagementService;
+import org.wso2.carbon.identity.oauth.cache.OAuthCacheConfigUtil;
+import org.wso2.carbon.identity.oauth2.internal.OAuth2ServiceComponentHolder;
+import org.wso2.carbon.utils.CarbonUtils;
+
+/**
+ * Cache of {@link ServiceProviderProfile}s keyed by tenant domain and client id. Entries are evicted across the
+ * cluster when the service provider is created, updated or deleted, and expire after
+ * <code>OAuth.OpenIDConnect.ServiceProviderProfileTimeout</code> seconds (default 300, 0 disables the cache).
+ * Capacity is configured for this cache in identity.xml.
+ */
+public class ServiceProviderProfileCache extends BaseCache<String, ServiceProviderProfile> {
+
+    private static final Log log = LogFactory.getLog(ServiceProviderProfileCache.class);
+
+    private static final String SERVICE_PROVIDER_PROFILE_CACHE_NAME = "ServiceProviderProfileCache";
+    private static final String INBOUND_AUTH2_TYPE = "oauth2";
+    private static final String PROFILE_TIMEOUT = "OAuth.OpenIDConnect.ServiceProviderProfileTimeout";
+    private static final long DEFAULT_PROFILE_TIMEOUT = 300;
+
+    private static volatile ServiceProviderProfileCache instance;
+
+    private final long timeoutInMillis;
+
+    private ServiceProviderProfileCache() {
+        super(SERVICE_PROVIDER_PROFILE_CACHE_NAME);
+        timeoutInMillis = OAuthCacheConfigUtil.getLongProperty(PROFILE_TIMEOUT, DEFAULT_PROFILE_TIMEOUT) * 1000;
+    }
+
+    public static ServiceProviderProfileCache getInstance() {
+        CarbonUtils.checkSecurity();
+        if (instance == null) {
+            synchronized (ServiceProviderProfileCache.class) {
+                if (instance == null) {
+                    instance = new ServiceProviderProfileCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the profile of the service provider of the client, reading the service provider on a cache miss.
+     *
+     * @param clientId client id of the OAuth application
+     * @param tenantDomain tenant domain of the OAuth application
+     * @return profile of the client. Never null, see {@link ServiceProviderProfile#hasServiceProvider()}
+     * @throws IdentityApplicationManagementException if the service provider could not be read
+     */
+    public ServiceProviderProfile getProfile(String clientId, String tenantDomain)
+            throws IdentityApplicationManagementException {
+
+        String key = getKey(clientId, tenantDomain);
+        if (timeoutInMillis > 0) {
+            ServiceProviderProfile profile = super.getValueFromCache(key);
+            if (profile != null && System.currentTimeMillis() - profile.getCreatedTime() <= timeoutInMillis) {
+                return profile;
+            }
+        }
+
+        ApplicationManagementService applicationMgtService = OAuth2ServiceComponentHolder.getApplicationMgtService();
+        String spName = applicationMgtService.getServiceProviderNameByClientId(clientId, INBOUND_AUTH2_TYPE,
+                tenantDomain);
+        ServiceProvider serviceProvider = applicationMgtService.getApplicationExcludingFileBasedSPs(spName,
+                tenantDomain);
+        ServiceProviderProfile profile = new ServiceProviderProfile(clientId, tenantDomain, serviceProvider);
+        if (timeoutInMillis > 0) {
+            super.addToCache(key, profile);
+        }
+        return profile;
+    }
+
+    public void clearProfile(String clientId, String tenantDomain) {
+
+        super.clearCacheEntry(getKey(clientId, tenantDomain));
+        if (log.isDebugEnabled()) {
+            log.debug("Service provider profile of client " + clientId + " of tenant " + tenantDomain +
+                    " is cleared");
+        }
+    }
+
+    private static String getKey(String clientId, String tenantDomain) {
+        return tenantDomain + ":" + clientId;
+    }
+}
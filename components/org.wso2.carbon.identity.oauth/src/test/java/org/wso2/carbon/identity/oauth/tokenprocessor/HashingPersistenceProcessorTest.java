@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth.tokenprocessor;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+public class HashingPersistenceProcessorTest {
+
+    private static final String SHA_256_OF_ABC = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String QUICK_BROWN_FOX = "The quick brown fox jumps over the lazy dog";
+    private static final String HMAC_SHA_256_OF_QUICK_BROWN_FOX =
+            "f7bc83f430538424b13298e6aa6fb143ef4d59a14946175997479dbc2d1a3cd8";
+
+    @Test
+    public void testDigestOfTokensAndCodes() throws IdentityOAuth2Exception {
+
+        HashingPersistenceProcessor processor = new HashingPersistenceProcessor(null, null);
+        assertEquals(processor.getProcessedAccessTokenIdentifier("abc"), SHA_256_OF_ABC);
+        assertEquals(processor.getProcessedRefreshToken("abc"), SHA_256_OF_ABC);
+        assertEquals(processor.getProcessedAuthzCode("abc"), SHA_256_OF_ABC);
+    }
+
+    @Test
+    public void testHmacWhenSecretIsConfigured() throws IdentityOAuth2Exception {
+
+        HashingPersistenceProcessor processor = new HashingPersistenceProcessor(null, "key");
+        assertEquals(processor.getProcessedAccessTokenIdentifier(QUICK_BROWN_FOX), HMAC_SHA_256_OF_QUICK_BROWN_FOX);
+        assertNotEquals(new HashingPersistenceProcessor(null, "other-key").getProcessedAccessTokenIdentifier(
+                QUICK_BROWN_FOX), HMAC_SHA_256_OF_QUICK_BROWN_FOX);
+    }
+
+    @Test
+    public void testConfiguredAlgorithm() throws IdentityOAuth2Exception {
+
+        HashingPersistenceProcessor processor = new HashingPersistenceProcessor(" SHA-512 ", null);
+        assertEquals(processor.getProcessedAccessTokenIdentifier("abc").length(), 128);
+    }
+
+    @Test
+    public void testNullIsNotHashed() throws IdentityOAuth2Exception {
+
+        HashingPersistenceProcessor processor = new HashingPersistenceProcessor(null, null);
+        assertNull(processor.getProcessedAccessTokenIdentifier(null));
+        assertNull(processor.getProcessedRefreshToken(null));
+        assertNull(processor.getProcessedAuthzCode(null));
+    }
+
+    @Test
+    public void testClientCredentialsAreNotHashed() throws IdentityOAuth2Exception {
+
+        HashingPersistenceProcessor processor = new HashingPersistenceProcessor(null, null);
+        assertEquals(processor.getProcessedClientId("client"), "client");
+        assertEquals(processor.getPreprocessedClientId("client"), "client");
+        assertEquals(processor.getProcessedClientSecret("secret"), "secret");
+        assertEquals(processor.getPreprocessedClientSecret("secret"), "secret");
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testAccessTokenHashCannotBeReverted() throws IdentityOAuth2Exception {
+        new HashingPersistenceProcessor(null, null).getPreprocessedAccessTokenIdentifier(SHA_256_OF_ABC);
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testRefreshTokenHashCannotBeReverted() throws IdentityOAuth2Exception {
+        new HashingPersistenceProcessor(null, null).getPreprocessedRefreshToken(SHA_256_OF_ABC);
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testAuthzCodeHashCannotBeReverted() throws IdentityOAuth2Exception {
+        new HashingPersistenceProcessor(null, null).getPreprocessedAuthzCode(SHA_256_OF_ABC);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnsupportedAlgorithmFailsAtConstruction() {
+        new HashingPersistenceProcessor("NO-SUCH-DIGEST", null);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Creates in-memory H2 identity databases holding the OAuth tables of dbscripts/h2.sql, and rows in them.
+ */
+public class DAOTestUtils {
+
+    private static final String DB_URL = "jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1";
+    private static final String SCRIPT = "RUNSCRIPT FROM 'classpath:dbscripts/h2.sql'";
+
+    private DAOTestUtils() {
+
+    }
+
+    /**
+     * @param name name of the database, distinct per test class so that tests do not see each others rows
+     * @return connection to the database, in auto commit mode
+     * @throws SQLException if the database could not be created
+     */
+    public static Connection createDatabase(String name) throws SQLException {
+
+        Connection connection = DriverManager.getConnection(getDatabaseUrl(name), "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(SCRIPT);
+        }
+        return connection;
+    }
+
+    public static String getDatabaseUrl(String name) {
+        return String.format(DB_URL, name);
+    }
+
+    public static void clearDatabase(Connection connection) throws SQLException {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE");
+            statement.executeUpdate("DELETE FROM IDN_OAUTH2_ACCESS_TOKEN");
+            statement.executeUpdate("DELETE FROM IDN_OAUTH2_AUTHORIZATION_CODE");
+            statement.executeUpdate("DELETE FROM IDN_OAUTH_CONSUMER_APPS");
+        }
+    }
+
+    /**
+     * @return ID of the application
+     */
+    public static int addApplication(Connection connection, String consumerKey) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH_CONSUMER_APPS " +
+                "(CONSUMER_KEY, CONSUMER_SECRET, USERNAME, TENANT_ID, USER_DOMAIN, APP_NAME, OAUTH_VERSION) " +
+                "VALUES (?, 'secret', 'admin', -1234, 'PRIMARY', ?, 'OAuth-2.0')")) {
+            prepStmt.setString(1, consumerKey);
+            prepStmt.setString(2, consumerKey);
+            prepStmt.executeUpdate();
+        }
+        try (PreparedStatement prepStmt = connection.prepareStatement("SELECT ID FROM IDN_OAUTH_CONSUMER_APPS " +
+                "WHERE CONSUMER_KEY = ?")) {
+            prepStmt.setString(1, consumerKey);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }
+    }
+
+    /**
+     * Adds an access token of the super tenant and primary user store, with one scope, created at the given time.
+     */
+    public static void addAccessToken(Connection connection, int consumerKeyId, String tokenId, String accessToken,
+                                      String user, String scope, String state, long timeCreated)
+            throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH2_ACCESS_TOKEN " +
+                "(TOKEN_ID, ACCESS_TOKEN, ACCESS_TOKEN_HASH, REFRESH_TOKEN, CONSUMER_KEY_ID, AUTHZ_USER, " +
+                "TENANT_ID, USER_DOMAIN, USER_TYPE, GRANT_TYPE, TIME_CREATED, REFRESH_TOKEN_TIME_CREATED, " +
+                "VALIDITY_PERIOD, REFRESH_TOKEN_VALIDITY_PERIOD, TOKEN_SCOPE_HASH, TOKEN_STATE, TOKEN_STATE_ID) " +
+                "VALUES (?, ?, ?, ?, ?, ?, -1234, 'PRIMARY', 'APPLICATION_USER', 'password', ?, ?, 3600000, " +
+                "84600000, ?, ?, ?)")) {
+            prepStmt.setString(1, tokenId);
+            prepStmt.setString(2, accessToken);
+            prepStmt.setString(3, "hash-" + accessToken);
+            prepStmt.setString(4, "refresh-" + accessToken);
+            prepStmt.setInt(5, consumerKeyId);
+            prepStmt.setString(6, user);
+            prepStmt.setTimestamp(7, new Timestamp(timeCreated), getUTCCalendar());
+            prepStmt.setTimestamp(8, new Timestamp(timeCreated), getUTCCalendar());
+            prepStmt.setString(9, scope);
+            prepStmt.setString(10, state);
+            prepStmt.setString(11, "ACTIVE".equals(state) ? "NONE" : tokenId);
+            prepStmt.executeUpdate();
+        }
+        try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE " +
+                "(TOKEN_ID, TOKEN_SCOPE, TENANT_ID) VALUES (?, ?, -1234)")) {
+            prepStmt.setString(1, tokenId);
+            prepStmt.setString(2, scope);
+            prepStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Adds an authorization code of the super tenant and primary user store, created now.
+     */
+    public static void addAuthorizationCode(Connection connection, int consumerKeyId, String codeId,
+                                            String authorizationCode, String state) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH2_AUTHORIZATION_CODE " +
+                "(CODE_ID, AUTHORIZATION_CODE, AUTHORIZATION_CODE_HASH, CONSUMER_KEY_ID, CALLBACK_URL, SCOPE, " +
+                "AUTHZ_USER, TENANT_ID, USER_DOMAIN, TIME_CREATED, VALIDITY_PERIOD, STATE) " +
+                "VALUES (?, ?, ?, ?, 'https://localhost/callback', 'openid', 'admin', -1234, 'PRIMARY', ?, " +
+                "300000, ?)")) {
+            prepStmt.setString(1, codeId);
+            prepStmt.setString(2, authorizationCode);
+            prepStmt.setString(3, "hash-" + authorizationCode);
+            prepStmt.setInt(4, consumerKeyId);
+            prepStmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()), getUTCCalendar());
+            prepStmt.setString(6, state);
+            prepStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return TOKEN_STATE of the access token, or null if there is no such token
+     */
+    public static String getAccessTokenState(Connection connection, String tokenId) throws SQLException {
+        return getString(connection, "SELECT TOKEN_STATE FROM IDN_OAUTH2_ACCESS_TOKEN WHERE TOKEN_ID = ?", tokenId);
+    }
+
+    /**
+     * @return first column of the first row selected by the query, or null if it selects no row
+     */
+    public static String getString(Connection connection, String sql, String parameter) throws SQLException {
+
+        try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            prepStmt.setString(1, parameter);
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * @return calendar the DAOs read and write timestamps in
+     */
+    public static Calendar getUTCCalendar() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+
+    public static Set<String> toSet(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.wso2.carbon.base.CarbonBaseConstants;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.oauth.internal.OAuthComponentServiceHolder;
+import org.wso2.carbon.user.core.service.RealmService;
+
+import javax.naming.Context;
+import javax.naming.NameNotFoundException;
+import javax.naming.OperationNotSupportedException;
+import javax.naming.spi.InitialContextFactory;
+import javax.sql.DataSource;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Hashtable;
+
+/**
+ * Runs the DAOs outside of the server: carbon.home points to the carbon-home test resource, whose identity.xml names
+ * jdbc/WSO2IdentityDB as the identity database, that name is bound to an in-memory H2 database created from
+ * dbscripts/h2.sql, and the realm service only knows the super tenant and case sensitive user stores.
+ *
+ * The OAuth component keeps its configuration and data source in static state, so all DAO tests share this one
+ * database and clear it between tests.
+ */
+public class IdentityTestEnvironment {
+
+    private static final String DATA_SOURCE_NAME = "jdbc/WSO2IdentityDB";
+    private static final String DATABASE_NAME = "WSO2IdentityDB";
+
+    private static DataSource dataSource;
+
+    private IdentityTestEnvironment() {
+
+    }
+
+    /**
+     * Sets the environment up on the first call.
+     *
+     * @return a new connection to the identity database, in auto commit mode
+     * @throws SQLException if the database could not be created
+     */
+    public static synchronized Connection init() throws SQLException {
+
+        if (dataSource == null) {
+            Connection connection = DAOTestUtils.createDatabase(DATABASE_NAME);
+            connection.close();
+
+            JdbcDataSource h2DataSource = new JdbcDataSource();
+            h2DataSource.setURL(DAOTestUtils.getDatabaseUrl(DATABASE_NAME));
+            h2DataSource.setUser("sa");
+            h2DataSource.setPassword("");
+            dataSource = h2DataSource;
+
+            try {
+                System.setProperty(CarbonBaseConstants.CARBON_HOME,
+                        new File(IdentityTestEnvironment.class.getResource("/carbon-home").toURI()).getAbsolutePath());
+            } catch (URISyntaxException e) {
+                throw new IllegalStateException("carbon-home test resource is not a file", e);
+            }
+            System.setProperty(Context.INITIAL_CONTEXT_FACTORY, TestContextFactory.class.getName());
+
+            RealmService realmService = createStub(RealmService.class);
+            IdentityTenantUtil.setRealmService(realmService);
+            OAuthComponentServiceHolder.getInstance().setRealmService(realmService);
+        }
+        return dataSource.getConnection();
+    }
+
+    /**
+     * Creates a stub whose methods return the super tenant for tenant lookups, another stub for interfaces, an
+     * instance created with the public default constructor for other classes of the server, and empty values
+     * otherwise.
+     */
+    private static <T> T createStub(final Class<T> type) {
+
+        return type.cast(Proxy.newProxyInstance(IdentityTestEnvironment.class.getClassLoader(), new Class<?>[]{type},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        Class<?> returnType = method.getReturnType();
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "toString":
+                                return type.getSimpleName() + " stub";
+                            case "getTenantId":
+                                return MultitenantConstants.SUPER_TENANT_ID;
+                            case "getDomain":
+                                return MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+                            default:
+                                break;
+                        }
+                        if (returnType == boolean.class) {
+                            return false;
+                        } else if (returnType == int.class) {
+                            return 0;
+                        } else if (returnType == long.class) {
+                            return 0L;
+                        } else if (returnType.isPrimitive() || returnType.getName().startsWith("java.")) {
+                            return null;
+                        } else if (returnType.isInterface()) {
+                            return createStub(returnType);
+                        } else if (Modifier.isAbstract(returnType.getModifiers())) {
+                            return null;
+                        }
+                        try {
+                            return returnType.newInstance();
+                        } catch (InstantiationException | IllegalAccessException e) {
+                            return null;
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * JNDI context factory which only looks up the identity database.
+     */
+    public static class TestContextFactory implements InitialContextFactory {
+
+        @Override
+        public Context getInitialContext(Hashtable<?, ?> environment) {
+
+            return (Context) Proxy.newProxyInstance(TestContextFactory.class.getClassLoader(),
+                    new Class<?>[]{Context.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+
+                            switch (method.getName()) {
+                                case "lookup":
+                                    if (DATA_SOURCE_NAME.equals(String.valueOf(args[0]))) {
+                                        return dataSource;
+                                    }
+                                    throw new NameNotFoundException(args[0] + " is not bound");
+                                case "close":
+                                    return null;
+                                default:
+                                    throw new OperationNotSupportedException(method.getName() + " is not supported");
+                            }
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Runs the statements of {@link SQLQueries} against the H2 identity database.
+ */
+public class SQLQueriesTest {
+
+    private static final String ACCESS_TOKEN_TABLE = "IDN_OAUTH2_ACCESS_TOKEN";
+    private static final String ACTIVE = "ACTIVE";
+    private static final String EXPIRED = "EXPIRED";
+    private static final String REVOKED = "REVOKED";
+
+    private Connection connection;
+    private int consumerKeyId;
+
+    @BeforeClass
+    public void setUp() throws SQLException {
+        connection = DAOTestUtils.createDatabase("SQLQueriesTest");
+    }
+
+    @AfterClass
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @BeforeMethod
+    public void addApplication() throws SQLException {
+
+        connection.setAutoCommit(true);
+        consumerKeyId = DAOTestUtils.addApplication(connection, "client");
+    }
+
+    @AfterMethod
+    public void clearDatabase() throws SQLException {
+
+        connection.setAutoCommit(true);
+        DAOTestUtils.clearDatabase(connection);
+    }
+
+    @Test
+    public void testRetrieveAccessTokenState() throws SQLException {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", REVOKED, now);
+
+        assertEquals(DAOTestUtils.getString(connection, SQLQueries.RETRIEVE_ACCESS_TOKEN_STATE, "a1"), REVOKED);
+        assertEquals(DAOTestUtils.getString(connection, SQLQueries.RETRIEVE_ACCESS_TOKEN_STATE_WITH_HASH, "hash-a1"),
+                REVOKED);
+        assertNull(DAOTestUtils.getString(connection, SQLQueries.RETRIEVE_ACCESS_TOKEN_STATE, "a2"));
+    }
+
+    @Test
+    public void testRetrieveActiveAccessTokens() throws SQLException {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", ACTIVE, now);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "openid", EXPIRED, now);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t3", "a3", "user2", "email", ACTIVE, now);
+        try (PreparedStatement prepStmt = connection.prepareStatement("INSERT INTO IDN_OAUTH2_ACCESS_TOKEN_SCOPE " +
+                "(TOKEN_ID, TOKEN_SCOPE, TENANT_ID) VALUES ('t1', 'profile', -1234)")) {
+            prepStmt.executeUpdate();
+        }
+
+        List<String> lookupValues = Arrays.asList("a1", "a2", "a3", "a4");
+        assertEquals(retrieveActiveAccessTokens(SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS, lookupValues),
+                DAOTestUtils.toSet("a1 t1 user1 openid", "a1 t1 user1 profile", "a3 t3 user2 email"));
+        lookupValues = Arrays.asList("hash-a1", "hash-a2", "hash-a3", "hash-a4");
+        assertEquals(retrieveActiveAccessTokens(SQLQueries.RETRIEVE_ACTIVE_ACCESS_TOKENS_WITH_HASH, lookupValues),
+                DAOTestUtils.toSet("hash-a1 t1 user1 openid", "hash-a1 t1 user1 profile",
+                        "hash-a3 t3 user2 email"));
+    }
+
+    /**
+     * @return lookup value, token id, user and scope of each row, in the columns read by the DAO
+     */
+    private Set<String> retrieveActiveAccessTokens(String sql, List<String> lookupValues) throws SQLException {
+
+        sql = SQLQueryRegistry.getQueryWithParameterList(SQLQueryRegistry.getQueryForStoreTable(sql,
+                ACCESS_TOKEN_TABLE), SQLQueries.ACCESS_TOKENS_PLACEHOLDER, lookupValues.size());
+        Set<String> rows = new HashSet<>();
+        try (PreparedStatement prepStmt = connection.prepareStatement(sql)) {
+            for (int i = 0; i < lookupValues.size(); i++) {
+                prepStmt.setString(i + 1, lookupValues.get(i));
+            }
+            try (ResultSet resultSet = prepStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(resultSet.getString(15) + " " + resultSet.getString(12) + " " +
+                            resultSet.getString(2) + " " + resultSet.getString(5));
+                }
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class SQLQueryRegistryTest {
+
+    @Test
+    public void testGetQueryWithParameterList() {
+
+        assertEquals(SQLQueryRegistry.getQueryWithParameterList("IN ($tokenIds)", "$tokenIds", 1), "IN (?)");
+        assertEquals(SQLQueryRegistry.getQueryWithParameterList("IN ($tokenIds)", "$tokenIds", 3),
+                "IN (?, ?, ?)");
+    }
+
+    @Test
+    public void testGetQueryForStoreTable() {
+
+        String sql = "UPDATE $accessTokenStoreTable SET TOKEN_STATE=? WHERE $accessTokenStoreTable.TOKEN_ID=?";
+        assertEquals(SQLQueryRegistry.getQueryForStoreTable(sql, "IDN_OAUTH2_ACCESS_TOKEN"),
+                "UPDATE IDN_OAUTH2_ACCESS_TOKEN SET TOKEN_STATE=? WHERE IDN_OAUTH2_ACCESS_TOKEN.TOKEN_ID=?");
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Runs {@link TokenCleanupDAO} against the H2 identity database of {@link IdentityTestEnvironment}.
+ */
+public class TokenCleanupDAOTest {
+
+    private static final String ACCESS_TOKEN_TABLE = "IDN_OAUTH2_ACCESS_TOKEN";
+    private static final String ACCESS_TOKEN_ARCHIVE_TABLE = "IDN_OAUTH2_ACCESS_TOKEN_ARCHIVE";
+    private static final String AUTHORIZATION_CODE_ARCHIVE_TABLE = "IDN_OAUTH2_AUTHORIZATION_CODE_ARCHIVE";
+    private static final String ACTIVE = "ACTIVE";
+    private static final String EXPIRED = "EXPIRED";
+    private static final String REVOKED = "REVOKED";
+    private static final String INACTIVE = "INACTIVE";
+    private static final long DAY_IN_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private Connection connection;
+    private int consumerKeyId;
+    private TokenCleanupDAO tokenCleanupDAO;
+
+    @BeforeClass
+    public void setUp() throws SQLException {
+
+        connection = IdentityTestEnvironment.init();
+        tokenCleanupDAO = new TokenCleanupDAO();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE " + ACCESS_TOKEN_ARCHIVE_TABLE + " AS SELECT * FROM " +
+                    ACCESS_TOKEN_TABLE + " WHERE 1 = 0");
+            statement.execute("CREATE TABLE " + AUTHORIZATION_CODE_ARCHIVE_TABLE + " AS SELECT * FROM " +
+                    "IDN_OAUTH2_AUTHORIZATION_CODE WHERE 1 = 0");
+        }
+    }
+
+    @AfterClass
+    public void tearDown() throws SQLException {
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE " + ACCESS_TOKEN_ARCHIVE_TABLE);
+            statement.execute("DROP TABLE " + AUTHORIZATION_CODE_ARCHIVE_TABLE);
+        }
+        connection.close();
+    }
+
+    @BeforeMethod
+    public void addApplication() throws SQLException {
+        consumerKeyId = DAOTestUtils.addApplication(connection, "client");
+    }
+
+    @AfterMethod
+    public void clearDatabase() throws SQLException {
+
+        DAOTestUtils.clearDatabase(connection);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM " + ACCESS_TOKEN_ARCHIVE_TABLE);
+            statement.executeUpdate("DELETE FROM " + AUTHORIZATION_CODE_ARCHIVE_TABLE);
+        }
+    }
+
+    @Test
+    public void testFindPurgeableAccessTokens() throws SQLException, IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", REVOKED,
+                now - 2 * DAY_IN_MILLIS);
+        // access and refresh token expired more than a day ago
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "openid", EXPIRED,
+                now - 2 * DAY_IN_MILLIS);
+        // refresh token expired less than a day ago
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t3", "a3", "user1", "openid", ACTIVE,
+                now - DAY_IN_MILLIS - 60000);
+        // created after the cutoff time
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t4", "a4", "user1", "openid", REVOKED, now);
+
+        TokenCleanupDAO.CleanupBatch batch = tokenCleanupDAO.findPurgeableAccessTokens(ACCESS_TOKEN_TABLE, "",
+                now - DAY_IN_MILLIS, 10);
+
+        Map<String, String> expected = new HashMap<>();
+        expected.put("t1", REVOKED);
+        expected.put("t2", EXPIRED);
+        assertEquals(batch.getPurgeable(), expected);
+        assertEquals(batch.getScannedCount(), 3);
+        assertEquals(batch.getLastScannedId(), "t3");
+    }
+
+    @Test
+    public void testFindPurgeableAccessTokensContinuesAfterLastScannedId() throws SQLException,
+            IdentityOAuth2Exception {
+
+        long created = System.currentTimeMillis() - 2 * DAY_IN_MILLIS;
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", REVOKED, created);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "openid", INACTIVE, created);
+
+        TokenCleanupDAO.CleanupBatch batch = tokenCleanupDAO.findPurgeableAccessTokens(ACCESS_TOKEN_TABLE, "",
+                created + 1000, 1);
+        assertEquals(batch.getPurgeable(), Collections.singletonMap("t1", REVOKED));
+
+        batch = tokenCleanupDAO.findPurgeableAccessTokens(ACCESS_TOKEN_TABLE, batch.getLastScannedId(),
+                created + 1000, 1);
+        assertEquals(batch.getPurgeable(), Collections.singletonMap("t2", INACTIVE));
+
+        batch = tokenCleanupDAO.findPurgeableAccessTokens(ACCESS_TOKEN_TABLE, batch.getLastScannedId(),
+                created + 1000, 1);
+        assertEquals(batch.getScannedCount(), 0);
+    }
+
+    @Test
+    public void testPurgeAccessTokensKeepsTokensWhoseStateChanged() throws SQLException, IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", REVOKED, now);
+        // found purgeable while EXPIRED, and refreshed into ACTIVE before the purge
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "email", ACTIVE, now);
+
+        Map<String, String> tokens = new HashMap<>();
+        tokens.put("t1", REVOKED);
+        tokens.put("t2", EXPIRED);
+        assertEquals(tokenCleanupDAO.purgeAccessTokens(ACCESS_TOKEN_TABLE, tokens, null), 1);
+
+        assertNull(DAOTestUtils.getAccessTokenState(connection, "t1"));
+        assertNull(getScope("t1"));
+        assertEquals(DAOTestUtils.getAccessTokenState(connection, "t2"), ACTIVE);
+        assertEquals(getScope("t2"), "email");
+    }
+
+    @Test
+    public void testPurgeAccessTokensIntoArchiveTable() throws SQLException, IdentityOAuth2Exception {
+
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", REVOKED,
+                System.currentTimeMillis());
+
+        assertEquals(tokenCleanupDAO.purgeAccessTokens(ACCESS_TOKEN_TABLE, Collections.singletonMap("t1", REVOKED),
+                ACCESS_TOKEN_ARCHIVE_TABLE), 1);
+
+        assertNull(DAOTestUtils.getAccessTokenState(connection, "t1"));
+        assertEquals(DAOTestUtils.getString(connection, "SELECT ACCESS_TOKEN FROM " + ACCESS_TOKEN_ARCHIVE_TABLE +
+                " WHERE TOKEN_ID = ?", "t1"), "a1");
+    }
+
+    @Test
+    public void testFindAndPurgeAuthorizationCodes() throws SQLException, IdentityOAuth2Exception {
+
+        DAOTestUtils.addAuthorizationCode(connection, consumerKeyId, "c1", "code1", INACTIVE);
+        // valid for five more minutes
+        DAOTestUtils.addAuthorizationCode(connection, consumerKeyId, "c2", "code2", ACTIVE);
+
+        TokenCleanupDAO.CleanupBatch batch = tokenCleanupDAO.findPurgeableAuthorizationCodes("",
+                System.currentTimeMillis() + 1000, 10);
+        assertEquals(batch.getPurgeable(), Collections.singletonMap("c1", INACTIVE));
+        assertEquals(batch.getScannedCount(), 2);
+
+        assertEquals(tokenCleanupDAO.purgeAuthorizationCodes(batch.getPurgeable(), AUTHORIZATION_CODE_ARCHIVE_TABLE),
+                1);
+        assertNull(getCodeState("c1"));
+        assertEquals(getCodeState("c2"), ACTIVE);
+        assertEquals(DAOTestUtils.getString(connection, "SELECT AUTHORIZATION_CODE FROM " +
+                AUTHORIZATION_CODE_ARCHIVE_TABLE + " WHERE CODE_ID = ?", "c1"), "code1");
+    }
+
+    @Test
+    public void testPurgeAuthorizationCodesKeepsCodesWhoseStateChanged() throws SQLException,
+            IdentityOAuth2Exception {
+
+        // found purgeable while EXPIRED, and redeemed before the purge
+        DAOTestUtils.addAuthorizationCode(connection, consumerKeyId, "c1", "code1", INACTIVE);
+
+        assertEquals(tokenCleanupDAO.purgeAuthorizationCodes(Collections.singletonMap("c1", EXPIRED), null), 0);
+        assertEquals(getCodeState("c1"), INACTIVE);
+    }
+
+    private String getScope(String tokenId) throws SQLException {
+        return DAOTestUtils.getString(connection, "SELECT TOKEN_SCOPE FROM IDN_OAUTH2_ACCESS_TOKEN_SCOPE WHERE " +
+                "TOKEN_ID = ?", tokenId);
+    }
+
+    private String getCodeState(String codeId) throws SQLException {
+        return DAOTestUtils.getString(connection, "SELECT STATE FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE " +
+                "CODE_ID = ?", codeId);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+import org.wso2.carbon.identity.oauth2.model.AccessTokenDO;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Runs {@link TokenMgtDAO} against the H2 identity database of {@link IdentityTestEnvironment}.
+ */
+public class TokenMgtDAOTest {
+
+    private static final String ACTIVE = "ACTIVE";
+    private static final String EXPIRED = "EXPIRED";
+    private static final String REVOKED = "REVOKED";
+    private static final String INACTIVE = "INACTIVE";
+
+    private Connection connection;
+    private int consumerKeyId;
+    private TokenMgtDAO tokenMgtDAO;
+
+    @BeforeClass
+    public void setUp() throws SQLException {
+
+        connection = IdentityTestEnvironment.init();
+        tokenMgtDAO = new TokenMgtDAO();
+    }
+
+    @AfterClass
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @BeforeMethod
+    public void addApplication() throws SQLException {
+        consumerKeyId = DAOTestUtils.addApplication(connection, "client");
+    }
+
+    @AfterMethod
+    public void clearDatabase() throws SQLException {
+        DAOTestUtils.clearDatabase(connection);
+    }
+
+    @Test
+    public void testRevokeAccessTokensOfUser() throws SQLException, IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", ACTIVE, now - 2000);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "email", EXPIRED, now - 3000);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t3", "a3", "user1", "email", REVOKED, now - 4000);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t4", "a4", "user2", "openid", ACTIVE, now - 2000);
+
+        Map<String, AccessTokenDO> revokedTokens = toMap(tokenMgtDAO.revokeAccessTokensOfUser(getUser("user1"),
+                null));
+
+        assertEquals(revokedTokens.keySet(), DAOTestUtils.toSet("t1", "t2"));
+        AccessTokenDO accessTokenDO = revokedTokens.get("t1");
+        assertEquals(accessTokenDO.getConsumerKey(), "client");
+        assertEquals(accessTokenDO.getAccessToken(), "a1");
+        assertEquals(accessTokenDO.getScope(), new String[]{"openid"});
+        assertEquals(DAOTestUtils.getAccessTokenState(connection, "t1"), REVOKED);
+        assertEquals(DAOTestUtils.getAccessTokenState(connection, "t2"), REVOKED);
+        assertEquals(DAOTestUtils.getAccessTokenState(connection, "t3"), REVOKED);
+        assertEquals(DAOTestUtils.getAccessTokenState(connection, "t4"), ACTIVE);
+    }
+
+    @Test
+    public void testRevokeAccessTokensOfUserOfSameClientAndScope() throws SQLException, IdentityOAuth2Exception {
+
+        long now = System.currentTimeMillis();
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t1", "a1", "user1", "openid", ACTIVE, now);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t2", "a2", "user1", "openid", EXPIRED, now - 1000);
+        DAOTestUtils.addAccessToken(connection, consumerKeyId, "t3", "a3", "user1", "openid", EXPIRED, now - 2000);
+
+        assertEquals(tokenMgtDAO.revokeAccessTokensOfUser(getUser("user1"), null).size(), 3);
+        assertEquals(DAOTestUtils.getString(connection, "SELECT COUNT(*) FROM IDN_OAUTH2_ACCESS_TOKEN WHERE " +
+                "TOKEN_STATE = ?", REVOKED), "3");
+    }
+
+    @Test
+    public void testRevokeAccessTokensOfUserWithoutTokens() throws IdentityOAuth2Exception {
+        assertTrue(tokenMgtDAO.revokeAccessTokensOfUser(getUser("user1"), null).isEmpty());
+    }
+
+    @Test
+    public void testRedeemAuthorizationCodeSucceedsOnlyOnce() throws SQLException, IdentityOAuth2Exception {
+
+        DAOTestUtils.addAuthorizationCode(connection, consumerKeyId, "c1", "code1", ACTIVE);
+        DAOTestUtils.addAuthorizationCode(connection, consumerKeyId, "c2", "code2", INACTIVE);
+
+        assertTrue(tokenMgtDAO.redeemAuthorizationCode("code1", "t1"));
+        assertFalse(tokenMgtDAO.redeemAuthorizationCode("code1", "t2"));
+        assertEquals(getCodeColumn("STATE", "c1"), INACTIVE);
+        assertEquals(getCodeColumn("TOKEN_ID", "c1"), "t1");
+
+        assertFalse(tokenMgtDAO.redeemAuthorizationCode("code2", "t3"));
+        assertNull(getCodeColumn("TOKEN_ID", "c2"));
+        // not persisted on this node, e.g. still queued on another node
+        assertFalse(tokenMgtDAO.redeemAuthorizationCode("code3", "t4"));
+    }
+
+    private String getCodeColumn(String column, String codeId) throws SQLException {
+        return DAOTestUtils.getString(connection, "SELECT " + column + " FROM IDN_OAUTH2_AUTHORIZATION_CODE WHERE " +
+                "CODE_ID = ?", codeId);
+    }
+
+    private static AuthenticatedUser getUser(String userName) {
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName(userName);
+        user.setUserStoreDomain("PRIMARY");
+        user.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        return user;
+    }
+
+    private static Map<String, AccessTokenDO> toMap(Set<AccessTokenDO> accessTokens) {
+
+        Map<String, AccessTokenDO> accessTokensById = new HashMap<>();
+        for (AccessTokenDO accessTokenDO : accessTokens) {
+            accessTokensById.put(accessTokenDO.getTokenId(), accessTokenDO);
+        }
+        return accessTokensById;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.oauth2.dao;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.Charsets;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.oauth2.IdentityOAuth2Exception;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TokenPartitionRouterTest {
+
+    private static final String PARTITIONING_DOMAINS = "A:foo.com, B:bar.com";
+
+    @Test
+    public void testDomainMappings() throws Exception {
+
+        TokenPartitionRouter router = new TokenPartitionRouter(true, true, PARTITIONING_DOMAINS);
+        assertTrue(router.isEnabled());
+        assertEquals(router.getDomainMappings().get("FOO.COM"), "A");
+        assertEquals(router.getPartitionTables(), new HashSet<>(Arrays.asList("IDN_OAUTH2_ACCESS_TOKEN_A",
+                "IDN_OAUTH2_ACCESS_TOKEN_B")));
+        assertEquals(router.getUserStoreDomainFromUserId("Foo.com/admin"), "A");
+        assertEquals(router.getUserStoreDomainFromUserId("SECONDARY/admin"), "SECONDARY");
+        assertNull(router.getUserStoreDomainFromUserId("admin"));
+        assertEquals(router.getAccessTokenStoreTableFromUserId("bar.com/admin"), "IDN_OAUTH2_ACCESS_TOKEN_B");
+        assertEquals(router.getAccessTokenStoreTableFromUserId("SECONDARY/admin"), "IDN_OAUTH2_ACCESS_TOKEN");
+    }
+
+    @Test
+    public void testUserNameAssertionDisabled() throws Exception {
+
+        assertFalse(new TokenPartitionRouter(true, false, PARTITIONING_DOMAINS).isEnabled());
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testInvalidDomainMapping() throws Exception {
+
+        new TokenPartitionRouter(true, true, "A:foo.com, B");
+    }
+
+    @Test
+    public void testGetUserIdFromAccessToken() throws Exception {
+
+        TokenPartitionRouter router = new TokenPartitionRouter(true, true, PARTITIONING_DOMAINS);
+        String accessToken = encode("client:foo.com/admin:token");
+        assertEquals(TokenPartitionRouter.getUserIdFromAccessToken(accessToken), "foo.com/admin");
+        assertEquals(router.getUserStoreDomainFromAccessToken(accessToken), "A");
+        assertEquals(router.getAccessTokenStoreTableFromAccessToken(accessToken), "IDN_OAUTH2_ACCESS_TOKEN_A");
+        assertNull(TokenPartitionRouter.getUserIdFromAccessToken(encode("token")));
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testUnmappedDomainOfAccessTokenRejected() throws Exception {
+
+        TokenPartitionRouter router = new TokenPartitionRouter(true, true, PARTITIONING_DOMAINS);
+        router.getUserStoreDomainFromAccessToken(encode("client:X WHERE 1=1 --/admin:token"));
+    }
+
+    @Test
+    public void testGetAccessTokenStoreTableOfDomain() throws Exception {
+
+        TokenPartitionRouter router = new TokenPartitionRouter(true, true, PARTITIONING_DOMAINS);
+        assertEquals(router.getAccessTokenStoreTableOfDomain("foo.com"), "IDN_OAUTH2_ACCESS_TOKEN_A");
+        assertEquals(router.getAccessTokenStoreTableOfDomain("Secondary"), "IDN_OAUTH2_ACCESS_TOKEN_SECONDARY");
+    }
+
+    @Test(expectedExceptions = IdentityOAuth2Exception.class)
+    public void testUnmappedDomainOfStoreTableRejected() throws Exception {
+
+        new TokenPartitionRouter(true, true, PARTITIONING_DOMAINS).getAccessTokenStoreTableOfDomain("sub.domain");
+    }
+
+    private static String encode(String token) {
+        return Base64.encodeBase64String(token.getBytes(Charsets.UTF_8));
+    }
+}
@@ -0,0 +1,6 @@
+-- Widens the ACCESS_TOKEN column of IDN_OAUTH2_ACCESS_TOKEN to hold the tokens of
+-- org.wso2.carbon.identity.oauth2.token.JWTTokenIssuer. Run this script against the identity database before
+-- configuring that issuer as OAuth.IdentityOAuthTokenGenerator in identity.xml. Repeat the statement for the access
+-- token tables of user store domains and for the archive table of the token cleanup, if they are in use.
+
+ALTER TABLE IDN_OAUTH2_ACCESS_TOKEN MODIFY ACCESS_TOKEN VARCHAR(4000);
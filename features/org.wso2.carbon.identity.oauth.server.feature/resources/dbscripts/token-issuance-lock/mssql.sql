@@ -0,0 +1,9 @@
+-- Lock table of org.wso2.carbon.identity.oauth2.token.lock.JDBCTokenIssuanceLockManager. Run this script against the
+-- identity database before configuring that lock manager as OAuth.TokenIssuanceLockManager in identity.xml.
+
+IF NOT EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[IDN_OAUTH2_TOKEN_ISSUANCE_LOCK]') AND TYPE IN (N'U'))
+CREATE TABLE IDN_OAUTH2_TOKEN_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR(64) NOT NULL,
+            LOCKED_TIME DATETIME NOT NULL,
+            PRIMARY KEY (LOCK_KEY)
+);
@@ -0,0 +1,8 @@
+-- Lock table of org.wso2.carbon.identity.oauth2.token.lock.JDBCTokenIssuanceLockManager. Run this script against the
+-- identity database before configuring that lock manager as OAuth.TokenIssuanceLockManager in identity.xml.
+
+CREATE TABLE IF NOT EXISTS IDN_OAUTH2_TOKEN_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR(64) NOT NULL,
+            LOCKED_TIME TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+            PRIMARY KEY (LOCK_KEY)
+)ENGINE INNODB;
@@ -0,0 +1,8 @@
+-- Lock table of org.wso2.carbon.identity.oauth2.token.lock.JDBCTokenIssuanceLockManager. Run this script against the
+-- identity database before configuring that lock manager as OAuth.TokenIssuanceLockManager in identity.xml.
+
+CREATE TABLE IDN_OAUTH2_TOKEN_ISSUANCE_LOCK (
+            LOCK_KEY VARCHAR2(64) NOT NULL,
+            LOCKED_TIME TIMESTAMP NOT NULL,
+            PRIMARY KEY (LOCK_KEY))
+/